@@ -6,6 +6,7 @@ import com.eventr.exception.*
 import com.eventr.util.SecureLogger
 import jakarta.servlet.http.HttpServletRequest
 import jakarta.validation.ConstraintViolationException
+import org.springframework.http.HttpHeaders
 import org.springframework.http.HttpStatus
 import org.springframework.http.ResponseEntity
 import org.springframework.http.converter.HttpMessageNotReadableException
@@ -207,6 +208,29 @@ class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse)
     }
 
+    /**
+     * Handle throttled requests, telling the client when to retry.
+     */
+    @ExceptionHandler(RateLimitException::class)
+    fun handleRateLimit(
+        ex: RateLimitException,
+        request: HttpServletRequest
+    ): ResponseEntity<ErrorResponse> {
+        val errorResponse = ErrorResponse(
+            status = HttpStatus.TOO_MANY_REQUESTS.value(),
+            error = "Too Many Requests",
+            message = ex.message ?: "Request rate limit exceeded",
+            path = request.requestURI,
+            requestId = generateRequestId()
+        )
+
+        secureLogger.logSecurityEvent("RATE_LIMITED", null, false, ex.message)
+
+        val response = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+        ex.retryAfterSeconds?.let { response.header(HttpHeaders.RETRY_AFTER, it.toString()) }
+        return response.body(errorResponse)
+    }
+
     /**
      * Handle authentication failures with security-aware messaging.
      */
@@ -1,10 +1,12 @@
 package com.eventr.config.application
 
+import com.eventr.shared.pagination.CursorPage
 import org.slf4j.LoggerFactory
 import org.springframework.boot.context.properties.ConfigurationProperties
 import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Configuration
 import org.springframework.core.env.Environment
+import org.springframework.http.HttpHeaders
 import org.springframework.web.servlet.config.annotation.CorsRegistry
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer
 
@@ -52,6 +54,7 @@ class WebConfig(
             .allowedOrigins(*origins)
             .allowedMethods(*methods)
             .allowedHeaders(*headers)
+            .exposedHeaders(CursorPage.NEXT_CURSOR_HEADER, HttpHeaders.ETAG, HttpHeaders.RETRY_AFTER)
             .allowCredentials(corsProperties.allowCredentials)
             .maxAge(corsProperties.maxAge)
             
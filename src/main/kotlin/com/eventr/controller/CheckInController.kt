@@ -1,26 +1,38 @@
 package com.eventr.controller
 
 import com.eventr.dto.*
+import com.eventr.service.CheckInIngestionService
+import com.eventr.service.CheckInSyncService
+import com.eventr.service.QRCodeService
 import com.eventr.service.interfaces.CheckInServiceInterface
+import com.eventr.shared.web.IdempotencyStore
+import org.springframework.http.MediaType
 import org.springframework.http.ResponseEntity
 import org.springframework.web.bind.annotation.*
 import java.util.*
 
 /**
  * Check-in controller for MVP.
- * 
- * TODO: Re-add QR code generation when QRCodeService is created
  */
 @RestController
 @RequestMapping("/api/checkin")
 class CheckInController(
-    private val checkInService: CheckInServiceInterface
+    private val checkInService: CheckInServiceInterface,
+    private val checkInIngestionService: CheckInIngestionService,
+    private val checkInSyncService: CheckInSyncService,
+    private val qrCodeService: QRCodeService,
+    private val idempotencyStore: IdempotencyStore
 ) {
 
     @PostMapping("/qr")
-    fun checkInWithQR(@RequestBody qrCheckInDto: QRCheckInDto): ResponseEntity<CheckInDto> {
+    fun checkInWithQR(
+        @RequestBody qrCheckInDto: QRCheckInDto,
+        @RequestHeader(IdempotencyStore.HEADER, required = false) idempotencyKey: String? = null
+    ): ResponseEntity<CheckInDto> {
         return try {
-            val result = checkInService.checkInWithQR(qrCheckInDto)
+            val result = idempotencyStore.execute("POST /api/checkin/qr", idempotencyKey, listOf(qrCheckInDto)) {
+                checkInService.checkInWithQR(qrCheckInDto)
+            }
             ResponseEntity.ok(result)
         } catch (e: IllegalArgumentException) {
             ResponseEntity.badRequest().build()
@@ -28,9 +40,14 @@ class CheckInController(
     }
 
     @PostMapping("/manual")
-    fun manualCheckIn(@RequestBody createDto: CheckInCreateDto): ResponseEntity<CheckInDto> {
+    fun manualCheckIn(
+        @RequestBody createDto: CheckInCreateDto,
+        @RequestHeader(IdempotencyStore.HEADER, required = false) idempotencyKey: String? = null
+    ): ResponseEntity<CheckInDto> {
         return try {
-            val result = checkInService.manualCheckIn(createDto)
+            val result = idempotencyStore.execute("POST /api/checkin/manual", idempotencyKey, listOf(createDto)) {
+                checkInIngestionService.checkIn(createDto)
+            }
             ResponseEntity.ok(result)
         } catch (e: IllegalArgumentException) {
             ResponseEntity.badRequest().build()
@@ -40,12 +57,28 @@ class CheckInController(
     @PostMapping("/bulk")
     fun bulkCheckIn(
         @RequestParam registrationIds: List<UUID>,
-        @RequestParam(required = false) sessionId: UUID?
+        @RequestParam(required = false) sessionId: UUID?,
+        @RequestHeader(IdempotencyStore.HEADER, required = false) idempotencyKey: String? = null
     ): ResponseEntity<List<CheckInDto>> {
-        val results = checkInService.bulkCheckIn(registrationIds, sessionId)
+        val results = idempotencyStore.execute("POST /api/checkin/bulk", idempotencyKey, listOf(registrationIds, sessionId)) {
+            checkInService.bulkCheckIn(registrationIds, sessionId)
+        }
         return ResponseEntity.ok(results)
     }
 
+    /**
+     * Delta sync for offline devices: records the check-ins a device queued
+     * and returns what other devices recorded since its last watermark.
+     */
+    @PostMapping("/sync")
+    fun sync(@RequestBody request: CheckInSyncRequestDto): ResponseEntity<CheckInSyncResponseDto> {
+        return try {
+            ResponseEntity.ok(checkInSyncService.sync(request))
+        } catch (e: IllegalArgumentException) {
+            ResponseEntity.badRequest().build()
+        }
+    }
+
     @GetMapping("/event/{eventId}/stats")
     fun getEventStats(@PathVariable eventId: UUID): ResponseEntity<Map<String, Any>> {
         val stats = checkInService.getCheckInStatistics(eventId)
@@ -80,6 +113,27 @@ class CheckInController(
         val checkIns = checkInService.getCheckInsForSession(sessionId)
         return ResponseEntity.ok(checkIns)
     }
-    
-    // TODO: Add QR code generation endpoints when QRCodeService is created
+
+    /**
+     * Signed check-in QR code for a registration, to its event or to one of
+     * its sessions, as a PNG image.
+     */
+    @GetMapping("/qr/registration/{registrationId}", produces = [MediaType.IMAGE_PNG_VALUE])
+    fun getQRCode(
+        @PathVariable registrationId: UUID,
+        @RequestParam(required = false) sessionId: UUID?,
+        @RequestParam(defaultValue = "300") size: Int
+    ): ResponseEntity<ByteArray> {
+        return try {
+            val code = qrCodeService.issue(registrationId, sessionId)
+            ResponseEntity.ok(qrCodeService.render(code, size.coerceIn(MIN_QR_SIZE, MAX_QR_SIZE)))
+        } catch (e: IllegalArgumentException) {
+            ResponseEntity.notFound().build()
+        }
+    }
+
+    companion object {
+        private const val MIN_QR_SIZE = 100
+        private const val MAX_QR_SIZE = 1000
+    }
 }
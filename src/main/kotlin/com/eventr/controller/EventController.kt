@@ -5,17 +5,27 @@ import com.eventr.dto.EventDto
 import com.eventr.dto.EventInstanceDto
 import com.eventr.dto.EventUpdateDto
 import com.eventr.dto.RegistrationDto
-import com.eventr.model.RegistrationStatus
 import com.eventr.modules.event.api.EventModuleApi
+import com.eventr.model.EventCategory
 import com.eventr.model.EventType
 import com.eventr.modules.event.api.dto.CreateEventRequest
 import com.eventr.modules.event.api.dto.EventFilterCriteria
+import com.eventr.modules.event.api.dto.EventFacetsResponse
 import com.eventr.modules.event.api.dto.EventResponse
+import com.eventr.modules.event.api.dto.EventSuggestion
+import com.eventr.modules.event.api.dto.EventSummaryResponse
 import com.eventr.modules.event.api.dto.UpdateEventRequest
 import com.eventr.repository.RegistrationRepository
+import com.eventr.service.BulkRegistrationAction
+import com.eventr.service.BulkRegistrationService
+import com.eventr.shared.pagination.CursorCodec
+import com.eventr.shared.pagination.CursorPage
+import com.eventr.shared.web.ConditionalGet
 import java.util.UUID
-import org.springframework.beans.BeanUtils
+import org.springframework.data.domain.PageRequest
+import org.springframework.http.HttpHeaders
 import org.springframework.http.ResponseEntity
+import org.springframework.web.context.request.WebRequest
 import org.springframework.web.bind.annotation.*
 import io.swagger.v3.oas.annotations.Operation
 import io.swagger.v3.oas.annotations.Parameter
@@ -36,7 +46,8 @@ import io.swagger.v3.oas.annotations.media.Schema
 @Tag(name = "Events", description = "Event management operations")
 class EventController(
     private val eventModule: EventModuleApi,
-    private val registrationRepository: RegistrationRepository  // TODO: Move to RegistrationModuleApi
+    private val registrationRepository: RegistrationRepository,  // TODO: Move to RegistrationModuleApi
+    private val bulkRegistrationService: BulkRegistrationService
 ) {
 
     // ==================== Mapping Helpers ====================
@@ -78,6 +89,9 @@ class EventController(
                     id = inst.id
                     dateTime = inst.startDateTime
                     location = inst.location
+                    capacity = inst.capacity
+                    registrationCount = inst.registrationCount
+                    waitlistCount = inst.waitlistCount
                 }
             }
         }
@@ -172,7 +186,10 @@ class EventController(
     @GetMapping
     @Operation(
         summary = "Get all events",
-        description = "Retrieves events with optional filtering by status and sorting."
+        description = "Retrieves one page of events with optional filtering and sorting. " +
+            "When sorted by start date (the default) the list is keyset-paginated: pass the " +
+            "X-Next-Cursor response header back as 'cursor' to fetch the next page. " +
+            "Other sort orders are paged with 'page'."
     )
     @ApiResponses(value = [
         ApiResponse(responseCode = "200", description = "Events retrieved successfully",
@@ -180,17 +197,124 @@ class EventController(
     ])
     fun getAllEvents(
         @Parameter(description = "Text search query") @RequestParam(required = false) q: String?,
-        @Parameter(description = "Sort field") @RequestParam(required = false) sortBy: String?,
+        @Parameter(description = "Filter by city") @RequestParam(required = false) city: String?,
+        @Parameter(description = "Filter by category") @RequestParam(required = false) category: EventCategory?,
+        @Parameter(description = "Filter by event type") @RequestParam(required = false) eventType: EventType?,
+        @Parameter(description = "Filter by tag; repeat to match any of several tags") @RequestParam(required = false) tag: List<String>?,
+        @Parameter(description = "Sort field (startDateTime, name, city, category, relevance); defaults to relevance when q is given") @RequestParam(required = false) sortBy: String?,
         @Parameter(description = "Sort order (asc, desc)") @RequestParam(required = false) sortOrder: String?,
-        @Parameter(description = "Show only published events") @RequestParam(defaultValue = "true") publishedOnly: Boolean
-    ): List<EventDto> {
-        val criteria = EventFilterCriteria(
+        @Parameter(description = "Show only published events") @RequestParam(defaultValue = "true") publishedOnly: Boolean,
+        @Parameter(description = "Continuation token from X-Next-Cursor") @RequestParam(required = false) cursor: String?,
+        @Parameter(description = "Zero-based page number (non-date sort orders only)") @RequestParam(defaultValue = "0") page: Int,
+        @Parameter(description = "Page size (max 200)") @RequestParam(defaultValue = "50") size: Int,
+        webRequest: WebRequest
+    ): ResponseEntity<List<EventDto>> {
+        val criteria = toCriteria(q, city, category, eventType, tag, sortBy, sortOrder, publishedOnly, page, size)
+        
+        if (criteria.sortBy.lowercase() != "startdatetime") {
+            val events = eventModule.findEvents(criteria)
+            return ConditionalGet.respond(webRequest, ConditionalGet.etag(events.flatMap { versionParts(it) })) {
+                events.map { toDto(it) }
+            }
+        }
+        
+        val events = eventModule.scrollEvents(criteria, cursor)
+        val etag = ConditionalGet.etag(events.items.flatMap { versionParts(it) } + events.nextCursor)
+        return ConditionalGet.respond(webRequest, etag, cursorHeaders(events.nextCursor)) {
+            events.items.map { toDto(it) }
+        }
+    }
+
+    @GetMapping("/summaries")
+    @Operation(
+        summary = "Get event summaries",
+        description = "Lightweight list view for event cards. Accepts the same filtering, sorting and " +
+            "paging parameters as GET /api/events but returns only card fields and a short description excerpt."
+    )
+    fun getEventSummaries(
+        @Parameter(description = "Text search query") @RequestParam(required = false) q: String?,
+        @Parameter(description = "Filter by city") @RequestParam(required = false) city: String?,
+        @Parameter(description = "Filter by category") @RequestParam(required = false) category: EventCategory?,
+        @Parameter(description = "Filter by event type") @RequestParam(required = false) eventType: EventType?,
+        @Parameter(description = "Filter by tag; repeat to match any of several tags") @RequestParam(required = false) tag: List<String>?,
+        @Parameter(description = "Sort field (startDateTime, name, city, category, relevance); defaults to relevance when q is given") @RequestParam(required = false) sortBy: String?,
+        @Parameter(description = "Sort order (asc, desc)") @RequestParam(required = false) sortOrder: String?,
+        @Parameter(description = "Show only published events") @RequestParam(defaultValue = "true") publishedOnly: Boolean,
+        @Parameter(description = "Continuation token from X-Next-Cursor") @RequestParam(required = false) cursor: String?,
+        @Parameter(description = "Zero-based page number (non-date sort orders only)") @RequestParam(defaultValue = "0") page: Int,
+        @Parameter(description = "Page size (max 200)") @RequestParam(defaultValue = "50") size: Int,
+        webRequest: WebRequest
+    ): ResponseEntity<List<EventSummaryResponse>> {
+        val criteria = toCriteria(q, city, category, eventType, tag, sortBy, sortOrder, publishedOnly, page, size)
+        
+        if (criteria.sortBy.lowercase() != "startdatetime") {
+            val summaries = eventModule.findEventSummaries(criteria)
+            return ConditionalGet.respond(webRequest, ConditionalGet.etag(summaries.flatMap { listOf(it.id, it.version) })) {
+                summaries
+            }
+        }
+        
+        val summaries = eventModule.scrollEventSummaries(criteria, cursor)
+        val etag = ConditionalGet.etag(summaries.items.flatMap { listOf(it.id, it.version) } + summaries.nextCursor)
+        return ConditionalGet.respond(webRequest, etag, cursorHeaders(summaries.nextCursor)) { summaries.items }
+    }
+    
+    @GetMapping("/facets")
+    @Operation(
+        summary = "Get event facet counts",
+        description = "Counts matching events per category, event type, city and tag for the given filters. " +
+            "Each dimension is counted with all other filters applied, so counts show how many events a selection would return."
+    )
+    fun getEventFacets(
+        @Parameter(description = "Text search query") @RequestParam(required = false) q: String?,
+        @Parameter(description = "Filter by city") @RequestParam(required = false) city: String?,
+        @Parameter(description = "Filter by category") @RequestParam(required = false) category: EventCategory?,
+        @Parameter(description = "Filter by event type") @RequestParam(required = false) eventType: EventType?,
+        @Parameter(description = "Filter by tag; repeat to match any of several tags") @RequestParam(required = false) tag: List<String>?,
+        @Parameter(description = "Show only published events") @RequestParam(defaultValue = "true") publishedOnly: Boolean,
+        webRequest: WebRequest
+    ): ResponseEntity<EventFacetsResponse> {
+        val facets = eventModule.getFacets(toCriteria(q, city, category, eventType, tag, null, null, publishedOnly, 0, 1))
+        return ConditionalGet.respond(webRequest, ConditionalGet.etag(facets)) { facets }
+    }
+    
+    @GetMapping("/suggest")
+    @Operation(
+        summary = "Suggest events, venues and cities",
+        description = "Typeahead for the search box. Matches the start of any word in the names, venue names " +
+            "and cities of published events, answered from memory without querying the database."
+    )
+    fun suggest(
+        @Parameter(description = "Text typed so far") @RequestParam q: String,
+        @Parameter(description = "Maximum number of suggestions (max 25)") @RequestParam(defaultValue = "10") limit: Int
+    ): ResponseEntity<List<EventSuggestion>> {
+        return ResponseEntity.ok(eventModule.suggest(q, limit))
+    }
+    
+    private fun toCriteria(
+        q: String?,
+        city: String?,
+        category: EventCategory?,
+        eventType: EventType?,
+        tags: List<String>?,
+        sortBy: String?,
+        sortOrder: String?,
+        publishedOnly: Boolean,
+        page: Int,
+        size: Int
+    ): EventFilterCriteria {
+        return EventFilterCriteria(
             search = q,
-            sortBy = sortBy ?: "startDateTime",
+            city = city,
+            category = category,
+            eventType = eventType,
+            tags = tags,
+            sortBy = sortBy ?: if (q.isNullOrBlank()) "startDateTime" else "relevance",
             sortDirection = sortOrder ?: "asc",
-            publishedOnly = publishedOnly
+            publishedOnly = publishedOnly,
+            page = page,
+            size = size
         )
-        return eventModule.findEvents(criteria).map { toDto(it) }
     }
 
     @GetMapping("/{eventId}")
@@ -201,17 +325,15 @@ class EventController(
     @ApiResponses(value = [
         ApiResponse(responseCode = "200", description = "Event found",
             content = [Content(mediaType = "application/json", schema = Schema(implementation = EventDto::class))]),
+        ApiResponse(responseCode = "304", description = "Event unchanged since the ETag in If-None-Match"),
         ApiResponse(responseCode = "404", description = "Event not found")
     ])
     fun getEventById(
-        @Parameter(description = "Unique identifier of the event") @PathVariable eventId: UUID
+        @Parameter(description = "Unique identifier of the event") @PathVariable eventId: UUID,
+        webRequest: WebRequest
     ): ResponseEntity<EventDto> {
-        val event = eventModule.getEvent(eventId)
-        return if (event != null) {
-            ResponseEntity.ok(toDto(event))
-        } else {
-            ResponseEntity.notFound().build()
-        }
+        val event = eventModule.getEvent(eventId) ?: return ResponseEntity.notFound().build()
+        return ConditionalGet.respond(webRequest, ConditionalGet.etag(versionParts(event))) { toDto(event) }
     }
 
     @PutMapping("/{eventId}")
@@ -247,12 +369,18 @@ class EventController(
     
     @GetMapping("/{eventId}/instances")
     @Operation(summary = "Get event instances")
-    fun getEventInstances(@PathVariable eventId: UUID): List<EventInstanceDto> {
-        return eventModule.getEventInstances(eventId).map { inst ->
-            EventInstanceDto().apply {
-                id = inst.id
-                dateTime = inst.startDateTime
-                location = inst.location
+    fun getEventInstances(@PathVariable eventId: UUID, webRequest: WebRequest): ResponseEntity<List<EventInstanceDto>> {
+        val instances = eventModule.getEventInstances(eventId)
+        return ConditionalGet.respond(webRequest, ConditionalGet.etag(instances.flatMap { listOf(it.id, it.version, it.registrationCounts) })) {
+            instances.map { inst ->
+                EventInstanceDto().apply {
+                    id = inst.id
+                    dateTime = inst.startDateTime
+                    location = inst.location
+                    capacity = inst.capacity
+                    registrationCount = inst.registrationCount
+                    waitlistCount = inst.waitlistCount
+                }
             }
         }
     }
@@ -260,24 +388,52 @@ class EventController(
     // ==================== Registration Operations (TODO: Move to RegistrationModuleApi) ====================
 
     @GetMapping("/{eventId}/registrations")
-    @Operation(summary = "Get registrations for an event")
-    fun getEventRegistrations(@PathVariable eventId: UUID): List<RegistrationDto> {
+    @Operation(
+        summary = "Get registrations for an event",
+        description = "Keyset-paginated by registration id. Pass the X-Next-Cursor response header back as 'cursor'."
+    )
+    fun getEventRegistrations(
+        @PathVariable eventId: UUID,
+        @Parameter(description = "Continuation token from X-Next-Cursor") @RequestParam(required = false) cursor: String?,
+        @Parameter(description = "Page size (max 500)") @RequestParam(defaultValue = "100") limit: Int
+    ): ResponseEntity<List<RegistrationDto>> {
         // TODO: This should call RegistrationModuleApi when that module is created
-        val instances = eventModule.getEventInstances(eventId)
-        val instanceIds = instances.map { it.id }
+        val pageSize = limit.coerceIn(1, MAX_REGISTRATION_PAGE_SIZE)
+        val lookahead = PageRequest.of(0, pageSize + 1)
         
-        // For now, still using repository directly - will migrate when Registration module is created
-        val registrations = registrationRepository.findAll().filter { reg ->
-            reg.eventInstance?.id in instanceIds
+        val registrations = if (cursor == null) {
+            registrationRepository.findFirstPageByEventId(eventId, lookahead)
+        } else {
+            registrationRepository.findPageByEventIdAfter(eventId, decodeRegistrationCursor(cursor), lookahead)
         }
         
-        return registrations.map { registration ->
-            RegistrationDto().apply {
-                BeanUtils.copyProperties(registration, this)
-                eventInstanceId = registration.eventInstance?.id
-            }
+        return withNextCursor(CursorPage.fromLookahead(registrations, pageSize) { CursorCodec.encode(it.id.toString()) })
+    }
+    
+    private fun decodeRegistrationCursor(cursor: String): UUID {
+        val (id) = CursorCodec.decode(cursor, expectedParts = 1)
+        return try {
+            UUID.fromString(id)
+        } catch (e: IllegalArgumentException) {
+            throw CursorCodec.invalidCursor()
         }
     }
+    
+    private fun <T> withNextCursor(page: CursorPage<T>): ResponseEntity<List<T>> {
+        return ResponseEntity.ok().headers(cursorHeaders(page.nextCursor)).body(page.items)
+    }
+    
+    private fun cursorHeaders(nextCursor: String?): HttpHeaders {
+        val headers = HttpHeaders()
+        nextCursor?.let { headers.set(CursorPage.NEXT_CURSOR_HEADER, it) }
+        return headers
+    }
+    
+    // Everything the EventDto is built from that can change: the event row, its instances and their counts
+    private fun versionParts(event: EventResponse): List<Any?> {
+        return listOf(event.id, event.version) +
+            event.instances.flatMap { listOf(it.id, it.version, it.registrationCounts) }
+    }
 
     data class BulkActionRequest(
         val action: String,
@@ -290,44 +446,22 @@ class EventController(
         @PathVariable eventId: UUID,
         @RequestBody request: BulkActionRequest
     ): ResponseEntity<Map<String, Any>> {
-        // TODO: Move to RegistrationModuleApi
-        val registrations = registrationRepository.findAllById(request.registrationIds)
-        val results = mutableMapOf<String, Int>()
-        
-        when (request.action.lowercase()) {
-            "approve" -> {
-                registrations.forEach { registration ->
-                    if (registration.status == RegistrationStatus.WAITLISTED) {
-                        registration.status = RegistrationStatus.REGISTERED
-                        registrationRepository.save(registration)
-                    }
-                }
-                results["approved"] = registrations.count { it.status == RegistrationStatus.REGISTERED }
-            }
-            
-            "cancel" -> {
-                registrations.forEach { registration ->
-                    registration.status = RegistrationStatus.CANCELLED
-                    registrationRepository.save(registration)
-                }
-                results["cancelled"] = registrations.size
-            }
-            
-            "checkin" -> {
-                registrations.forEach { registration ->
-                    if (registration.status == RegistrationStatus.REGISTERED) {
-                        registration.status = RegistrationStatus.CHECKED_IN
-                        registrationRepository.save(registration)
-                    }
-                }
-                results["checkedIn"] = registrations.count { it.status == RegistrationStatus.CHECKED_IN }
-            }
-        }
+        val action = BulkRegistrationAction.of(request.action)
+        val result = bulkRegistrationService.apply(eventId, action, request.registrationIds)
         
         return ResponseEntity.ok(mapOf(
             "action" to request.action,
-            "processed" to registrations.size,
-            "results" to results
+            "processed" to result.found,
+            "results" to mapOf(
+                action.resultKey to result.changed,
+                "unchanged" to result.unchanged,
+                "notFound" to result.notFound
+            ),
+            "changedFrom" to result.changedFrom.mapKeys { it.key.name }
         ))
     }
+    
+    companion object {
+        const val MAX_REGISTRATION_PAGE_SIZE = 500
+    }
 }
@@ -2,15 +2,31 @@ package com.eventr.controller
 
 import com.eventr.dto.RegistrationCreateDto
 import com.eventr.dto.RegistrationDto
+import com.eventr.dto.RegistrationImportResultDto
+import com.eventr.exception.BusinessRuleException
+import com.eventr.model.EventInstance
 import com.eventr.model.Registration
 import com.eventr.model.RegistrationStatus
+import com.eventr.modules.registration.events.RegistrationStatusChanged
 import com.eventr.repository.EventInstanceRepository
 import com.eventr.repository.RegistrationRepository
 import com.eventr.repository.UserRepository
-import com.eventr.service.EmailNotificationService
-import com.eventr.util.SecureLogger
+import com.eventr.service.DuplicateRegistrationGuard
+import com.eventr.service.EmailOutboxService
+import com.eventr.service.RegistrationCapacityService
+import com.eventr.service.RegistrationImportFormat
+import com.eventr.service.RegistrationImportService
+import com.eventr.service.SeatReservation
+import com.eventr.service.WaitingRoomService
+import com.eventr.shared.event.EventPublisher
+import com.eventr.shared.web.IdempotencyStore
 import org.springframework.beans.BeanUtils
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.http.MediaType
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
 import org.springframework.web.bind.annotation.*
+import org.springframework.web.multipart.MultipartFile
 import java.util.UUID
 
 @RestController
@@ -19,17 +35,38 @@ class RegistrationController(
     private val registrationRepository: RegistrationRepository,
     private val eventInstanceRepository: EventInstanceRepository,
     private val userRepository: UserRepository,
-    private val emailNotificationService: EmailNotificationService
+    private val emailOutboxService: EmailOutboxService,
+    private val registrationCapacityService: RegistrationCapacityService,
+    private val waitingRoomService: WaitingRoomService,
+    private val registrationImportService: RegistrationImportService,
+    private val eventPublisher: EventPublisher,
+    private val idempotencyStore: IdempotencyStore,
+    private val duplicateRegistrationGuard: DuplicateRegistrationGuard,
+    transactionManager: PlatformTransactionManager
 ) {
     
-    private val secureLogger = SecureLogger(RegistrationController::class.java)
+    // Registrations, their outbox emails and the instance's registration counters commit together
+    private val transactionTemplate = TransactionTemplate(transactionManager)
 
     @PostMapping
-    fun createRegistration(@RequestBody registrationCreateDto: RegistrationCreateDto): RegistrationDto {
-        val eventInstance = registrationCreateDto.eventInstanceId?.let { 
-            eventInstanceRepository.findById(it).orElseThrow() 
-        } ?: throw IllegalArgumentException("Event instance ID is required")
+    fun createRegistration(
+        @RequestBody registrationCreateDto: RegistrationCreateDto,
+        @RequestHeader(WaitingRoomService.TOKEN_HEADER, required = false) waitingRoomToken: String? = null,
+        @RequestHeader(IdempotencyStore.HEADER, required = false) idempotencyKey: String? = null
+    ): RegistrationDto {
+        val eventInstanceId = registrationCreateDto.eventInstanceId
+            ?: throw IllegalArgumentException("Event instance ID is required")
         
+        // Retries are answered from memory before taking an admission slot
+        return idempotencyStore.execute("POST /api/registrations", idempotencyKey, listOf(registrationCreateDto)) {
+            // Bounded concurrency, and waiting room admission while one is open for the instance
+            waitingRoomService.admit(eventInstanceId, waitingRoomToken) {
+                register(eventInstanceRepository.findById(eventInstanceId).orElseThrow(), registrationCreateDto)
+            }
+        }
+    }
+    
+    private fun register(eventInstance: EventInstance, registrationCreateDto: RegistrationCreateDto): RegistrationDto {
         val registration = Registration().apply {
             this.eventInstance = eventInstance
             
@@ -45,16 +82,32 @@ class RegistrationController(
             }
             
             formData = registrationCreateDto.formData
-            status = RegistrationStatus.REGISTERED
         }
         
-        val savedRegistration = registrationRepository.save(registration)
+        val instanceId = eventInstance.id!!
+        if (duplicateRegistrationGuard.isRegistered(instanceId, registration.userEmail)) throw alreadyRegistered()
         
-        try {
-            emailNotificationService.sendRegistrationConfirmation(savedRegistration)
+        // Seat is taken atomically before the insert and handed back if the insert fails
+        val reservation = registrationCapacityService.reserve(eventInstance)
+        registration.status = if (reservation == SeatReservation.RESERVED) {
+            RegistrationStatus.REGISTERED
+        } else {
+            RegistrationStatus.WAITLISTED
+        }
+        
+        val savedRegistration = try {
+            transactionTemplate.execute {
+                registrationRepository.save(registration).also { saved ->
+                    if (reservation == SeatReservation.RESERVED) emailOutboxService.enqueueRegistrationConfirmation(saved)
+                    eventPublisher.publish(RegistrationStatusChanged(instanceId, null, saved.status!!, listOf(saved.id!!)))
+                }
+            }!!
         } catch (e: Exception) {
-            secureLogger.logErrorEvent("REGISTRATION_CONFIRMATION_EMAIL_FAILED", savedRegistration.user?.id, e, "Failed to send registration confirmation email")
+            if (reservation == SeatReservation.RESERVED) registrationCapacityService.release(instanceId)
+            if (e is DataIntegrityViolationException && duplicateRegistrationGuard.isDuplicate(e)) throw alreadyRegistered()
+            throw e
         }
+        duplicateRegistrationGuard.recordRegistered(instanceId, listOf(savedRegistration.userEmail))
         
         return RegistrationDto().apply {
             BeanUtils.copyProperties(savedRegistration, this)
@@ -62,6 +115,25 @@ class RegistrationController(
         }
     }
     
+    private fun alreadyRegistered() = BusinessRuleException("Already registered for this event", "ALREADY_REGISTERED")
+    
+    /**
+     * Registers everyone listed in an uploaded CSV or JSONL file for the
+     * instance. The format is taken from [format] or the file extension.
+     */
+    @PostMapping("/import", consumes = [MediaType.MULTIPART_FORM_DATA_VALUE])
+    fun importRegistrations(
+        @RequestParam eventInstanceId: UUID,
+        @RequestParam file: MultipartFile,
+        @RequestParam(required = false) format: String?,
+        @RequestParam(defaultValue = "true") sendConfirmations: Boolean
+    ): RegistrationImportResultDto {
+        val importFormat = RegistrationImportFormat.of(format, file.originalFilename)
+        return file.inputStream.use {
+            registrationImportService.import(eventInstanceId, it, importFormat, sendConfirmations)
+        }
+    }
+    
     @GetMapping("/user/{email}")
     fun getRegistrationsByUserEmail(@PathVariable email: String): List<RegistrationDto> {
         return registrationRepository.findByUserEmail(email).map { registration ->
@@ -87,19 +159,39 @@ class RegistrationController(
         @PathVariable registrationId: UUID,
         @RequestParam(required = false) reason: String = ""
     ): RegistrationDto {
+        // Cancelled only from the status just read, so of two concurrent cancels exactly one
+        // releases the seat, publishes and sends the email; a status that moved is read again.
+        // The loaded registration may be a stale copy kept by the request's persistence context,
+        // so the status is re-read with a query and the entity itself is never modified
         val registration = registrationRepository.findById(registrationId).orElseThrow()
-        registration.status = RegistrationStatus.CANCELLED
-        val cancelledRegistration = registrationRepository.save(registration)
-        
-        try {
-            emailNotificationService.sendCancellationNotification(cancelledRegistration, reason)
-        } catch (e: Exception) {
-            secureLogger.logErrorEvent("REGISTRATION_CANCELLATION_EMAIL_FAILED", cancelledRegistration.user?.id, e, "Failed to send registration cancellation email")
+        val instanceId = registration.eventInstance?.id
+        var status = registration.status
+        while (status != null && status != RegistrationStatus.CANCELLED) {
+            val previousStatus = status
+            val cancelled = transactionTemplate.execute {
+                (registrationRepository.cancel(listOf(registrationId), previousStatus) == 1).also { changed ->
+                    if (changed) {
+                        emailOutboxService.enqueueCancellationNotification(registration, reason)
+                        instanceId?.let {
+                            eventPublisher.publish(RegistrationStatusChanged(it, previousStatus, RegistrationStatus.CANCELLED, listOf(registrationId)))
+                        }
+                    }
+                }
+            }!!
+            if (cancelled) {
+                if (instanceId != null && previousStatus in RegistrationCapacityService.SEAT_HOLDING_STATUSES) {
+                    registrationCapacityService.release(instanceId)
+                }
+                status = RegistrationStatus.CANCELLED
+            } else {
+                status = registrationRepository.findStatusById(registrationId)
+            }
         }
-        
+
         return RegistrationDto().apply {
-            BeanUtils.copyProperties(cancelledRegistration, this)
-            eventInstanceId = cancelledRegistration.eventInstance?.id
+            BeanUtils.copyProperties(registration, this)
+            this.status = status
+            eventInstanceId = instanceId
         }
     }
 }
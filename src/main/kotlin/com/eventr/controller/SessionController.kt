@@ -5,7 +5,10 @@ import com.eventr.service.SessionDto
 import com.eventr.service.CreateSessionDto
 import com.eventr.service.UpdateSessionDto
 import com.eventr.service.AttendeeDto
+import com.eventr.shared.web.ConditionalGet
+import org.springframework.http.HttpStatus
 import org.springframework.http.ResponseEntity
+import org.springframework.web.context.request.WebRequest
 import org.springframework.web.bind.annotation.*
 import java.util.*
 
@@ -16,19 +19,21 @@ class SessionController(
 ) {
 
     @GetMapping("/event/{eventId}")
-    fun getSessionsByEvent(@PathVariable eventId: UUID): ResponseEntity<List<SessionDto>> {
-        val sessions = sessionService.getSessionsByEvent(eventId)
-        return ResponseEntity.ok(sessions)
+    fun getSessionsByEvent(@PathVariable eventId: UUID, webRequest: WebRequest): ResponseEntity<List<SessionDto>> {
+        val versions = sessionService.getSessionVersionsByEvent(eventId)
+        val etag = ConditionalGet.etag(versions.flatMap { listOf(it.id, it.version, it.attendeeCount) })
+        return ConditionalGet.respond(webRequest, etag) { sessionService.getSessionsByEvent(eventId) }
     }
 
     @GetMapping("/{id}")
-    fun getSessionById(@PathVariable id: UUID): ResponseEntity<SessionDto> {
-        val session = sessionService.getSessionById(id)
-        return if (session != null) {
-            ResponseEntity.ok(session)
-        } else {
-            ResponseEntity.notFound().build()
+    fun getSessionById(@PathVariable id: UUID, webRequest: WebRequest): ResponseEntity<SessionDto> {
+        val version = sessionService.getSessionVersion(id) ?: return ResponseEntity.notFound().build()
+        val etag = ConditionalGet.etag(version.id, version.version, version.attendeeCount)
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build()
         }
+        val session = sessionService.getSessionById(id) ?: return ResponseEntity.notFound().build()
+        return ResponseEntity.ok().eTag(etag).body(session)
     }
 
     @PostMapping
@@ -67,6 +72,15 @@ class SessionController(
         }
     }
 
+    @PutMapping("/registrations/{sessionRegistrationId}/cancel")
+    fun cancelSessionRegistration(@PathVariable sessionRegistrationId: UUID): ResponseEntity<Map<String, String>> {
+        return if (sessionService.cancelSessionRegistration(sessionRegistrationId)) {
+            ResponseEntity.ok(mapOf("message" to "Session registration cancelled"))
+        } else {
+            ResponseEntity.notFound().build()
+        }
+    }
+
     @GetMapping("/{id}/attendees")
     fun getSessionAttendees(@PathVariable id: UUID): ResponseEntity<List<AttendeeDto>> {
         val attendees = sessionService.getSessionAttendees(id)
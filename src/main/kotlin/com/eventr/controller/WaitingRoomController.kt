@@ -0,0 +1,51 @@
+package com.eventr.controller
+
+import com.eventr.dto.WaitingRoomSettingsDto
+import com.eventr.dto.WaitingRoomStatusDto
+import com.eventr.dto.WaitingRoomTicketDto
+import com.eventr.exception.EntityNotFoundException
+import com.eventr.repository.EventInstanceRepository
+import com.eventr.service.WaitingRoomService
+import org.springframework.http.ResponseEntity
+import org.springframework.web.bind.annotation.*
+import java.util.UUID
+
+@RestController
+@RequestMapping("/api/waiting-room")
+class WaitingRoomController(
+    private val waitingRoomService: WaitingRoomService,
+    private val eventInstanceRepository: EventInstanceRepository
+) {
+
+    @PostMapping("/instances/{instanceId}/tickets")
+    fun joinQueue(@PathVariable instanceId: UUID): WaitingRoomTicketDto {
+        return waitingRoomService.join(instanceId)
+    }
+
+    @GetMapping("/tickets/{token}")
+    fun getTicket(@PathVariable token: String): WaitingRoomTicketDto {
+        return waitingRoomService.poll(token)
+    }
+
+    @GetMapping("/instances/{instanceId}")
+    fun getRoom(@PathVariable instanceId: UUID): WaitingRoomStatusDto {
+        return waitingRoomService.status(instanceId)
+    }
+
+    @PutMapping("/instances/{instanceId}")
+    fun openRoom(
+        @PathVariable instanceId: UUID,
+        @RequestBody(required = false) settings: WaitingRoomSettingsDto?
+    ): WaitingRoomStatusDto {
+        if (!eventInstanceRepository.existsById(instanceId)) {
+            throw EntityNotFoundException("EventInstance", instanceId)
+        }
+        return waitingRoomService.open(instanceId, settings?.admissionsPerSecond)
+    }
+
+    @DeleteMapping("/instances/{instanceId}")
+    fun closeRoom(@PathVariable instanceId: UUID): ResponseEntity<Void> {
+        waitingRoomService.close(instanceId)
+        return ResponseEntity.noContent().build()
+    }
+}
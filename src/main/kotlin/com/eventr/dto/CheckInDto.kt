@@ -5,6 +5,11 @@ import com.eventr.model.CheckInType
 import java.time.LocalDateTime
 import java.util.*
 
+/**
+ * A recorded check-in. userName, userEmail, eventName and sessionTitle are
+ * display fields copied from the registration and session, and are null
+ * where those were only referenced and not loaded.
+ */
 data class CheckInDto(
     var id: UUID? = null,
     var registrationId: UUID? = null,
@@ -101,4 +106,49 @@ data class OfflineCheckInDto(
     var qrCodeUsed: String? = null,
     var notes: String? = null,
     var needsSync: Boolean = true
-)
\ No newline at end of file
+)
+
+/**
+ * One call of the offline sync: the check-ins [deviceId] queued while
+ * offline, and the watermark from its previous sync, null on the first.
+ */
+data class CheckInSyncRequestDto(
+    var deviceId: String,
+    var eventId: UUID,
+    var since: LocalDateTime? = null,
+    var checkIns: List<OfflineCheckInDto> = emptyList()
+)
+
+enum class CheckInSyncStatus {
+    /** Recorded, or already recorded by an earlier upload of the same scan. */
+    ACCEPTED,
+
+    /** Another device scanned the attendee in first; [CheckInSyncResultDto.checkInId] is its check-in. */
+    SUPERSEDED,
+
+    /** Not recorded; the message says why. */
+    REJECTED
+}
+
+/**
+ * Outcome of one uploaded check-in, identified by the id the device gave it.
+ */
+data class CheckInSyncResultDto(
+    val id: UUID?,
+    val registrationId: UUID,
+    val status: CheckInSyncStatus,
+    val checkInId: UUID? = null,
+    val message: String? = null
+)
+
+/**
+ * Outcomes of the uploaded check-ins in the order sent, the check-ins other
+ * devices recorded or changed since the request's watermark, and the
+ * watermark to send on the next sync.
+ */
+data class CheckInSyncResponseDto(
+    val deviceId: String,
+    val watermark: LocalDateTime,
+    val results: List<CheckInSyncResultDto>,
+    val changes: List<CheckInDto>
+)
@@ -6,5 +6,8 @@ import java.util.UUID
 data class EventInstanceDto(
     var id: UUID? = null,
     var dateTime: LocalDateTime? = null,
-    var location: String? = null
+    var location: String? = null,
+    var capacity: Int? = null,
+    var registrationCount: Int = 0,
+    var waitlistCount: Int = 0
 )
@@ -0,0 +1,21 @@
+package com.eventr.dto
+
+/**
+ * Outcome of a bulk registration import. [errors] lists rejected rows by the
+ * line of the file they start on (a CSV header is line 1), up to a fixed
+ * number of them.
+ */
+data class RegistrationImportResultDto(
+    val totalRows: Int,
+    val registered: Int,
+    val waitlisted: Int,
+    val failed: Int,
+    val errors: List<RegistrationImportErrorDto>,
+    val errorsTruncated: Boolean = false
+)
+
+data class RegistrationImportErrorDto(
+    val row: Int,
+    val email: String?,
+    val message: String
+)
@@ -0,0 +1,29 @@
+package com.eventr.dto
+
+import java.time.Instant
+import java.util.*
+
+/**
+ * A place in an event instance's waiting room. The token is presented in the
+ * X-Waiting-Room-Token header when registering once the ticket is admitted.
+ */
+data class WaitingRoomTicketDto(
+    val token: String,
+    val eventInstanceId: UUID,
+    val position: Long,
+    val estimatedWaitSeconds: Long,
+    val admitted: Boolean,
+    val admissionExpiresAt: Instant? = null
+)
+
+data class WaitingRoomSettingsDto(
+    var admissionsPerSecond: Double? = null
+)
+
+data class WaitingRoomStatusDto(
+    val eventInstanceId: UUID,
+    val open: Boolean,
+    val admissionsPerSecond: Double,
+    val waiting: Long,
+    val admitted: Long
+)
@@ -13,6 +13,14 @@ enum class CheckInMethod {
 }
 
 @Entity
+@Table(
+    uniqueConstraints = [
+        // One check-in per registration and session, or per type at event level
+        UniqueConstraint(name = CheckIn.UNIQUE_PRESENCE_CONSTRAINT, columnNames = ["registration_id", "presence_key"])
+    ],
+    // Offline devices pull the check-ins changed since their last sync
+    indexes = [Index(name = "idx_check_in_updated_at", columnList = "updated_at")]
+)
 data class CheckIn(
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -57,4 +65,18 @@ data class CheckIn(
     
     var createdAt: LocalDateTime = LocalDateTime.now(),
     var updatedAt: LocalDateTime = LocalDateTime.now()
-)
\ No newline at end of file
+) {
+    // The session id, or the type for an event-level check-in; derived on every write
+    @Column(name = "presence_key", nullable = false)
+    var presenceKey: String = ""
+    
+    @PrePersist
+    @PreUpdate
+    fun updatePresenceKey() {
+        presenceKey = session?.id?.toString() ?: type.name
+    }
+    
+    companion object {
+        const val UNIQUE_PRESENCE_CONSTRAINT = "uk_check_in_presence"
+    }
+}
@@ -0,0 +1,54 @@
+package com.eventr.model
+
+import jakarta.persistence.*
+import java.time.LocalDateTime
+import java.util.UUID
+
+enum class OutboxEmailType {
+    REGISTRATION_CONFIRMATION, REGISTRATION_CANCELLATION
+}
+
+enum class OutboxStatus {
+    PENDING, SENT, FAILED
+}
+
+/**
+ * An email waiting to be sent, written in the same transaction as the change
+ * it announces and delivered later by EmailOutboxDispatcher.
+ */
+@Entity
+@Table(name = "email_outbox", indexes = [
+    // Serves the dispatcher's scan for due messages
+    Index(name = "idx_email_outbox_due", columnList = "status, next_attempt_at")
+])
+data class EmailOutboxMessage(
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    val id: UUID? = null,
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    var type: OutboxEmailType = OutboxEmailType.REGISTRATION_CONFIRMATION,
+    
+    @Column(nullable = false)
+    var registrationId: UUID? = null,
+    
+    // Cancellation reason shown in the email
+    @Column(length = 1000)
+    var reason: String? = null,
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    var status: OutboxStatus = OutboxStatus.PENDING,
+    
+    var attempts: Int = 0,
+    
+    @Column(nullable = false)
+    var nextAttemptAt: LocalDateTime = LocalDateTime.now(),
+    
+    @Column(length = 1000)
+    var lastError: String? = null,
+    
+    var createdAt: LocalDateTime = LocalDateTime.now(),
+    var sentAt: LocalDateTime? = null
+)
@@ -1,6 +1,8 @@
 package com.eventr.model
 
 import jakarta.persistence.*
+import org.hibernate.annotations.BatchSize
+import org.hibernate.annotations.ColumnDefault
 import java.time.LocalDateTime
 import java.util.UUID
 
@@ -37,6 +39,7 @@ data class Event(
     var thumbnailImageUrl: String? = null,
     
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "event_tags", joinColumns = [JoinColumn(name = "event_id")])
     @Column(name = "tag")
     var tags: MutableList<String>? = mutableListOf(),
@@ -78,6 +81,7 @@ data class Event(
     var agenda: String? = null,
     
     @OneToMany(mappedBy = "event", cascade = [CascadeType.ALL], orphanRemoval = true)
+    @BatchSize(size = 100)
     var instances: MutableList<EventInstance>? = mutableListOf(),
     
     @OneToMany(mappedBy = "event", cascade = [CascadeType.ALL], orphanRemoval = true)
@@ -85,5 +89,20 @@ data class Event(
     
     // Session configuration
     var isMultiSession: Boolean = false,
-    var allowSessionSelection: Boolean = false
-)
+    var allowSessionSelection: Boolean = false,
+    
+    // Optimistic-lock version; incremented on every update and used for HTTP ETags.
+    // The default lets the column be added to a table that already has rows.
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    var version: Long = 0,
+    
+    var updatedAt: LocalDateTime? = null
+) {
+    @PrePersist
+    @PreUpdate
+    fun preUpdate() {
+        updatedAt = LocalDateTime.now()
+    }
+}
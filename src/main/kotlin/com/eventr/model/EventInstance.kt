@@ -1,10 +1,12 @@
 package com.eventr.model
 
 import jakarta.persistence.*
+import org.hibernate.annotations.ColumnDefault
 import java.time.LocalDateTime
 import java.util.UUID
 
 @Entity
+@Table(indexes = [Index(name = "idx_event_instance_event", columnList = "event_id")])
 data class EventInstance(
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -16,5 +18,52 @@ data class EventInstance(
     
     var dateTime: LocalDateTime? = null,
     
-    var location: String? = null
-)
+    var location: String? = null,
+    
+    // Optimistic-lock version; incremented on every update and used for HTTP ETags.
+    // The default lets the column be added to a table that already has rows.
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    var version: Long = 0,
+    
+    var updatedAt: LocalDateTime? = null,
+    
+    // Registration counts by status. Only changed by the set-based UPDATEs in
+    // RegistrationCountService, never written through the entity, so saving an
+    // instance cannot overwrite them.
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    val registeredCount: Int = 0,
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    val waitlistedCount: Int = 0,
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    val checkedInCount: Int = 0,
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    val noShowCount: Int = 0,
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    val cancelledCount: Int = 0
+) {
+    /** Registrations by status, from the maintained counters. */
+    fun registrationCounts(): Map<RegistrationStatus, Int> = mapOf(
+        RegistrationStatus.REGISTERED to registeredCount,
+        RegistrationStatus.WAITLISTED to waitlistedCount,
+        RegistrationStatus.CHECKED_IN to checkedInCount,
+        RegistrationStatus.NO_SHOW to noShowCount,
+        RegistrationStatus.CANCELLED to cancelledCount
+    )
+    
+    @PrePersist
+    @PreUpdate
+    fun preUpdate() {
+        updatedAt = LocalDateTime.now()
+    }
+}
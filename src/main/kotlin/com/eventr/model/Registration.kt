@@ -6,6 +6,16 @@ import org.hibernate.type.SqlTypes
 import java.util.UUID
 
 @Entity
+@Table(
+    indexes = [
+        // Serves event-scoped registration listings keyed on id
+        Index(name = "idx_registration_instance_id", columnList = "event_instance_id, id")
+    ],
+    uniqueConstraints = [
+        // One live registration per email and instance; cancelled rows have no email key
+        UniqueConstraint(name = Registration.UNIQUE_EMAIL_CONSTRAINT, columnNames = ["event_instance_id", "email_key"])
+    ]
+)
 data class Registration(
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -34,4 +44,22 @@ data class Registration(
     
     @OneToMany(mappedBy = "registration", cascade = [CascadeType.ALL], orphanRemoval = true)
     var sessionRegistrations: MutableList<SessionRegistration>? = mutableListOf()
-)
+) {
+    // Normalized email while the registration is live, null once cancelled;
+    // derived on every write so the unique constraint sees what the user sees
+    @Column(name = "email_key")
+    var emailKey: String? = null
+    
+    @PrePersist
+    @PreUpdate
+    fun updateEmailKey() {
+        emailKey = if (status == RegistrationStatus.CANCELLED) null else normalizeEmail(userEmail)
+    }
+    
+    companion object {
+        const val UNIQUE_EMAIL_CONSTRAINT = "uk_registration_instance_email"
+        
+        /** The form of an email that duplicate registrations are detected by. */
+        fun normalizeEmail(email: String?): String? = email?.trim()?.lowercase()?.takeIf { it.isNotEmpty() }
+    }
+}
@@ -0,0 +1,21 @@
+package com.eventr.model
+
+import jakarta.persistence.*
+import java.util.UUID
+
+/**
+ * Seat counter for one event instance.
+ *
+ * [reservedSeats] is only changed through the conditional UPDATE statements
+ * in RegistrationCapacityRepository, so the limit check and the increment are
+ * a single atomic step and concurrent registrations cannot oversell.
+ */
+@Entity
+@Table(name = "registration_capacity")
+data class RegistrationCapacity(
+    @Id
+    @Column(name = "event_instance_id")
+    val eventInstanceId: UUID? = null,
+    
+    var reservedSeats: Int = 0
+)
@@ -1,6 +1,7 @@
 package com.eventr.model
 
 import jakarta.persistence.*
+import org.hibernate.annotations.ColumnDefault
 import java.time.LocalDateTime
 import java.util.UUID
 
@@ -64,5 +65,12 @@ data class Session(
     
     var isActive: Boolean = true,
     var createdAt: LocalDateTime = LocalDateTime.now(),
-    var updatedAt: LocalDateTime = LocalDateTime.now()
+    var updatedAt: LocalDateTime = LocalDateTime.now(),
+    
+    // Optimistic-lock version; incremented on every update and used for HTTP ETags.
+    // The default lets the column be added to a table that already has rows.
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    var version: Long = 0
 )
\ No newline at end of file
@@ -5,7 +5,7 @@ import java.time.LocalDateTime
 import java.util.*
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = [Index(name = "idx_users_email_key", columnList = "email_key")])
 class User {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -14,6 +14,10 @@ class User {
     @Column(unique = true, nullable = false)
     var email: String? = null
     
+    // Normalized email, derived on every write so lookups by it can use an index
+    @Column(name = "email_key")
+    var emailKey: String? = null
+    
     @Column(nullable = false)
     var firstName: String? = null
     
@@ -58,6 +62,12 @@ class User {
     @PreUpdate
     fun preUpdate() {
         updatedAt = LocalDateTime.now()
+        updateEmailKey()
+    }
+    
+    @PrePersist
+    fun updateEmailKey() {
+        emailKey = Registration.normalizeEmail(email)
     }
 }
 
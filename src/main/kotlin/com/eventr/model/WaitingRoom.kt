@@ -0,0 +1,60 @@
+package com.eventr.model
+
+import jakarta.persistence.*
+import java.util.UUID
+
+/**
+ * An open waiting room for one event instance, shared by every node.
+ *
+ * Admissions follow a clock: tickets up to [admittedBase] had been admitted
+ * at [admittedAt], and admissions have advanced at [admissionsPerSecond]
+ * since, never past the [issued] tickets. Joins and rate changes only go
+ * through the conditional UPDATE statements in WaitingRoomRepository, so
+ * visitors joining on different nodes each get their own place.
+ */
+@Entity
+@Table(name = "waiting_room")
+data class WaitingRoom(
+    @Id
+    @Column(name = "event_instance_id")
+    val eventInstanceId: UUID? = null,
+
+    // Epoch milliseconds; identifies this opening, so tickets of an earlier one are refused
+    val openedAt: Long = 0,
+
+    var admissionsPerSecond: Double = 0.0,
+
+    var issued: Long = 0,
+
+    var admittedBase: Double = 0.0,
+
+    // Epoch milliseconds
+    var admittedAt: Long = 0
+)
+
+/**
+ * A waiting room ticket that has been used, or is being used, to register.
+ * The unique constraint lets each ticket through once, whichever node it is
+ * presented to.
+ */
+@Entity
+@Table(
+    name = "waiting_room_admission",
+    uniqueConstraints = [UniqueConstraint(name = "uk_waiting_room_admission", columnNames = ["event_instance_id", "opened_at", "sequence"])]
+)
+data class WaitingRoomAdmission(
+    @Id
+    val id: UUID? = null,
+
+    @Column(name = "event_instance_id", nullable = false)
+    val eventInstanceId: UUID? = null,
+
+    // The opening of the room the ticket was issued in
+    @Column(name = "opened_at")
+    val openedAt: Long = 0,
+
+    val sequence: Long = 0,
+
+    // Epoch milliseconds
+    val claimedAt: Long = 0
+)
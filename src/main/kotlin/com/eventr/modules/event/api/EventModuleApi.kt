@@ -1,6 +1,7 @@
 package com.eventr.modules.event.api
 
 import com.eventr.modules.event.api.dto.*
+import com.eventr.shared.pagination.CursorPage
 import java.util.UUID
 
 /**
@@ -63,12 +64,61 @@ interface EventModuleApi {
     
     /**
      * Finds events matching the given criteria.
+     * Filtering and paging are evaluated by the database. Search text is
+     * matched by the full-text index (stemmed, prefix-aware); sort by
+     * "relevance" to order matches by rank.
      * 
-     * @param criteria Filter and sort criteria
-     * @return List of matching events
+     * @param criteria Filter, sort and paging criteria
+     * @return The requested page of matching events
      */
     fun findEvents(criteria: EventFilterCriteria): List<EventResponse>
     
+    /**
+     * Finds events matching the given criteria using keyset pagination
+     * ordered by (startDateTime, id). Unlike [findEvents], the cost of a page
+     * does not grow with how deep into the result the caller is.
+     * 
+     * @param criteria Filter criteria; sortDirection and size are honoured, sortBy and page are ignored
+     * @param cursor Continuation token from a previous page, or null for the first page
+     * @return Matching events and the cursor for the next page
+     */
+    fun scrollEvents(criteria: EventFilterCriteria, cursor: String?): CursorPage<EventResponse>
+    
+    /**
+     * Same as [findEvents] but returns list-view summaries, selecting only
+     * the columns a card needs instead of loading full events.
+     * 
+     * @param criteria Filter, sort and paging criteria
+     * @return The requested page of matching event summaries
+     */
+    fun findEventSummaries(criteria: EventFilterCriteria): List<EventSummaryResponse>
+    
+    /**
+     * Same as [scrollEvents] but returns list-view summaries.
+     * 
+     * @param criteria Filter criteria; sortDirection and size are honoured, sortBy and page are ignored
+     * @param cursor Continuation token from a previous page, or null for the first page
+     * @return Matching event summaries and the cursor for the next page
+     */
+    fun scrollEventSummaries(criteria: EventFilterCriteria, cursor: String?): CursorPage<EventSummaryResponse>
+    
+    /**
+     * Counts matching events per category, event type, city and tag.
+     * 
+     * @param criteria Filter criteria; sorting and paging fields are ignored
+     * @return Facet counts for the filtered catalog
+     */
+    fun getFacets(criteria: EventFilterCriteria): EventFacetsResponse
+    
+    /**
+     * Suggests published event names, venues and cities for a partially typed query.
+     * 
+     * @param prefix Text typed so far; matches the start of any word
+     * @param limit Maximum number of suggestions
+     * @return Suggestions, best first
+     */
+    fun suggest(prefix: String, limit: Int): List<EventSuggestion>
+    
     // ==================== Event Lifecycle ====================
     
     /**
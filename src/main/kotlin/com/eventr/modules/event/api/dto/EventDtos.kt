@@ -3,6 +3,7 @@ package com.eventr.modules.event.api.dto
 import com.eventr.model.EventCategory
 import com.eventr.model.EventStatus
 import com.eventr.model.EventType
+import com.eventr.model.RegistrationStatus
 import java.time.LocalDateTime
 import java.util.UUID
 
@@ -120,11 +121,94 @@ data class EventResponse(
     val endDateTime: LocalDateTime?,
     val timezone: String?,
     val agenda: String?,
-    val instances: List<EventInstanceResponse>
+    val instances: List<EventInstanceResponse>,
+    val version: Long = 0
 )
 
 /**
- * DTO for event instance response
+ * Lightweight event projection for list views and cards.
+ *
+ * Selected column by column rather than mapped from the entity, so the
+ * description arrives as an excerpt of at most [EXCERPT_LENGTH] characters
+ * and agenda, tags and instances are not read at all.
+ */
+data class EventSummaryResponse(
+    val id: UUID,
+    val name: String?,
+    val status: EventStatus?,
+    val eventType: EventType?,
+    val category: EventCategory?,
+    val thumbnailImageUrl: String?,
+    val venueName: String?,
+    val city: String?,
+    val state: String?,
+    val startDateTime: LocalDateTime?,
+    val endDateTime: LocalDateTime?,
+    val timezone: String?,
+    val capacity: Int?,
+    val organizerName: String?,
+    val descriptionExcerpt: String?,
+    val version: Long
+) {
+    companion object {
+        const val EXCERPT_LENGTH = 200
+    }
+}
+
+/**
+ * Counts of matching events per facet value for a browse page.
+ *
+ * Each dimension is counted with every filter applied except its own, so a
+ * count tells the user how many events they would see after picking that
+ * value. [total] is the number of events matching all filters.
+ */
+data class EventFacetsResponse(
+    val total: Long,
+    val categories: List<FacetCount>,
+    val eventTypes: List<FacetCount>,
+    val cities: List<FacetCount>,
+    val tags: List<FacetCount>
+) {
+    companion object {
+        // Cities and tags are open-ended; only the most frequent values are returned
+        const val MAX_FACET_VALUES = 50
+    }
+}
+
+data class FacetCount(
+    val value: String,
+    val count: Long
+)
+
+/**
+ * A typeahead suggestion for the event search box.
+ *
+ * @param eventId The event for [SuggestionType.EVENT] suggestions; null for
+ *                venues and cities, which may be shared by several events
+ * @param eventCount Number of published events behind the suggestion
+ */
+data class EventSuggestion(
+    val text: String,
+    val type: SuggestionType,
+    val eventId: UUID?,
+    val eventCount: Int
+) {
+    companion object {
+        const val DEFAULT_LIMIT = 10
+        const val MAX_LIMIT = 25
+    }
+}
+
+enum class SuggestionType {
+    EVENT, VENUE, CITY
+}
+
+/**
+ * DTO for event instance response.
+ *
+ * [registrationCount] is the number of registrations holding a seat
+ * (registered, checked in or no-show); [registrationCounts] breaks all
+ * registrations down by status.
  */
 data class EventInstanceResponse(
     val id: UUID,
@@ -132,18 +216,32 @@ data class EventInstanceResponse(
     val endDateTime: LocalDateTime?,
     val location: String?,
     val capacity: Int?,
-    val registrationCount: Int = 0
+    val registrationCount: Int = 0,
+    val waitlistCount: Int = 0,
+    val registrationCounts: Map<RegistrationStatus, Int> = emptyMap(),
+    val version: Long = 0
 )
 
 /**
- * Filter criteria for finding events
+ * Filter criteria for finding events.
+ *
+ * Results are paged server-side: [page] is zero-based and [size] is capped
+ * at [MAX_PAGE_SIZE] regardless of what the caller asks for.
  */
 data class EventFilterCriteria(
     val search: String? = null,
     val city: String? = null,
     val category: EventCategory? = null,
     val eventType: EventType? = null,
+    val tags: List<String>? = null,
     val publishedOnly: Boolean = true,
     val sortBy: String = "startDateTime",
-    val sortDirection: String = "asc"
-)
+    val sortDirection: String = "asc",
+    val page: Int = 0,
+    val size: Int = DEFAULT_PAGE_SIZE
+) {
+    companion object {
+        const val DEFAULT_PAGE_SIZE = 50
+        const val MAX_PAGE_SIZE = 200
+    }
+}
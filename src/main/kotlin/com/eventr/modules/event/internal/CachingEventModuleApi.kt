@@ -0,0 +1,163 @@
+package com.eventr.modules.event.internal
+
+import com.eventr.modules.event.api.EventModuleApi
+import com.eventr.modules.event.api.EventNotFoundException
+import com.eventr.modules.event.api.dto.*
+import com.eventr.modules.event.events.EventCancelled
+import com.eventr.modules.event.events.EventCreated
+import com.eventr.modules.event.events.EventDeleted
+import com.eventr.modules.event.events.EventPublished
+import com.eventr.modules.event.events.EventUpdated
+import com.eventr.modules.registration.events.RegistrationStatusChanged
+import com.eventr.shared.cache.BoundedTtlCache
+import com.eventr.shared.event.DomainEvent
+import com.eventr.shared.pagination.CursorPage
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.MeterBinder
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.context.annotation.Primary
+import org.springframework.scheduling.annotation.Scheduled
+import org.springframework.stereotype.Component
+import org.springframework.transaction.event.TransactionalEventListener
+import java.time.Duration
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Read-through cache in front of [EventModuleApiImpl].
+ *
+ * Single events and list results are cached separately, both bounded in size
+ * and age. Writes go straight to the delegate; the cached data is invalidated
+ * once the event module's domain events for that write are committed. A
+ * change evicts the affected event and every cached list, since any list may
+ * contain it. Registration changes only evict the event whose counts moved,
+ * and only once per [flushRegistrationChanges] run however many registrations
+ * arrived meanwhile; cached lists keep their counts until they expire, so that
+ * a burst of registrations does not flush either cache on every one.
+ */
+@Component
+@Primary
+class CachingEventModuleApi(
+    private val delegate: EventModuleApiImpl,
+    @Value("\${app.cache.events.max-size:1000}") maxSize: Int,
+    @Value("\${app.cache.events.ttl:PT5M}") ttl: Duration
+) : EventModuleApi, MeterBinder {
+
+    private val eventCache = BoundedTtlCache<UUID, EventResponse>("events.byId", maxSize, ttl)
+
+    private val listCache = BoundedTtlCache<ListKey, Any>("events.lists", maxSize, ttl)
+
+    // Instances whose registrations changed since the last flush
+    private val changedInstances: MutableSet<UUID> = ConcurrentHashMap.newKeySet()
+
+    private enum class ListView { FIND, SCROLL, FIND_SUMMARIES, SCROLL_SUMMARIES, FACETS }
+
+    private data class ListKey(val view: ListView, val criteria: EventFilterCriteria, val cursor: String? = null)
+
+    override fun bindTo(registry: MeterRegistry) {
+        eventCache.bindTo(registry)
+        listCache.bindTo(registry)
+    }
+
+    @TransactionalEventListener(
+        classes = [EventCreated::class, EventPublished::class, EventUpdated::class, EventCancelled::class, EventDeleted::class],
+        fallbackExecution = true
+    )
+    fun onEventChanged(event: DomainEvent) {
+        eventCache.invalidate(event.aggregateId)
+        listCache.invalidateAll()
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    fun onRegistrationsChanged(event: RegistrationStatusChanged) {
+        changedInstances += event.aggregateId
+    }
+
+    /**
+     * Evicts the events whose instances had registrations change since the
+     * last run, so their counts are at most one interval behind.
+     */
+    @Scheduled(
+        initialDelayString = "\${app.cache.events.registration-eviction-interval:PT5S}",
+        fixedDelayString = "\${app.cache.events.registration-eviction-interval:PT5S}"
+    )
+    fun flushRegistrationChanges() {
+        val instanceIds = changedInstances.toList()
+        changedInstances.removeAll(instanceIds.toSet())
+        instanceIds.mapNotNull { delegate.getEventIdForInstance(it) }.distinct().forEach { eventCache.invalidate(it) }
+    }
+
+    // ==================== Cached Reads ====================
+
+    override fun getEvent(id: UUID): EventResponse? {
+        return eventCache.getOrLoad(id) { delegate.getEvent(id) }
+    }
+
+    override fun getEventOrThrow(id: UUID): EventResponse {
+        return getEvent(id) ?: throw EventNotFoundException(id)
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    override fun findEvents(criteria: EventFilterCriteria): List<EventResponse> {
+        return listCache.getOrLoad(ListKey(ListView.FIND, criteria)) {
+            delegate.findEvents(criteria)
+        } as List<EventResponse>
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    override fun scrollEvents(criteria: EventFilterCriteria, cursor: String?): CursorPage<EventResponse> {
+        return listCache.getOrLoad(ListKey(ListView.SCROLL, criteria, cursor)) {
+            delegate.scrollEvents(criteria, cursor)
+        } as CursorPage<EventResponse>
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    override fun findEventSummaries(criteria: EventFilterCriteria): List<EventSummaryResponse> {
+        return listCache.getOrLoad(ListKey(ListView.FIND_SUMMARIES, criteria)) {
+            delegate.findEventSummaries(criteria)
+        } as List<EventSummaryResponse>
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    override fun scrollEventSummaries(criteria: EventFilterCriteria, cursor: String?): CursorPage<EventSummaryResponse> {
+        return listCache.getOrLoad(ListKey(ListView.SCROLL_SUMMARIES, criteria, cursor)) {
+            delegate.scrollEventSummaries(criteria, cursor)
+        } as CursorPage<EventSummaryResponse>
+    }
+
+    override fun getFacets(criteria: EventFilterCriteria): EventFacetsResponse {
+        // Facets ignore sorting and paging, so those fields must not split the cache key
+        val key = ListKey(ListView.FACETS, EventFilterCriteria(
+            search = criteria.search,
+            city = criteria.city,
+            category = criteria.category,
+            eventType = criteria.eventType,
+            tags = criteria.tags,
+            publishedOnly = criteria.publishedOnly
+        ))
+        return listCache.getOrLoad(key) { delegate.getFacets(criteria) } as EventFacetsResponse
+    }
+
+    // ==================== Pass-through ====================
+
+    override fun createEvent(request: CreateEventRequest): EventResponse = delegate.createEvent(request)
+
+    override fun updateEvent(id: UUID, request: UpdateEventRequest): EventResponse = delegate.updateEvent(id, request)
+
+    override fun deleteEvent(id: UUID) = delegate.deleteEvent(id)
+
+    override fun publishEvent(id: UUID): EventResponse = delegate.publishEvent(id)
+
+    override fun cancelEvent(id: UUID, reason: String?): EventResponse = delegate.cancelEvent(id, reason)
+
+    override fun cloneEvent(id: UUID): EventResponse = delegate.cloneEvent(id)
+
+    override fun getEventInstance(instanceId: UUID): EventInstanceResponse? = delegate.getEventInstance(instanceId)
+
+    override fun getEventIdForInstance(instanceId: UUID): UUID? = delegate.getEventIdForInstance(instanceId)
+
+    override fun getEventInstances(eventId: UUID): List<EventInstanceResponse> = delegate.getEventInstances(eventId)
+
+    // Served from an in-memory index already; caching would only add invalidation work
+    override fun suggest(prefix: String, limit: Int): List<EventSuggestion> = delegate.suggest(prefix, limit)
+}
@@ -0,0 +1,33 @@
+package com.eventr.modules.event.internal
+
+import com.eventr.shared.pagination.CursorCodec
+import java.time.LocalDateTime
+import java.time.format.DateTimeParseException
+import java.util.UUID
+
+/**
+ * Position of the last event on a page in (startDateTime, id) order.
+ * Serialized into the opaque cursor handed to API clients.
+ */
+internal data class EventKeysetPosition(
+    val startDateTime: LocalDateTime?,
+    val id: UUID
+) {
+    fun encode(): String = CursorCodec.encode(startDateTime?.toString() ?: "", id.toString())
+
+    companion object {
+        fun decode(token: String): EventKeysetPosition {
+            val (start, id) = CursorCodec.decode(token, expectedParts = 2)
+            return try {
+                EventKeysetPosition(
+                    startDateTime = start.takeIf { it.isNotEmpty() }?.let { LocalDateTime.parse(it) },
+                    id = UUID.fromString(id)
+                )
+            } catch (e: DateTimeParseException) {
+                throw CursorCodec.invalidCursor()
+            } catch (e: IllegalArgumentException) {
+                throw CursorCodec.invalidCursor()
+            }
+        }
+    }
+}
@@ -12,14 +12,26 @@ import com.eventr.modules.event.events.EventCancelled
 import com.eventr.modules.event.events.EventCreated
 import com.eventr.modules.event.events.EventDeleted
 import com.eventr.modules.event.events.EventPublished
+import com.eventr.modules.event.events.EventUpdated
+import com.eventr.modules.event.internal.catalog.PublishedEventCatalog
+import com.eventr.modules.event.internal.search.EventSearchIndex
+import com.eventr.modules.event.internal.search.EventSuggestIndex
+import com.eventr.modules.event.internal.search.SearchHit
+import com.eventr.repository.EventFacetRow
 import com.eventr.repository.EventInstanceRepository
 import com.eventr.repository.EventRepository
 import com.eventr.shared.event.EventPublisher
+import com.eventr.shared.pagination.CursorPage
 import org.slf4j.LoggerFactory
+import org.springframework.data.domain.PageRequest
 import org.springframework.data.domain.Sort
+import org.springframework.data.jpa.domain.Specification
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery
 import org.springframework.stereotype.Service
+import org.springframework.transaction.annotation.Propagation
 import org.springframework.transaction.annotation.Transactional
 import java.util.UUID
+import kotlin.reflect.full.memberProperties
 
 /**
  * Implementation of the Event module API.
@@ -32,7 +44,10 @@ import java.util.UUID
 class EventModuleApiImpl(
     private val eventRepository: EventRepository,
     private val eventInstanceRepository: EventInstanceRepository,
-    private val eventPublisher: EventPublisher
+    private val eventPublisher: EventPublisher,
+    private val eventSearchIndex: EventSearchIndex,
+    private val catalog: PublishedEventCatalog,
+    private val suggestIndex: EventSuggestIndex
 ) : EventModuleApi {
     
     private val logger = LoggerFactory.getLogger(EventModuleApiImpl::class.java)
@@ -130,8 +145,9 @@ class EventModuleApiImpl(
         }
     }
     
+    @Transactional(readOnly = true)
     override fun getEvent(id: UUID): EventResponse? {
-        return eventRepository.findById(id)
+        return eventRepository.findDetailedById(id)
             .map { toResponse(it) }
             .orElse(null)
     }
@@ -182,6 +198,14 @@ class EventModuleApiImpl(
             updateDefaultInstance(savedEvent)
         }
         
+        eventPublisher.publish(EventUpdated(
+            aggregateId = savedEvent.id!!,
+            eventName = savedEvent.name ?: "",
+            changedFields = UpdateEventRequest::class.memberProperties
+                .filter { it.get(request) != null }
+                .map { it.name }
+        ))
+        
         return toResponse(savedEvent)
     }
     
@@ -209,46 +233,229 @@ class EventModuleApiImpl(
         logger.info("Deleted event {} ({})", eventName, id)
     }
     
+    @Transactional(readOnly = true)
     override fun findEvents(criteria: EventFilterCriteria): List<EventResponse> {
-        val sortDirection = if (criteria.sortDirection.lowercase() == "desc") 
-            Sort.Direction.DESC else Sort.Direction.ASC
-        val sortProperty = when (criteria.sortBy.lowercase()) {
-            "name" -> "name"
-            "city" -> "city"
-            "category" -> "category"
-            else -> "startDateTime"
+        val page = criteria.page.coerceAtLeast(0)
+        val size = criteria.size.coerceIn(1, EventFilterCriteria.MAX_PAGE_SIZE)
+        
+        if (useCatalog(criteria)) {
+            val hits = searchHits(criteria)
+            if (hits?.isEmpty() == true) return emptyList()
+            val ids = catalog.page(criteria, hits?.map { it.eventId }, offsetOf(page, size), size)
+            return loadInOrder(ids).map { toResponse(it) }
         }
-        val sort = Sort.by(sortDirection, sortProperty)
         
-        var events = if (criteria.publishedOnly) {
-            eventRepository.findByStatus(EventStatus.PUBLISHED, sort)
-        } else {
-            eventRepository.findAll(sort)
+        if (rankedByRelevance(criteria)) {
+            return loadInOrder(rankedMatches(criteria, offsetOf(page, size), size)).map { toResponse(it) }
         }
         
-        // Apply filters
-        criteria.search?.let { query ->
-            val lowerQuery = query.lowercase()
-            events = events.filter { event ->
-                event.name?.lowercase()?.contains(lowerQuery) == true ||
-                event.description?.lowercase()?.contains(lowerQuery) == true ||
-                event.city?.lowercase()?.contains(lowerQuery) == true
-            }
+        // Filtering, full-text matching, sorting and paging all happen in a single SQL statement
+        return eventRepository.findAll(filterSpecification(criteria), PageRequest.of(page, size, toSort(criteria)))
+            .content
+            .map { toResponse(it) }
+    }
+    
+    @Transactional(readOnly = true)
+    override fun scrollEvents(criteria: EventFilterCriteria, cursor: String?): CursorPage<EventResponse> {
+        val limit = criteria.size.coerceIn(1, EventFilterCriteria.MAX_PAGE_SIZE)
+        val position = cursor?.let { EventKeysetPosition.decode(it) }
+        
+        if (useCatalog(criteria)) {
+            val page = scrollCatalog(criteria, position, limit)
+            return CursorPage(loadInOrder(page.items).map { toResponse(it) }, page.nextCursor)
         }
         
-        criteria.city?.let { city ->
-            events = events.filter { it.city?.lowercase() == city.lowercase() }
+        val spec = filterSpecification(criteria)
+            .and(EventSpecifications.keysetAfter(position, criteria.sortDirection.lowercase() == "desc"))
+        
+        // Fetch one extra row to learn whether another page exists without a COUNT query
+        val rows = eventRepository.findBy(spec) { query: FetchableFluentQuery<Event> ->
+            query.limit(limit + 1).all()
         }
         
-        criteria.category?.let { category ->
-            events = events.filter { it.category == category }
+        return CursorPage.fromLookahead(rows, limit) { EventKeysetPosition(it.startDateTime, it.id!!).encode() }
+            .map { toResponse(it) }
+    }
+    
+    @Transactional(readOnly = true)
+    override fun findEventSummaries(criteria: EventFilterCriteria): List<EventSummaryResponse> {
+        val size = criteria.size.coerceIn(1, EventFilterCriteria.MAX_PAGE_SIZE)
+        val offset = offsetOf(criteria.page.coerceAtLeast(0), size)
+        
+        if (useCatalog(criteria)) {
+            val hits = searchHits(criteria)
+            if (hits?.isEmpty() == true) return emptyList()
+            return summariesInOrder(catalog.page(criteria, hits?.map { it.eventId }, offset, size))
         }
         
-        criteria.eventType?.let { type ->
-            events = events.filter { it.eventType == type }
+        if (rankedByRelevance(criteria)) {
+            return summariesInOrder(rankedMatches(criteria, offset, size))
         }
         
-        return events.map { toResponse(it) }
+        return eventRepository.findSummaries(filterSpecification(criteria), toSort(criteria), offset, size)
+    }
+    
+    @Transactional(readOnly = true)
+    override fun scrollEventSummaries(criteria: EventFilterCriteria, cursor: String?): CursorPage<EventSummaryResponse> {
+        val limit = criteria.size.coerceIn(1, EventFilterCriteria.MAX_PAGE_SIZE)
+        val position = cursor?.let { EventKeysetPosition.decode(it) }
+        
+        if (useCatalog(criteria)) {
+            val page = scrollCatalog(criteria, position, limit)
+            return CursorPage(summariesInOrder(page.items), page.nextCursor)
+        }
+        
+        val spec = filterSpecification(criteria)
+            .and(EventSpecifications.keysetAfter(position, criteria.sortDirection.lowercase() == "desc"))
+        val rows = eventRepository.findSummaries(spec, Sort.unsorted(), 0, limit + 1)
+        
+        return CursorPage.fromLookahead(rows, limit) { EventKeysetPosition(it.startDateTime, it.id).encode() }
+    }
+    
+    /**
+     * Counts facets from the catalog bitmaps for published events. Otherwise
+     * uses one grouped query over (category, eventType, city) and one over
+     * tags. The grouped rows are fetched without the category, type and city
+     * filters so that each dimension can be rolled up in memory with only the
+     * other two applied; tags are counted without the tag filter.
+     */
+    @Transactional(readOnly = true)
+    override fun getFacets(criteria: EventFilterCriteria): EventFacetsResponse {
+        if (useCatalog(criteria)) {
+            val hits = searchHits(criteria)
+            if (hits?.isEmpty() == true) return EventFacetsResponse(0, emptyList(), emptyList(), emptyList(), emptyList())
+            return catalog.facets(criteria, hits?.map { it.eventId })
+        }
+        
+        val city = criteria.city?.takeIf { it.isNotBlank() }?.trim()?.lowercase()
+        val rows = eventRepository.countFacetCombinations(
+            filterSpecification(criteria.copy(city = null, category = null, eventType = null))
+        )
+        
+        fun EventFacetRow.matchesCategory() = criteria.category == null || category == criteria.category
+        fun EventFacetRow.matchesType() = criteria.eventType == null || eventType == criteria.eventType
+        fun EventFacetRow.matchesCity() = city == null || this.city?.lowercase() == city
+        
+        val categories = rows.filter { it.category != null && it.matchesType() && it.matchesCity() }
+            .groupBy { it.category!!.name }
+            .map { (value, group) -> FacetCount(value, group.sumOf { it.count }) }
+        val eventTypes = rows.filter { it.eventType != null && it.matchesCategory() && it.matchesCity() }
+            .groupBy { it.eventType!!.name }
+            .map { (value, group) -> FacetCount(value, group.sumOf { it.count }) }
+        // Cities differing only in case are one filter value; label them with the most common spelling
+        val cities = rows.filter { !it.city.isNullOrBlank() && it.matchesCategory() && it.matchesType() }
+            .groupBy { it.city!!.trim().lowercase() }
+            .map { (_, group) ->
+                val label = group.groupBy { it.city!!.trim() }.maxBy { (_, variants) -> variants.sumOf { it.count } }.key
+                FacetCount(label, group.sumOf { it.count })
+            }
+        val total = rows.filter { it.matchesCategory() && it.matchesType() && it.matchesCity() }.sumOf { it.count }
+        
+        val tags = eventRepository.countTags(filterSpecification(criteria.copy(tags = null)), EventFacetsResponse.MAX_FACET_VALUES)
+            .map { (tag, count) -> FacetCount(tag, count) }
+        
+        return EventFacetsResponse(
+            total = total,
+            categories = categories.sortedWith(FACET_ORDER),
+            eventTypes = eventTypes.sortedWith(FACET_ORDER),
+            cities = cities.sortedWith(FACET_ORDER).take(EventFacetsResponse.MAX_FACET_VALUES),
+            tags = tags
+        )
+    }
+    
+    // Answered entirely from memory, so no transaction or connection is needed
+    @Transactional(propagation = Propagation.SUPPORTS)
+    override fun suggest(prefix: String, limit: Int): List<EventSuggestion> {
+        return suggestIndex.suggest(prefix, limit.coerceIn(1, EventSuggestion.MAX_LIMIT))
+    }
+    
+    // Published-only browsing is filtered and ordered by the in-memory catalog once it is loaded
+    private fun useCatalog(criteria: EventFilterCriteria): Boolean = criteria.publishedOnly && catalog.isReady
+    
+    private fun scrollCatalog(criteria: EventFilterCriteria, position: EventKeysetPosition?, limit: Int): CursorPage<UUID> {
+        val hits = searchHits(criteria)
+        if (hits?.isEmpty() == true) return CursorPage(emptyList(), null)
+        val entries = catalog.scroll(
+            criteria, hits?.map { it.eventId }, position?.startDateTime, position?.id,
+            criteria.sortDirection.lowercase() == "desc", limit + 1
+        )
+        return CursorPage.fromLookahead(entries, limit) { EventKeysetPosition(it.startDateTime, it.id).encode() }
+            .map { it.id }
+    }
+    
+    /**
+     * Loads a page of events by primary key, keeping the order of [ids].
+     * Ids of events deleted in the meantime are skipped.
+     */
+    private fun loadInOrder(ids: List<UUID>): List<Event> {
+        if (ids.isEmpty()) return emptyList()
+        val byId = eventRepository.findAllById(ids).associateBy { it.id }
+        return ids.mapNotNull { byId[it] }
+    }
+    
+    private fun summariesInOrder(ids: List<UUID>): List<EventSummaryResponse> {
+        if (ids.isEmpty()) return emptyList()
+        val byId = eventRepository.findSummaries(EventSpecifications.idIn(ids), Sort.unsorted(), 0, ids.size)
+            .associateBy { it.id }
+        return ids.mapNotNull { byId[it] }
+    }
+    
+    private fun offsetOf(page: Int, size: Int): Int =
+        (page.toLong() * size).coerceAtMost(Int.MAX_VALUE.toLong()).toInt()
+    
+    private fun searchText(criteria: EventFilterCriteria): String? = criteria.search?.takeIf { it.isNotBlank() }
+    
+    private fun rankedByRelevance(criteria: EventFilterCriteria): Boolean =
+        searchText(criteria) != null && criteria.sortBy.lowercase() == "relevance"
+    
+    /**
+     * Runs the free-text part of the criteria against the search index and
+     * returns every match, best first, so that filters applied afterwards
+     * see all of them. Returns null when the criteria have no search text.
+     */
+    private fun searchHits(criteria: EventFilterCriteria): List<SearchHit>? {
+        return searchText(criteria)?.let { eventSearchIndex.search(it, Int.MAX_VALUE) }
+    }
+    
+    private fun filterSpecification(criteria: EventFilterCriteria): Specification<Event> {
+        val spec = EventSpecifications.matching(criteria)
+        return searchText(criteria)?.let { spec.and(eventSearchIndex.matching(it)) } ?: spec
+    }
+    
+    /**
+     * Returns one page of ids of the events matching [criteria], best match
+     * first. Where the search index can rank in SQL, the filters, ranking and
+     * paging are one query. Otherwise hits are filtered a window at a time in
+     * rank order until the page is filled, so each query's IN list stays
+     * bounded.
+     */
+    private fun rankedMatches(criteria: EventFilterCriteria, offset: Int, limit: Int): List<UUID> {
+        val filter = EventSpecifications.matching(criteria)
+        eventSearchIndex.ranking(searchText(criteria)!!)?.let { ranking ->
+            return eventRepository.findSummaries(filter.and(ranking), Sort.unsorted(), offset, limit).map { it.id }
+        }
+        val wanted = offset.toLong() + limit
+        val matches = ArrayList<UUID>()
+        for (window in searchHits(criteria).orEmpty().asSequence().map { it.eventId }.chunked(RANKING_WINDOW)) {
+            val passing = eventRepository.findSummaries(filter.and(EventSpecifications.idIn(window)), Sort.unsorted(), 0, window.size)
+                .mapTo(HashSet()) { it.id }
+            window.filterTo(matches) { it in passing }
+            if (matches.size >= wanted) break
+        }
+        return matches.drop(offset).take(limit)
+    }
+    
+    private fun toSort(criteria: EventFilterCriteria): Sort {
+        val sortDirection = if (criteria.sortDirection.lowercase() == "desc") 
+            Sort.Direction.DESC else Sort.Direction.ASC
+        val sortProperty = when (criteria.sortBy.lowercase()) {
+            "name" -> "name"
+            "city" -> "city"
+            "category" -> "category"
+            else -> "startDateTime"
+        }
+        // Tie-break on id so that page boundaries are stable
+        return Sort.by(sortDirection, sortProperty).and(Sort.by(Sort.Direction.ASC, "id"))
     }
     
     // ==================== Event Lifecycle ====================
@@ -333,7 +540,15 @@ class EventModuleApiImpl(
         }
         
         val savedEvent = eventRepository.save(cloned)
-        createDefaultInstance(savedEvent)
+        val defaultInstance = createDefaultInstance(savedEvent)
+        
+        eventPublisher.publish(EventCreated(
+            aggregateId = savedEvent.id!!,
+            eventName = savedEvent.name ?: "",
+            organizerEmail = savedEvent.organizerEmail,
+            startDateTime = savedEvent.startDateTime,
+            defaultInstanceId = defaultInstance?.id
+        ))
         
         logger.info("Cloned event {} to new event {}", id, savedEvent.id)
         
@@ -373,7 +588,7 @@ class EventModuleApiImpl(
             category = event.category,
             bannerImageUrl = event.bannerImageUrl,
             thumbnailImageUrl = event.thumbnailImageUrl,
-            tags = event.tags ?: emptyList(),
+            tags = event.tags?.toList() ?: emptyList(),  // detached copy; responses are cached
             capacity = event.capacity,
             waitlistEnabled = event.waitlistEnabled ?: false,
             venueName = event.venueName,
@@ -395,7 +610,8 @@ class EventModuleApiImpl(
             endDateTime = event.endDateTime,
             timezone = event.timezone,
             agenda = event.agenda,
-            instances = event.instances?.map { toInstanceResponse(it) } ?: emptyList()
+            instances = event.instances?.map { toInstanceResponse(it) } ?: emptyList(),
+            version = event.version
         )
     }
     
@@ -406,7 +622,17 @@ class EventModuleApiImpl(
             endDateTime = instance.event?.endDateTime,
             location = instance.location,
             capacity = instance.event?.capacity,
-            registrationCount = 0  // TODO: Get from registration module
+            registrationCount = instance.registeredCount + instance.checkedInCount + instance.noShowCount,
+            waitlistCount = instance.waitlistedCount,
+            registrationCounts = instance.registrationCounts(),
+            version = instance.version
         )
     }
+    
+    companion object {
+        // Full-text hits checked against the filters per query when ordering by relevance
+        private const val RANKING_WINDOW = 1000
+        
+        private val FACET_ORDER = compareByDescending<FacetCount> { it.count }.thenBy { it.value }
+    }
 }
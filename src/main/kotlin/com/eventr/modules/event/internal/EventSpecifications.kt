@@ -0,0 +1,93 @@
+package com.eventr.modules.event.internal
+
+import com.eventr.model.Event
+import com.eventr.model.EventStatus
+import com.eventr.modules.event.api.dto.EventFilterCriteria
+import jakarta.persistence.criteria.Predicate
+import org.springframework.data.jpa.domain.Specification
+import java.time.LocalDateTime
+import java.util.UUID
+
+/**
+ * Translates [EventFilterCriteria] into a JPA [Specification] so that all
+ * filtering happens in a single SQL WHERE clause instead of in memory.
+ * Free-text search enters the query as a predicate supplied by the search
+ * index (see EventSearchIndex.matching).
+ */
+internal object EventSpecifications {
+
+    /**
+     * Builds the combined predicate for the given criteria.
+     * Absent criteria fields do not contribute a predicate.
+     */
+    fun matching(criteria: EventFilterCriteria): Specification<Event> {
+        return Specification { root, query, cb ->
+            val predicates = mutableListOf<Predicate>()
+
+            if (criteria.publishedOnly) {
+                predicates += cb.equal(root.get<EventStatus>("status"), EventStatus.PUBLISHED)
+            }
+
+            criteria.city?.takeIf { it.isNotBlank() }?.let { city ->
+                predicates += cb.equal(cb.lower(root.get("city")), city.trim().lowercase())
+            }
+
+            criteria.category?.let { category ->
+                predicates += cb.equal(root.get<Any>("category"), category)
+            }
+
+            criteria.eventType?.let { type ->
+                predicates += cb.equal(root.get<Any>("eventType"), type)
+            }
+
+            // Any of the requested tags; a subquery keeps the outer rows distinct
+            criteria.tags?.map { it.trim().lowercase() }?.filter { it.isNotEmpty() }?.takeIf { it.isNotEmpty() }?.let { tags ->
+                val tagged = requireNotNull(query).subquery(UUID::class.java)
+                val taggedEvent = tagged.from(Event::class.java)
+                val tag = taggedEvent.join<Event, String>("tags")
+                tagged.select(taggedEvent.get("id")).where(cb.lower(tag).`in`(tags))
+                predicates += root.get<UUID>("id").`in`(tagged)
+            }
+
+            cb.and(*predicates.toTypedArray())
+        }
+    }
+
+    /**
+     * Restricts results to the given event ids, e.g. full-text search hits.
+     */
+    fun idIn(ids: Collection<UUID>): Specification<Event> {
+        return Specification { root, _, cb ->
+            if (ids.isEmpty()) cb.disjunction() else root.get<UUID>("id").`in`(ids)
+        }
+    }
+
+    /**
+     * Orders results by (startDateTime, id) and, when [position] is given,
+     * restricts them to rows strictly after it. Events without a start date
+     * sort after dated events in both directions so the order is total.
+     */
+    fun keysetAfter(position: EventKeysetPosition?, descending: Boolean): Specification<Event> {
+        return Specification { root, query, cb ->
+            val start = root.get<LocalDateTime>("startDateTime")
+            val id = root.get<UUID>("id")
+
+            query?.orderBy(
+                cb.asc(cb.selectCase<Int>().`when`(cb.isNull(start), 1).otherwise(0)),
+                if (descending) cb.desc(start) else cb.asc(start),
+                cb.asc(id)
+            )
+
+            val startDateTime = position?.startDateTime
+            when {
+                position == null -> cb.conjunction()
+                startDateTime == null -> cb.and(cb.isNull(start), cb.greaterThan(id, position.id))
+                else -> cb.or(
+                    if (descending) cb.lessThan(start, startDateTime) else cb.greaterThan(start, startDateTime),
+                    cb.and(cb.equal(start, startDateTime), cb.greaterThan(id, position.id)),
+                    cb.isNull(start)
+                )
+            }
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.eventr.modules.event.internal.catalog
+
+import com.eventr.model.Event
+import com.eventr.model.EventCategory
+import com.eventr.model.EventStatus
+import com.eventr.model.EventType
+import com.eventr.modules.event.api.dto.EventFacetsResponse
+import com.eventr.modules.event.api.dto.EventFilterCriteria
+import com.eventr.modules.event.api.dto.FacetCount
+import org.springframework.stereotype.Component
+import java.time.LocalDateTime
+import java.util.BitSet
+import java.util.EnumMap
+import java.util.PriorityQueue
+import java.util.UUID
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+
+/**
+ * In-memory catalog of published events for the public browse path.
+ *
+ * Each event occupies a dense slot number, and one bitmap per category, event
+ * type, city and tag records the slots carrying that value. A filter
+ * combination is the AND of one bitmap per filtered dimension (requested tags
+ * are OR-ed), and facet counts are bitmap cardinalities, so neither touches
+ * the database. The sort keys are kept next to the bitmaps, which lets a page
+ * of ids be ordered here so that only that page is loaded from the database.
+ *
+ * Cities and tags match case-insensitively, like the SQL filters.
+ */
+@Component
+class PublishedEventCatalog {
+
+    /**
+     * The indexed fields of one published event.
+     */
+    data class CatalogEntry(
+        val id: UUID,
+        val name: String?,
+        val city: String?,
+        val category: EventCategory?,
+        val eventType: EventType?,
+        val startDateTime: LocalDateTime?,
+        val tags: List<String>
+    ) {
+        companion object {
+            fun of(event: Event) = CatalogEntry(
+                id = event.id!!,
+                name = event.name,
+                city = event.city,
+                category = event.category,
+                eventType = event.eventType,
+                startDateTime = event.startDateTime,
+                tags = event.tags?.toList().orEmpty()
+            )
+        }
+    }
+
+    private val lock = ReentrantReadWriteLock()
+
+    private val slots = HashMap<UUID, Int>()
+    private val entries = ArrayList<CatalogEntry?>()
+
+    // Reusing freed slots keeps the bitmaps dense as events come and go
+    private val freeSlots = ArrayDeque<Int>()
+
+    private val occupied = BitSet()
+    private val byCategory = EnumMap<EventCategory, BitSet>(EventCategory::class.java)
+    private val byType = EnumMap<EventType, BitSet>(EventType::class.java)
+    private val byCity = LabelledBitmaps()
+    private val byTag = LabelledBitmaps()
+
+    @Volatile
+    private var ready = false
+
+    /**
+     * False until the first [rebuild]; callers fall back to the database
+     * while the catalog is still empty for lack of loading.
+     */
+    val isReady: Boolean
+        get() = ready
+
+    val size: Int
+        get() = lock.read { slots.size }
+
+    /** The ids of the events currently in the catalog. */
+    fun ids(): Set<UUID> = lock.read { slots.keys.toSet() }
+
+    // ==================== Maintenance ====================
+
+    /**
+     * Adds or replaces an event. Events that are not published are removed.
+     */
+    fun upsert(event: Event) {
+        val eventId = event.id ?: return
+        if (event.status != EventStatus.PUBLISHED) {
+            remove(eventId)
+            return
+        }
+        val entry = CatalogEntry.of(event)
+        lock.write {
+            removeLocked(eventId)
+            addLocked(entry)
+        }
+    }
+
+    fun remove(eventId: UUID) {
+        lock.write { removeLocked(eventId) }
+    }
+
+    /**
+     * Replaces the whole catalog with the published events among [events].
+     */
+    fun rebuild(events: Iterable<Event>) {
+        val published = events.filter { it.id != null && it.status == EventStatus.PUBLISHED }.map { CatalogEntry.of(it) }
+        lock.write {
+            slots.clear()
+            entries.clear()
+            freeSlots.clear()
+            occupied.clear()
+            byCategory.clear()
+            byType.clear()
+            byCity.clear()
+            byTag.clear()
+            published.forEach { addLocked(it) }
+            ready = true
+        }
+    }
+
+    private fun addLocked(entry: CatalogEntry) {
+        val slot = freeSlots.removeFirstOrNull() ?: entries.size.also { entries.add(null) }
+        entries[slot] = entry
+        slots[entry.id] = slot
+        occupied.set(slot)
+        entry.category?.let { byCategory.getOrPut(it) { BitSet() }.set(slot) }
+        entry.eventType?.let { byType.getOrPut(it) { BitSet() }.set(slot) }
+        entry.city?.let { byCity.add(it, slot) }
+        entry.tags.forEach { byTag.add(it, slot) }
+    }
+
+    private fun removeLocked(eventId: UUID) {
+        val slot = slots.remove(eventId) ?: return
+        val entry = entries[slot]!!
+        entries[slot] = null
+        freeSlots.addLast(slot)
+        occupied.clear(slot)
+        entry.category?.let { byCategory[it]?.clear(slot) }
+        entry.eventType?.let { byType[it]?.clear(slot) }
+        entry.city?.let { byCity.remove(it, slot) }
+        entry.tags.forEach { byTag.remove(it, slot) }
+    }
+
+    // ==================== Queries ====================
+
+    /**
+     * Returns one page of matching event ids in the order requested by
+     * [criteria]. When [hitIds] is given (full-text hits, best first), only
+     * those events match and "relevance" orders by their position.
+     */
+    fun page(criteria: EventFilterCriteria, hitIds: List<UUID>?, offset: Int, limit: Int): List<UUID> {
+        val order = when {
+            hitIds != null && criteria.sortBy.lowercase() == "relevance" -> {
+                val rank = hitIds.withIndex().associate { (position, id) -> id to position }
+                compareBy<CatalogEntry> { rank.getValue(it.id) }
+            }
+            else -> listOrder(criteria)
+        }
+        return lock.read {
+            firstInOrder(matchingLocked(criteria, hitIds), order, offset.toLong() + limit)
+        }.drop(offset).map { it.id }
+    }
+
+    /**
+     * Returns up to [limit] matching entries in (startDateTime, id) keyset
+     * order, strictly after the position ([afterStart], [afterId]) when one
+     * is given. Ordering matches EventSpecifications.keysetAfter, so cursors
+     * are interchangeable with the database path.
+     */
+    fun scroll(
+        criteria: EventFilterCriteria,
+        hitIds: List<UUID>?,
+        afterStart: LocalDateTime?,
+        afterId: UUID?,
+        descending: Boolean,
+        limit: Int
+    ): List<CatalogEntry> {
+        val order = keysetOrder(descending)
+        val after = afterId?.let { CatalogEntry(it, null, null, null, null, afterStart, emptyList()) }
+        return lock.read {
+            val matches = matchingLocked(criteria, hitIds)
+            if (after != null) {
+                // Drop everything at or before the position before selecting the page
+                var slot = matches.nextSetBit(0)
+                while (slot >= 0) {
+                    if (order.compare(entries[slot]!!, after) <= 0) matches.clear(slot)
+                    slot = matches.nextSetBit(slot + 1)
+                }
+            }
+            firstInOrder(matches, order, limit.toLong())
+        }
+    }
+
+    /**
+     * Counts matching events per facet value. Each dimension is counted with
+     * every filter except its own, as in the database implementation.
+     */
+    fun facets(criteria: EventFilterCriteria, hitIds: List<UUID>?): EventFacetsResponse {
+        return lock.read {
+            val base = hitIds?.let { slotsOf(it) } ?: occupied.clone() as BitSet
+            val category = criteria.category?.let { byCategory[it] ?: BitSet() }
+            val type = criteria.eventType?.let { byType[it] ?: BitSet() }
+            val city = cityFilter(criteria)
+            val tags = tagFilter(criteria)
+
+            fun countWith(value: BitSet, vararg others: BitSet?): Long {
+                val counted = base.clone() as BitSet
+                counted.and(value)
+                others.forEach { other -> other?.let { counted.and(it) } }
+                return counted.cardinality().toLong()
+            }
+
+            EventFacetsResponse(
+                total = countWith(occupied, category, type, city, tags),
+                categories = byCategory.map { (value, slots) -> FacetCount(value.name, countWith(slots, type, city, tags)) }
+                    .filter { it.count > 0 }
+                    .sortedWith(FACET_ORDER),
+                eventTypes = byType.map { (value, slots) -> FacetCount(value.name, countWith(slots, category, city, tags)) }
+                    .filter { it.count > 0 }
+                    .sortedWith(FACET_ORDER),
+                cities = byCity.counts { countWith(it, category, type, tags) },
+                tags = byTag.counts { countWith(it, category, type, city) }
+            )
+        }
+    }
+
+    private fun matchingLocked(criteria: EventFilterCriteria, hitIds: List<UUID>?): BitSet {
+        val result = hitIds?.let { slotsOf(it) } ?: occupied.clone() as BitSet
+        criteria.category?.let { result.and(byCategory[it] ?: BitSet()) }
+        criteria.eventType?.let { result.and(byType[it] ?: BitSet()) }
+        cityFilter(criteria)?.let { result.and(it) }
+        tagFilter(criteria)?.let { result.and(it) }
+        return result
+    }
+
+    private fun slotsOf(ids: Collection<UUID>): BitSet {
+        val result = BitSet()
+        ids.forEach { id -> slots[id]?.let { result.set(it) } }
+        return result
+    }
+
+    private fun cityFilter(criteria: EventFilterCriteria): BitSet? {
+        return criteria.city?.takeIf { it.isNotBlank() }?.let { byCity.bitmap(it) ?: BitSet() }
+    }
+
+    private fun tagFilter(criteria: EventFilterCriteria): BitSet? {
+        val requested = criteria.tags?.filter { it.isNotBlank() }?.takeIf { it.isNotEmpty() } ?: return null
+        val result = BitSet()
+        requested.forEach { tag -> byTag.bitmap(tag)?.let { result.or(it) } }
+        return result
+    }
+
+    /**
+     * Selects the first [count] entries of [matches] in [order] with a
+     * bounded heap, so a page costs O(n log count) rather than a full sort.
+     */
+    private fun firstInOrder(matches: BitSet, order: Comparator<CatalogEntry>, count: Long): List<CatalogEntry> {
+        if (count <= 0) return emptyList()
+        val bound = count.coerceAtMost(matches.cardinality().toLong()).toInt()
+        if (bound == 0) return emptyList()
+        val heap = PriorityQueue(bound + 1, order.reversed())
+        var slot = matches.nextSetBit(0)
+        while (slot >= 0) {
+            heap.add(entries[slot]!!)
+            if (heap.size > bound) heap.poll()
+            slot = matches.nextSetBit(slot + 1)
+        }
+        return heap.sortedWith(order)
+    }
+
+    /**
+     * Bitmaps keyed by a case-insensitive value. The facet label of a value is
+     * its most common spelling.
+     */
+    private class LabelledBitmaps {
+        private val bitmaps = HashMap<String, BitSet>()
+        private val spellings = HashMap<String, HashMap<String, Int>>()
+
+        fun bitmap(value: String): BitSet? = bitmaps[key(value)]
+
+        fun add(value: String, slot: Int) {
+            if (value.isBlank()) return
+            val key = key(value)
+            bitmaps.getOrPut(key) { BitSet() }.set(slot)
+            spellings.getOrPut(key) { HashMap() }.merge(value.trim(), 1, Int::plus)
+        }
+
+        fun remove(value: String, slot: Int) {
+            if (value.isBlank()) return
+            val key = key(value)
+            val bitmap = bitmaps[key] ?: return
+            bitmap.clear(slot)
+            if (bitmap.isEmpty) {
+                bitmaps.remove(key)
+                spellings.remove(key)
+            } else {
+                spellings[key]?.computeIfPresent(value.trim()) { _, count -> if (count > 1) count - 1 else null }
+            }
+        }
+
+        fun clear() {
+            bitmaps.clear()
+            spellings.clear()
+        }
+
+        fun counts(countOf: (BitSet) -> Long): List<FacetCount> {
+            return bitmaps.mapNotNull { (key, bitmap) ->
+                val count = countOf(bitmap)
+                if (count == 0L) null else FacetCount(label(key), count)
+            }.sortedWith(FACET_ORDER).take(EventFacetsResponse.MAX_FACET_VALUES)
+        }
+
+        private fun label(key: String): String =
+            spellings[key]?.maxWithOrNull(compareBy<Map.Entry<String, Int>> { it.value }.thenByDescending { it.key })?.key ?: key
+
+        private fun key(value: String) = value.trim().lowercase()
+    }
+
+    companion object {
+        private val FACET_ORDER = compareByDescending<FacetCount> { it.count }.thenBy { it.value }
+
+        // Unsigned byte order, which is how PostgreSQL and H2 compare uuid columns
+        private val ID_ORDER = Comparator<UUID> { a, b ->
+            java.lang.Long.compareUnsigned(a.mostSignificantBits, b.mostSignificantBits).takeIf { it != 0 }
+                ?: java.lang.Long.compareUnsigned(a.leastSignificantBits, b.leastSignificantBits)
+        }
+
+        /**
+         * Offset-paged sort orders. Nulls sort as the largest value (last
+         * ascending, first descending) as in PostgreSQL; ties break on id.
+         */
+        private fun listOrder(criteria: EventFilterCriteria): Comparator<CatalogEntry> {
+            val byValue: Comparator<CatalogEntry> = when (criteria.sortBy.lowercase()) {
+                "name" -> compareBy<CatalogEntry, String?>(nullsLast()) { it.name }
+                "city" -> compareBy<CatalogEntry, String?>(nullsLast()) { it.city }
+                "category" -> compareBy<CatalogEntry, String?>(nullsLast()) { it.category?.name }
+                else -> compareBy<CatalogEntry, LocalDateTime?>(nullsLast()) { it.startDateTime }
+            }
+            val directed = if (criteria.sortDirection.lowercase() == "desc") byValue.reversed() else byValue
+            return directed.thenBy(ID_ORDER) { it.id }
+        }
+
+        /**
+         * Keyset order: undated events last in both directions, then start
+         * time, then id ascending.
+         */
+        private fun keysetOrder(descending: Boolean): Comparator<CatalogEntry> {
+            val byStart = compareBy<CatalogEntry, LocalDateTime>(if (descending) reverseOrder() else naturalOrder()) {
+                it.startDateTime!!
+            }
+            return Comparator<CatalogEntry> { a, b ->
+                when {
+                    a.startDateTime == null && b.startDateTime == null -> 0
+                    a.startDateTime == null -> 1
+                    b.startDateTime == null -> -1
+                    else -> byStart.compare(a, b)
+                }
+            }.thenBy(ID_ORDER) { it.id }
+        }
+    }
+}
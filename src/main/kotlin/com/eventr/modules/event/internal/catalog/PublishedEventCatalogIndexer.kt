@@ -0,0 +1,132 @@
+package com.eventr.modules.event.internal.catalog
+
+import com.eventr.model.EventStatus
+import com.eventr.modules.event.events.EventCancelled
+import com.eventr.modules.event.events.EventCreated
+import com.eventr.modules.event.events.EventDeleted
+import com.eventr.modules.event.events.EventPublished
+import com.eventr.modules.event.events.EventUpdated
+import com.eventr.modules.event.internal.search.EventSuggestIndex
+import com.eventr.repository.EventRepository
+import org.slf4j.LoggerFactory
+import org.springframework.boot.context.event.ApplicationReadyEvent
+import org.springframework.context.event.EventListener
+import org.springframework.core.Ordered
+import org.springframework.core.annotation.Order
+import org.springframework.scheduling.annotation.Scheduled
+import org.springframework.stereotype.Component
+import org.springframework.transaction.event.TransactionalEventListener
+import java.time.Duration
+import java.time.LocalDateTime
+import java.util.UUID
+
+/**
+ * Keeps the in-memory views of published events (the [PublishedEventCatalog]
+ * and the typeahead [EventSuggestIndex]) in step with the event table.
+ *
+ * Both are loaded once at startup and then updated incrementally from
+ * the event module's domain events after the publishing transaction commits.
+ * These listeners run before the read cache is invalidated, so a read that
+ * repopulates the cache already sees the updated catalog.
+ *
+ * Domain events only reach the node that made the change, so [resync] also
+ * runs every app.events.catalog.resync-interval (30 seconds by default) and
+ * picks up what other nodes published, edited, cancelled or deleted. A change
+ * made elsewhere is therefore missing from this node's published listings,
+ * facets and suggestions for at most about one interval.
+ */
+@Component
+class PublishedEventCatalogIndexer(
+    private val catalog: PublishedEventCatalog,
+    private val suggestIndex: EventSuggestIndex,
+    private val eventRepository: EventRepository
+) {
+
+    private val logger = LoggerFactory.getLogger(PublishedEventCatalogIndexer::class.java)
+
+    // Edits are looked for from the previous pass's start, less an overlap that covers
+    // transactions committing late and clocks of other nodes running behind
+    @Volatile
+    private var lastSync: LocalDateTime? = null
+
+    @EventListener(ApplicationReadyEvent::class)
+    fun rebuildOnStartup() {
+        val startedAt = LocalDateTime.now()
+        val published = eventRepository.findTaggedByStatus(EventStatus.PUBLISHED)
+        catalog.rebuild(published)
+        suggestIndex.rebuild(published)
+        lastSync = startedAt
+        logger.info("Published event catalog ready with {} events", catalog.size)
+    }
+
+    /**
+     * Brings the catalog and suggestions up to date with changes this node
+     * received no domain event for. Events that stopped being published are
+     * removed, newly published ones added, and events edited since the last
+     * pass re-read.
+     */
+    @Scheduled(
+        initialDelayString = "\${app.events.catalog.resync-interval:PT30S}",
+        fixedDelayString = "\${app.events.catalog.resync-interval:PT30S}"
+    )
+    fun resync() {
+        val since = lastSync ?: return rebuildOnStartup()
+        val startedAt = LocalDateTime.now()
+        // Taken before the published ids, so an event indexed meanwhile is not mistaken for a removed one
+        val indexed = catalog.ids()
+        val published = eventRepository.findIdsByStatus(EventStatus.PUBLISHED).toSet()
+        val edited = eventRepository.findTaggedByUpdatedAtAfter(since.minus(SYNC_OVERLAP))
+        val missing = published - indexed - edited.mapNotNull { it.id }.toSet()
+        val removed = indexed - published
+
+        removed.forEach { remove(it) }
+        val changed = edited + if (missing.isEmpty()) emptyList() else eventRepository.findTaggedByIdIn(missing)
+        changed.forEach {
+            catalog.upsert(it)
+            suggestIndex.upsert(it)
+        }
+        lastSync = startedAt
+        if (removed.isNotEmpty() || missing.isNotEmpty()) {
+            logger.debug("Catalog resync added {} and removed {} events", missing.size, removed.size)
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    fun on(event: EventCreated) = reindex(event.aggregateId)
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    fun on(event: EventPublished) = reindex(event.aggregateId)
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    fun on(event: EventUpdated) = reindex(event.aggregateId)
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    fun on(event: EventCancelled) = remove(event.aggregateId)
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    fun on(event: EventDeleted) = remove(event.aggregateId)
+
+    private fun reindex(eventId: UUID) {
+        eventRepository.findTaggedById(eventId).ifPresentOrElse(
+            {
+                catalog.upsert(it)
+                suggestIndex.upsert(it)
+            },
+            { remove(eventId) }
+        )
+    }
+
+    private fun remove(eventId: UUID) {
+        catalog.remove(eventId)
+        suggestIndex.remove(eventId)
+    }
+
+    companion object {
+        private val SYNC_OVERLAP = Duration.ofMinutes(1)
+    }
+}
@@ -0,0 +1,31 @@
+package com.eventr.modules.event.internal.search
+
+import org.slf4j.LoggerFactory
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Configuration
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate
+import org.springframework.jdbc.support.DatabaseMetaDataCallback
+import org.springframework.jdbc.support.JdbcUtils
+import javax.sql.DataSource
+
+/**
+ * Selects the search index implementation for the configured database:
+ * native full-text search on PostgreSQL, the in-process index otherwise.
+ */
+@Configuration
+class EventSearchConfiguration {
+
+    private val logger = LoggerFactory.getLogger(EventSearchConfiguration::class.java)
+
+    @Bean
+    fun eventSearchIndex(dataSource: DataSource, jdbcTemplate: NamedParameterJdbcTemplate): EventSearchIndex {
+        val product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaDataCallback { it.databaseProductName })
+        return if (product == "PostgreSQL") {
+            logger.info("Using PostgreSQL full-text search for events")
+            PostgresEventSearchIndex(jdbcTemplate)
+        } else {
+            logger.info("Using in-memory full-text search for events ({})", product)
+            InMemoryEventSearchIndex()
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.eventr.modules.event.internal.search
+
+import org.hibernate.boot.model.FunctionContributions
+import org.hibernate.boot.model.FunctionContributor
+import org.hibernate.type.StandardBasicTypes
+
+/**
+ * Registers the SQL functions used by [PostgresEventSearchIndex.matching] and
+ * [PostgresEventSearchIndex.ranking].
+ * Loaded by Hibernate through META-INF/services; the functions are only
+ * rendered on PostgreSQL, where that index is in use.
+ */
+class EventSearchFunctionContributor : FunctionContributor {
+
+    override fun contributeFunctions(functionContributions: FunctionContributions) {
+        functionContributions.functionRegistry.registerPattern(
+            PostgresEventSearchIndex.MATCH_FUNCTION,
+            PostgresEventSearchIndex.MATCH_PATTERN,
+            functionContributions.typeConfiguration.basicTypeRegistry.resolve(StandardBasicTypes.BOOLEAN)
+        )
+        functionContributions.functionRegistry.registerPattern(
+            PostgresEventSearchIndex.RANK_FUNCTION,
+            PostgresEventSearchIndex.RANK_PATTERN,
+            functionContributions.typeConfiguration.basicTypeRegistry.resolve(StandardBasicTypes.DOUBLE)
+        )
+    }
+}
@@ -0,0 +1,62 @@
+package com.eventr.modules.event.internal.search
+
+import com.eventr.model.Event
+import org.springframework.data.jpa.domain.Specification
+import java.util.UUID
+
+/**
+ * A single full-text match. Higher [score] means more relevant; scores are
+ * only comparable within the result list of one query.
+ */
+data class SearchHit(
+    val eventId: UUID,
+    val score: Double
+)
+
+/**
+ * Full-text index over event name, city and description.
+ *
+ * Queries are tokenized into words; every word must match (AND semantics) and
+ * each word also matches as a prefix, so "conf" finds "conference". Results
+ * are ordered by relevance, best first.
+ */
+interface EventSearchIndex {
+
+    /**
+     * @param query Free text as typed by the user
+     * @param limit Maximum number of hits to return
+     * @return Matching events ordered by descending relevance; empty when the
+     *         query contains no searchable words
+     */
+    fun search(query: String, limit: Int): List<SearchHit>
+
+    /**
+     * Restricts an event query to the matches of [query], so that the
+     * full-text match and the other filters are applied together. Matches
+     * nothing when the query contains no searchable words.
+     */
+    fun matching(query: String): Specification<Event>
+
+    /**
+     * Like [matching], but also orders the query by relevance, best first,
+     * so that filtering, ranking and paging run as one database query.
+     * Returns null when relevance is only known to the index itself.
+     */
+    fun ranking(query: String): Specification<Event>? = null
+
+    /**
+     * Adds or replaces the indexed document for an event.
+     */
+    fun upsert(event: Event)
+
+    /**
+     * Removes an event from the index. Unknown ids are ignored.
+     */
+    fun remove(eventId: UUID)
+
+    /**
+     * Prepares the index at startup, loading documents from [source] if the
+     * implementation keeps its own copy of them.
+     */
+    fun rebuild(source: () -> Iterable<Event>)
+}
@@ -0,0 +1,54 @@
+package com.eventr.modules.event.internal.search
+
+import com.eventr.modules.event.events.EventCreated
+import com.eventr.modules.event.events.EventDeleted
+import com.eventr.modules.event.events.EventPublished
+import com.eventr.modules.event.events.EventUpdated
+import com.eventr.repository.EventRepository
+import org.slf4j.LoggerFactory
+import org.springframework.boot.context.event.ApplicationReadyEvent
+import org.springframework.context.event.EventListener
+import org.springframework.stereotype.Component
+import org.springframework.transaction.event.TransactionalEventListener
+import java.util.UUID
+
+/**
+ * Keeps the [EventSearchIndex] in step with the event catalog.
+ *
+ * The index is built once at startup and then updated incrementally from the
+ * event module's domain events. Updates run after the publishing transaction
+ * commits so that rolled-back changes never become searchable.
+ */
+@Component
+class EventSearchIndexer(
+    private val searchIndex: EventSearchIndex,
+    private val eventRepository: EventRepository
+) {
+
+    private val logger = LoggerFactory.getLogger(EventSearchIndexer::class.java)
+
+    @EventListener(ApplicationReadyEvent::class)
+    fun rebuildOnStartup() {
+        searchIndex.rebuild { eventRepository.findAll() }
+        logger.info("Event search index ready")
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    fun on(event: EventCreated) = reindex(event.aggregateId)
+
+    @TransactionalEventListener(fallbackExecution = true)
+    fun on(event: EventPublished) = reindex(event.aggregateId)
+
+    @TransactionalEventListener(fallbackExecution = true)
+    fun on(event: EventUpdated) = reindex(event.aggregateId)
+
+    @TransactionalEventListener(fallbackExecution = true)
+    fun on(event: EventDeleted) = searchIndex.remove(event.aggregateId)
+
+    private fun reindex(eventId: UUID) {
+        eventRepository.findById(eventId).ifPresentOrElse(
+            { searchIndex.upsert(it) },
+            { searchIndex.remove(eventId) }
+        )
+    }
+}
@@ -0,0 +1,171 @@
+package com.eventr.modules.event.internal.search
+
+import com.eventr.model.Event
+import com.eventr.model.EventStatus
+import com.eventr.modules.event.api.dto.EventSuggestion
+import com.eventr.modules.event.api.dto.SuggestionType
+import org.springframework.stereotype.Component
+import java.util.TreeMap
+import java.util.UUID
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+
+/**
+ * Prefix index over the names, venues and cities of published events, for
+ * search-box typeahead.
+ *
+ * Every phrase is keyed in a sorted map once per word it contains, by the
+ * normalized text from that word to the end ("kotlin conference",
+ * "conference"), so a prefix lookup is a single range scan that matches the
+ * start of any word. Venues and cities shared by several events are one
+ * suggestion each, counted by the number of events.
+ */
+@Component
+class EventSuggestIndex {
+
+    // Event names are suggested per event; venues and cities are shared, so they have no event id
+    private data class Term(val type: SuggestionType, val key: String, val eventId: UUID?)
+
+    private class TermInfo {
+        // spelling -> number of events using it; the most common one is shown
+        val spellings = HashMap<String, Int>()
+        val eventCount: Int get() = spellings.values.sum()
+        val text: String get() = spellings.maxWith(compareBy<Map.Entry<String, Int>> { it.value }.thenByDescending { it.key }).key
+    }
+
+    private class IndexedEvent(val terms: List<Pair<Term, String>>)
+
+    private val lock = ReentrantReadWriteLock()
+
+    // normalized suffix -> terms whose text contains it at a word boundary
+    private val prefixes = TreeMap<String, MutableSet<Term>>()
+    private val terms = HashMap<Term, TermInfo>()
+    private val events = HashMap<UUID, IndexedEvent>()
+
+    /**
+     * Returns up to [limit] suggestions whose text has a word starting with
+     * [prefix]. Suggestions whose text starts with the prefix come first,
+     * then those shared by more events.
+     */
+    fun suggest(prefix: String, limit: Int): List<EventSuggestion> {
+        val query = normalize(prefix)
+        if (query.isEmpty() || limit <= 0) return emptyList()
+
+        return lock.read {
+            val matches = LinkedHashMap<Term, Boolean>()
+            prefixes.subMap(query, true, query + Char.MAX_VALUE, false).entries
+                .asSequence()
+                .take(MAX_SCANNED_KEYS)
+                .forEach { (suffix, suffixTerms) ->
+                    suffixTerms.forEach { term ->
+                        val atStart = suffix == term.key
+                        matches.merge(term, atStart) { a, b -> a || b }
+                    }
+                }
+            matches.entries
+                .map { (term, atStart) ->
+                    val info = terms.getValue(term)
+                    atStart to EventSuggestion(info.text, term.type, term.eventId, info.eventCount)
+                }
+                .sortedWith(
+                    compareByDescending<Pair<Boolean, EventSuggestion>> { it.first }
+                        .thenByDescending { it.second.eventCount }
+                        .thenBy { it.second.text.length }
+                        .thenBy { it.second.text }
+                )
+                .take(limit)
+                .map { it.second }
+        }
+    }
+
+    /**
+     * Adds or replaces an event's phrases. Events that are not published are
+     * removed.
+     */
+    fun upsert(event: Event) {
+        val eventId = event.id ?: return
+        if (event.status != EventStatus.PUBLISHED) {
+            remove(eventId)
+            return
+        }
+        val indexed = analyze(eventId, event)
+        lock.write {
+            removeLocked(eventId)
+            addLocked(eventId, indexed)
+        }
+    }
+
+    fun remove(eventId: UUID) {
+        lock.write { removeLocked(eventId) }
+    }
+
+    fun rebuild(events: Iterable<Event>) {
+        val analyzed = events.filter { it.status == EventStatus.PUBLISHED }
+            .mapNotNull { event -> event.id?.let { it to analyze(it, event) } }
+        lock.write {
+            prefixes.clear()
+            terms.clear()
+            this.events.clear()
+            analyzed.forEach { (eventId, indexed) -> addLocked(eventId, indexed) }
+        }
+    }
+
+    private fun addLocked(eventId: UUID, indexed: IndexedEvent) {
+        indexed.terms.forEach { (term, spelling) ->
+            val info = terms.getOrPut(term) {
+                suffixes(term.key).forEach { prefixes.getOrPut(it) { HashSet() }.add(term) }
+                TermInfo()
+            }
+            info.spellings.merge(spelling, 1, Int::plus)
+        }
+        events[eventId] = indexed
+    }
+
+    private fun removeLocked(eventId: UUID) {
+        val previous = events.remove(eventId) ?: return
+        previous.terms.forEach { (term, spelling) ->
+            val info = terms[term] ?: return@forEach
+            info.spellings.computeIfPresent(spelling) { _, count -> if (count > 1) count - 1 else null }
+            if (info.spellings.isEmpty()) {
+                terms.remove(term)
+                suffixes(term.key).forEach { suffix ->
+                    prefixes[suffix]?.let { suffixTerms ->
+                        suffixTerms.remove(term)
+                        if (suffixTerms.isEmpty()) prefixes.remove(suffix)
+                    }
+                }
+            }
+        }
+    }
+
+    private fun analyze(eventId: UUID, event: Event): IndexedEvent {
+        val phrases = listOfNotNull(
+            event.name?.let { Triple(SuggestionType.EVENT, eventId, it) },
+            event.venueName?.let { Triple(SuggestionType.VENUE, null, it) },
+            event.city?.let { Triple(SuggestionType.CITY, null, it) }
+        )
+        return IndexedEvent(phrases.mapNotNull { (type, termEventId, text) ->
+            val key = normalize(text).takeIf { it.isNotEmpty() } ?: return@mapNotNull null
+            Term(type, key, termEventId) to text.trim()
+        })
+    }
+
+    companion object {
+        private val WORD = Regex("[\\p{L}\\p{N}]+")
+
+        // Bounds the work done for very short prefixes such as "a"
+        private const val MAX_SCANNED_KEYS = 256
+
+        /**
+         * Lower-cases [text] and reduces it to its words separated by single
+         * spaces, so punctuation and spacing do not affect matching.
+         */
+        fun normalize(text: String): String =
+            WORD.findAll(text.lowercase()).joinToString(" ") { it.value }
+
+        // The key from each word start to the end
+        private fun suffixes(key: String): List<String> =
+            WORD.findAll(key).map { key.substring(it.range.first) }.toList()
+    }
+}
@@ -0,0 +1,164 @@
+package com.eventr.modules.event.internal.search
+
+import com.eventr.model.Event
+import com.eventr.modules.event.internal.EventSpecifications
+import org.springframework.data.jpa.domain.Specification
+import java.util.TreeMap
+import java.util.UUID
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+import kotlin.math.ln
+
+/**
+ * In-process inverted index used when the database has no full-text support
+ * (H2 in dev and test).
+ *
+ * Postings map each stemmed term to the events containing it together with a
+ * field-weighted term frequency (name > city > description). A sorted
+ * dictionary of the original words resolves prefix queries, so a partially
+ * typed word matches even when stemming shortened the indexed term. Hits are
+ * ranked by TF-IDF.
+ */
+class InMemoryEventSearchIndex : EventSearchIndex {
+
+    private val lock = ReentrantReadWriteLock()
+
+    // term -> (event id -> weighted term frequency)
+    private val postings = HashMap<String, HashMap<UUID, Double>>()
+
+    // surface word -> number of indexed occurrences, kept sorted for prefix scans
+    private val words = TreeMap<String, Int>()
+
+    // event id -> the document as indexed, needed to undo it on update/remove
+    private val documents = HashMap<UUID, IndexedDocument>()
+
+    private class IndexedDocument(val termWeights: Map<String, Double>, val words: Set<String>)
+
+    val size: Int
+        get() = lock.read { documents.size }
+
+    override fun search(query: String, limit: Int): List<SearchHit> {
+        val queryWords = SearchTextAnalyzer.words(query).distinct()
+        if (queryWords.isEmpty() || limit <= 0) return emptyList()
+
+        return lock.read {
+            var scores: Map<UUID, Double>? = null
+            for (word in queryWords) {
+                val wordScores = scoreWord(word)
+                // Every query word must match
+                scores = scores?.let { acc ->
+                    acc.keys.intersect(wordScores.keys).associateWith { acc.getValue(it) + wordScores.getValue(it) }
+                } ?: wordScores
+                if (scores.isEmpty()) return@read emptyList()
+            }
+            scores.orEmpty().entries
+                .sortedWith(compareByDescending<Map.Entry<UUID, Double>> { it.value }.thenBy { it.key })
+                .take(limit)
+                .map { SearchHit(it.key, it.value) }
+        }
+    }
+
+    // Every match enters the query as an id; fine for the dev and test databases this index serves
+    override fun matching(query: String): Specification<Event> =
+        EventSpecifications.idIn(search(query, Int.MAX_VALUE).map { it.eventId })
+
+    /**
+     * Scores every event matching [word] exactly (after stemming) or by
+     * prefix. An event matching several expansions keeps its best score.
+     */
+    private fun scoreWord(word: String): Map<UUID, Double> {
+        val exact = SearchTextAnalyzer.stem(word)
+        val candidates = HashMap<String, Double>()
+        candidates[exact] = 1.0
+        words.subMap(word, true, word + Char.MAX_VALUE, false).keys
+            .asSequence()
+            .take(MAX_PREFIX_EXPANSIONS)
+            .map { SearchTextAnalyzer.stem(it) }
+            .forEach { candidates.putIfAbsent(it, PREFIX_MATCH_FACTOR) }
+
+        val result = HashMap<UUID, Double>()
+        for ((term, factor) in candidates) {
+            val docs = postings[term] ?: continue
+            val idf = ln(1.0 + documents.size.toDouble() / docs.size)
+            for ((eventId, tf) in docs) {
+                val score = (1.0 + ln(tf)) * idf * factor
+                result.merge(eventId, score) { a, b -> maxOf(a, b) }
+            }
+        }
+        return result
+    }
+
+    override fun upsert(event: Event) {
+        val eventId = event.id ?: return
+        val document = analyze(event)
+        lock.write {
+            removeLocked(eventId)
+            document.termWeights.forEach { (term, weight) ->
+                postings.getOrPut(term) { HashMap() }[eventId] = weight
+            }
+            document.words.forEach { words.merge(it, 1, Int::plus) }
+            documents[eventId] = document
+        }
+    }
+
+    override fun remove(eventId: UUID) {
+        lock.write { removeLocked(eventId) }
+    }
+
+    override fun rebuild(source: () -> Iterable<Event>) {
+        val analyzed = source().mapNotNull { event -> event.id?.let { it to analyze(event) } }
+        lock.write {
+            postings.clear()
+            words.clear()
+            documents.clear()
+            analyzed.forEach { (eventId, document) ->
+                document.termWeights.forEach { (term, weight) ->
+                    postings.getOrPut(term) { HashMap() }[eventId] = weight
+                }
+                document.words.forEach { words.merge(it, 1, Int::plus) }
+                documents[eventId] = document
+            }
+        }
+    }
+
+    private fun removeLocked(eventId: UUID) {
+        val previous = documents.remove(eventId) ?: return
+        previous.termWeights.keys.forEach { term ->
+            postings[term]?.let { docs ->
+                docs.remove(eventId)
+                if (docs.isEmpty()) postings.remove(term)
+            }
+        }
+        previous.words.forEach { word ->
+            words.computeIfPresent(word) { _, count -> if (count > 1) count - 1 else null }
+        }
+    }
+
+    private fun analyze(event: Event): IndexedDocument {
+        val termWeights = HashMap<String, Double>()
+        val surfaceWords = HashSet<String>()
+        fun addField(text: String?, weight: Double) {
+            SearchTextAnalyzer.words(text).forEach { word ->
+                surfaceWords += word
+                termWeights.merge(SearchTextAnalyzer.stem(word), weight, Double::plus)
+            }
+        }
+        addField(event.name, NAME_WEIGHT)
+        addField(event.city, CITY_WEIGHT)
+        addField(event.description, DESCRIPTION_WEIGHT)
+        return IndexedDocument(termWeights, surfaceWords)
+    }
+
+    companion object {
+        private const val NAME_WEIGHT = 3.0
+        private const val CITY_WEIGHT = 2.0
+        private const val DESCRIPTION_WEIGHT = 1.0
+
+        // A prefix match ranks slightly below an exact word match
+        private const val PREFIX_MATCH_FACTOR = 0.8
+
+        // Bounds the work done for very short prefixes such as "a"
+        private const val MAX_PREFIX_EXPANSIONS = 64
+    }
+}
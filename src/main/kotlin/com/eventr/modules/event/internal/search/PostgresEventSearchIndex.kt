@@ -0,0 +1,120 @@
+package com.eventr.modules.event.internal.search
+
+import com.eventr.model.Event
+import org.slf4j.LoggerFactory
+import org.springframework.dao.DataAccessException
+import org.springframework.data.jpa.domain.Specification
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate
+import java.util.UUID
+
+/**
+ * PostgreSQL full-text search over a weighted tsvector of the event row.
+ *
+ * The tsvector is an expression over the event columns backed by a GIN
+ * index, so PostgreSQL keeps it current on every write and [upsert] and
+ * [remove] have nothing to do. Ranking uses ts_rank with name weighted above
+ * city above description, matching [InMemoryEventSearchIndex]. Event queries
+ * are restricted through the [MATCH_FUNCTION] SQL function registered with
+ * Hibernate, which renders the same expression so the index applies there too,
+ * and ranked in SQL through [RANK_FUNCTION].
+ */
+class PostgresEventSearchIndex(
+    private val jdbcTemplate: NamedParameterJdbcTemplate
+) : EventSearchIndex {
+
+    private val logger = LoggerFactory.getLogger(PostgresEventSearchIndex::class.java)
+
+    override fun search(query: String, limit: Int): List<SearchHit> {
+        val tsQuery = tsQuery(query)
+        if (tsQuery.isEmpty() || limit <= 0) return emptyList()
+
+        val document = document("e.name", "e.city", "e.description")
+        return jdbcTemplate.query(
+            """
+            SELECT e.id, ts_rank($document, q) AS rank
+            FROM event e, to_tsquery('english', :query) q
+            WHERE $document @@ q
+            ORDER BY rank DESC, e.id
+            LIMIT :limit
+            """.trimIndent(),
+            mapOf("query" to tsQuery, "limit" to limit)
+        ) { rs, _ -> SearchHit(rs.getObject("id", UUID::class.java), rs.getDouble("rank")) }
+    }
+
+    override fun matching(query: String): Specification<Event> {
+        val tsQuery = tsQuery(query)
+        return Specification { root, _, cb ->
+            if (tsQuery.isEmpty()) {
+                cb.disjunction()
+            } else {
+                cb.isTrue(cb.function(
+                    MATCH_FUNCTION, Boolean::class.java,
+                    root.get<String>("name"), root.get<String>("city"), root.get<String>("description"), cb.literal(tsQuery)
+                ))
+            }
+        }
+    }
+
+    override fun ranking(query: String): Specification<Event> {
+        val tsQuery = tsQuery(query)
+        return matching(query).and(Specification { root, criteriaQuery, cb ->
+            if (tsQuery.isNotEmpty()) {
+                val rank = cb.function(
+                    RANK_FUNCTION, Double::class.java,
+                    root.get<String>("name"), root.get<String>("city"), root.get<String>("description"), cb.literal(tsQuery)
+                )
+                criteriaQuery?.orderBy(cb.desc(rank), cb.asc(root.get<UUID>("id")))
+            }
+            null
+        })
+    }
+
+    // Words contain only letters and digits, so they cannot inject tsquery operators
+    private fun tsQuery(query: String): String =
+        SearchTextAnalyzer.words(query).distinct().joinToString(" & ") { "$it:*" }
+
+    override fun upsert(event: Event) {
+        // Maintained by PostgreSQL
+    }
+
+    override fun remove(eventId: UUID) {
+        // Maintained by PostgreSQL
+    }
+
+    /**
+     * Creates the GIN expression index if it is missing. Events are not read;
+     * the database derives the documents from the rows.
+     */
+    override fun rebuild(source: () -> Iterable<Event>) {
+        try {
+            jdbcTemplate.jdbcTemplate.execute(
+                "CREATE INDEX IF NOT EXISTS $INDEX_NAME ON event USING GIN ((${document("name", "city", "description")}))"
+            )
+        } catch (e: DataAccessException) {
+            // Search still works without the index, just with a sequential scan
+            logger.warn("Could not create full-text index {}: {}", INDEX_NAME, e.message)
+        }
+    }
+
+    companion object {
+        const val INDEX_NAME = "idx_event_fulltext"
+
+        /** Hibernate function taking name, city, description and a tsquery; true when the event matches. */
+        const val MATCH_FUNCTION = "event_fulltext_match"
+
+        /** SQL for [MATCH_FUNCTION], with Hibernate's ?1..?4 argument placeholders. */
+        internal val MATCH_PATTERN = "(${document("?1", "?2", "?3")}) @@ to_tsquery('english', ?4)"
+
+        /** Hibernate function taking name, city, description and a tsquery; the ts_rank that [search] orders by. */
+        const val RANK_FUNCTION = "event_fulltext_rank"
+
+        /** SQL for [RANK_FUNCTION], with Hibernate's ?1..?4 argument placeholders. */
+        internal val RANK_PATTERN = "ts_rank(${document("?1", "?2", "?3")}, to_tsquery('english', ?4))"
+
+        // Must stay identical in the index definition and the queries for the index to be used
+        private fun document(name: String, city: String, description: String): String =
+            "setweight(to_tsvector('english', coalesce($name, '')), 'A') || " +
+            "setweight(to_tsvector('english', coalesce($city, '')), 'B') || " +
+            "setweight(to_tsvector('english', coalesce($description, '')), 'C')"
+    }
+}
@@ -0,0 +1,66 @@
+package com.eventr.modules.event.internal.search
+
+/**
+ * Splits text into normalized search terms.
+ *
+ * Terms are lower-cased runs of letters and digits with common English stop
+ * words removed. [stem] additionally strips regular plural and -ing/-ed
+ * endings ("conferences" -> "conference", "running" -> "run") so that different
+ * forms of a word share one index entry.
+ */
+object SearchTextAnalyzer {
+
+    private val WORD = Regex("[\\p{L}\\p{N}]+")
+
+    private const val MIN_STEM_LENGTH = 3
+
+    private val STOP_WORDS = setOf(
+        "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "in", "is",
+        "it", "its", "of", "on", "or", "that", "the", "this", "to", "was", "were", "will", "with"
+    )
+
+    /**
+     * Returns the words of [text] without stemming, in order of appearance.
+     */
+    fun words(text: String?): List<String> {
+        if (text.isNullOrBlank()) return emptyList()
+        return WORD.findAll(text.lowercase())
+            .map { it.value }
+            .filter { it !in STOP_WORDS }
+            .toList()
+    }
+
+    /**
+     * Returns the stemmed terms of [text], in order of appearance.
+     */
+    fun terms(text: String?): List<String> = words(text).map { stem(it) }
+
+    fun stem(word: String): String {
+        val singular = when {
+            word.endsWith("sses") -> word.dropLast(2)
+            word.endsWith("ies") -> word.dropLast(3) + "y"
+            word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is") -> word.dropLast(1)
+            else -> word
+        }.takeIf { isMeaningful(it) } ?: word
+
+        val stemmed = when {
+            singular.endsWith("ing") -> undouble(singular.dropLast(3))
+            singular.endsWith("ed") && !singular.endsWith("eed") -> undouble(singular.dropLast(2))
+            else -> singular
+        }
+        return if (isMeaningful(stemmed)) stemmed else singular
+    }
+
+    // Never reduce a word to something too short (or vowel-less) to be meaningful
+    private fun isMeaningful(stem: String): Boolean =
+        stem.length >= MIN_STEM_LENGTH && stem.any { it in "aeiouy" }
+
+    private fun undouble(stem: String): String {
+        val last = stem.lastOrNull() ?: return stem
+        return if (stem.length > MIN_STEM_LENGTH && last == stem[stem.length - 2] && last !in "lsz") {
+            stem.dropLast(1)
+        } else {
+            stem
+        }
+    }
+}
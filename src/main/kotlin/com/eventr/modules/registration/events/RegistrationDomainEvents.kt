@@ -0,0 +1,40 @@
+package com.eventr.modules.registration.events
+
+import com.eventr.model.RegistrationStatus
+import com.eventr.shared.event.BaseDomainEvent
+import java.util.UUID
+
+/**
+ * Published when registrations on one event instance move from one status to
+ * another. Set-based changes publish one event per instance and previous
+ * status rather than one per registration; [count] is the number of rows the
+ * database actually changed.
+ */
+data class RegistrationStatusChanged(
+    override val aggregateId: UUID,  // Event instance ID
+    val fromStatus: RegistrationStatus?,
+    val toStatus: RegistrationStatus,
+    val registrationIds: List<UUID>,
+    val count: Int = registrationIds.size
+) : BaseDomainEvent(
+    eventType = "RegistrationStatusChanged",
+    aggregateId = aggregateId,
+    payload = mapOf(
+        "fromStatus" to (fromStatus?.name ?: ""),
+        "toStatus" to toStatus.name,
+        "count" to count
+    )
+)
+
+/**
+ * Published when a session may have seats for its waitlist: a session
+ * registration was cancelled or the session's capacity was raised.
+ */
+data class SessionAvailabilityChanged(
+    override val aggregateId: UUID,  // Session ID
+    val reason: String
+) : BaseDomainEvent(
+    eventType = "SessionAvailabilityChanged",
+    aggregateId = aggregateId,
+    payload = mapOf("reason" to reason)
+)
@@ -62,6 +62,18 @@ interface CheckInRepository : JpaRepository<CheckIn, UUID> {
     
     fun findByDeviceIdAndIsSyncedFalse(deviceId: String): List<CheckIn>
     
+    // Check-ins of the registrations with their sessions, for the offline sync to reconcile uploads against
+    @Query("SELECT c FROM CheckIn c LEFT JOIN FETCH c.session WHERE c.registration.id IN :registrationIds")
+    fun findForSync(@Param("registrationIds") registrationIds: Collection<UUID>): List<CheckIn>
+    
+    // Check-ins to the event changed since the watermark by other devices, as sent back by the offline sync
+    @Query("SELECT c.id, c.registration.id, s.id, c.type, c.method, c.checkedInAt, c.checkedInBy, c.deviceId " +
+           "FROM CheckIn c LEFT JOIN c.session s WHERE c.registration.eventInstance.event.id = :eventId " +
+           "AND c.updatedAt >= :since AND (c.deviceId IS NULL OR c.deviceId <> :deviceId)")
+    fun findSyncChanges(@Param("eventId") eventId: UUID,
+                        @Param("since") since: LocalDateTime,
+                        @Param("deviceId") deviceId: String): List<Array<Any?>>
+    
     @Query("SELECT c FROM CheckIn c WHERE c.qrCodeUsed = :qrCode")
     fun findByQrCodeUsed(@Param("qrCode") qrCode: String): List<CheckIn>
     
@@ -72,6 +84,11 @@ interface CheckInRepository : JpaRepository<CheckIn, UUID> {
                                @Param("sessionId") sessionId: UUID?,
                                @Param("startTime") startTime: LocalDateTime): List<CheckIn>
     
+    // Session (null for event-level) and type of every check-in to the event, for the presence index
+    @Query("SELECT c.registration.id, s.id, c.type FROM CheckIn c LEFT JOIN c.session s " +
+           "WHERE c.registration.eventInstance.event.id = :eventId")
+    fun findCheckInKeysByEventId(@Param("eventId") eventId: UUID): List<Array<Any?>>
+    
     // Attendance verification
     @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM CheckIn c " +
            "WHERE c.registration.id = :registrationId AND c.session.id = :sessionId")
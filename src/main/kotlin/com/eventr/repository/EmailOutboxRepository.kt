@@ -0,0 +1,54 @@
+package com.eventr.repository
+
+import com.eventr.model.EmailOutboxMessage
+import com.eventr.model.OutboxStatus
+import org.springframework.data.domain.Pageable
+import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.Modifying
+import org.springframework.data.jpa.repository.Query
+import org.springframework.data.repository.query.Param
+import java.time.LocalDateTime
+import java.util.UUID
+
+interface EmailOutboxRepository : JpaRepository<EmailOutboxMessage, UUID> {
+    
+    fun findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(
+        status: OutboxStatus,
+        now: LocalDateTime,
+        pageable: Pageable
+    ): List<EmailOutboxMessage>
+    
+    fun countByStatus(status: OutboxStatus): Long
+    
+    // Leases a due message to one dispatcher by moving its next attempt past the
+    // send; returns 0 if another dispatcher got it first
+    @Modifying
+    @Query("""
+        UPDATE EmailOutboxMessage m SET m.nextAttemptAt = :leaseUntil, m.attempts = m.attempts + 1
+        WHERE m.id = :id AND m.status = com.eventr.model.OutboxStatus.PENDING AND m.nextAttemptAt = :dueAt
+    """)
+    fun claim(
+        @Param("id") id: UUID,
+        @Param("dueAt") dueAt: LocalDateTime,
+        @Param("leaseUntil") leaseUntil: LocalDateTime
+    ): Int
+    
+    @Modifying
+    @Query("""
+        UPDATE EmailOutboxMessage m SET m.status = com.eventr.model.OutboxStatus.SENT, m.sentAt = :sentAt, m.lastError = null
+        WHERE m.id = :id
+    """)
+    fun markSent(@Param("id") id: UUID, @Param("sentAt") sentAt: LocalDateTime): Int
+    
+    @Modifying
+    @Query("""
+        UPDATE EmailOutboxMessage m SET m.status = :status, m.nextAttemptAt = :nextAttemptAt, m.lastError = :error
+        WHERE m.id = :id
+    """)
+    fun markFailedAttempt(
+        @Param("id") id: UUID,
+        @Param("status") status: OutboxStatus,
+        @Param("nextAttemptAt") nextAttemptAt: LocalDateTime,
+        @Param("error") error: String?
+    ): Int
+}
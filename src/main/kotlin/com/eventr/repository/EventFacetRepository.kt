@@ -0,0 +1,34 @@
+package com.eventr.repository
+
+import com.eventr.model.Event
+import com.eventr.model.EventCategory
+import com.eventr.model.EventType
+import org.springframework.data.jpa.domain.Specification
+
+/**
+ * Number of events sharing one (category, eventType, city) combination.
+ */
+data class EventFacetRow(
+    val category: EventCategory?,
+    val eventType: EventType?,
+    val city: String?,
+    val count: Long
+)
+
+/**
+ * Grouped aggregate queries over events for faceted browsing.
+ */
+interface EventFacetRepository {
+
+    /**
+     * Counts the events matching [spec] grouped by category, event type and
+     * city in one query, so that per-dimension counts can be rolled up from
+     * the rows without further round-trips.
+     */
+    fun countFacetCombinations(spec: Specification<Event>): List<EventFacetRow>
+
+    /**
+     * Counts the events matching [spec] per tag, most frequent first.
+     */
+    fun countTags(spec: Specification<Event>, limit: Int): List<Pair<String, Long>>
+}
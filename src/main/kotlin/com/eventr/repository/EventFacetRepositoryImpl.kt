@@ -0,0 +1,46 @@
+package com.eventr.repository
+
+import com.eventr.model.Event
+import com.eventr.model.EventCategory
+import com.eventr.model.EventType
+import jakarta.persistence.EntityManager
+import jakarta.persistence.criteria.JoinType
+import org.springframework.data.jpa.domain.Specification
+
+class EventFacetRepositoryImpl(
+    private val entityManager: EntityManager
+) : EventFacetRepository {
+
+    override fun countFacetCombinations(spec: Specification<Event>): List<EventFacetRow> {
+        val cb = entityManager.criteriaBuilder
+        val query = cb.createQuery(EventFacetRow::class.java)
+        val root = query.from(Event::class.java)
+        val category = root.get<EventCategory>("category")
+        val eventType = root.get<EventType>("eventType")
+        val city = root.get<String>("city")
+
+        query.select(cb.construct(EventFacetRow::class.java, category, eventType, city, cb.count(root)))
+        spec.toPredicate(root, query, cb)?.let { query.where(it) }
+        query.groupBy(category, eventType, city)
+
+        return entityManager.createQuery(query).resultList
+    }
+
+    override fun countTags(spec: Specification<Event>, limit: Int): List<Pair<String, Long>> {
+        val cb = entityManager.criteriaBuilder
+        val query = cb.createTupleQuery()
+        val root = query.from(Event::class.java)
+        val tag = root.join<Event, String>("tags", JoinType.INNER)
+        val count = cb.countDistinct(root)
+
+        query.multiselect(tag, count)
+        spec.toPredicate(root, query, cb)?.let { query.where(it) }
+        query.groupBy(tag)
+        query.orderBy(cb.desc(count), cb.asc(tag))
+
+        return entityManager.createQuery(query)
+            .setMaxResults(limit)
+            .resultList
+            .map { it.get(0, String::class.java) to (it.get(1) as Number).toLong() }
+    }
+}
@@ -2,6 +2,55 @@ package com.eventr.repository
 
 import com.eventr.model.EventInstance
 import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.Modifying
+import org.springframework.data.jpa.repository.Query
+import org.springframework.data.repository.query.Param
 import java.util.UUID
 
-interface EventInstanceRepository : JpaRepository<EventInstance, UUID>
+interface EventInstanceRepository : JpaRepository<EventInstance, UUID> {
+    
+    // Adds the given deltas to the instance's registration counters
+    @Modifying
+    @Query("""
+        UPDATE EventInstance i SET
+            i.registeredCount = i.registeredCount + :registered,
+            i.waitlistedCount = i.waitlistedCount + :waitlisted,
+            i.checkedInCount = i.checkedInCount + :checkedIn,
+            i.noShowCount = i.noShowCount + :noShow,
+            i.cancelledCount = i.cancelledCount + :cancelled
+        WHERE i.id = :instanceId
+    """)
+    fun adjustRegistrationCounts(
+        @Param("instanceId") instanceId: UUID,
+        @Param("registered") registered: Int,
+        @Param("waitlisted") waitlisted: Int,
+        @Param("checkedIn") checkedIn: Int,
+        @Param("noShow") noShow: Int,
+        @Param("cancelled") cancelled: Int
+    ): Int
+    
+    @Modifying
+    @Query("""
+        UPDATE EventInstance i SET
+            i.registeredCount = :registered,
+            i.waitlistedCount = :waitlisted,
+            i.checkedInCount = :checkedIn,
+            i.noShowCount = :noShow,
+            i.cancelledCount = :cancelled
+        WHERE i.id = :instanceId
+    """)
+    fun setRegistrationCounts(
+        @Param("instanceId") instanceId: UUID,
+        @Param("registered") registered: Int,
+        @Param("waitlisted") waitlisted: Int,
+        @Param("checkedIn") checkedIn: Int,
+        @Param("noShow") noShow: Int,
+        @Param("cancelled") cancelled: Int
+    ): Int
+    
+    @Query("""
+        SELECT i.id, i.registeredCount, i.waitlistedCount, i.checkedInCount, i.noShowCount, i.cancelledCount
+        FROM EventInstance i
+    """)
+    fun findAllRegistrationCounts(): List<Array<Any>>
+}
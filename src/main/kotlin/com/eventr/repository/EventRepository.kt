@@ -3,9 +3,43 @@ package com.eventr.repository
 import com.eventr.model.Event
 import com.eventr.model.EventStatus
 import org.springframework.data.domain.Sort
+import org.springframework.data.jpa.repository.EntityGraph
 import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor
+import org.springframework.data.jpa.repository.Query
+import org.springframework.data.repository.query.Param
+import java.time.LocalDateTime
+import java.util.Optional
 import java.util.UUID
 
-interface EventRepository : JpaRepository<Event, UUID> {
+interface EventRepository : JpaRepository<Event, UUID>, JpaSpecificationExecutor<Event>,
+    EventSummaryRepository, EventFacetRepository {
     fun findByStatus(status: EventStatus, sort: Sort): List<Event>
+    
+    // Detail reads: instances are joined in; tags follow in one batched query
+    @EntityGraph(attributePaths = ["instances"])
+    fun findDetailedById(id: UUID): Optional<Event>
+    
+    // Catalog loads: tags are joined in because the entities are read outside a transaction
+    @EntityGraph(attributePaths = ["tags"])
+    fun findTaggedByStatus(status: EventStatus): List<Event>
+    
+    @EntityGraph(attributePaths = ["tags"])
+    fun findTaggedById(id: UUID): Optional<Event>
+    
+    @EntityGraph(attributePaths = ["tags"])
+    fun findTaggedByIdIn(ids: Collection<UUID>): List<Event>
+    
+    @EntityGraph(attributePaths = ["tags"])
+    fun findTaggedByUpdatedAtAfter(since: LocalDateTime): List<Event>
+    
+    @Query("SELECT e.id FROM Event e WHERE e.status = :status")
+    fun findIdsByStatus(@Param("status") status: EventStatus): List<UUID>
+    
+    @Query("SELECT e.id FROM Event e WHERE e.status = :status AND e.startDateTime BETWEEN :from AND :to")
+    fun findIdsStartingBetween(
+        @Param("status") status: EventStatus,
+        @Param("from") from: LocalDateTime,
+        @Param("to") to: LocalDateTime
+    ): List<UUID>
 }
@@ -0,0 +1,21 @@
+package com.eventr.repository
+
+import com.eventr.model.Event
+import com.eventr.modules.event.api.dto.EventSummaryResponse
+import org.springframework.data.domain.Sort
+import org.springframework.data.jpa.domain.Specification
+
+/**
+ * List-view queries over events that select individual columns into
+ * [EventSummaryResponse] instead of hydrating [Event] entities.
+ */
+interface EventSummaryRepository {
+
+    /**
+     * @param spec Filter; it may also set the query ordering
+     * @param sort Ordering to apply, or [Sort.unsorted] to keep the one set by [spec]
+     * @param offset Number of rows to skip
+     * @param limit Maximum number of rows to return
+     */
+    fun findSummaries(spec: Specification<Event>, sort: Sort, offset: Int, limit: Int): List<EventSummaryResponse>
+}
@@ -0,0 +1,53 @@
+package com.eventr.repository
+
+import com.eventr.model.Event
+import com.eventr.model.EventCategory
+import com.eventr.model.EventStatus
+import com.eventr.model.EventType
+import com.eventr.modules.event.api.dto.EventSummaryResponse
+import jakarta.persistence.EntityManager
+import org.springframework.data.domain.Sort
+import org.springframework.data.jpa.domain.Specification
+import org.springframework.data.jpa.repository.query.QueryUtils
+import java.time.LocalDateTime
+import java.util.UUID
+
+class EventSummaryRepositoryImpl(
+    private val entityManager: EntityManager
+) : EventSummaryRepository {
+
+    override fun findSummaries(spec: Specification<Event>, sort: Sort, offset: Int, limit: Int): List<EventSummaryResponse> {
+        val cb = entityManager.criteriaBuilder
+        val query = cb.createQuery(EventSummaryResponse::class.java)
+        val root = query.from(Event::class.java)
+
+        query.select(cb.construct(
+            EventSummaryResponse::class.java,
+            root.get<UUID>("id"),
+            root.get<String>("name"),
+            root.get<EventStatus>("status"),
+            root.get<EventType>("eventType"),
+            root.get<EventCategory>("category"),
+            root.get<String>("thumbnailImageUrl"),
+            root.get<String>("venueName"),
+            root.get<String>("city"),
+            root.get<String>("state"),
+            root.get<LocalDateTime>("startDateTime"),
+            root.get<LocalDateTime>("endDateTime"),
+            root.get<String>("timezone"),
+            root.get<Int>("capacity"),
+            root.get<String>("organizerName"),
+            cb.substring(root.get("description"), 1, EventSummaryResponse.EXCERPT_LENGTH),
+            root.get<Long>("version")
+        ))
+        spec.toPredicate(root, query, cb)?.let { query.where(it) }
+        if (sort.isSorted) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb))
+        }
+
+        return entityManager.createQuery(query)
+            .setFirstResult(offset)
+            .setMaxResults(limit)
+            .resultList
+    }
+}
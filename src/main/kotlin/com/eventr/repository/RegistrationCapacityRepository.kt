@@ -0,0 +1,54 @@
+package com.eventr.repository
+
+import com.eventr.model.RegistrationCapacity
+import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.Modifying
+import org.springframework.data.jpa.repository.Query
+import org.springframework.data.repository.query.Param
+import java.util.UUID
+
+interface RegistrationCapacityRepository : JpaRepository<RegistrationCapacity, UUID> {
+    
+    // A plain INSERT rather than save(): with an assigned id save() merges, which
+    // would overwrite a counter another transaction created in the meantime
+    @Modifying
+    @Query("INSERT INTO RegistrationCapacity (eventInstanceId, reservedSeats) VALUES (:instanceId, :reservedSeats)")
+    fun insertCounter(@Param("instanceId") instanceId: UUID, @Param("reservedSeats") reservedSeats: Int): Int
+    
+    @Query("SELECT c.reservedSeats FROM RegistrationCapacity c WHERE c.eventInstanceId = :instanceId")
+    fun findReservedSeats(@Param("instanceId") instanceId: UUID): Int?
+    
+    // Takes the seats only if they fit under the limit; returns 0 when they do not
+    // (or when the counter row does not exist yet)
+    @Modifying
+    @Query("""
+        UPDATE RegistrationCapacity c SET c.reservedSeats = c.reservedSeats + :seats
+        WHERE c.eventInstanceId = :instanceId AND c.reservedSeats + :seats <= :limit
+    """)
+    fun tryReserve(
+        @Param("instanceId") instanceId: UUID,
+        @Param("seats") seats: Int,
+        @Param("limit") limit: Int
+    ): Int
+    
+    // Corrects a counter only if it still holds the value it was checked at;
+    // returns 0 if a registration or another node changed it since
+    @Modifying
+    @Query("""
+        UPDATE RegistrationCapacity c SET c.reservedSeats = c.reservedSeats + :delta
+        WHERE c.eventInstanceId = :instanceId AND c.reservedSeats = :expected
+    """)
+    fun adjustIfUnchanged(
+        @Param("instanceId") instanceId: UUID,
+        @Param("expected") expected: Int,
+        @Param("delta") delta: Int
+    ): Int
+    
+    @Modifying
+    @Query("""
+        UPDATE RegistrationCapacity c
+        SET c.reservedSeats = CASE WHEN c.reservedSeats > :seats THEN c.reservedSeats - :seats ELSE 0 END
+        WHERE c.eventInstanceId = :instanceId
+    """)
+    fun release(@Param("instanceId") instanceId: UUID, @Param("seats") seats: Int): Int
+}
@@ -1,12 +1,27 @@
 package com.eventr.repository
 
+import com.eventr.dto.RegistrationDto
 import com.eventr.model.Registration
+import com.eventr.model.RegistrationStatus
 import com.eventr.model.EventInstance
+import jakarta.persistence.LockModeType
+import org.springframework.data.domain.Pageable
 import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.Lock
+import org.springframework.data.jpa.repository.Modifying
 import org.springframework.data.jpa.repository.Query
 import org.springframework.data.repository.query.Param
 import java.util.UUID
 
+/**
+ * Instance and status of one registration, read without loading the entity.
+ */
+data class RegistrationStatusRow(
+    val id: UUID,
+    val eventInstanceId: UUID,
+    val status: RegistrationStatus?
+)
+
 interface RegistrationRepository : JpaRepository<Registration, UUID> {
     fun findByUserEmail(userEmail: String): kotlin.collections.List<Registration>
     
@@ -21,6 +36,37 @@ interface RegistrationRepository : JpaRepository<Registration, UUID> {
     @Query("SELECT r FROM Registration r JOIN r.eventInstance ei JOIN ei.event e WHERE e.id = :eventId")
     fun findByEventId(@Param("eventId") eventId: UUID): kotlin.collections.List<Registration>
     
+    @Query("SELECT r.id FROM Registration r WHERE r.eventInstance.event.id = :eventId AND r.status = :status")
+    fun findIdsByEventIdAndStatus(
+        @Param("eventId") eventId: UUID,
+        @Param("status") status: RegistrationStatus
+    ): kotlin.collections.List<UUID>
+    
+    // Keyset pagination by id, projected straight into the DTO so no entity graph is loaded.
+    // Pass PageRequest.of(0, limit) to bound the page size.
+    @Query("""
+        SELECT new com.eventr.dto.RegistrationDto(r.id, ei.id, r.userEmail, r.userName, r.status, r.formData)
+        FROM Registration r JOIN r.eventInstance ei
+        WHERE ei.event.id = :eventId
+        ORDER BY r.id
+    """)
+    fun findFirstPageByEventId(
+        @Param("eventId") eventId: UUID,
+        pageable: Pageable
+    ): kotlin.collections.List<RegistrationDto>
+    
+    @Query("""
+        SELECT new com.eventr.dto.RegistrationDto(r.id, ei.id, r.userEmail, r.userName, r.status, r.formData)
+        FROM Registration r JOIN r.eventInstance ei
+        WHERE ei.event.id = :eventId AND r.id > :afterId
+        ORDER BY r.id
+    """)
+    fun findPageByEventIdAfter(
+        @Param("eventId") eventId: UUID,
+        @Param("afterId") afterId: UUID,
+        pageable: Pageable
+    ): kotlin.collections.List<RegistrationDto>
+    
     @Query("SELECT r FROM Registration r WHERE r.userEmail = :userEmail AND r.eventInstance.event.id = :eventId")
     fun findByUserEmailAndEventId(@Param("userEmail") userEmail: String, @Param("eventId") eventId: UUID): Registration?
     
@@ -28,4 +74,91 @@ interface RegistrationRepository : JpaRepository<Registration, UUID> {
     fun countByEventId(@Param("eventId") eventId: UUID): Long
     
     fun findByEventInstance(eventInstance: EventInstance): kotlin.collections.List<Registration>
+    
+    @Query("SELECT COUNT(r) FROM Registration r WHERE r.eventInstance.id = :instanceId AND r.status IN :statuses")
+    fun countByEventInstanceIdAndStatusIn(
+        @Param("instanceId") instanceId: UUID,
+        @Param("statuses") statuses: Collection<RegistrationStatus>
+    ): Long
+    
+    // Normalized emails already holding a live registration on the instance; expects normalized input
+    @Query("""
+        SELECT r.emailKey FROM Registration r
+        WHERE r.eventInstance.id = :instanceId AND r.emailKey IN :emails
+    """)
+    fun findRegisteredEmails(
+        @Param("instanceId") instanceId: UUID,
+        @Param("emails") emails: Collection<String>
+    ): kotlin.collections.List<String>
+    
+    @Query("""
+        SELECT new com.eventr.repository.RegistrationStatusRow(r.id, ei.id, r.status)
+        FROM Registration r JOIN r.eventInstance ei
+        WHERE r.id IN :ids AND ei.event.id = :eventId
+    """)
+    fun findStatusRows(
+        @Param("eventId") eventId: UUID,
+        @Param("ids") ids: Collection<UUID>
+    ): kotlin.collections.List<RegistrationStatusRow>
+    
+    // Loads registrations with everything a check-in DTO reads, so mapping them runs no further queries
+    @Query("""
+        SELECT r FROM Registration r
+        LEFT JOIN FETCH r.eventInstance ei LEFT JOIN FETCH ei.event LEFT JOIN FETCH r.user
+        WHERE r.id IN :ids
+    """)
+    fun findAllForCheckIn(@Param("ids") ids: Collection<UUID>): kotlin.collections.List<Registration>
+    
+    fun existsByEventInstanceIdAndEmailKey(instanceId: UUID, emailKey: String): Boolean
+    
+    @Query("SELECT r.emailKey FROM Registration r WHERE r.eventInstance.id = :instanceId AND r.emailKey IS NOT NULL")
+    fun findEmailKeys(@Param("instanceId") instanceId: UUID): kotlin.collections.List<String>
+    
+    // Locks the rows still in fromStatus, so an update of them in the same transaction changes exactly these
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r.id FROM Registration r WHERE r.id IN :ids AND r.status = :fromStatus")
+    fun lockIdsInStatus(
+        @Param("ids") ids: Collection<UUID>,
+        @Param("fromStatus") fromStatus: RegistrationStatus
+    ): kotlin.collections.List<UUID>
+    
+    // Conditional on the current status, so rows changed concurrently are left alone and not counted
+    @Modifying
+    @Query("UPDATE Registration r SET r.status = :toStatus WHERE r.id IN :ids AND r.status = :fromStatus")
+    fun updateStatus(
+        @Param("ids") ids: Collection<UUID>,
+        @Param("fromStatus") fromStatus: RegistrationStatus,
+        @Param("toStatus") toStatus: RegistrationStatus
+    ): Int
+    
+    // Read with a query, so a status another request changed is seen even when the
+    // registration is already loaded in this persistence context
+    @Query("SELECT r.status FROM Registration r WHERE r.id = :id")
+    fun findStatusById(@Param("id") id: UUID): RegistrationStatus?
+    
+    // Cancelling also clears the email key, freeing the email for a new registration
+    @Modifying
+    @Query("""
+        UPDATE Registration r SET r.status = com.eventr.model.RegistrationStatus.CANCELLED, r.emailKey = null
+        WHERE r.id IN :ids AND r.status = :fromStatus
+    """)
+    fun cancel(
+        @Param("ids") ids: Collection<UUID>,
+        @Param("fromStatus") fromStatus: RegistrationStatus
+    ): Int
+    
+    @Modifying
+    @Query("""
+        UPDATE Registration r SET r.status = com.eventr.model.RegistrationStatus.CHECKED_IN, r.checkedIn = true
+        WHERE r.id IN :ids AND r.status = com.eventr.model.RegistrationStatus.REGISTERED
+    """)
+    fun checkInRegistered(@Param("ids") ids: Collection<UUID>): Int
+    
+    // (instance id, status, count) for every instance, or for one instance when instanceId is given
+    @Query("""
+        SELECT r.eventInstance.id, r.status, COUNT(r) FROM Registration r
+        WHERE r.eventInstance IS NOT NULL AND (:instanceId IS NULL OR r.eventInstance.id = :instanceId)
+        GROUP BY r.eventInstance.id, r.status
+    """)
+    fun countByInstanceAndStatus(@Param("instanceId") instanceId: UUID?): kotlin.collections.List<Array<Any?>>
 }
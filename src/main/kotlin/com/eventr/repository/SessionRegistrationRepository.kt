@@ -2,9 +2,12 @@ package com.eventr.repository
 
 import com.eventr.model.SessionRegistration
 import com.eventr.model.SessionRegistrationStatus
+import org.springframework.data.domain.Pageable
 import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.Modifying
 import org.springframework.data.jpa.repository.Query
 import org.springframework.data.repository.query.Param
+import java.time.LocalDateTime
 import java.util.*
 
 interface SessionRegistrationRepository : JpaRepository<SessionRegistration, UUID> {
@@ -51,4 +54,68 @@ interface SessionRegistrationRepository : JpaRepository<SessionRegistration, UUI
     fun countBySessionIdAndStatus(sessionId: UUID, status: SessionRegistrationStatus): Long
     
     fun findBySessionIdAndStatusOrderByWaitlistRegisteredAtAsc(sessionId: UUID, status: SessionRegistrationStatus): List<SessionRegistration>
-}
\ No newline at end of file
+    
+    // Waitlist order is the time each entry joined the waitlist, ties broken by id
+    @Query("""
+        SELECT sr.id FROM SessionRegistration sr
+        WHERE sr.session.id = :sessionId AND sr.status = com.eventr.model.SessionRegistrationStatus.WAITLIST
+        ORDER BY COALESCE(sr.waitlistRegisteredAt, sr.registeredAt), sr.id
+    """)
+    fun findWaitlistHeadIds(@Param("sessionId") sessionId: UUID, pageable: Pageable): List<UUID>
+    
+    @Modifying
+    @Query("""
+        UPDATE SessionRegistration sr SET
+            sr.status = com.eventr.model.SessionRegistrationStatus.REGISTERED,
+            sr.waitlistPosition = null,
+            sr.updatedAt = :now
+        WHERE sr.id IN :ids AND sr.status = com.eventr.model.SessionRegistrationStatus.WAITLIST
+    """)
+    fun promoteFromWaitlist(@Param("ids") ids: Collection<UUID>, @Param("now") now: LocalDateTime): Int
+    
+    // Sets every waitlist entry's position to its rank in waitlist order, ranking the waitlist once
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        UPDATE session_registration SET waitlist_position = ranked.position
+        FROM (
+            SELECT id, ROW_NUMBER() OVER (ORDER BY COALESCE(waitlist_registered_at, registered_at), id) AS position
+            FROM session_registration WHERE session_id = :sessionId AND status = 'WAITLIST'
+        ) ranked
+        WHERE session_registration.id = ranked.id
+          AND session_registration.waitlist_position IS DISTINCT FROM ranked.position
+    """)
+    fun renumberWaitlist(@Param("sessionId") sessionId: UUID): Int
+    
+    // False when the waitlist is already numbered 1..n without gaps or repeats
+    @Query("""
+        SELECT CASE WHEN COUNT(sr) = COUNT(DISTINCT sr.waitlistPosition) AND COUNT(sr) = COALESCE(MAX(sr.waitlistPosition), 0)
+            THEN false ELSE true END
+        FROM SessionRegistration sr
+        WHERE sr.session.id = :sessionId AND sr.status = com.eventr.model.SessionRegistrationStatus.WAITLIST
+    """)
+    fun isWaitlistUnnumbered(@Param("sessionId") sessionId: UUID): Boolean
+    
+    @Query("""
+        SELECT DISTINCT sr.session.id FROM SessionRegistration sr
+        WHERE sr.registration.id IN :registrationIds AND sr.status IN :statuses
+    """)
+    fun findSessionIdsByRegistrationIds(
+        @Param("registrationIds") registrationIds: Collection<UUID>,
+        @Param("statuses") statuses: Collection<SessionRegistrationStatus>
+    ): List<UUID>
+    
+    @Modifying
+    @Query("""
+        UPDATE SessionRegistration sr SET
+            sr.status = com.eventr.model.SessionRegistrationStatus.CANCELLED,
+            sr.waitlistPosition = null,
+            sr.cancelledAt = :now,
+            sr.updatedAt = :now
+        WHERE sr.registration.id IN :registrationIds AND sr.status IN :statuses
+    """)
+    fun cancelByRegistrationIds(
+        @Param("registrationIds") registrationIds: Collection<UUID>,
+        @Param("statuses") statuses: Collection<SessionRegistrationStatus>,
+        @Param("now") now: LocalDateTime
+    ): Int
+}
@@ -1,8 +1,12 @@
 package com.eventr.repository
 
 import com.eventr.model.Session
+import com.eventr.model.SessionRegistrationStatus
 import com.eventr.model.SessionType
+import com.eventr.service.SessionVersionDto
+import jakarta.persistence.LockModeType
 import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.Lock
 import org.springframework.data.jpa.repository.Query
 import org.springframework.data.repository.query.Param
 import java.time.LocalDateTime
@@ -42,4 +46,42 @@ interface SessionRepository : JpaRepository<Session, UUID> {
     
     @Query("SELECT s FROM Session s WHERE :tag MEMBER OF s.tags")
     fun findByTag(@Param("tag") tag: String): List<Session>
-}
\ No newline at end of file
+    
+    // Version fingerprints for conditional GETs: the session row plus its count of registrations in [status]
+    @Query("""
+        SELECT new com.eventr.service.SessionVersionDto(s.id, s.version,
+            (SELECT COUNT(sr) FROM SessionRegistration sr WHERE sr.session = s AND sr.status = :status))
+        FROM Session s WHERE s.id = :id
+    """)
+    fun findVersionById(
+        @Param("id") id: UUID,
+        @Param("status") status: SessionRegistrationStatus
+    ): SessionVersionDto?
+    
+    @Query("""
+        SELECT new com.eventr.service.SessionVersionDto(s.id, s.version,
+            (SELECT COUNT(sr) FROM SessionRegistration sr WHERE sr.session = s AND sr.status = :status))
+        FROM Session s WHERE s.event.id = :eventId AND s.isActive = true
+        ORDER BY s.id
+    """)
+    fun findActiveVersionsByEventId(
+        @Param("eventId") eventId: UUID,
+        @Param("status") status: SessionRegistrationStatus
+    ): List<SessionVersionDto>
+    
+    // Serializes waitlist promotion per session; other sessions are not blocked
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Session s WHERE s.id = :id")
+    fun findByIdForUpdate(@Param("id") id: UUID): Session?
+    
+    // Active sessions with a waitlist and seats left, by the registrations in [held]
+    @Query("""
+        SELECT s.id FROM Session s
+        WHERE s.isActive = true
+          AND EXISTS (SELECT 1 FROM SessionRegistration w WHERE w.session = s
+                      AND w.status = com.eventr.model.SessionRegistrationStatus.WAITLIST)
+          AND (s.capacity IS NULL
+               OR s.capacity > (SELECT COUNT(r) FROM SessionRegistration r WHERE r.session = s AND r.status IN :held))
+    """)
+    fun findIdsWithPromotableWaitlist(@Param("held") held: Collection<SessionRegistrationStatus>): List<UUID>
+}
@@ -9,6 +9,10 @@ import java.util.*
 @Repository
 interface UserRepository : JpaRepository<User, UUID> {
     fun findByEmail(email: String): User?
+    
+    // Expects emails normalized with Registration.normalizeEmail
+    fun findByEmailKeyIn(emailKeys: Collection<String>): List<User>
+    
     fun findByEmailVerificationToken(token: String): User?
     fun findByPasswordResetToken(token: String): User?
     fun existsByEmail(email: String): Boolean
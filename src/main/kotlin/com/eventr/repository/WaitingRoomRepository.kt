@@ -0,0 +1,81 @@
+package com.eventr.repository
+
+import com.eventr.model.WaitingRoom
+import com.eventr.model.WaitingRoomAdmission
+import org.springframework.data.jpa.repository.JpaRepository
+import org.springframework.data.jpa.repository.Modifying
+import org.springframework.data.jpa.repository.Query
+import org.springframework.data.repository.query.Param
+import java.util.UUID
+
+interface WaitingRoomRepository : JpaRepository<WaitingRoom, UUID> {
+
+    // A plain INSERT rather than save(), so a room another node opened in the meantime is not overwritten
+    @Modifying
+    @Query("""
+        INSERT INTO WaitingRoom (eventInstanceId, openedAt, admissionsPerSecond, issued, admittedBase, admittedAt)
+        VALUES (:instanceId, :now, :rate, 0, 0.0, :now)
+    """)
+    fun insertRoom(@Param("instanceId") instanceId: UUID, @Param("now") now: Long, @Param("rate") rate: Double): Int
+
+    // Brings the admission clock up to now at the old rate before switching to the new one.
+    // Clears the persistence context so the room is read back as updated.
+    @Modifying(clearAutomatically = true)
+    @Query("""
+        UPDATE WaitingRoom w SET
+            w.admittedBase = CASE
+                WHEN w.admittedBase + (:now - w.admittedAt) * w.admissionsPerSecond / 1000.0 < w.issued
+                THEN w.admittedBase + (:now - w.admittedAt) * w.admissionsPerSecond / 1000.0
+                ELSE w.issued END,
+            w.admittedAt = :now,
+            w.admissionsPerSecond = :rate
+        WHERE w.eventInstanceId = :instanceId
+    """)
+    fun changeRate(@Param("instanceId") instanceId: UUID, @Param("now") now: Long, @Param("rate") rate: Double): Int
+
+    // Hands out the next place unless maxWaiting visitors are already waiting. Admissions that
+    // built up while nobody was waiting are dropped first, so an idle room does not let the next
+    // burst straight through. Returns 0 when the room is closed or full.
+    @Modifying(clearAutomatically = true)
+    @Query("""
+        UPDATE WaitingRoom w SET
+            w.admittedBase = CASE
+                WHEN w.admittedBase + (:now - w.admittedAt) * w.admissionsPerSecond / 1000.0 > w.issued
+                THEN w.issued ELSE w.admittedBase END,
+            w.admittedAt = CASE
+                WHEN w.admittedBase + (:now - w.admittedAt) * w.admissionsPerSecond / 1000.0 > w.issued
+                THEN :now ELSE w.admittedAt END,
+            w.issued = w.issued + 1
+        WHERE w.eventInstanceId = :instanceId
+            AND w.issued - (w.admittedBase + (:now - w.admittedAt) * w.admissionsPerSecond / 1000.0) < :maxWaiting
+    """)
+    fun issueTicket(@Param("instanceId") instanceId: UUID, @Param("now") now: Long, @Param("maxWaiting") maxWaiting: Long): Int
+}
+
+interface WaitingRoomAdmissionRepository : JpaRepository<WaitingRoomAdmission, UUID> {
+
+    // Fails on the unique constraint if the ticket was already used
+    @Modifying
+    @Query("""
+        INSERT INTO WaitingRoomAdmission (id, eventInstanceId, openedAt, sequence, claimedAt)
+        VALUES (:id, :instanceId, :openedAt, :sequence, :claimedAt)
+    """)
+    fun claim(
+        @Param("id") id: UUID,
+        @Param("instanceId") instanceId: UUID,
+        @Param("openedAt") openedAt: Long,
+        @Param("sequence") sequence: Long,
+        @Param("claimedAt") claimedAt: Long
+    ): Int
+
+    @Modifying
+    @Query("""
+        DELETE FROM WaitingRoomAdmission a
+        WHERE a.eventInstanceId = :instanceId AND a.openedAt = :openedAt AND a.sequence = :sequence
+    """)
+    fun release(@Param("instanceId") instanceId: UUID, @Param("openedAt") openedAt: Long, @Param("sequence") sequence: Long): Int
+
+    @Modifying
+    @Query("DELETE FROM WaitingRoomAdmission a WHERE a.eventInstanceId = :instanceId")
+    fun deleteByInstance(@Param("instanceId") instanceId: UUID): Int
+}
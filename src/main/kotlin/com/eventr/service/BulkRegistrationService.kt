@@ -0,0 +1,171 @@
+package com.eventr.service
+
+import com.eventr.model.EventInstance
+import com.eventr.model.RegistrationStatus
+import com.eventr.modules.registration.events.RegistrationStatusChanged
+import com.eventr.repository.EventInstanceRepository
+import com.eventr.repository.RegistrationRepository
+import com.eventr.repository.RegistrationStatusRow
+import com.eventr.shared.event.EventPublisher
+import org.springframework.stereotype.Service
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+import java.util.EnumMap
+import java.util.UUID
+
+/**
+ * Status changes an organizer can apply to many registrations at once.
+ */
+enum class BulkRegistrationAction(val toStatus: RegistrationStatus, val resultKey: String) {
+    /** Moves waitlisted registrations onto free seats. */
+    APPROVE(RegistrationStatus.REGISTERED, "approved"),
+    CANCEL(RegistrationStatus.CANCELLED, "cancelled"),
+    /** Checks in registrations that are registered. */
+    CHECKIN(RegistrationStatus.CHECKED_IN, "checkedIn");
+
+    companion object {
+        fun of(action: String): BulkRegistrationAction =
+            entries.firstOrNull { it.name.equals(action.trim(), ignoreCase = true) }
+                ?: throw IllegalArgumentException("Unknown bulk action: $action")
+    }
+}
+
+/**
+ * Outcome of a bulk action. [changedFrom] counts the changed registrations by
+ * the status they had before.
+ */
+data class BulkActionResult(
+    val action: BulkRegistrationAction,
+    val requested: Int,
+    val found: Int,
+    val changed: Int,
+    val changedFrom: Map<RegistrationStatus, Int>
+) {
+    val unchanged: Int get() = found - changed
+    val notFound: Int get() = requested - found
+}
+
+/**
+ * Applies bulk actions to registrations as set-based updates.
+ *
+ * The requested ids are handled in chunks. For each chunk the current
+ * instance and status of every registration is read in one projection query,
+ * and then one conditional UPDATE runs per instance and previous status, all
+ * in a single transaction. Counts come from the rows each UPDATE changed, so
+ * registrations changed concurrently are neither double-counted nor
+ * overwritten. Before each UPDATE the rows still in the previous status are
+ * locked and their ids read, so the RegistrationStatusChanged event published
+ * per UPDATE names exactly the registrations it changed.
+ *
+ * Seats follow the capacity rules of single registrations: approvals take
+ * them through RegistrationCapacityService before the update, and
+ * cancellations of seat-holding registrations give them back after commit.
+ */
+@Service
+class BulkRegistrationService(
+    private val registrationRepository: RegistrationRepository,
+    private val eventInstanceRepository: EventInstanceRepository,
+    private val registrationCapacityService: RegistrationCapacityService,
+    private val eventPublisher: EventPublisher,
+    transactionManager: PlatformTransactionManager
+) {
+
+    private val transactionTemplate = TransactionTemplate(transactionManager)
+
+    // Registrations of one instance moving from one status
+    private class Change(val instanceId: UUID, val fromStatus: RegistrationStatus, val ids: List<UUID>)
+
+    /**
+     * Applies [action] to those of [registrationIds] that belong to the event.
+     *
+     * @return counts of changed, unchanged and unknown registrations
+     */
+    fun apply(eventId: UUID, action: BulkRegistrationAction, registrationIds: Collection<UUID>): BulkActionResult {
+        val ids = registrationIds.distinct()
+        val changedFrom = EnumMap<RegistrationStatus, Int>(RegistrationStatus::class.java)
+        var found = 0
+
+        ids.chunked(CHUNK_SIZE).forEach { chunk ->
+            val rows = registrationRepository.findStatusRows(eventId, chunk)
+            found += rows.size
+            applyChunk(action, inRequestOrder(rows, chunk)).forEach { (status, count) ->
+                changedFrom.merge(status, count, Int::plus)
+            }
+        }
+
+        return BulkActionResult(action, ids.size, found, changedFrom.values.sum(), changedFrom)
+    }
+
+    private fun applyChunk(action: BulkRegistrationAction, rows: List<RegistrationStatusRow>): List<Pair<RegistrationStatus, Int>> {
+        val changes = plan(action, rows)
+        if (changes.isEmpty()) return emptyList()
+
+        val applied = try {
+            transactionTemplate.execute {
+                changes.map { change ->
+                    val ids = registrationRepository.lockIdsInStatus(change.ids, change.fromStatus)
+                    if (ids.isEmpty()) return@map change to 0
+                    val count = when (action) {
+                        BulkRegistrationAction.CHECKIN -> registrationRepository.checkInRegistered(ids)
+                        BulkRegistrationAction.CANCEL -> registrationRepository.cancel(ids, change.fromStatus)
+                        else -> registrationRepository.updateStatus(ids, change.fromStatus, action.toStatus)
+                    }
+                    eventPublisher.publish(RegistrationStatusChanged(change.instanceId, change.fromStatus, action.toStatus, ids, count))
+                    change to count
+                }
+            }!!
+        } catch (e: Exception) {
+            // Hand back the seats taken for approvals that did not happen
+            if (action == BulkRegistrationAction.APPROVE) {
+                changes.forEach { registrationCapacityService.release(it.instanceId, it.ids.size) }
+            }
+            throw e
+        }
+
+        applied.forEach { (change, count) ->
+            when {
+                action == BulkRegistrationAction.APPROVE ->
+                    registrationCapacityService.release(change.instanceId, change.ids.size - count)
+                action == BulkRegistrationAction.CANCEL && change.fromStatus in RegistrationCapacityService.SEAT_HOLDING_STATUSES ->
+                    registrationCapacityService.release(change.instanceId, count)
+            }
+        }
+        return applied.filter { it.second > 0 }.map { (change, count) -> change.fromStatus to count }
+    }
+
+    private fun plan(action: BulkRegistrationAction, rows: List<RegistrationStatusRow>): List<Change> = when (action) {
+        BulkRegistrationAction.CANCEL ->
+            rows.filter { it.status != null && it.status != RegistrationStatus.CANCELLED }
+                .groupBy { it.eventInstanceId to it.status!! }
+                .map { (key, group) -> Change(key.first, key.second, group.map { it.id }) }
+
+        BulkRegistrationAction.CHECKIN ->
+            rows.filter { it.status == RegistrationStatus.REGISTERED }
+                .groupBy { it.eventInstanceId }
+                .map { (instanceId, group) -> Change(instanceId, RegistrationStatus.REGISTERED, group.map { it.id }) }
+
+        BulkRegistrationAction.APPROVE -> {
+            val waiting = rows.filter { it.status == RegistrationStatus.WAITLISTED }.groupBy { it.eventInstanceId }
+            val instances = instancesById(waiting.keys)
+            waiting.mapNotNull { (instanceId, group) ->
+                val instance = instances[instanceId] ?: return@mapNotNull null
+                // Earliest requested registrations get the seats that are left
+                val seats = registrationCapacityService.reserveUpTo(instance, group.size)
+                if (seats == 0) null else Change(instanceId, RegistrationStatus.WAITLISTED, group.take(seats).map { it.id })
+            }
+        }
+    }
+
+    private fun instancesById(ids: Collection<UUID>): Map<UUID, EventInstance> =
+        if (ids.isEmpty()) emptyMap() else eventInstanceRepository.findAllById(ids).associateBy { it.id!! }
+
+    private fun inRequestOrder(rows: List<RegistrationStatusRow>, chunk: List<UUID>): List<RegistrationStatusRow> {
+        val position = chunk.withIndex().associate { it.value to it.index }
+        return rows.sortedBy { position[it.id] }
+    }
+
+    companion object {
+        /** Registration ids per IN list. */
+        const val CHUNK_SIZE = 1000
+    }
+}
@@ -0,0 +1,166 @@
+package com.eventr.service
+
+import com.eventr.dto.CheckInCreateDto
+import com.eventr.dto.CheckInDto
+import com.eventr.exception.RateLimitException
+import com.eventr.service.interfaces.CheckInServiceInterface
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.MeterBinder
+import jakarta.annotation.PostConstruct
+import jakarta.annotation.PreDestroy
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Service
+import java.time.Duration
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+/**
+ * Ingestion path for manual check-ins from door scanners.
+ *
+ * Scans are placed on a bounded queue and a single writer thread drains it,
+ * recording whatever has accumulated as one batch in one transaction, so a
+ * burst of scans shares a handful of transactions and one connection instead
+ * of taking one each. A scan is answered once its batch has committed. When
+ * the queue is full new scans are turned away with a retry hint, as is a scan
+ * still queued when the acknowledgement times out: it is taken off the queue
+ * first, so the retry is not refused as a duplicate of it. A scan the writer
+ * has already taken is waited for, since its outcome is moments away. If a batch
+ * fails as a whole, its scans are retried one at a time so that one bad scan
+ * cannot fail its neighbours.
+ *
+ * With app.checkin.ingestion.enabled=false scans are recorded directly on the
+ * request thread.
+ */
+@Service
+class CheckInIngestionService(
+    private val checkInService: CheckInServiceInterface,
+    @param:Value("\${app.checkin.ingestion.enabled:true}") private val enabled: Boolean,
+    @Value("\${app.checkin.ingestion.queue-capacity:10000}") queueCapacity: Int,
+    @param:Value("\${app.checkin.ingestion.max-batch:200}") private val maxBatch: Int,
+    @param:Value("\${app.checkin.ingestion.ack-timeout:PT10S}") private val ackTimeout: Duration
+) : MeterBinder {
+
+    private val logger = LoggerFactory.getLogger(CheckInIngestionService::class.java)
+
+    private class Pending(val createDto: CheckInCreateDto) {
+        val outcome = CompletableFuture<CheckInDto>()
+    }
+
+    private val queue = ArrayBlockingQueue<Pending>(queueCapacity)
+
+    /** Scans waiting to be written. */
+    val queued: Int get() = queue.size
+
+    @Volatile
+    private var writer: Thread? = null
+
+    init {
+        require(maxBatch > 0) { "app.checkin.ingestion.max-batch must be positive" }
+    }
+
+    @PostConstruct
+    fun start() {
+        if (!enabled || writer != null) return
+        // Published before it starts: the writer runs only while it is the current one
+        val thread = Thread(::drain, "checkin-writer").apply { isDaemon = true }
+        writer = thread
+        thread.start()
+    }
+
+    @PreDestroy
+    fun stop() {
+        val thread = writer ?: return
+        // The writer notices within one poll, then writes what is still queued
+        writer = null
+        thread.join(ackTimeout.toMillis())
+    }
+
+    override fun bindTo(registry: MeterRegistry) {
+        Gauge.builder("checkin.ingestion.queued", this) { it.queued.toDouble() }
+            .description("Check-ins waiting to be written")
+            .register(registry)
+    }
+
+    /**
+     * Records a manual check-in and returns it once it has committed.
+     *
+     * @throws IllegalArgumentException if the registration is unknown or already checked in
+     * @throws RateLimitException if the queue is full or the scan was still queued when the ack timed out
+     */
+    fun checkIn(createDto: CheckInCreateDto): CheckInDto {
+        if (!enabled) return checkInService.manualCheckIn(createDto)
+
+        val pending = Pending(createDto)
+        if (!queue.offer(pending)) {
+            throw RateLimitException("Too many check-ins in progress, please retry", 1)
+        }
+        return try {
+            pending.outcome.get(ackTimeout.toMillis(), TimeUnit.MILLISECONDS)
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        } catch (e: TimeoutException) {
+            if (queue.remove(pending)) {
+                throw RateLimitException("Check-in is taking longer than expected, please retry", 1)
+            }
+            // Being written: the writer completes every scan it takes
+            try {
+                pending.outcome.get()
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+        }
+    }
+
+    /**
+     * Writes everything queued so far, a batch at a time.
+     */
+    internal fun flush() {
+        while (true) {
+            val batch = ArrayList<Pending>(maxBatch)
+            queue.drainTo(batch, maxBatch)
+            if (batch.isEmpty()) return
+            write(batch)
+        }
+    }
+
+    private fun drain() {
+        val thread = Thread.currentThread()
+        while (writer === thread) {
+            val first = try {
+                queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS) ?: continue
+            } catch (e: InterruptedException) {
+                break
+            }
+            val batch = ArrayList<Pending>(maxBatch).apply { add(first) }
+            queue.drainTo(batch, maxBatch - 1)
+            write(batch)
+        }
+        flush()
+    }
+
+    private fun write(batch: List<Pending>) {
+        try {
+            val outcomes = try {
+                checkInService.manualCheckInBatch(batch.map { it.createDto })
+            } catch (e: Exception) {
+                logger.warn("Check-in batch of {} failed, recording its scans one at a time: {}", batch.size, e.message)
+                batch.map { runCatching { checkInService.manualCheckIn(it.createDto) } }
+            }
+            batch.zip(outcomes).forEach { (pending, outcome) ->
+                outcome.fold({ pending.outcome.complete(it) }, { pending.outcome.completeExceptionally(it) })
+            }
+        } finally {
+            // Callers past their ack timeout wait without a bound, so nothing may be left unanswered
+            batch.forEach { it.outcome.completeExceptionally(IllegalStateException("Check-in was not recorded")) }
+        }
+    }
+
+    companion object {
+        private const val POLL_INTERVAL_MS = 100L
+    }
+}
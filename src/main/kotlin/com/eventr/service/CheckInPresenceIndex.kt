@@ -0,0 +1,180 @@
+package com.eventr.service
+
+import com.eventr.model.CheckIn
+import com.eventr.model.CheckInType
+import com.eventr.model.EventStatus
+import com.eventr.model.Registration
+import com.eventr.model.RegistrationStatus
+import com.eventr.modules.registration.events.RegistrationStatusChanged
+import com.eventr.repository.CheckInRepository
+import com.eventr.repository.EventInstanceRepository
+import com.eventr.repository.EventRepository
+import com.eventr.repository.RegistrationRepository
+import com.eventr.shared.cache.BoundedTtlCache
+import com.eventr.shared.persistence.ConstraintViolations
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.MeterBinder
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.scheduling.annotation.Scheduled
+import org.springframework.stereotype.Service
+import org.springframework.transaction.support.TransactionSynchronization
+import org.springframework.transaction.event.TransactionalEventListener
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import java.time.Duration
+import java.time.LocalDateTime
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Answers "is this attendee already checked in here?" from memory.
+ *
+ * Each event being checked into has a set of what its registrations are
+ * checked in to: per session, and per check-in type for event-level
+ * check-ins. A set is loaded with one query on first use, or ahead of time
+ * for events about to start, and every check-in committed through this node
+ * is added to it. Check-ins made on another node are not seen until the set
+ * is reloaded; the unique constraint on check-ins rejects those duplicates.
+ *
+ * Next to it each event keeps the ids of its cancelled registrations, so
+ * QR codes issued to them are refused without reading the database. They
+ * are loaded with the set and kept current by RegistrationStatusChanged;
+ * cancellations on another node are likewise seen once the set is reloaded.
+ */
+@Service
+class CheckInPresenceIndex(
+    private val checkInRepository: CheckInRepository,
+    private val registrationRepository: RegistrationRepository,
+    private val eventInstanceRepository: EventInstanceRepository,
+    private val eventRepository: EventRepository,
+    @Value("\${app.checkin.presence.max-events:500}") maxEvents: Int,
+    @Value("\${app.checkin.presence.ttl:PT6H}") ttl: Duration,
+    @param:Value("\${app.checkin.presence.warm-ahead:PT2H}") private val warmAhead: Duration
+) : MeterBinder {
+
+    private val logger = LoggerFactory.getLogger(CheckInPresenceIndex::class.java)
+
+    // A session check-in is keyed by its session, an event-level one by its type
+    private data class Key(val registrationId: UUID, val sessionId: UUID?, val type: CheckInType?)
+
+    private class Presence(val keys: MutableSet<Key>, val cancelled: MutableSet<UUID>)
+
+    private val events = BoundedTtlCache<UUID, Presence>("checkins.presence", maxEvents, ttl)
+
+    override fun bindTo(registry: MeterRegistry) {
+        events.bindTo(registry)
+    }
+
+    /**
+     * Returns true if [registration] is already checked in to [sessionId], or
+     * for a check-in without a session, already has a check-in of [type].
+     */
+    fun isCheckedIn(registration: Registration, sessionId: UUID?, type: CheckInType): Boolean {
+        val eventId = registration.eventInstance?.event?.id ?: return false
+        return isCheckedIn(eventId, registration.id!!, sessionId, type)
+    }
+
+    fun isCheckedIn(eventId: UUID, registrationId: UUID, sessionId: UUID?, type: CheckInType): Boolean =
+        lookupKey(registrationId, sessionId, type) in presence(eventId).keys
+
+    /**
+     * Returns true if registration [registrationId] to event [eventId] has
+     * been cancelled.
+     */
+    fun isCancelled(eventId: UUID, registrationId: UUID): Boolean =
+        registrationId in presence(eventId).cancelled
+
+    // Events not loaded yet are skipped: their first use loads the cancelled registrations
+    @TransactionalEventListener(fallbackExecution = true)
+    fun onRegistrationsChanged(event: RegistrationStatusChanged) {
+        if (event.toStatus != RegistrationStatus.CANCELLED || event.registrationIds.isEmpty()) return
+        val eventId = eventInstanceRepository.findById(event.aggregateId).map { it.event?.id }.orElse(null) ?: return
+        events.get(eventId)?.cancelled?.addAll(event.registrationIds)
+    }
+
+    /**
+     * Adds check-ins to the index once the current transaction commits, or
+     * straight away outside a transaction.
+     */
+    fun recordCheckedIn(checkIns: Collection<CheckIn>) {
+        afterCommit(checkIns) { it.registration?.eventInstance?.event?.id }
+    }
+
+    /**
+     * As [recordCheckedIn], for check-ins to [eventId] whose registrations
+     * were not loaded.
+     */
+    fun recordCheckedIn(eventId: UUID, checkIns: Collection<CheckIn>) {
+        afterCommit(checkIns) { eventId }
+    }
+
+    private fun afterCommit(checkIns: Collection<CheckIn>, eventOf: (CheckIn) -> UUID?) {
+        if (checkIns.isEmpty()) return
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(object : TransactionSynchronization {
+                override fun afterCommit() = record(checkIns, eventOf)
+            })
+        } else {
+            record(checkIns, eventOf)
+        }
+    }
+
+    /**
+     * Drops the sets of [eventIds] so that their next use loads them again,
+     * picking up check-ins made on other nodes.
+     */
+    fun reload(eventIds: Collection<UUID>) {
+        eventIds.forEach { events.invalidate(it) }
+    }
+
+    /**
+     * Loads the index of every published event starting within the warm-ahead
+     * window, so the first scans at the door do not wait for it.
+     */
+    @Scheduled(
+        initialDelayString = "\${app.checkin.presence.warm-interval:PT5M}",
+        fixedDelayString = "\${app.checkin.presence.warm-interval:PT5M}"
+    )
+    fun warmUpcoming() {
+        val now = LocalDateTime.now()
+        val eventIds = eventRepository.findIdsStartingBetween(EventStatus.PUBLISHED, now, now.plus(warmAhead))
+        eventIds.forEach { presence(it) }
+        if (eventIds.isNotEmpty()) logger.debug("Warmed check-in presence for {} upcoming events", eventIds.size)
+    }
+
+    /**
+     * Returns true if [e] is the unique constraint rejecting a duplicate
+     * check-in.
+     */
+    fun isDuplicate(e: DataIntegrityViolationException): Boolean =
+        ConstraintViolations.isViolationOf(e, CheckIn.UNIQUE_PRESENCE_CONSTRAINT)
+
+    // Events not loaded yet are skipped: their first use loads the committed check-ins
+    private fun record(checkIns: Collection<CheckIn>, eventOf: (CheckIn) -> UUID?) {
+        checkIns.forEach { checkIn ->
+            val registrationId = checkIn.registration?.id ?: return@forEach
+            val eventId = eventOf(checkIn) ?: return@forEach
+            events.get(eventId)?.keys?.addAll(keys(registrationId, checkIn.session?.id, checkIn.type))
+        }
+    }
+
+    private fun presence(eventId: UUID): Presence = events.getOrLoad(eventId) {
+        val keys = ConcurrentHashMap.newKeySet<Key>().apply {
+            checkInRepository.findCheckInKeysByEventId(eventId).forEach { (registrationId, sessionId, type) ->
+                addAll(keys(registrationId as UUID, sessionId as UUID?, type as CheckInType))
+            }
+        }
+        val cancelled = ConcurrentHashMap.newKeySet<UUID>().apply {
+            addAll(registrationRepository.findIdsByEventIdAndStatus(eventId, RegistrationStatus.CANCELLED))
+        }
+        Presence(keys, cancelled)
+    }!!
+
+    private fun lookupKey(registrationId: UUID, sessionId: UUID?, type: CheckInType) =
+        Key(registrationId, sessionId, if (sessionId == null) type else null)
+
+    // A session check-in also counts as a check-in of its type
+    private fun keys(registrationId: UUID, sessionId: UUID?, type: CheckInType): List<Key> =
+        listOfNotNull(Key(registrationId, null, type), sessionId?.let { Key(registrationId, it, null) })
+}
@@ -0,0 +1,228 @@
+package com.eventr.service
+
+import com.eventr.dto.CheckInDto
+import com.eventr.dto.CheckInSyncRequestDto
+import com.eventr.dto.CheckInSyncResponseDto
+import com.eventr.dto.CheckInSyncResultDto
+import com.eventr.dto.CheckInSyncStatus
+import com.eventr.dto.OfflineCheckInDto
+import com.eventr.exception.EntityNotFoundException
+import com.eventr.model.CheckIn
+import com.eventr.model.CheckInMethod
+import com.eventr.model.CheckInType
+import com.eventr.model.Registration
+import com.eventr.model.Session
+import com.eventr.repository.CheckInRepository
+import com.eventr.repository.EventRepository
+import com.eventr.repository.RegistrationRepository
+import com.eventr.repository.SessionRepository
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.stereotype.Service
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+import java.time.Clock
+import java.time.Duration
+import java.time.LocalDateTime
+import java.time.temporal.ChronoUnit
+import java.util.UUID
+
+/**
+ * Delta sync for check-in devices that scan offline.
+ *
+ * A device uploads the check-ins it queued while offline with the watermark
+ * from its last sync, and gets back an outcome for each of them, the
+ * check-ins other devices recorded or changed for the event since that
+ * watermark, and the watermark to send next time. Watermarks trail the read
+ * by a short overlap so that check-ins committing during it are not missed;
+ * a device may see a check-in again and should merge them by id.
+ *
+ * When several devices scanned the same attendee into the same session, or
+ * the event, the earliest scan wins, ties going to the lower device id and
+ * then the lower check-in id, so the outcome does not depend on which device
+ * synced first. A winning scan that arrives after another was stored replaces
+ * it in place, keeping its id; the others are reported as superseded by it.
+ * Uploading a scan again finds it stored and is accepted without changes.
+ *
+ * Uploads are reconciled in chunks of one transaction each: the chunk's
+ * registrations, sessions and stored check-ins are loaded with one query
+ * apiece and the winners written as one batch.
+ */
+@Service
+class CheckInSyncService(
+    private val checkInRepository: CheckInRepository,
+    private val registrationRepository: RegistrationRepository,
+    private val sessionRepository: SessionRepository,
+    private val eventRepository: EventRepository,
+    private val presenceIndex: CheckInPresenceIndex,
+    transactionManager: PlatformTransactionManager,
+    private val maxBatch: Int,
+    private val watermarkOverlap: Duration,
+    private val clock: Clock
+) {
+
+    @Autowired
+    constructor(
+        checkInRepository: CheckInRepository,
+        registrationRepository: RegistrationRepository,
+        sessionRepository: SessionRepository,
+        eventRepository: EventRepository,
+        presenceIndex: CheckInPresenceIndex,
+        transactionManager: PlatformTransactionManager,
+        @Value("\${app.checkin.sync.max-batch:5000}") maxBatch: Int,
+        @Value("\${app.checkin.sync.watermark-overlap:PT5S}") watermarkOverlap: Duration
+    ) : this(
+        checkInRepository, registrationRepository, sessionRepository, eventRepository, presenceIndex,
+        transactionManager, maxBatch, watermarkOverlap, Clock.systemDefaultZone()
+    )
+
+    private val logger = LoggerFactory.getLogger(CheckInSyncService::class.java)
+
+    private val transactionTemplate = TransactionTemplate(transactionManager)
+
+    // An uploaded check-in that passed validation, at the precision the database keeps
+    private class Scan(val index: Int, val upload: OfflineCheckInDto, val deviceId: String) {
+        val checkedInAt: LocalDateTime = upload.checkedInAt.truncatedTo(ChronoUnit.MICROS)
+        val presenceKey: Pair<UUID, String> = upload.registrationId to (upload.sessionId?.toString() ?: upload.type.name)
+    }
+
+    /**
+     * Records the uploaded check-ins and returns what changed for the event
+     * since the request's watermark.
+     *
+     * @throws EntityNotFoundException if the event does not exist
+     * @throws IllegalArgumentException if the device id is blank or the upload is too large
+     */
+    fun sync(request: CheckInSyncRequestDto): CheckInSyncResponseDto {
+        require(request.deviceId.isNotBlank()) { "deviceId is required" }
+        require(request.checkIns.size <= maxBatch) { "At most $maxBatch check-ins can be synced at once" }
+        if (!eventRepository.existsById(request.eventId)) throw EntityNotFoundException("Event", request.eventId)
+
+        val results = request.checkIns.chunked(CHUNK_SIZE).flatMap { chunk -> syncChunk(request, chunk) }
+
+        val readAt = LocalDateTime.now(clock)
+        val since = request.since ?: FIRST_SYNC
+        val changes = checkInRepository.findSyncChanges(request.eventId, since, request.deviceId).map { it.toChange() }
+        val watermark = maxOf(since, readAt.minus(watermarkOverlap))
+
+        logger.info("Synced device {} for event {}: {} uploaded, {} changes sent",
+            request.deviceId, request.eventId, results.size, changes.size)
+        return CheckInSyncResponseDto(request.deviceId, watermark, results, changes)
+    }
+
+    private fun syncChunk(request: CheckInSyncRequestDto, chunk: List<OfflineCheckInDto>): List<CheckInSyncResultDto> {
+        return try {
+            transactionTemplate.execute { reconcile(request, chunk) }!!
+        } catch (e: DataIntegrityViolationException) {
+            if (!presenceIndex.isDuplicate(e)) throw e
+            // Another node stored one of these check-ins meanwhile; reconciling again finds it
+            logger.debug("Check-in stored concurrently while syncing device {}, retrying chunk", request.deviceId)
+            transactionTemplate.execute { reconcile(request, chunk) }!!
+        }
+    }
+
+    private fun reconcile(request: CheckInSyncRequestDto, chunk: List<OfflineCheckInDto>): List<CheckInSyncResultDto> {
+        val registrations = registrationRepository.findAllForCheckIn(chunk.map { it.registrationId }.distinct())
+            .filter { it.eventInstance?.event?.id == request.eventId }
+            .associateBy { it.id!! }
+        val sessionIds = chunk.mapNotNullTo(HashSet()) { it.sessionId }
+        val sessions = if (sessionIds.isEmpty()) emptyMap() else sessionRepository.findAllById(sessionIds)
+            .filter { it.event?.id == request.eventId }
+            .associateBy { it.id!! }
+        val stored = if (registrations.isEmpty()) emptyMap() else checkInRepository.findForSync(registrations.keys)
+            .associateBy { it.registration!!.id!! to it.presenceKey }
+
+        val results = arrayOfNulls<CheckInSyncResultDto>(chunk.size)
+        val scans = chunk.mapIndexedNotNull { index, upload ->
+            val error = when {
+                upload.registrationId !in registrations -> "Registration not found for this event"
+                upload.sessionId != null && upload.sessionId !in sessions -> "Session not found for this event"
+                else -> return@mapIndexedNotNull Scan(index, upload, upload.deviceId ?: request.deviceId)
+            }
+            results[index] = CheckInSyncResultDto(upload.id, upload.registrationId, CheckInSyncStatus.REJECTED, message = error)
+            null
+        }
+
+        val now = LocalDateTime.now(clock)
+        val inserted = ArrayList<CheckIn>()
+        val resolved = scans.groupBy { it.presenceKey }.map { (key, contenders) ->
+            val winner = contenders.minWith(SCAN_ORDER)
+            val current = stored[key]
+            val checkIn = when {
+                current == null -> newCheckIn(registrations.getValue(key.first), winner, sessions, now).also { inserted += it }
+                precedes(winner, current) -> current.apply { takeOver(winner, now) }
+                else -> current
+            }
+            contenders to checkIn
+        }
+        checkInRepository.saveAll(inserted)
+        checkInRepository.flush()
+        presenceIndex.recordCheckedIn(request.eventId, inserted)
+
+        resolved.forEach { (contenders, checkIn) ->
+            contenders.forEach { scan ->
+                val recorded = scan.checkedInAt == checkIn.checkedInAt && scan.deviceId == checkIn.deviceId
+                val status = if (recorded) CheckInSyncStatus.ACCEPTED else CheckInSyncStatus.SUPERSEDED
+                results[scan.index] = CheckInSyncResultDto(scan.upload.id, scan.upload.registrationId, status, checkIn.id)
+            }
+        }
+        return results.map { it!! }
+    }
+
+    // A stored check-in wins a full tie: it is the same scan uploaded again
+    private fun precedes(scan: Scan, checkIn: CheckIn): Boolean {
+        val byTime = scan.checkedInAt.compareTo(checkIn.checkedInAt)
+        return if (byTime != 0) byTime < 0 else scan.deviceId < checkIn.deviceId.orEmpty()
+    }
+
+    private fun newCheckIn(registration: Registration, scan: Scan, sessions: Map<UUID, Session>, now: LocalDateTime): CheckIn {
+        return CheckIn(
+            registration = registration,
+            session = scan.upload.sessionId?.let { sessions.getValue(it) },
+            type = scan.upload.type,
+            createdAt = now
+        ).apply { takeOver(scan, now) }
+    }
+
+    // Every field describing the scan is replaced, so nothing of a superseded scan survives
+    private fun CheckIn.takeOver(scan: Scan, now: LocalDateTime) {
+        method = scan.upload.method
+        checkedInAt = scan.checkedInAt
+        checkedInBy = scan.upload.checkedInBy
+        deviceId = scan.deviceId
+        deviceName = null
+        ipAddress = null
+        userAgent = null
+        location = null
+        verificationCode = null
+        qrCodeUsed = scan.upload.qrCodeUsed
+        isVerified = true
+        notes = scan.upload.notes
+        metadata = null
+        isSynced = true
+        syncedAt = now
+        updatedAt = now
+    }
+
+    private fun Array<Any?>.toChange() = CheckInDto(
+        id = this[0] as UUID,
+        registrationId = this[1] as UUID,
+        sessionId = this[2] as UUID?,
+        type = this[3] as CheckInType,
+        method = this[4] as CheckInMethod,
+        checkedInAt = this[5] as LocalDateTime,
+        checkedInBy = this[6] as String?,
+        deviceId = this[7] as String?
+    )
+
+    companion object {
+        // Bounds the IN lists and the persistence context of each transaction
+        private const val CHUNK_SIZE = 1000
+
+        private val FIRST_SYNC: LocalDateTime = LocalDateTime.of(1970, 1, 1, 0, 0)
+
+        private val SCAN_ORDER = compareBy<Scan>({ it.checkedInAt }, { it.deviceId }, { it.upload.id })
+    }
+}
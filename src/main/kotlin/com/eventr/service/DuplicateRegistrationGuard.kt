@@ -0,0 +1,91 @@
+package com.eventr.service
+
+import com.eventr.model.Registration
+import com.eventr.repository.RegistrationRepository
+import com.eventr.shared.cache.BoundedTtlCache
+import com.eventr.shared.persistence.ConstraintViolations
+import com.eventr.util.BloomFilter
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.MeterBinder
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.stereotype.Service
+import java.time.Duration
+import java.util.UUID
+
+/**
+ * Detects registrations for an email that already has a live registration on
+ * the event instance.
+ *
+ * The database enforces this with a unique constraint on the instance and
+ * normalized email. In front of it, each instance being registered for has a
+ * Bloom filter of the emails registered on it, loaded on first use and fed
+ * by every registration made through this node. An email the filter has
+ * never seen is not a duplicate, so the usual case needs no query; only
+ * possible matches are checked against the database. Anything the filter
+ * misses (registrations made on another node, or racing this one) is still
+ * rejected by the constraint. Cancellations cannot be removed from a filter,
+ * so they only cost a query until it is rebuilt.
+ */
+@Service
+class DuplicateRegistrationGuard(
+    private val registrationRepository: RegistrationRepository,
+    @Value("\${app.registration.duplicate-filter.max-instances:1000}") maxInstances: Int,
+    @Value("\${app.registration.duplicate-filter.ttl:PT1H}") ttl: Duration
+) : MeterBinder {
+
+    private val filters = BoundedTtlCache<UUID, BloomFilter>("registrations.email-filters", maxInstances, ttl)
+
+    override fun bindTo(registry: MeterRegistry) {
+        filters.bindTo(registry)
+    }
+
+    /**
+     * Returns true if [email] already holds a live registration on the
+     * instance.
+     */
+    fun isRegistered(instanceId: UUID, email: String?): Boolean {
+        val key = Registration.normalizeEmail(email) ?: return false
+        return filter(instanceId).mightContain(key) && registrationRepository.existsByEventInstanceIdAndEmailKey(instanceId, key)
+    }
+
+    /**
+     * Narrows normalized [emailKeys] down to those that may already be
+     * registered on the instance and need checking against the database.
+     */
+    fun possiblyRegistered(instanceId: UUID, emailKeys: Collection<String>): List<String> {
+        val filter = filter(instanceId)
+        return emailKeys.filter { filter.mightContain(it) }
+    }
+
+    /**
+     * Records committed registrations, so later duplicates of them are
+     * checked.
+     */
+    fun recordRegistered(instanceId: UUID, emails: Collection<String?>) {
+        val filter = filter(instanceId)
+        emails.mapNotNull { Registration.normalizeEmail(it) }.forEach { filter.put(it) }
+        // Past its sizing the false positive rate climbs; the next use rebuilds it larger
+        if (filter.insertionCount > filter.expectedInsertions) filters.invalidate(instanceId)
+    }
+
+    /**
+     * Returns true if [e] is the unique constraint rejecting a duplicate
+     * registration.
+     */
+    fun isDuplicate(e: DataIntegrityViolationException): Boolean =
+        ConstraintViolations.isViolationOf(e, Registration.UNIQUE_EMAIL_CONSTRAINT)
+
+    private fun filter(instanceId: UUID): BloomFilter = filters.getOrLoad(instanceId) {
+        val emailKeys = registrationRepository.findEmailKeys(instanceId)
+        BloomFilter(maxOf(emailKeys.size * 2, MIN_EXPECTED_INSERTIONS), FALSE_POSITIVE_RATE).apply {
+            emailKeys.forEach { put(it) }
+        }
+    }!!
+
+    companion object {
+        private const val MIN_EXPECTED_INSERTIONS = 1024
+
+        private const val FALSE_POSITIVE_RATE = 0.01
+    }
+}
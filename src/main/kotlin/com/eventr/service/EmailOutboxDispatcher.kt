@@ -0,0 +1,117 @@
+package com.eventr.service
+
+import com.eventr.model.EmailOutboxMessage
+import com.eventr.model.OutboxEmailType
+import com.eventr.model.OutboxStatus
+import com.eventr.repository.EmailOutboxRepository
+import com.eventr.repository.RegistrationRepository
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.data.domain.PageRequest
+import org.springframework.scheduling.annotation.Scheduled
+import org.springframework.stereotype.Component
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+import java.time.Duration
+import java.time.LocalDateTime
+
+/**
+ * Delivers queued outbox emails in the background.
+ *
+ * Each due message is first leased with a conditional UPDATE, so several
+ * nodes can poll the same table without sending a message twice; a lease
+ * left behind by a crashed node simply expires and the message becomes due
+ * again. Failed sends are retried with exponential backoff until
+ * app.email-outbox.max-attempts, after which the message is marked FAILED
+ * and left in the table for inspection.
+ */
+@Component
+class EmailOutboxDispatcher(
+    private val emailOutboxRepository: EmailOutboxRepository,
+    private val registrationRepository: RegistrationRepository,
+    private val emailNotificationService: EmailNotificationService,
+    transactionManager: PlatformTransactionManager,
+    @param:Value("\${app.email-outbox.max-attempts:8}") private val maxAttempts: Int,
+    @param:Value("\${app.email-outbox.backoff:PT30S}") private val backoff: Duration
+) {
+
+    private val logger = LoggerFactory.getLogger(EmailOutboxDispatcher::class.java)
+
+    private val transactionTemplate = TransactionTemplate(transactionManager)
+
+    /**
+     * Sends every message that is due, a batch at a time.
+     *
+     * @return the number of messages sent
+     */
+    @Scheduled(
+        initialDelayString = "\${app.email-outbox.poll-interval:PT5S}",
+        fixedDelayString = "\${app.email-outbox.poll-interval:PT5S}"
+    )
+    fun dispatch(): Int {
+        var sent = 0
+        do {
+            val due = emailOutboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(
+                OutboxStatus.PENDING, LocalDateTime.now(), PageRequest.of(0, BATCH_SIZE)
+            )
+            due.forEach { if (deliver(it)) sent++ }
+        } while (due.size == BATCH_SIZE)
+        return sent
+    }
+
+    private fun deliver(message: EmailOutboxMessage): Boolean {
+        val id = message.id!!
+        val claimed = transactionTemplate.execute {
+            emailOutboxRepository.claim(id, message.nextAttemptAt, LocalDateTime.now().plus(LEASE))
+        } ?: 0
+        if (claimed == 0) return false
+        val attempt = message.attempts + 1
+
+        return try {
+            // Loaded and sent in one transaction so the templates can reach lazy registration data
+            transactionTemplate.execute {
+                val registration = registrationRepository.findById(message.registrationId!!)
+                    .orElseThrow { IllegalStateException("Registration no longer exists") }
+                when (message.type) {
+                    OutboxEmailType.REGISTRATION_CONFIRMATION ->
+                        emailNotificationService.sendRegistrationConfirmation(registration)
+                    OutboxEmailType.REGISTRATION_CANCELLATION ->
+                        emailNotificationService.sendCancellationNotification(registration, message.reason ?: "")
+                }
+            }
+            transactionTemplate.execute { emailOutboxRepository.markSent(id, LocalDateTime.now()) }
+            true
+        } catch (e: Exception) {
+            val exhausted = attempt >= maxAttempts
+            transactionTemplate.execute {
+                emailOutboxRepository.markFailedAttempt(
+                    id,
+                    if (exhausted) OutboxStatus.FAILED else OutboxStatus.PENDING,
+                    LocalDateTime.now().plus(retryDelay(attempt)),
+                    e.message?.take(MAX_ERROR_LENGTH)
+                )
+            }
+            if (exhausted) {
+                logger.error("Giving up on outbox email {} ({}) after {} attempts: {}", id, message.type, attempt, e.message)
+            } else {
+                logger.warn("Outbox email {} ({}) failed on attempt {}, retrying: {}", id, message.type, attempt, e.message)
+            }
+            false
+        }
+    }
+
+    /** Delay before retrying after the given failed attempt: the backoff doubled per attempt, capped. */
+    fun retryDelay(attempt: Int): Duration {
+        val doublings = (attempt - 1).coerceIn(0, 20)
+        return backoff.multipliedBy(1L shl doublings).coerceAtMost(MAX_BACKOFF)
+    }
+
+    companion object {
+        private const val BATCH_SIZE = 50
+        private const val MAX_ERROR_LENGTH = 1000
+
+        // Longer than any single send; an unfinished lease is retried after it
+        private val LEASE = Duration.ofMinutes(5)
+        private val MAX_BACKOFF = Duration.ofHours(1)
+    }
+}
@@ -0,0 +1,38 @@
+package com.eventr.service
+
+import com.eventr.model.EmailOutboxMessage
+import com.eventr.model.OutboxEmailType
+import com.eventr.model.Registration
+import com.eventr.repository.EmailOutboxRepository
+import org.springframework.stereotype.Service
+import org.springframework.transaction.annotation.Propagation
+import org.springframework.transaction.annotation.Transactional
+
+/**
+ * Queues registration emails in the outbox table instead of sending them
+ * inline. Callers enqueue inside the transaction that saves the registration,
+ * so the email is recorded if and only if the change commits;
+ * EmailOutboxDispatcher delivers it afterwards.
+ */
+@Service
+class EmailOutboxService(
+    private val emailOutboxRepository: EmailOutboxRepository
+) {
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    fun enqueueRegistrationConfirmation(registration: Registration): EmailOutboxMessage =
+        enqueue(OutboxEmailType.REGISTRATION_CONFIRMATION, registration, null)
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    fun enqueueCancellationNotification(registration: Registration, reason: String): EmailOutboxMessage =
+        enqueue(OutboxEmailType.REGISTRATION_CANCELLATION, registration, reason.take(MAX_REASON_LENGTH))
+
+    private fun enqueue(type: OutboxEmailType, registration: Registration, reason: String?): EmailOutboxMessage {
+        val registrationId = requireNotNull(registration.id) { "Registration must be saved" }
+        return emailOutboxRepository.save(EmailOutboxMessage(type = type, registrationId = registrationId, reason = reason))
+    }
+
+    companion object {
+        private const val MAX_REASON_LENGTH = 1000
+    }
+}
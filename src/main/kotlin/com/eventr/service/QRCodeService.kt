@@ -0,0 +1,163 @@
+package com.eventr.service
+
+import com.eventr.repository.RegistrationRepository
+import com.eventr.repository.SessionRepository
+import com.eventr.util.TokenSigner
+import com.google.zxing.BarcodeFormat
+import com.google.zxing.EncodeHintType
+import com.google.zxing.client.j2se.MatrixToImageWriter
+import com.google.zxing.qrcode.QRCodeWriter
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Service
+import java.io.ByteArrayOutputStream
+import java.nio.ByteBuffer
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneId
+import java.util.UUID
+
+/**
+ * What a check-in QR code admits: one registration, to its event or to one
+ * session of it, until it expires.
+ */
+data class QRData(
+    val registrationId: UUID,
+    val eventId: UUID,
+    val sessionId: UUID?,
+    val expiresAt: Instant
+)
+
+/**
+ * Issues and verifies check-in QR codes.
+ *
+ * A code carries its [QRData] in a few dozen bytes followed by a truncated
+ * HMAC-SHA256 of them, URL-safe Base64 encoded, so a scan is verified with
+ * the signing key alone: forged, altered and expired codes are rejected
+ * without reading the database. Codes stay valid until a while after their
+ * event ends; codes of cancelled registrations are refused at check-in,
+ * which reads the registration's status.
+ *
+ * The key is app.checkin.qr.secret, or the JWT secret when that is not set;
+ * either way it is derived for this use only, so the two never share a key.
+ */
+@Service
+class QRCodeService(
+    private val registrationRepository: RegistrationRepository,
+    private val sessionRepository: SessionRepository,
+    secret: String,
+    private val validityAfterEvent: Duration,
+    private val defaultValidity: Duration,
+    private val clock: Clock
+) {
+
+    @Autowired
+    constructor(
+        registrationRepository: RegistrationRepository,
+        sessionRepository: SessionRepository,
+        @Value("\${app.checkin.qr.secret:}") secret: String,
+        @Value("\${app.jwt.secret:}") jwtSecret: String,
+        @Value("\${app.checkin.qr.validity-after-event:PT12H}") validityAfterEvent: Duration,
+        @Value("\${app.checkin.qr.default-validity:P30D}") defaultValidity: Duration
+    ) : this(
+        registrationRepository, sessionRepository, secret.ifBlank { jwtSecret },
+        validityAfterEvent, defaultValidity, Clock.systemUTC()
+    )
+
+    private val signer: TokenSigner
+
+    init {
+        check(secret.length >= TokenSigner.MIN_SECRET_LENGTH) {
+            "QR signing needs app.checkin.qr.secret or app.jwt.secret of at least ${TokenSigner.MIN_SECRET_LENGTH} characters"
+        }
+        signer = TokenSigner(secret, KEY_PURPOSE)
+    }
+
+    /**
+     * Issues a code for the registration, to its event or to [sessionId].
+     *
+     * @throws IllegalArgumentException if the registration is unknown, or the
+     *     session is not part of its event
+     */
+    fun issue(registrationId: UUID, sessionId: UUID? = null): String {
+        val registration = registrationRepository.findAllForCheckIn(listOf(registrationId)).firstOrNull()
+            ?: throw IllegalArgumentException("Registration not found: $registrationId")
+        val event = registration.eventInstance?.event
+            ?: throw IllegalArgumentException("Registration has no event: $registrationId")
+        if (sessionId != null) {
+            val session = sessionRepository.findById(sessionId)
+                .orElseThrow { IllegalArgumentException("Session not found: $sessionId") }
+            require(session.event?.id == event.id) { "Session is not part of the registration's event" }
+        }
+        val expiresAt = (event.endDateTime ?: event.startDateTime)
+            ?.atZone(ZoneId.systemDefault())?.toInstant()?.plus(validityAfterEvent)
+            ?: clock.instant().plus(defaultValidity)
+        return encode(QRData(registrationId, event.id!!, sessionId, expiresAt))
+    }
+
+    fun encode(data: QRData): String {
+        val payload = ByteBuffer.allocate(if (data.sessionId != null) SESSION_PAYLOAD_LENGTH else EVENT_PAYLOAD_LENGTH).apply {
+            put(if (data.sessionId != null) SESSION_SCOPE else EVENT_SCOPE)
+            putUuid(data.registrationId)
+            putUuid(data.eventId)
+            data.sessionId?.let { putUuid(it) }
+            putLong(data.expiresAt.epochSecond)
+        }.array()
+        return signer.sign(payload)
+    }
+
+    /**
+     * Checks a scanned code's signature and expiry.
+     *
+     * @throws IllegalArgumentException if the code is malformed, forged or expired
+     */
+    fun verify(code: String): QRData {
+        val payload = signer.verify(code) ?: throw invalidCode()
+        val payloadLength = when (payload.first()) {
+            EVENT_SCOPE -> EVENT_PAYLOAD_LENGTH
+            SESSION_SCOPE -> SESSION_PAYLOAD_LENGTH
+            else -> throw invalidCode()
+        }
+        if (payload.size != payloadLength) throw invalidCode()
+
+        val buffer = ByteBuffer.wrap(payload, 1, payloadLength - 1)
+        val registrationId = buffer.getUuid()
+        val eventId = buffer.getUuid()
+        val sessionId = if (payload[0] == SESSION_SCOPE) buffer.getUuid() else null
+        val expiresAt = Instant.ofEpochSecond(buffer.getLong())
+        if (!clock.instant().isBefore(expiresAt)) throw IllegalArgumentException("QR code has expired")
+        return QRData(registrationId, eventId, sessionId, expiresAt)
+    }
+
+    /**
+     * Renders [code] as a PNG QR code of [size] pixels square.
+     */
+    fun render(code: String, size: Int): ByteArray {
+        val hints = mapOf(EncodeHintType.MARGIN to 1, EncodeHintType.ERROR_CORRECTION to ErrorCorrectionLevel.M)
+        val matrix = QRCodeWriter().encode(code, BarcodeFormat.QR_CODE, size, size, hints)
+        return ByteArrayOutputStream().also { MatrixToImageWriter.writeToStream(matrix, "PNG", it) }.toByteArray()
+    }
+
+    private fun invalidCode() = IllegalArgumentException("Invalid QR code")
+
+    private fun ByteBuffer.putUuid(id: UUID) {
+        putLong(id.mostSignificantBits)
+        putLong(id.leastSignificantBits)
+    }
+
+    private fun ByteBuffer.getUuid() = UUID(getLong(), getLong())
+
+    companion object {
+        private const val KEY_PURPOSE = "eventr check-in QR v1"
+
+        // Scope byte doubles as the format version
+        private const val EVENT_SCOPE: Byte = 1
+        private const val SESSION_SCOPE: Byte = 2
+
+        // scope, registration, event, [session], expiry in epoch seconds
+        private const val EVENT_PAYLOAD_LENGTH = 1 + 16 + 16 + 8
+        private const val SESSION_PAYLOAD_LENGTH = EVENT_PAYLOAD_LENGTH + 16
+    }
+}
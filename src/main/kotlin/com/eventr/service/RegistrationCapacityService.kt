@@ -0,0 +1,200 @@
+package com.eventr.service
+
+import com.eventr.exception.BusinessRuleException
+import com.eventr.model.Event
+import com.eventr.model.EventInstance
+import com.eventr.model.RegistrationStatus
+import com.eventr.repository.RegistrationCapacityRepository
+import com.eventr.repository.RegistrationRepository
+import org.slf4j.LoggerFactory
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.scheduling.annotation.Scheduled
+import org.springframework.stereotype.Service
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.TransactionDefinition
+import org.springframework.transaction.support.TransactionTemplate
+import java.util.UUID
+
+/**
+ * Outcome of asking for a seat on an event instance.
+ */
+enum class SeatReservation {
+    RESERVED,
+    WAITLISTED
+}
+
+/**
+ * Enforces event capacity for registrations.
+ *
+ * Each event instance has a counter row of reserved seats. A seat is taken
+ * by a single conditional UPDATE that only succeeds while the counter is
+ * below the limit, so the check cannot race with other registrations. Every
+ * reservation and release commits in its own short transaction: the counter
+ * row is locked for one statement rather than for the whole registration,
+ * which keeps a burst of registrations for one instance from queueing on it.
+ *
+ * The limit is the smaller of the event's capacity and maxRegistrations and
+ * applies to each instance of the event.
+ *
+ * A seat is reserved before its registration is inserted, so a process that
+ * dies in between leaves the seat taken; [reconcile] periodically hands such
+ * seats back.
+ */
+@Service
+class RegistrationCapacityService(
+    private val capacityRepository: RegistrationCapacityRepository,
+    private val registrationRepository: RegistrationRepository,
+    transactionManager: PlatformTransactionManager
+) {
+
+    private val logger = LoggerFactory.getLogger(RegistrationCapacityService::class.java)
+
+    // Seats each counter was ahead of its registrations by on the previous reconciliation
+    @Volatile
+    private var previousExcess: Map<UUID, Int> = emptyMap()
+
+    private val ownTransaction = TransactionTemplate(transactionManager).apply {
+        propagationBehavior = TransactionDefinition.PROPAGATION_REQUIRES_NEW
+    }
+
+    /**
+     * Reserves [seats] for new registrations on [instance], or places them on
+     * the waitlist when the instance is full and the event has one.
+     *
+     * @throws BusinessRuleException if the instance is full and the event has no waitlist
+     */
+    fun reserve(instance: EventInstance, seats: Int = 1): SeatReservation {
+        if (tryReserve(instance, seats)) return SeatReservation.RESERVED
+        if (instance.event?.waitlistEnabled == true) return SeatReservation.WAITLISTED
+        throw BusinessRuleException("Event is full", "EVENT_FULL")
+    }
+
+    /**
+     * Reserves [seats] on [instance] if they fit.
+     *
+     * @return false if the instance does not have that many seats left
+     */
+    fun tryReserve(instance: EventInstance, seats: Int = 1): Boolean {
+        val instanceId = requireNotNull(instance.id) { "Event instance must be saved" }
+        require(seats > 0) { "seats must be positive" }
+        val limit = seatLimit(instance.event)
+
+        if (update { capacityRepository.tryReserve(instanceId, seats, limit) } > 0) return true
+
+        // Refused because the instance is full, unless its counter did not exist
+        // yet or another registration has only just created it
+        val reservedSeats = capacityRepository.findReservedSeats(instanceId)
+        if (reservedSeats != null && reservedSeats > limit - seats) return false
+        if (reservedSeats == null) createCounter(instanceId)
+        return update { capacityRepository.tryReserve(instanceId, seats, limit) } > 0
+    }
+
+    /**
+     * Reserves as many of [seats] as are left on [instance] and returns how
+     * many were reserved. After a refusal the request shrinks to the seats
+     * the counter still has, so a full instance costs one more read rather
+     * than a retry per halving.
+     */
+    fun reserveUpTo(instance: EventInstance, seats: Int): Int {
+        val instanceId = requireNotNull(instance.id) { "Event instance must be saved" }
+        val limit = seatLimit(instance.event)
+        var reserved = 0
+        var request = seats
+        while (request > 0) {
+            if (tryReserve(instance, request)) {
+                reserved += request
+                request = seats - reserved
+            } else {
+                // Strictly smaller, as other registrations may take the seats left first
+                val left = capacityRepository.findReservedSeats(instanceId)?.let { limit - it } ?: 0
+                request = minOf(request - 1, left)
+            }
+        }
+        return reserved
+    }
+
+    /**
+     * Returns [seats] on the instance, e.g. after a cancellation or a failed
+     * registration insert.
+     */
+    fun release(instanceId: UUID, seats: Int = 1) {
+        if (seats <= 0) return
+        update { capacityRepository.release(instanceId, seats) }
+    }
+
+    /**
+     * Brings every counter back in line with the seats its registrations
+     * hold. A registration still being inserted puts its counter ahead for a
+     * moment, whereas one that was never inserted does so for good, so only
+     * excess already seen on the previous run is released. A counter behind
+     * its registrations could oversell and is raised straight away. Each
+     * correction applies only if the counter has not moved since it was read.
+     *
+     * @return the number of counters corrected
+     */
+    @Scheduled(
+        initialDelayString = "\${app.registration.capacity-reconcile-interval:PT10M}",
+        fixedDelayString = "\${app.registration.capacity-reconcile-interval:PT10M}"
+    )
+    fun reconcile(): Int {
+        // Counters are read first: a registration or cancellation landing between
+        // the two reads then errs towards too many reserved seats, never too few
+        val counters = capacityRepository.findAll()
+        val held = registrationRepository.countByInstanceAndStatus(null)
+            .filter { it[1] in SEAT_HOLDING_STATUSES }
+            .groupingBy { it[0] as UUID }
+            .fold(0) { total, row -> total + (row[2] as Number).toInt() }
+
+        val excess = HashMap<UUID, Int>()
+        var corrected = 0
+        counters.forEach { counter ->
+            val instanceId = counter.eventInstanceId!!
+            val ahead = counter.reservedSeats - (held[instanceId] ?: 0)
+            val delta = when {
+                ahead < 0 -> -ahead
+                else -> -minOf(ahead, previousExcess[instanceId] ?: 0)
+            }
+            if (delta != 0 && update { capacityRepository.adjustIfUnchanged(instanceId, counter.reservedSeats, delta) } > 0) {
+                corrected++
+                if (ahead + delta > 0) excess[instanceId] = ahead + delta
+            } else if (ahead > 0) {
+                excess[instanceId] = ahead
+            }
+        }
+        previousExcess = excess
+        if (corrected > 0) logger.warn("Corrected {} registration capacity counters out of line with their registrations", corrected)
+        return corrected
+    }
+
+    /**
+     * Creates the counter row, starting from the seats already held, unless
+     * it already exists.
+     */
+    private fun createCounter(instanceId: UUID) {
+        try {
+            ownTransaction.executeWithoutResult {
+                if (!capacityRepository.existsById(instanceId)) {
+                    val held = registrationRepository.countByEventInstanceIdAndStatusIn(instanceId, SEAT_HOLDING_STATUSES)
+                    capacityRepository.insertCounter(instanceId, held.toInt())
+                    logger.debug("Created capacity counter for instance {} with {} seats held", instanceId, held)
+                }
+            }
+        } catch (e: DataIntegrityViolationException) {
+            // Another registration created it first
+        }
+    }
+
+    private fun update(statement: () -> Int): Int = ownTransaction.execute { statement() } ?: 0
+
+    companion object {
+        /** Registration states that occupy a seat. */
+        val SEAT_HOLDING_STATUSES = setOf(
+            RegistrationStatus.REGISTERED,
+            RegistrationStatus.CHECKED_IN,
+            RegistrationStatus.NO_SHOW
+        )
+
+        fun seatLimit(event: Event?): Int =
+            listOfNotNull(event?.capacity, event?.maxRegistrations).minOrNull() ?: Int.MAX_VALUE
+    }
+}
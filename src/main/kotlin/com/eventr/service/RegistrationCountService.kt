@@ -0,0 +1,126 @@
+package com.eventr.service
+
+import com.eventr.model.RegistrationStatus
+import com.eventr.modules.registration.events.RegistrationStatusChanged
+import com.eventr.repository.EventInstanceRepository
+import com.eventr.repository.RegistrationRepository
+import org.slf4j.LoggerFactory
+import org.springframework.boot.context.event.ApplicationReadyEvent
+import org.springframework.context.event.EventListener
+import org.springframework.scheduling.annotation.Scheduled
+import org.springframework.stereotype.Service
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.annotation.Propagation
+import org.springframework.transaction.annotation.Transactional
+import org.springframework.transaction.support.TransactionTemplate
+import java.util.EnumMap
+import java.util.UUID
+
+/**
+ * Maintains the per-status registration counters on each event instance.
+ *
+ * Every RegistrationStatusChanged event is applied as one UPDATE of the
+ * instance's counters inside the transaction that changed the registrations,
+ * so counters and registrations commit together. Changes made without an
+ * event (fixtures, manual SQL, deletions) are repaired by [reconcile], which
+ * runs at startup and periodically and only rewrites instances whose counters
+ * have drifted.
+ */
+@Service
+class RegistrationCountService(
+    private val eventInstanceRepository: EventInstanceRepository,
+    private val registrationRepository: RegistrationRepository,
+    transactionManager: PlatformTransactionManager
+) {
+
+    private val logger = LoggerFactory.getLogger(RegistrationCountService::class.java)
+
+    private val transactionTemplate = TransactionTemplate(transactionManager)
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    fun onStatusChanged(event: RegistrationStatusChanged) {
+        if (event.count == 0 || event.fromStatus == event.toStatus) return
+        val delta = EnumMap<RegistrationStatus, Int>(RegistrationStatus::class.java)
+        event.fromStatus?.let { delta[it] = -event.count }
+        delta[event.toStatus] = event.count
+        adjust(event.aggregateId, delta)
+    }
+
+    @EventListener(ApplicationReadyEvent::class)
+    fun reconcileOnStartup() {
+        reconcile()
+    }
+
+    /**
+     * Compares every instance's counters with the registrations table and
+     * corrects those that differ.
+     *
+     * @return the number of instances corrected
+     */
+    @Scheduled(
+        initialDelayString = "\${app.registration-counts.reconcile-interval:PT1H}",
+        fixedDelayString = "\${app.registration-counts.reconcile-interval:PT1H}"
+    )
+    fun reconcile(): Int {
+        val actual = countsByInstance(null)
+        val drifted = eventInstanceRepository.findAllRegistrationCounts().mapNotNull { row ->
+            val instanceId = row[0] as UUID
+            val stored = STATUSES.withIndex().associate { (i, status) -> status to (row[i + 1] as Number).toInt() }
+            instanceId.takeIf { stored != actual[instanceId] ?: ZERO }
+        }
+        drifted.forEach { reconcileInstance(it) }
+        if (drifted.isNotEmpty()) {
+            logger.warn("Corrected drifted registration counters on {} event instances", drifted.size)
+        }
+        return drifted.size
+    }
+
+    // Locks the counters before counting, so registrations committing meanwhile
+    // either are counted or apply their delta after the reset
+    private fun reconcileInstance(instanceId: UUID) {
+        transactionTemplate.executeWithoutResult {
+            adjust(instanceId, emptyMap())
+            val counts = countsByInstance(instanceId)[instanceId] ?: ZERO
+            eventInstanceRepository.setRegistrationCounts(
+                instanceId,
+                counts.getValue(RegistrationStatus.REGISTERED),
+                counts.getValue(RegistrationStatus.WAITLISTED),
+                counts.getValue(RegistrationStatus.CHECKED_IN),
+                counts.getValue(RegistrationStatus.NO_SHOW),
+                counts.getValue(RegistrationStatus.CANCELLED)
+            )
+        }
+    }
+
+    private fun adjust(instanceId: UUID, delta: Map<RegistrationStatus, Int>) {
+        eventInstanceRepository.adjustRegistrationCounts(
+            instanceId,
+            delta[RegistrationStatus.REGISTERED] ?: 0,
+            delta[RegistrationStatus.WAITLISTED] ?: 0,
+            delta[RegistrationStatus.CHECKED_IN] ?: 0,
+            delta[RegistrationStatus.NO_SHOW] ?: 0,
+            delta[RegistrationStatus.CANCELLED] ?: 0
+        )
+    }
+
+    private fun countsByInstance(instanceId: UUID?): Map<UUID, Map<RegistrationStatus, Int>> =
+        registrationRepository.countByInstanceAndStatus(instanceId)
+            .filter { it[1] != null }
+            .groupBy { it[0] as UUID }
+            .mapValues { (_, rows) ->
+                ZERO + rows.associate { it[1] as RegistrationStatus to (it[2] as Number).toInt() }
+            }
+
+    companion object {
+        private val STATUSES = listOf(
+            RegistrationStatus.REGISTERED,
+            RegistrationStatus.WAITLISTED,
+            RegistrationStatus.CHECKED_IN,
+            RegistrationStatus.NO_SHOW,
+            RegistrationStatus.CANCELLED
+        )
+
+        private val ZERO = STATUSES.associateWith { 0 }
+    }
+}
@@ -0,0 +1,312 @@
+package com.eventr.service
+
+import com.eventr.dto.RegistrationImportErrorDto
+import com.eventr.dto.RegistrationImportResultDto
+import com.eventr.exception.EntityNotFoundException
+import com.eventr.model.EventInstance
+import com.eventr.model.Registration
+import com.eventr.model.RegistrationStatus
+import com.eventr.model.User
+import com.eventr.modules.registration.events.RegistrationStatusChanged
+import com.eventr.repository.EventInstanceRepository
+import com.eventr.repository.RegistrationRepository
+import com.eventr.repository.UserRepository
+import com.eventr.shared.event.EventPublisher
+import com.eventr.util.CsvReader
+import com.fasterxml.jackson.databind.ObjectMapper
+import jakarta.persistence.EntityManager
+import org.slf4j.LoggerFactory
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.stereotype.Service
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+import java.io.BufferedReader
+import java.io.InputStream
+import java.io.InputStreamReader
+import java.nio.charset.StandardCharsets
+import java.util.UUID
+
+/**
+ * File formats accepted by the registration import.
+ */
+enum class RegistrationImportFormat {
+    /** Header row naming the columns; email is required, name optional, other columns become form data. */
+    CSV,
+
+    /** One JSON object per line with email, optional name and optional formData. */
+    JSONL;
+
+    companion object {
+        fun of(format: String?, filename: String?): RegistrationImportFormat {
+            val name = format?.trim()?.uppercase()
+                ?: filename?.substringAfterLast('.', "")?.uppercase()?.let { if (it == "NDJSON") "JSONL" else it }
+            return entries.firstOrNull { it.name == name }
+                ?: throw IllegalArgumentException("Unsupported import format: ${format ?: filename}; expected csv or jsonl")
+        }
+    }
+}
+
+/**
+ * Imports registrations for an event instance from a CSV or JSONL file.
+ *
+ * The file is read as a stream and handled in chunks: each chunk is
+ * validated, checked against existing registrations and users with at most
+ * one query each (emails the duplicate filter has never seen are not looked
+ * up), given seats through RegistrationCapacityService, and inserted in one
+ * transaction with batched inserts. The persistence context is cleared after
+ * every chunk, so memory stays flat however long the file is. A chunk whose
+ * insert fails is retried one row at a time. Rows that cannot be imported are
+ * reported by row number and do not stop the import.
+ */
+@Service
+class RegistrationImportService(
+    private val eventInstanceRepository: EventInstanceRepository,
+    private val registrationRepository: RegistrationRepository,
+    private val userRepository: UserRepository,
+    private val registrationCapacityService: RegistrationCapacityService,
+    private val emailOutboxService: EmailOutboxService,
+    private val duplicateRegistrationGuard: DuplicateRegistrationGuard,
+    private val eventPublisher: EventPublisher,
+    private val entityManager: EntityManager,
+    private val objectMapper: ObjectMapper,
+    transactionManager: PlatformTransactionManager
+) {
+
+    private val logger = LoggerFactory.getLogger(RegistrationImportService::class.java)
+
+    private val transactionTemplate = TransactionTemplate(transactionManager)
+
+    private class ImportRow(val row: Int, val email: String?, val name: String?, val formData: String?, val error: String? = null) {
+        val key: String get() = email!!.lowercase()
+    }
+
+    private class ImportReport {
+        var totalRows = 0
+        var registered = 0
+        var waitlisted = 0
+        var failed = 0
+        val errors = ArrayList<RegistrationImportErrorDto>()
+
+        fun reject(row: ImportRow, message: String) = reject(row.row, row.email, message)
+
+        fun reject(row: Int, email: String?, message: String) {
+            failed++
+            if (errors.size < MAX_REPORTED_ERRORS) errors += RegistrationImportErrorDto(row, email, message)
+        }
+
+        fun toDto() = RegistrationImportResultDto(totalRows, registered, waitlisted, failed, errors.sortedBy { it.row }, failed > errors.size)
+    }
+
+    /**
+     * Imports every row of [input] as a registration on the instance.
+     * Registrants that get a seat are sent a confirmation through the email
+     * outbox when [sendConfirmations] is set.
+     *
+     * @throws EntityNotFoundException if the instance does not exist
+     * @throws IllegalArgumentException if the file cannot be read as [format]
+     */
+    fun import(
+        eventInstanceId: UUID,
+        input: InputStream,
+        format: RegistrationImportFormat,
+        sendConfirmations: Boolean = true
+    ): RegistrationImportResultDto {
+        val instance = eventInstanceRepository.findById(eventInstanceId)
+            .orElseThrow { EntityNotFoundException("EventInstance", eventInstanceId) }
+        val report = ImportReport()
+
+        BufferedReader(InputStreamReader(input, StandardCharsets.UTF_8)).use { reader ->
+            val rows = when (format) {
+                RegistrationImportFormat.CSV -> csvRows(reader)
+                RegistrationImportFormat.JSONL -> jsonlRows(reader)
+            }
+            rows.chunked(CHUNK_SIZE).forEach { chunk ->
+                report.totalRows += chunk.size
+                importChunk(instance, chunk, sendConfirmations, report)
+            }
+        }
+
+        logger.info("Imported registrations for instance {}: {} registered, {} waitlisted, {} failed of {} rows",
+            eventInstanceId, report.registered, report.waitlisted, report.failed, report.totalRows)
+        return report.toDto()
+    }
+
+    private fun importChunk(instance: EventInstance, chunk: List<ImportRow>, sendConfirmations: Boolean, report: ImportReport) {
+        val candidates = chunk.filter { row ->
+            val error = row.error ?: validate(row)
+            error?.let { report.reject(row, it) }
+            error == null
+        }
+        if (candidates.isEmpty()) return
+
+        val instanceId = instance.id!!
+        val keys = candidates.map { it.key }.toSet()
+        // Only emails the duplicate filter has seen need checking against the database
+        val possiblyRegistered = duplicateRegistrationGuard.possiblyRegistered(instanceId, keys)
+        val alreadyRegistered = if (possiblyRegistered.isEmpty()) {
+            emptySet()
+        } else {
+            registrationRepository.findRegisteredEmails(instanceId, possiblyRegistered).toSet()
+        }
+        val seen = HashSet<String>()
+        val accepted = candidates.filter { row ->
+            when {
+                row.key in alreadyRegistered -> report.reject(row, "Already registered for this event")
+                !seen.add(row.key) -> report.reject(row, "Duplicate email in file")
+                else -> return@filter true
+            }
+            false
+        }
+        if (accepted.isEmpty()) return
+
+        val usersByEmail = userRepository.findByEmailKeyIn(accepted.map { it.key })
+            .associateBy { it.emailKey!! }
+
+        val failure = register(instance, accepted, usersByEmail, sendConfirmations, report) ?: return
+        logger.warn("Registration import chunk for instance {} failed, retrying row by row: {}", instance.id, failure.message)
+        // The chunk is retried one row per transaction, so only the rows that cannot be saved are rejected
+        accepted.forEach { row ->
+            val e = register(instance, listOf(row), usersByEmail, sendConfirmations, report) ?: return@forEach
+            val duplicate = e is DataIntegrityViolationException && duplicateRegistrationGuard.isDuplicate(e)
+            report.reject(row, if (duplicate) "Already registered for this event" else "Could not be saved")
+        }
+    }
+
+    /**
+     * Gives the rows seats and inserts them in one transaction. If the insert
+     * fails, the seats are handed back, nothing is reported and the failure is
+     * returned.
+     */
+    private fun register(
+        instance: EventInstance,
+        rows: List<ImportRow>,
+        usersByEmail: Map<String, User>,
+        sendConfirmations: Boolean,
+        report: ImportReport
+    ): Exception? {
+        val instanceId = instance.id!!
+        val seats = registrationCapacityService.reserveUpTo(instance, rows.size)
+        val waitlist = instance.event?.waitlistEnabled == true
+        val statuses = rows.indices.map { index ->
+            when {
+                index < seats -> RegistrationStatus.REGISTERED
+                waitlist -> RegistrationStatus.WAITLISTED
+                else -> null
+            }
+        }
+        val registrations = rows.zip(statuses).mapNotNull { (row, status) ->
+            status ?: return@mapNotNull null
+            val user = usersByEmail[row.key]
+            Registration(
+                eventInstance = instance,
+                user = user,
+                userEmail = user?.email ?: row.email,
+                userName = row.name ?: user?.let { "${it.firstName} ${it.lastName}" },
+                status = status,
+                formData = row.formData
+            )
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult {
+                registrationRepository.saveAll(registrations)
+                registrations.groupBy { it.status!! }.forEach { (status, saved) ->
+                    eventPublisher.publish(RegistrationStatusChanged(instanceId, null, status, saved.map { it.id!! }))
+                }
+                if (sendConfirmations) {
+                    registrations
+                        .filter { it.status == RegistrationStatus.REGISTERED }
+                        .forEach { emailOutboxService.enqueueRegistrationConfirmation(it) }
+                }
+                // Flushed through the repository so constraint violations surface translated;
+                // clearing keeps the persistence context from growing across chunks
+                registrationRepository.flush()
+                entityManager.clear()
+            }
+        } catch (e: Exception) {
+            if (seats > 0) registrationCapacityService.release(instanceId, seats)
+            return e
+        }
+        rows.zip(statuses).filter { it.second == null }.forEach { (row, _) -> report.reject(row, "Event is full") }
+        duplicateRegistrationGuard.recordRegistered(instanceId, registrations.map { it.userEmail })
+        report.registered += registrations.count { it.status == RegistrationStatus.REGISTERED }
+        report.waitlisted += registrations.count { it.status == RegistrationStatus.WAITLISTED }
+        return null
+    }
+
+    private fun validate(row: ImportRow): String? = when {
+        row.email.isNullOrBlank() -> "Email is required"
+        !EMAIL.matches(row.email) -> "Invalid email address"
+        row.email.length > MAX_FIELD_LENGTH -> "Email is too long"
+        (row.name?.length ?: 0) > MAX_FIELD_LENGTH -> "Name is too long"
+        else -> null
+    }
+
+    private fun csvRows(reader: BufferedReader): Sequence<ImportRow> {
+        val csv = CsvReader(reader)
+        val header = csv.readRecord()?.map { it.trim().lowercase() } ?: return emptySequence()
+        val emailColumn = header.indexOfFirst { it in EMAIL_COLUMNS }
+        if (emailColumn < 0) throw IllegalArgumentException("CSV header must have an email column")
+        val nameColumn = header.indexOfFirst { it in NAME_COLUMNS }
+        val formColumns = header.indices.filter { it != emailColumn && it != nameColumn && header[it].isNotEmpty() }
+
+        var broken = false
+        return generateSequence {
+            if (broken) return@generateSequence null
+            try {
+                csv.readRecord()?.let { fields ->
+                    val formData = formColumns
+                        .mapNotNull { i -> fields.getOrNull(i)?.takeIf { it.isNotEmpty() }?.let { header[i] to it } }
+                        .takeIf { it.isNotEmpty() }
+                        ?.let { objectMapper.writeValueAsString(it.toMap()) }
+                    ImportRow(
+                        row = csv.recordLine,
+                        email = fields.getOrNull(emailColumn)?.trim(),
+                        name = fields.getOrNull(nameColumn)?.trim()?.takeIf { it.isNotEmpty() },
+                        formData = formData
+                    )
+                }
+            } catch (e: IllegalArgumentException) {
+                // An unterminated quote runs to the end of the file
+                broken = true
+                ImportRow(csv.recordLine, null, null, null, e.message)
+            }
+        }
+    }
+
+    private fun jsonlRows(reader: BufferedReader): Sequence<ImportRow> =
+        reader.lineSequence()
+            .mapIndexed { index, line -> index + 1 to line }
+            .filter { (_, line) -> line.isNotBlank() }
+            .map { (row, line) ->
+                try {
+                    val node = objectMapper.readTree(line)
+                    if (!node.isObject) {
+                        ImportRow(row, null, null, null, "Line is not a JSON object")
+                    } else {
+                        val formData = node.get("formData")?.takeUnless { it.isNull }
+                            ?.let { if (it.isTextual) it.asText() else it.toString() }
+                        ImportRow(
+                            row = row,
+                            email = node.get("email")?.takeIf { it.isTextual }?.asText()?.trim(),
+                            name = node.get("name")?.takeIf { it.isTextual }?.asText()?.trim()?.takeIf { it.isNotEmpty() },
+                            formData = formData
+                        )
+                    }
+                } catch (e: Exception) {
+                    ImportRow(row, null, null, null, "Invalid JSON")
+                }
+            }
+
+    companion object {
+        /** Rows validated, checked and inserted together in one transaction. */
+        const val CHUNK_SIZE = 500
+
+        private const val MAX_REPORTED_ERRORS = 1000
+        private const val MAX_FIELD_LENGTH = 255
+
+        private val EMAIL = Regex("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$")
+        private val EMAIL_COLUMNS = setOf("email", "useremail", "user_email")
+        private val NAME_COLUMNS = setOf("name", "username", "user_name")
+    }
+}
@@ -1,9 +1,13 @@
 package com.eventr.service
+import com.eventr.exception.BusinessRuleException
 import com.eventr.model.Session
+import com.eventr.model.SessionRegistrationStatus
 import com.eventr.model.SessionType
 import com.eventr.repository.SessionRepository
 import com.eventr.repository.EventRepository
 import com.eventr.repository.SessionRegistrationRepository
+import com.eventr.modules.registration.events.SessionAvailabilityChanged
+import com.eventr.shared.event.EventPublisher
 import org.springframework.stereotype.Service
 import java.time.LocalDateTime
 import java.time.format.DateTimeFormatter
@@ -13,7 +17,8 @@ import java.util.*
 class SessionService(
     private val sessionRepository: SessionRepository,
     private val eventRepository: EventRepository,
-    private val sessionRegistrationRepository: SessionRegistrationRepository
+    private val sessionRegistrationRepository: SessionRegistrationRepository,
+    private val eventPublisher: EventPublisher
 ) {
 
 
@@ -21,6 +26,18 @@ class SessionService(
         return sessionRepository.findByEventIdAndIsActiveTrue(eventId).map { it.toDto() }
     }
 
+    /**
+     * Returns what the session's representation is derived from, without
+     * loading the session, so callers can answer conditional GETs cheaply.
+     */
+    fun getSessionVersion(id: UUID): SessionVersionDto? {
+        return sessionRepository.findVersionById(id, SessionRegistrationStatus.REGISTERED)
+    }
+
+    fun getSessionVersionsByEvent(eventId: UUID): List<SessionVersionDto> {
+        return sessionRepository.findActiveVersionsByEventId(eventId, SessionRegistrationStatus.REGISTERED)
+    }
+
     fun getSessionById(id: UUID): SessionDto? {
         return sessionRepository.findById(id).orElse(null)?.toDto()
     }
@@ -50,6 +67,7 @@ class SessionService(
 
     fun updateSession(id: UUID, updateDto: UpdateSessionDto): SessionDto? {
         val session = sessionRepository.findById(id).orElse(null) ?: return null
+        val previousCapacity = session.capacity
         
         updateDto.title?.let { session.title = it }
         updateDto.description?.let { session.description = it }
@@ -65,7 +83,11 @@ class SessionService(
         updateDto.materials?.let { session.materialUrl = it.joinToString("; ") }
         session.updatedAt = LocalDateTime.now()
         
-        return sessionRepository.save(session).toDto()
+        val saved = sessionRepository.save(session)
+        if (previousCapacity != null && (saved.capacity ?: Int.MAX_VALUE) > previousCapacity) {
+            eventPublisher.publish(SessionAvailabilityChanged(id, "Capacity raised"))
+        }
+        return saved.toDto()
     }
 
     fun deleteSession(id: UUID): Boolean {
@@ -76,6 +98,30 @@ class SessionService(
         return true
     }
 
+    /**
+     * Cancels a registered or waitlisted attendee's place in a session; a freed
+     * seat goes to the head of the waitlist.
+     *
+     * @return false if there is no such session registration
+     */
+    fun cancelSessionRegistration(sessionRegistrationId: UUID): Boolean {
+        val sessionRegistration = sessionRegistrationRepository.findById(sessionRegistrationId).orElse(null) ?: return false
+        when (sessionRegistration.status) {
+            SessionRegistrationStatus.CANCELLED -> return true
+            SessionRegistrationStatus.REGISTERED, SessionRegistrationStatus.WAITLIST -> Unit
+            else -> throw BusinessRuleException("Session registration can no longer be cancelled", "SESSION_REGISTRATION_CLOSED")
+        }
+        
+        val now = LocalDateTime.now()
+        sessionRegistration.status = SessionRegistrationStatus.CANCELLED
+        sessionRegistration.waitlistPosition = null
+        sessionRegistration.cancelledAt = now
+        sessionRegistration.updatedAt = now
+        sessionRegistrationRepository.save(sessionRegistration)
+        eventPublisher.publish(SessionAvailabilityChanged(sessionRegistration.session!!.id!!, "Session registration cancelled"))
+        return true
+    }
+
     fun getSessionAttendees(sessionId: UUID): List<AttendeeDto> {
         val sessionRegistrations = sessionRegistrationRepository.findBySessionIdOrderByRegisteredAtAsc(sessionId)
         return sessionRegistrations.map { sessionReg ->
@@ -137,6 +183,12 @@ data class SessionDto(
     val updatedAt: String
 )
 
+data class SessionVersionDto(
+    val id: UUID,
+    val version: Long,
+    val attendeeCount: Long
+)
+
 data class CreateSessionDto(
     val eventId: UUID,
     val title: String,
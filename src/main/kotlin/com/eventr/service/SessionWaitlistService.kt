@@ -0,0 +1,154 @@
+package com.eventr.service
+
+import com.eventr.model.RegistrationStatus
+import com.eventr.model.SessionRegistrationStatus
+import com.eventr.modules.registration.events.RegistrationStatusChanged
+import com.eventr.modules.registration.events.SessionAvailabilityChanged
+import com.eventr.repository.SessionRegistrationRepository
+import com.eventr.repository.SessionRepository
+import com.eventr.shared.event.EventPublisher
+import org.slf4j.LoggerFactory
+import org.springframework.context.event.EventListener
+import org.springframework.data.domain.PageRequest
+import org.springframework.scheduling.annotation.Scheduled
+import org.springframework.stereotype.Service
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.TransactionDefinition
+import org.springframework.transaction.annotation.Propagation
+import org.springframework.transaction.annotation.Transactional
+import org.springframework.transaction.event.TransactionalEventListener
+import org.springframework.transaction.support.TransactionTemplate
+import java.time.LocalDateTime
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Promotes session waitlists onto seats as they free up.
+ *
+ * A promotion pass locks one session row, moves as many entries from the
+ * head of its waitlist to REGISTERED as there are free seats with a single
+ * UPDATE, and renumbers the rest of the waitlist with another, all in one
+ * transaction. Passes run once the change that freed the seats has
+ * committed. Requests for a session that arrive while a pass for it is
+ * running are folded into one more pass by the thread already running it,
+ * so a burst of cancellations does not queue on the session lock; sessions
+ * never wait on each other. A periodic sweep picks up anything missed.
+ */
+@Service
+class SessionWaitlistService(
+    private val sessionRepository: SessionRepository,
+    private val sessionRegistrationRepository: SessionRegistrationRepository,
+    private val eventPublisher: EventPublisher,
+    transactionManager: PlatformTransactionManager
+) {
+
+    private val logger = LoggerFactory.getLogger(SessionWaitlistService::class.java)
+
+    // Passes run from after-commit callbacks, where joining the finished transaction would never commit
+    private val transactionTemplate = TransactionTemplate(transactionManager).apply {
+        propagationBehavior = TransactionDefinition.PROPAGATION_REQUIRES_NEW
+    }
+
+    // Session id -> promotion requests not yet covered by a pass; present while a pass is running
+    private val requests = ConcurrentHashMap<UUID, AtomicInteger>()
+
+    @TransactionalEventListener(fallbackExecution = true)
+    fun onAvailabilityChanged(event: SessionAvailabilityChanged) {
+        requestPromotion(event.aggregateId)
+    }
+
+    /**
+     * Cancels the session registrations of cancelled event registrations, in
+     * the transaction that cancelled them.
+     */
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    fun onRegistrationsChanged(event: RegistrationStatusChanged) {
+        if (event.toStatus != RegistrationStatus.CANCELLED || event.registrationIds.isEmpty()) return
+        val sessionIds = sessionRegistrationRepository.findSessionIdsByRegistrationIds(event.registrationIds, CANCELLABLE)
+        if (sessionIds.isEmpty()) return
+        sessionRegistrationRepository.cancelByRegistrationIds(event.registrationIds, CANCELLABLE, LocalDateTime.now())
+        sessionIds.forEach { eventPublisher.publish(SessionAvailabilityChanged(it, "Registration cancelled")) }
+    }
+
+    /**
+     * Runs a promotion pass for the session, unless one is already running,
+     * in which case that pass is repeated once it finishes.
+     */
+    fun requestPromotion(sessionId: UUID) {
+        val pending = requests.computeIfAbsent(sessionId) { AtomicInteger() }
+        if (pending.getAndIncrement() > 0) return
+
+        var handled = pending.get()
+        while (true) {
+            try {
+                do {
+                    val promoted = promote(sessionId)
+                } while (promoted == MAX_PROMOTIONS_PER_PASS)
+            } catch (e: Exception) {
+                logger.warn("Waitlist promotion for session {} failed: {}", sessionId, e.message)
+            }
+            val remaining = pending.addAndGet(-handled)
+            if (remaining == 0) break
+            handled = remaining
+        }
+        // A request racing this removal starts its own pass, which is still safe behind the session lock
+        requests.remove(sessionId, pending)
+    }
+
+    /**
+     * Promotes the head of the session's waitlist onto its free seats and
+     * renumbers the remaining entries if promotions or cancellations left
+     * gaps in their positions.
+     *
+     * @return the number of entries promoted
+     */
+    fun promote(sessionId: UUID): Int = transactionTemplate.execute {
+        val session = sessionRepository.findByIdForUpdate(sessionId) ?: return@execute 0
+        val held = SEAT_HOLDING_STATUSES.sumOf { sessionRegistrationRepository.countBySessionIdAndStatus(sessionId, it) }
+        val freeSeats = when {
+            !session.isActive -> 0
+            session.capacity == null -> Int.MAX_VALUE
+            else -> (session.capacity!! - held).coerceAtLeast(0).toInt()
+        }
+
+        var promoted = 0
+        if (freeSeats > 0) {
+            val head = sessionRegistrationRepository.findWaitlistHeadIds(sessionId, PageRequest.of(0, minOf(freeSeats, MAX_PROMOTIONS_PER_PASS)))
+            if (head.isNotEmpty()) {
+                promoted = sessionRegistrationRepository.promoteFromWaitlist(head, LocalDateTime.now())
+            }
+        }
+        // Only promotions, cancellations and new entries disturb the numbering
+        if (promoted > 0 || sessionRegistrationRepository.isWaitlistUnnumbered(sessionId)) {
+            sessionRegistrationRepository.renumberWaitlist(sessionId)
+        }
+        if (promoted > 0) {
+            logger.info("Promoted {} waitlisted registrations on session {}", promoted, sessionId)
+        }
+        promoted
+    } ?: 0
+
+    /**
+     * Runs a pass for every active session that has both a waitlist and free
+     * seats.
+     */
+    @Scheduled(
+        initialDelayString = "\${app.session-waitlist.sweep-interval:PT5M}",
+        fixedDelayString = "\${app.session-waitlist.sweep-interval:PT5M}"
+    )
+    fun promoteAll() {
+        sessionRepository.findIdsWithPromotableWaitlist(SEAT_HOLDING_STATUSES).forEach { requestPromotion(it) }
+    }
+
+    companion object {
+        /** Session registration states that occupy a seat. */
+        val SEAT_HOLDING_STATUSES = listOf(SessionRegistrationStatus.REGISTERED, SessionRegistrationStatus.ATTENDED)
+
+        private val CANCELLABLE = listOf(SessionRegistrationStatus.REGISTERED, SessionRegistrationStatus.WAITLIST)
+
+        // Keeps the IN list of one promotion UPDATE bounded; larger openings take further passes
+        private const val MAX_PROMOTIONS_PER_PASS = 1000
+    }
+}
@@ -0,0 +1,339 @@
+package com.eventr.service
+
+import com.eventr.dto.WaitingRoomStatusDto
+import com.eventr.dto.WaitingRoomTicketDto
+import com.eventr.exception.BusinessRuleException
+import com.eventr.exception.EntityNotFoundException
+import com.eventr.exception.RateLimitException
+import com.eventr.model.WaitingRoom
+import com.eventr.repository.WaitingRoomAdmissionRepository
+import com.eventr.repository.WaitingRoomRepository
+import com.eventr.util.TokenSigner
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.scheduling.annotation.Scheduled
+import org.springframework.stereotype.Service
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.TransactionDefinition
+import org.springframework.transaction.support.TransactionTemplate
+import java.nio.ByteBuffer
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+import kotlin.math.ceil
+import kotlin.math.floor
+import kotlin.math.min
+
+/**
+ * Admission control for registration openings that draw more people than the
+ * registration path should serve at once.
+ *
+ * An organizer opens a waiting room for an event instance. Visitors take a
+ * ticket and wait in FIFO order; tickets are admitted at the room's rate, and
+ * an admitted ticket may be used for one registration within the admission
+ * window. Independently of any room, at most a fixed number of registrations
+ * run at a time on each node; the rest wait briefly for a slot and are then
+ * turned away with a retry hint.
+ *
+ * Rooms are [WaitingRoom] rows, so every node queues visitors in the same
+ * order. Each node reads the open rooms every refresh interval and gates
+ * registrations from that copy, so a room opened, closed or re-rated on
+ * another node takes effect here within one interval; until then this node
+ * reports the room as it last read it. Tickets are signed with a key derived
+ * from app.waiting-room.secret, or the JWT secret when that is not set, and
+ * are verified on whichever node they are presented to. A ticket used to
+ * register is recorded in the database, so it is used once across nodes.
+ */
+@Service
+class WaitingRoomService(
+    private val roomRepository: WaitingRoomRepository,
+    private val admissionRepository: WaitingRoomAdmissionRepository,
+    transactionManager: PlatformTransactionManager,
+    secret: String,
+    private val defaultAdmissionsPerSecond: Double,
+    private val admissionWindow: Duration,
+    maxConcurrentRegistrations: Int,
+    private val slotTimeout: Duration,
+    private val clock: Clock
+) {
+
+    @Autowired
+    constructor(
+        roomRepository: WaitingRoomRepository,
+        admissionRepository: WaitingRoomAdmissionRepository,
+        transactionManager: PlatformTransactionManager,
+        @Value("\${app.waiting-room.secret:}") secret: String,
+        @Value("\${app.jwt.secret:}") jwtSecret: String,
+        @Value("\${app.waiting-room.admissions-per-second:20}") defaultAdmissionsPerSecond: Double,
+        @Value("\${app.waiting-room.admission-window:PT10M}") admissionWindow: Duration,
+        @Value("\${app.registration.max-concurrent:10}") maxConcurrentRegistrations: Int,
+        @Value("\${app.registration.slot-timeout:PT2S}") slotTimeout: Duration
+    ) : this(
+        roomRepository, admissionRepository, transactionManager, secret.ifBlank { jwtSecret },
+        defaultAdmissionsPerSecond, admissionWindow, maxConcurrentRegistrations, slotTimeout, Clock.systemUTC()
+    )
+
+    private val logger = LoggerFactory.getLogger(WaitingRoomService::class.java)
+
+    // What a signed token carries; expectedAdmissionAt is when the ticket was due in at the rate it was issued at
+    private class Ticket(val instanceId: UUID, val openedAt: Long, val sequence: Long, val expectedAdmissionAt: Long)
+
+    // This node's copy of the open rooms, by instance
+    private val rooms = ConcurrentHashMap<UUID, WaitingRoom>()
+
+    private val registrationSlots = Semaphore(maxConcurrentRegistrations, true)
+
+    private val signer: TokenSigner
+
+    private val ownTransaction = TransactionTemplate(transactionManager).apply {
+        propagationBehavior = TransactionDefinition.PROPAGATION_REQUIRES_NEW
+    }
+
+    init {
+        require(defaultAdmissionsPerSecond > 0) { "app.waiting-room.admissions-per-second must be positive" }
+        require(maxConcurrentRegistrations > 0) { "app.registration.max-concurrent must be positive" }
+        check(secret.length >= TokenSigner.MIN_SECRET_LENGTH) {
+            "Waiting room tickets need app.waiting-room.secret or app.jwt.secret of at least ${TokenSigner.MIN_SECRET_LENGTH} characters"
+        }
+        signer = TokenSigner(secret, KEY_PURPOSE)
+    }
+
+    /**
+     * Opens a waiting room for the instance, or changes the admission rate of
+     * an open one. Visitors already waiting keep their places.
+     */
+    fun open(instanceId: UUID, admissionsPerSecond: Double? = null): WaitingRoomStatusDto {
+        val rate = admissionsPerSecond ?: defaultAdmissionsPerSecond
+        if (rate <= 0) throw IllegalArgumentException("admissionsPerSecond must be positive")
+
+        val room = try {
+            saveRoom(instanceId, rate)
+        } catch (e: DataIntegrityViolationException) {
+            // Another node opened it at the same moment
+            saveRoom(instanceId, rate)
+        }
+        rooms[instanceId] = room
+        logger.info("Waiting room for instance {} admits {} per second", instanceId, rate)
+        return status(instanceId)
+    }
+
+    /**
+     * Closes the instance's waiting room; registration is no longer gated and
+     * outstanding tickets are discarded.
+     */
+    fun close(instanceId: UUID) {
+        val closed = ownTransaction.execute {
+            admissionRepository.deleteByInstance(instanceId)
+            roomRepository.existsById(instanceId).also { if (it) roomRepository.deleteById(instanceId) }
+        } == true
+        rooms.remove(instanceId)
+        if (closed) logger.info("Waiting room for instance {} closed", instanceId)
+    }
+
+    fun isOpen(instanceId: UUID): Boolean = rooms.containsKey(instanceId)
+
+    fun status(instanceId: UUID): WaitingRoomStatusDto {
+        val room = rooms[instanceId]
+            ?: return WaitingRoomStatusDto(instanceId, false, defaultAdmissionsPerSecond, 0, 0)
+        val admitted = floor(admittedThrough(room, clock.millis())).toLong()
+        return WaitingRoomStatusDto(instanceId, true, room.admissionsPerSecond, room.issued - admitted, admitted)
+    }
+
+    /**
+     * Places a new visitor at the back of the instance's queue.
+     *
+     * @throws BusinessRuleException if the instance has no open waiting room
+     * @throws RateLimitException if the queue is full
+     */
+    fun join(instanceId: UUID): WaitingRoomTicketDto {
+        val now = clock.millis()
+        // The update locks the room until commit, so the row read back still holds this ticket's place
+        val (issued, room) = ownTransaction.execute {
+            val issued = roomRepository.issueTicket(instanceId, now, MAX_WAITING) > 0
+            issued to roomRepository.findById(instanceId).orElse(null)
+        }!!
+        if (room == null) {
+            rooms.remove(instanceId)
+            throw BusinessRuleException("No waiting room is open for this event instance", "WAITING_ROOM_CLOSED")
+        }
+        rooms[instanceId] = room
+        if (!issued) {
+            throw RateLimitException("Waiting room is full", waitSeconds(room, room.issued - MAX_WAITING + 1, now))
+        }
+
+        val expectedWait = ((room.issued - admittedThrough(room, now)).coerceAtLeast(0.0) / room.admissionsPerSecond * 1000).toLong()
+        val ticket = Ticket(instanceId, room.openedAt, room.issued, now + expectedWait)
+        return view(room, ticket, sign(ticket), now)
+    }
+
+    /**
+     * Returns the ticket's current place in the queue, or its admission.
+     *
+     * @throws EntityNotFoundException if the token is not a valid ticket of an
+     * open room, or its admission has expired
+     */
+    fun poll(token: String): WaitingRoomTicketDto {
+        val ticket = parse(token) ?: throw EntityNotFoundException("Waiting room ticket", token)
+        val room = roomFor(ticket) ?: throw EntityNotFoundException("Waiting room ticket", token)
+        val now = clock.millis()
+        if (isExpired(room, ticket, now)) throw EntityNotFoundException("Waiting room ticket", token)
+        return view(room, ticket, token, now)
+    }
+
+    /**
+     * Runs a registration for the instance once it is allowed through: with
+     * an admitted ticket if the instance has an open waiting room, and always
+     * within the concurrent registration limit. The ticket is used up when
+     * the registration succeeds and can be retried with if it fails.
+     *
+     * @throws RateLimitException if the caller must wait before registering
+     */
+    fun <T> admit(instanceId: UUID, token: String?, registration: () -> T): T {
+        val ticket = claim(instanceId, token)
+        var registered = false
+        try {
+            if (!registrationSlots.tryAcquire(slotTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw RateLimitException("Too many registrations in progress, please retry", 1)
+            }
+            try {
+                return registration().also { registered = true }
+            } finally {
+                registrationSlots.release()
+            }
+        } finally {
+            if (ticket != null && !registered) {
+                ownTransaction.executeWithoutResult {
+                    admissionRepository.release(ticket.instanceId, ticket.openedAt, ticket.sequence)
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the open rooms again, picking up rooms opened, closed or re-rated
+     * on other nodes.
+     */
+    @Scheduled(fixedDelayString = "\${app.waiting-room.refresh-interval:PT1S}")
+    fun refresh() {
+        val open = ownTransaction.execute { roomRepository.findAll() }.orEmpty().associateBy { it.eventInstanceId!! }
+        rooms.keys.retainAll(open.keys)
+        rooms.putAll(open)
+    }
+
+    private fun claim(instanceId: UUID, token: String?): Ticket? {
+        val room = rooms[instanceId] ?: return null
+        val now = clock.millis()
+        val ticket = parse(token)?.takeIf { it.instanceId == instanceId }
+        val ticketRoom = ticket?.let { roomFor(it) }
+        if (ticket == null || ticketRoom == null) {
+            throw RateLimitException(
+                "Registration for this event is queued; join the waiting room first",
+                waitSeconds(room, room.issued + 1, now)
+            )
+        }
+        if (isExpired(ticketRoom, ticket, now)) {
+            throw RateLimitException("Waiting room admission has expired; please rejoin the queue")
+        }
+        if (ticket.sequence > admittedThrough(ticketRoom, now)) {
+            throw RateLimitException("Not yet admitted from the waiting room", waitSeconds(ticketRoom, ticket.sequence, now))
+        }
+        try {
+            ownTransaction.executeWithoutResult {
+                admissionRepository.claim(UUID.randomUUID(), instanceId, ticket.openedAt, ticket.sequence, now)
+            }
+        } catch (e: DataIntegrityViolationException) {
+            throw RateLimitException("Waiting room ticket is in use or has already been used")
+        }
+        return ticket
+    }
+
+    private fun saveRoom(instanceId: UUID, rate: Double): WaitingRoom = ownTransaction.execute {
+        val now = clock.millis()
+        if (roomRepository.changeRate(instanceId, now, rate) == 0) {
+            // Tickets used in an earlier opening no longer mean anything
+            admissionRepository.deleteByInstance(instanceId)
+            roomRepository.insertRoom(instanceId, now, rate)
+        }
+        roomRepository.findById(instanceId).orElseThrow()
+    }!!
+
+    // The room the ticket was issued in, read again if this node's copy is older than the ticket
+    private fun roomFor(ticket: Ticket): WaitingRoom? {
+        val known = rooms[ticket.instanceId]
+        val room = if (known == null || known.openedAt < ticket.openedAt ||
+            (known.openedAt == ticket.openedAt && known.issued < ticket.sequence)
+        ) {
+            ownTransaction.execute { roomRepository.findById(ticket.instanceId).orElse(null) }
+                .also { if (it != null) rooms[ticket.instanceId] = it else rooms.remove(ticket.instanceId) }
+        } else {
+            known
+        }
+        return room?.takeIf { it.openedAt == ticket.openedAt && it.issued >= ticket.sequence }
+    }
+
+    private fun view(room: WaitingRoom, ticket: Ticket, token: String, now: Long): WaitingRoomTicketDto {
+        val admitted = floor(admittedThrough(room, now)).toLong()
+        val isAdmitted = ticket.sequence <= admitted
+        return WaitingRoomTicketDto(
+            token = token,
+            eventInstanceId = ticket.instanceId,
+            position = if (isAdmitted) 0 else ticket.sequence - admitted,
+            estimatedWaitSeconds = if (isAdmitted) 0 else waitSeconds(room, ticket.sequence, now),
+            admitted = isAdmitted,
+            admissionExpiresAt = if (isAdmitted) Instant.ofEpochMilli(admittedAt(room, ticket)).plus(admissionWindow) else null
+        )
+    }
+
+    private fun isExpired(room: WaitingRoom, ticket: Ticket, now: Long): Boolean =
+        ticket.sequence <= admittedThrough(room, now) && admittedAt(room, ticket) + admissionWindow.toMillis() < now
+
+    // When the ticket was admitted: exact while the room's clock has run at one rate since, otherwise
+    // the time it was expected in when issued
+    private fun admittedAt(room: WaitingRoom, ticket: Ticket): Long =
+        if (ticket.sequence > room.admittedBase) {
+            room.admittedAt + ceil((ticket.sequence - room.admittedBase) / room.admissionsPerSecond * 1000).toLong()
+        } else {
+            ticket.expectedAdmissionAt
+        }
+
+    private fun admittedThrough(room: WaitingRoom, now: Long): Double =
+        min(room.issued.toDouble(), room.admittedBase + (now - room.admittedAt).coerceAtLeast(0) / 1000.0 * room.admissionsPerSecond)
+
+    private fun waitSeconds(room: WaitingRoom, sequence: Long, now: Long): Long =
+        ceil((sequence - admittedThrough(room, now)).coerceAtLeast(0.0) / room.admissionsPerSecond).toLong()
+
+    private fun sign(ticket: Ticket): String = signer.sign(
+        ByteBuffer.allocate(TICKET_LENGTH)
+            .putLong(ticket.instanceId.mostSignificantBits)
+            .putLong(ticket.instanceId.leastSignificantBits)
+            .putLong(ticket.openedAt)
+            .putLong(ticket.sequence)
+            .putLong(ticket.expectedAdmissionAt)
+            .array()
+    )
+
+    private fun parse(token: String?): Ticket? {
+        val payload = token?.let { signer.verify(it) }?.takeIf { it.size == TICKET_LENGTH } ?: return null
+        val buffer = ByteBuffer.wrap(payload)
+        return Ticket(UUID(buffer.long, buffer.long), buffer.long, buffer.long, buffer.long)
+    }
+
+    companion object {
+        /** Request header carrying the waiting room token when registering. */
+        const val TOKEN_HEADER = "X-Waiting-Room-Token"
+
+        // Bounds how far behind a visitor joining a room can be
+        private const val MAX_WAITING = 100_000L
+
+        private const val KEY_PURPOSE = "eventr waiting room ticket v1"
+
+        // Instance id, opening, sequence and expected admission time
+        private const val TICKET_LENGTH = 40
+    }
+}
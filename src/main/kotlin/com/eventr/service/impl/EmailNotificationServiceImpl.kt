@@ -45,7 +45,7 @@ class EmailNotificationServiceImpl(
             mailSender.send(message)
             
             secureLogger.logEmailEvent(
-                registration.user?.id!!, 
+                registration.user?.id, 
                 "REGISTRATION_CONFIRMATION_SENT", 
                 true, 
                 "Registration confirmation email sent successfully"
@@ -54,7 +54,7 @@ class EmailNotificationServiceImpl(
         } catch (e: Exception) {
             secureLogger.logErrorEvent(
                 "REGISTRATION_EMAIL_FAILED", 
-                registration.user?.id!!, 
+                registration.user?.id, 
                 e, 
                 "Failed to send registration confirmation email"
             )
@@ -80,7 +80,7 @@ class EmailNotificationServiceImpl(
             mailSender.send(message)
             
             secureLogger.logEmailEvent(
-                registration.user?.id!!, 
+                registration.user?.id, 
                 "EVENT_REMINDER_SENT", 
                 true, 
                 "Event reminder email sent for $daysUntil days"
@@ -89,7 +89,7 @@ class EmailNotificationServiceImpl(
         } catch (e: Exception) {
             secureLogger.logErrorEvent(
                 "REMINDER_EMAIL_FAILED", 
-                registration.user?.id!!, 
+                registration.user?.id, 
                 e, 
                 "Failed to send event reminder email"
             )
@@ -116,7 +116,7 @@ class EmailNotificationServiceImpl(
                 emailsSent++
                 
                 secureLogger.logEmailEvent(
-                    registration.user?.id!!, 
+                    registration.user?.id, 
                     "EVENT_UPDATE_SENT", 
                     true, 
                     "Event update email sent successfully"
@@ -125,7 +125,7 @@ class EmailNotificationServiceImpl(
             } catch (e: Exception) {
                 secureLogger.logErrorEvent(
                     "EVENT_UPDATE_EMAIL_FAILED", 
-                    registration.user?.id!!, 
+                    registration.user?.id, 
                     e, 
                     "Failed to send event update email"
                 )
@@ -153,7 +153,7 @@ class EmailNotificationServiceImpl(
             mailSender.send(message)
             
             secureLogger.logEmailEvent(
-                registration.user?.id!!, 
+                registration.user?.id, 
                 "CANCELLATION_EMAIL_SENT", 
                 true, 
                 "Cancellation notification email sent"
@@ -162,7 +162,7 @@ class EmailNotificationServiceImpl(
         } catch (e: Exception) {
             secureLogger.logErrorEvent(
                 "CANCELLATION_EMAIL_FAILED", 
-                registration.user?.id!!, 
+                registration.user?.id, 
                 e, 
                 "Failed to send cancellation notification email"
             )
@@ -188,7 +188,7 @@ class EmailNotificationServiceImpl(
             mailSender.send(message)
             
             secureLogger.logEmailEvent(
-                registration.user?.id!!, 
+                registration.user?.id, 
                 "CUSTOM_EMAIL_SENT", 
                 true, 
                 "Custom email sent successfully"
@@ -197,7 +197,7 @@ class EmailNotificationServiceImpl(
         } catch (e: Exception) {
             secureLogger.logErrorEvent(
                 "CUSTOM_EMAIL_FAILED", 
-                registration.user?.id!!, 
+                registration.user?.id, 
                 e, 
                 "Failed to send custom email"
             )
@@ -244,7 +244,7 @@ class EmailNotificationServiceImpl(
             mailSender.send(message)
             
             secureLogger.logEmailEvent(
-                registration.user?.id!!, 
+                registration.user?.id, 
                 "CHECKIN_CONFIRMATION_SENT", 
                 true, 
                 "Check-in confirmation email sent"
@@ -253,7 +253,7 @@ class EmailNotificationServiceImpl(
         } catch (e: Exception) {
             secureLogger.logErrorEvent(
                 "CHECKIN_EMAIL_FAILED", 
-                registration.user?.id!!, 
+                registration.user?.id, 
                 e, 
                 "Failed to send check-in confirmation email"
             )
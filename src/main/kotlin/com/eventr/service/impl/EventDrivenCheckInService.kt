@@ -3,12 +3,18 @@ package com.eventr.service.impl
 import com.eventr.dto.*
 import com.eventr.model.*
 import com.eventr.repository.*
+import com.eventr.service.CheckInPresenceIndex
+import com.eventr.service.QRCodeService
 import com.eventr.service.interfaces.CheckInServiceInterface
 import com.eventr.service.interfaces.CheckInStatistics
 import org.slf4j.LoggerFactory
 import org.springframework.beans.BeanUtils
+import org.springframework.dao.DataIntegrityViolationException
 import org.springframework.stereotype.Service
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.annotation.Propagation
 import org.springframework.transaction.annotation.Transactional
+import org.springframework.transaction.support.TransactionTemplate
 import java.time.LocalDateTime
 import java.time.temporal.ChronoUnit
 import java.util.*
@@ -16,7 +22,6 @@ import java.util.*
 /**
  * Check-in service implementation.
  * 
- * TODO: Add QR code validation when QRCodeService is created
  * TODO: Add domain events when CheckIn module is created
  */
 @Service("eventDrivenCheckInService")
@@ -25,30 +30,74 @@ class EventDrivenCheckInService(
     private val checkInRepository: CheckInRepository,
     private val registrationRepository: RegistrationRepository,
     private val sessionRepository: SessionRepository,
-    private val eventRepository: EventRepository
+    private val eventRepository: EventRepository,
+    private val presenceIndex: CheckInPresenceIndex,
+    private val qrCodeService: QRCodeService,
+    transactionManager: PlatformTransactionManager
 ) : CheckInServiceInterface {
     
     private val logger = LoggerFactory.getLogger(EventDrivenCheckInService::class.java)
     
+    private val transactionTemplate = TransactionTemplate(transactionManager)
+    
+    /**
+     * Checks in the holder of a signed QR code. The code is verified by its
+     * signature, and duplicates are caught by the presence index. The
+     * registration and session are taken by reference; as entity classes are
+     * final, Hibernate resolves those with a primary key read instead of a
+     * proxy. That read both fills in the attendee details of the result (see
+     * [CheckInDto]) and refuses a registration cancelled on any node, which
+     * this node's presence index may not have heard of yet.
+     */
     override fun checkInWithQR(qrCheckInDto: QRCheckInDto): CheckInDto {
-        logger.info("Processing QR check-in")
+        val qrData = qrCodeService.verify(qrCheckInDto.qrCode)
+        logger.info("Processing QR check-in for registration: {}", qrData.registrationId)
+        
+        if (presenceIndex.isCancelled(qrData.eventId, qrData.registrationId)) {
+            throw IllegalArgumentException("Registration has been cancelled")
+        }
+        val type = if (qrData.sessionId != null) CheckInType.SESSION else CheckInType.EVENT
+        if (presenceIndex.isCheckedIn(qrData.eventId, qrData.registrationId, qrData.sessionId, type)) {
+            throw IllegalArgumentException("Already checked in")
+        }
         
-        // TODO: Implement QR code validation when QRCodeService is created
-        // For now, just throw not implemented
-        throw NotImplementedError("QR check-in not yet implemented - QRCodeService needed")
+        val registration = registrationRepository.getReferenceById(qrData.registrationId)
+        if (registration.status == RegistrationStatus.CANCELLED) {
+            throw IllegalArgumentException("Registration has been cancelled")
+        }
+        
+        val checkIn = buildCheckIn(
+            registration,
+            qrData.sessionId?.let { sessionRepository.getReferenceById(it) },
+            type,
+            CheckInMethod.QR_CODE,
+            qrCheckInDto.checkedInBy
+        ).apply {
+            this.deviceId = qrCheckInDto.deviceId
+            this.deviceName = qrCheckInDto.deviceName
+            this.location = qrCheckInDto.location
+            this.notes = qrCheckInDto.notes
+            this.qrCodeUsed = qrCheckInDto.qrCode
+        }
+        val saved = insert(checkIn)
+        presenceIndex.recordCheckedIn(qrData.eventId, listOf(saved))
+        return saved.toDto()
     }
     
     override fun manualCheckIn(createDto: CheckInCreateDto): CheckInDto {
         logger.info("Processing manual check-in for registration: {}", createDto.registrationId)
         
-        val registration = registrationRepository.findById(createDto.registrationId)
-            .orElseThrow { IllegalArgumentException("Registration not found: ${createDto.registrationId}") }
+        val registration = registrationRepository.findAllForCheckIn(listOf(createDto.registrationId)).firstOrNull()
+            ?: throw IllegalArgumentException("Registration not found: ${createDto.registrationId}")
         
         // Validate no duplicate check-in
-        validateNoDuplicateCheckIn(createDto)
+        if (presenceIndex.isCheckedIn(registration, createDto.sessionId, createDto.type)) {
+            throw IllegalArgumentException("Already checked in")
+        }
         
         val checkIn = createCheckIn(registration, createDto)
-        val saved = checkInRepository.save(checkIn)
+        val saved = insert(checkIn)
+        presenceIndex.recordCheckedIn(listOf(saved))
         val checkInDto = saved.toDto()
         
         // TODO: Publish domain event when CheckIn module is created
@@ -57,52 +106,94 @@ class EventDrivenCheckInService(
         return checkInDto
     }
     
+    /**
+     * Records a batch of manual check-ins with one query each for their
+     * registrations and sessions, and one batched insert. A scan repeating an
+     * existing check-in or an earlier scan in the batch fails as a duplicate,
+     * as does one for an unknown registration.
+     */
+    override fun manualCheckInBatch(createDtos: List<CheckInCreateDto>): List<Result<CheckInDto>> {
+        val registrationIds = createDtos.map { it.registrationId }.distinct()
+        val registrations = registrationRepository.findAllForCheckIn(registrationIds).associateBy { it.id!! }
+        val sessionIds = createDtos.mapNotNullTo(HashSet()) { it.sessionId }
+        val sessions = if (sessionIds.isEmpty()) emptyMap() else sessionRepository.findAllById(sessionIds).associateBy { it.id!! }
+        
+        // Scans earlier in this batch, which the index only learns of on commit
+        val batched = HashSet<Triple<UUID, UUID?, CheckInType?>>()
+        
+        val outcomes = createDtos.map { createDto ->
+            val registration = registrations[createDto.registrationId]
+                ?: return@map Result.failure(IllegalArgumentException("Registration not found: ${createDto.registrationId}"))
+            val key = Triple(createDto.registrationId, createDto.sessionId, createDto.type.takeIf { createDto.sessionId == null })
+            if (presenceIndex.isCheckedIn(registration, createDto.sessionId, createDto.type) || !batched.add(key)) {
+                return@map Result.failure(IllegalArgumentException("Already checked in"))
+            }
+            Result.success(createCheckIn(registration, createDto, createDto.sessionId?.let { sessions[it] }))
+        }
+        
+        val checkIns = checkInRepository.saveAll(outcomes.mapNotNull { it.getOrNull() })
+        checkInRepository.flush()
+        presenceIndex.recordCheckedIn(checkIns)
+        val saved = checkIns.iterator()
+        logger.info("Processed batch of {} manual check-ins", createDtos.size)
+        return outcomes.map { outcome -> outcome.map { saved.next().toDto() } }
+    }
+    
+    /**
+     * Checks in many registrations at once, in chunks of one transaction
+     * each. Each chunk loads its registrations with one query, checks them
+     * against the presence index and inserts the new check-ins as one JDBC
+     * batch; DTOs are mapped from the rows already loaded. Unknown
+     * registrations and ones already checked in are skipped. A chunk that
+     * collides with a check-in made on another node is retried once against
+     * a freshly loaded presence set, so earlier chunks stay committed.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     override fun bulkCheckIn(registrationIds: List<UUID>, sessionId: UUID?): List<CheckInDto> {
         logger.info("Processing bulk check-in for {} registrations", registrationIds.size)
         
-        val results = mutableListOf<CheckInDto>()
-        @Suppress("UNUSED_VARIABLE")
-        val session = sessionId?.let { sessionRepository.findById(it).orElse(null) }
+        val session = sessionId?.let {
+            sessionRepository.findById(it).orElseThrow { IllegalArgumentException("Session not found: $it") }
+        }
+        val type = if (session != null) CheckInType.SESSION else CheckInType.EVENT
         
-        registrationIds.forEach { registrationId ->
+        val results = registrationIds.distinct().chunked(BULK_CHUNK_SIZE).flatMap { chunk ->
             try {
-                val registration = registrationRepository.findById(registrationId)
-                    .orElseThrow { IllegalArgumentException("Registration not found: $registrationId") }
-                
-                val createDto = CheckInCreateDto(
-                    registrationId = registrationId,
-                    sessionId = sessionId,
-                    type = if (sessionId != null) CheckInType.SESSION else CheckInType.EVENT,
-                    method = CheckInMethod.BULK,
-                    checkedInBy = "SYSTEM"
-                )
-                
-                // Check for duplicates
-                val existingCheckIn = findExistingCheckIn(createDto)
-                if (existingCheckIn != null) {
-                    logger.warn("Skipping duplicate check-in for registration: {}", registrationId)
-                    return@forEach
-                }
-                
-                val checkIn = createCheckIn(registration, createDto)
-                val saved = checkInRepository.save(checkIn)
-                val checkInDto = saved.toDto()
-                
-                results.add(checkInDto)
-                
-                // TODO: Publish domain event when CheckIn module is created
-                
-            } catch (e: Exception) {
-                logger.error("Failed to check in registration: {}", registrationId, e)
-                // Continue with other registrations
+                transactionTemplate.execute { bulkCheckInChunk(chunk, session, type, reload = false) }!!
+            } catch (e: DataIntegrityViolationException) {
+                if (!presenceIndex.isDuplicate(e)) throw e
+                logger.debug("Check-in recorded on another node during bulk check-in, retrying chunk")
+                transactionTemplate.execute { bulkCheckInChunk(chunk, session, type, reload = true) }!!
             }
         }
         
+        // TODO: Publish domain event when CheckIn module is created
+        
         logger.info("Successfully processed bulk check-in: {}/{} registrations", 
             results.size, registrationIds.size)
         return results
     }
     
+    private fun bulkCheckInChunk(chunk: List<UUID>, session: Session?, type: CheckInType, reload: Boolean): List<CheckInDto> {
+        val registrations = registrationRepository.findAllForCheckIn(chunk).associateBy { it.id!! }
+        if (registrations.isEmpty()) return emptyList()
+        if (reload) presenceIndex.reload(registrations.values.mapNotNullTo(HashSet()) { it.eventInstance?.event?.id })
+        val checkIns = chunk.mapNotNull { registrationId ->
+            val registration = registrations[registrationId]
+            when {
+                registration == null -> logger.warn("Skipping unknown registration: {}", registrationId)
+                presenceIndex.isCheckedIn(registration, session?.id, type) -> logger.debug("Skipping duplicate check-in for registration: {}", registrationId)
+                else -> return@mapNotNull buildCheckIn(registration, session, type, CheckInMethod.BULK, "SYSTEM")
+            }
+            null
+        }
+        // Flushed so a duplicate surfaces here rather than at commit
+        val saved = checkInRepository.saveAll(checkIns)
+        checkInRepository.flush()
+        presenceIndex.recordCheckedIn(saved)
+        return saved.map { it.toDto() }
+    }
+    
     @Transactional(readOnly = true)
     override fun getCheckInById(checkInId: UUID): CheckInDto? {
         return checkInRepository.findById(checkInId)
@@ -156,28 +247,22 @@ class EventDrivenCheckInService(
     
     // Private helper methods
     
-    private fun validateNoDuplicateCheckIn(createDto: CheckInCreateDto) {
-        val existingCheckIn = findExistingCheckIn(createDto)
-        if (existingCheckIn != null) {
-            throw IllegalArgumentException("Already checked in")
-        }
-    }
-    
-    private fun findExistingCheckIn(createDto: CheckInCreateDto): CheckIn? {
-        return if (createDto.sessionId != null) {
-            checkInRepository.findByRegistrationIdAndSessionId(createDto.registrationId, createDto.sessionId)
-        } else {
-            checkInRepository.findByRegistrationIdAndType(createDto.registrationId, createDto.type)
+    // Flushed here so a check-in the presence index has not seen is still reported as a duplicate
+    private fun insert(checkIn: CheckIn): CheckIn {
+        return try {
+            checkInRepository.saveAndFlush(checkIn)
+        } catch (e: DataIntegrityViolationException) {
+            if (presenceIndex.isDuplicate(e)) throw IllegalArgumentException("Already checked in")
+            throw e
         }
     }
     
-    private fun createCheckIn(registration: Registration, createDto: CheckInCreateDto): CheckIn {
-        return CheckIn().apply {
-            this.registration = registration
-            this.session = createDto.sessionId?.let { sessionRepository.findById(it).orElse(null) }
-            this.type = createDto.type
-            this.method = createDto.method
-            this.checkedInBy = createDto.checkedInBy
+    private fun createCheckIn(
+        registration: Registration,
+        createDto: CheckInCreateDto,
+        session: Session? = createDto.sessionId?.let { sessionRepository.findById(it).orElse(null) }
+    ): CheckIn {
+        return buildCheckIn(registration, session, createDto.type, createDto.method, createDto.checkedInBy).apply {
             this.deviceId = createDto.deviceId
             this.deviceName = createDto.deviceName
             this.ipAddress = createDto.ipAddress
@@ -186,12 +271,29 @@ class EventDrivenCheckInService(
             this.verificationCode = createDto.verificationCode
             this.notes = createDto.notes
             this.metadata = createDto.metadata
-            this.checkedInAt = LocalDateTime.now()
-            this.createdAt = LocalDateTime.now()
-            this.updatedAt = LocalDateTime.now()
         }
     }
     
+    private fun buildCheckIn(
+        registration: Registration,
+        session: Session?,
+        type: CheckInType,
+        method: CheckInMethod,
+        checkedInBy: String?
+    ): CheckIn {
+        val now = LocalDateTime.now()
+        return CheckIn(
+            registration = registration,
+            session = session,
+            type = type,
+            method = method,
+            checkedInBy = checkedInBy,
+            checkedInAt = now,
+            createdAt = now,
+            updatedAt = now
+        )
+    }
+    
     private fun calculateAverageCheckInTime(checkIns: List<CheckIn>): Double? {
         if (checkIns.isEmpty()) return null
         
@@ -201,26 +303,11 @@ class EventDrivenCheckInService(
         
         return totalMinutes.toDouble() / checkIns.size
     }
-    
-    // Placeholder methods for QR code processing - these would need to be implemented
-    // based on the existing CheckInService implementation
-    
-    private fun parseQRCode(@Suppress("UNUSED_PARAMETER") qrContent: String): QRData {
-        // This is a placeholder - implement based on existing logic
-        return QRData("event", UUID.randomUUID().toString(), "", "", "")
-    }
-    
-    private fun checkInToEvent(@Suppress("UNUSED_PARAMETER") qrData: QRData, @Suppress("UNUSED_PARAMETER") qrCheckInDto: QRCheckInDto): CheckInDto {
-        // Placeholder - implement based on existing logic
-        throw NotImplementedError("QR check-in implementation needed")
-    }
-    
-    private fun checkInToSession(@Suppress("UNUSED_PARAMETER") qrData: QRData, @Suppress("UNUSED_PARAMETER") qrCheckInDto: QRCheckInDto): CheckInDto {
-        // Placeholder - implement based on existing logic  
-        throw NotImplementedError("QR check-in implementation needed")
-    }
 }
 
+// Bounds the IN lists of the bulk check-in queries
+private const val BULK_CHUNK_SIZE = 1000
+
 // Extension function to convert CheckIn entity to DTO
 private fun CheckIn.toDto(): CheckInDto {
     val dto = CheckInDto()
@@ -234,12 +321,3 @@ private fun CheckIn.toDto(): CheckInDto {
     return dto
 }
 
-// Data classes
-data class QRData(
-    val type: String,
-    val identifier: String,
-    val userId: String,
-    val timestamp: String,
-    val signature: String
-)
-
@@ -18,6 +18,12 @@ interface CheckInServiceInterface {
      */
     fun manualCheckIn(createDto: CheckInCreateDto): CheckInDto
     
+    /**
+     * Manual check-ins for many scans in one transaction. Each scan gets its
+     * own outcome, in order; a failed scan does not affect the others.
+     */
+    fun manualCheckInBatch(createDtos: List<CheckInCreateDto>): List<Result<CheckInDto>>
+    
     /**
      * Bulk check-in for multiple registrations
      */
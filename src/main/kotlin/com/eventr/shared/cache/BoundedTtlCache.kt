@@ -0,0 +1,135 @@
+package com.eventr.shared.cache
+
+import io.micrometer.core.instrument.FunctionCounter
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.MeterBinder
+import java.time.Clock
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A small thread-safe cache bounded both by entry count (least recently used
+ * entries are evicted first) and by age (entries expire [ttl] after being
+ * loaded).
+ *
+ * [getOrLoad] runs the loader outside the cache lock. If the cache is
+ * invalidated while a load is in flight, that load's result is returned to
+ * the caller but not cached, so an invalidation can never be overwritten by
+ * data read before it.
+ *
+ * Binding the cache to a [MeterRegistry] publishes `cache.gets`
+ * (result=hit|miss), `cache.evictions` and `cache.size`, tagged with [name].
+ */
+class BoundedTtlCache<K : Any, V : Any>(
+    val name: String,
+    private val maxSize: Int,
+    private val ttl: Duration,
+    private val clock: Clock = Clock.systemUTC()
+) : MeterBinder {
+
+    private class Entry<V>(val value: V, val expiresAt: Long)
+
+    init {
+        require(maxSize > 0) { "maxSize must be positive" }
+        require(!ttl.isNegative && !ttl.isZero) { "ttl must be positive" }
+    }
+
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val evictions = AtomicLong()
+
+    private val entries = object : LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<K, Entry<V>>): Boolean {
+            val evict = size > maxSize
+            if (evict) evictions.incrementAndGet()
+            return evict
+        }
+    }
+
+    // Bumped by every invalidation; loads started under an older generation are not cached
+    private var generation = 0L
+
+    val hitCount: Long get() = hits.get()
+    val missCount: Long get() = misses.get()
+    val evictionCount: Long get() = evictions.get()
+
+    val size: Int
+        get() = synchronized(this) { entries.size }
+
+    /**
+     * Returns the cached value for [key] or null if absent or expired.
+     */
+    fun get(key: K): V? {
+        val now = clock.millis()
+        val value = synchronized(this) {
+            val entry = entries[key]
+            when {
+                entry == null -> null
+                entry.expiresAt <= now -> {
+                    entries.remove(key)
+                    null
+                }
+                else -> entry.value
+            }
+        }
+        if (value != null) hits.incrementAndGet() else misses.incrementAndGet()
+        return value
+    }
+
+    /**
+     * Returns the cached value for [key], loading and caching it on a miss.
+     * A null result from [loader] is returned but not cached.
+     */
+    fun getOrLoad(key: K, loader: () -> V?): V? {
+        get(key)?.let { return it }
+
+        val startedAt = synchronized(this) { generation }
+        val loaded = loader() ?: return null
+        synchronized(this) {
+            if (generation == startedAt) {
+                entries[key] = Entry(loaded, clock.millis() + ttl.toMillis())
+            }
+        }
+        return loaded
+    }
+
+    fun put(key: K, value: V) {
+        synchronized(this) {
+            entries[key] = Entry(value, clock.millis() + ttl.toMillis())
+        }
+    }
+
+    fun invalidate(key: K) {
+        synchronized(this) {
+            generation++
+            entries.remove(key)
+        }
+    }
+
+    fun invalidateAll() {
+        synchronized(this) {
+            generation++
+            entries.clear()
+        }
+    }
+
+    override fun bindTo(registry: MeterRegistry) {
+        FunctionCounter.builder("cache.gets", hits) { it.get().toDouble() }
+            .tag("cache", name).tag("result", "hit")
+            .description("Number of cache lookups that found a live entry")
+            .register(registry)
+        FunctionCounter.builder("cache.gets", misses) { it.get().toDouble() }
+            .tag("cache", name).tag("result", "miss")
+            .description("Number of cache lookups that found no live entry")
+            .register(registry)
+        FunctionCounter.builder("cache.evictions", evictions) { it.get().toDouble() }
+            .tag("cache", name)
+            .description("Number of entries evicted because the cache was full")
+            .register(registry)
+        Gauge.builder("cache.size", this) { it.size.toDouble() }
+            .tag("cache", name)
+            .description("Number of entries currently cached")
+            .register(registry)
+    }
+}
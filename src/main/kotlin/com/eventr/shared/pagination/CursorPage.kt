@@ -0,0 +1,70 @@
+package com.eventr.shared.pagination
+
+import com.eventr.exception.ValidationException
+import java.nio.charset.StandardCharsets
+import java.util.Base64
+
+/**
+ * One page of a keyset-paginated result.
+ *
+ * @param items Items in this page, in result order
+ * @param nextCursor Opaque token for the following page, or null on the last page
+ */
+data class CursorPage<T>(
+    val items: List<T>,
+    val nextCursor: String?
+) {
+    fun <R> map(transform: (T) -> R): CursorPage<R> = CursorPage(items.map(transform), nextCursor)
+
+    companion object {
+        /** HTTP response header used to hand the continuation token to clients. */
+        const val NEXT_CURSOR_HEADER = "X-Next-Cursor"
+
+        /**
+         * Builds a page from a lookahead query that fetched up to `limit + 1` rows.
+         * The extra row only signals that another page exists and is dropped.
+         */
+        fun <T> fromLookahead(rows: List<T>, limit: Int, cursorOf: (T) -> String): CursorPage<T> {
+            val items = rows.take(limit)
+            val nextCursor = if (rows.size > limit && items.isNotEmpty()) cursorOf(items.last()) else null
+            return CursorPage(items, nextCursor)
+        }
+    }
+}
+
+/**
+ * Encodes keyset positions as opaque, URL-safe tokens.
+ *
+ * Clients must treat tokens as opaque; the format is versioned so it can
+ * change without breaking cursors that are already in flight.
+ */
+object CursorCodec {
+
+    private const val VERSION = "v1"
+    private const val SEPARATOR = "|"
+
+    fun encode(vararg parts: String): String {
+        val raw = (listOf(VERSION) + parts).joinToString(SEPARATOR)
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toByteArray(StandardCharsets.UTF_8))
+    }
+
+    /**
+     * Decodes a token produced by [encode].
+     *
+     * @throws ValidationException if the token is malformed or has the wrong arity
+     */
+    fun decode(token: String, expectedParts: Int): List<String> {
+        val raw = try {
+            String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+        } catch (e: IllegalArgumentException) {
+            throw invalidCursor()
+        }
+        val parts = raw.split(SEPARATOR)
+        if (parts.size != expectedParts + 1 || parts[0] != VERSION) {
+            throw invalidCursor()
+        }
+        return parts.drop(1)
+    }
+
+    fun invalidCursor(): ValidationException = ValidationException("Invalid pagination cursor", field = "cursor")
+}
@@ -0,0 +1,23 @@
+package com.eventr.shared.persistence
+
+import org.hibernate.exception.ConstraintViolationException
+import org.springframework.dao.DataIntegrityViolationException
+
+/**
+ * Tells which database constraint rejected a write.
+ */
+object ConstraintViolations {
+
+    /**
+     * Returns true if [e] was raised by the constraint named [constraintName].
+     * The name is taken from Hibernate's ConstraintViolationException when the
+     * dialect extracts it, and searched for in the driver's message otherwise.
+     */
+    fun isViolationOf(e: DataIntegrityViolationException, constraintName: String): Boolean {
+        val constraint = generateSequence<Throwable>(e) { it.cause }
+            .filterIsInstance<ConstraintViolationException>()
+            .firstOrNull()?.constraintName
+            ?: e.mostSpecificCause.message
+        return constraint?.contains(constraintName, ignoreCase = true) == true
+    }
+}
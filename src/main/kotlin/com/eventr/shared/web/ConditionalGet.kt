@@ -0,0 +1,54 @@
+package com.eventr.shared.web
+
+import org.springframework.http.HttpHeaders
+import org.springframework.http.HttpStatus
+import org.springframework.http.ResponseEntity
+import org.springframework.web.context.request.WebRequest
+import java.security.MessageDigest
+import java.util.Base64
+
+/**
+ * Conditional GET support (ETag / If-None-Match).
+ *
+ * ETags are derived from the identity and version of the rows that make up a
+ * representation rather than from the serialized body, so a matching request
+ * is answered with 304 before any response mapping or serialization runs.
+ */
+object ConditionalGet {
+
+    /**
+     * Builds a strong ETag from the given parts, typically ids, versions and
+     * any derived values (counts, cursors) that the representation includes.
+     * The order of [parts] is significant.
+     */
+    fun etag(parts: Iterable<Any?>): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        parts.forEach { part ->
+            digest.update(part.toString().toByteArray(Charsets.UTF_8))
+            digest.update(0)
+        }
+        val hash = Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest().copyOf(ETAG_BYTES))
+        return "\"$hash\""
+    }
+
+    fun etag(vararg parts: Any?): String = etag(parts.asList())
+
+    /**
+     * Answers 304 Not Modified when the request's If-None-Match matches
+     * [etag]; otherwise responds 200 with the body produced by [body].
+     * [body] is not invoked for a 304.
+     */
+    fun <T : Any> respond(
+        request: WebRequest,
+        etag: String,
+        headers: HttpHeaders = HttpHeaders(),
+        body: () -> T
+    ): ResponseEntity<T> {
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build()
+        }
+        return ResponseEntity.ok().headers(headers).eTag(etag).body(body())
+    }
+
+    private const val ETAG_BYTES = 16
+}
@@ -0,0 +1,118 @@
+package com.eventr.shared.web
+
+import com.eventr.exception.BusinessRuleException
+import com.eventr.shared.cache.BoundedTtlCache
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.binder.MeterBinder
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.stereotype.Component
+import java.time.Clock
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+/**
+ * Idempotency-Key support for non-idempotent endpoints.
+ *
+ * The first request with a given key runs and its response is kept in
+ * memory, bounded in count and age, together with a fingerprint of the
+ * request. A retry with the same key and request gets that response back
+ * without running again; a retry that arrives while the first request is
+ * still running waits for its outcome. Reusing a key for a different request
+ * is rejected. Failed requests are not remembered, so they can be retried.
+ *
+ * Keys are remembered per node; a retry that reaches another node runs again.
+ */
+@Component
+class IdempotencyStore(
+    maxEntries: Int,
+    ttl: Duration,
+    private val inFlightWait: Duration,
+    clock: Clock
+) : MeterBinder {
+
+    @Autowired
+    constructor(
+        @Value("\${app.idempotency.max-entries:10000}") maxEntries: Int,
+        @Value("\${app.idempotency.ttl:PT24H}") ttl: Duration,
+        @Value("\${app.idempotency.in-flight-wait:PT10S}") inFlightWait: Duration
+    ) : this(maxEntries, ttl, inFlightWait, Clock.systemUTC())
+
+    private class Outcome(val fingerprint: String, val response: Any)
+
+    private class Running(val fingerprint: String) {
+        val outcome = CompletableFuture<Any>()
+    }
+
+    private val completed = BoundedTtlCache<String, Outcome>("idempotency.responses", maxEntries, ttl, clock)
+
+    private val running = ConcurrentHashMap<String, Running>()
+
+    override fun bindTo(registry: MeterRegistry) {
+        completed.bindTo(registry)
+    }
+
+    /**
+     * Runs [action] once per [key] within [scope], answering repeats with the
+     * first response. Without a key the action simply runs.
+     *
+     * @param scope the endpoint, so the same key may be used on different endpoints
+     * @param request the parts of the request that make it what it is; a repeat must match them
+     * @throws BusinessRuleException if the key was used for a different request,
+     *     or the first request is still running after the wait
+     */
+    fun <T : Any> execute(scope: String, key: String?, request: List<Any?>, action: () -> T): T {
+        if (key == null) return action()
+        require(key.isNotBlank() && key.length <= MAX_KEY_LENGTH) {
+            "$HEADER must be between 1 and $MAX_KEY_LENGTH characters"
+        }
+        val storeKey = "$scope $key"
+        val fingerprint = ConditionalGet.etag(request)
+
+        completed.get(storeKey)?.let { return replay(it.fingerprint, fingerprint, it.response) }
+        val mine = Running(fingerprint)
+        running.putIfAbsent(storeKey, mine)?.let { return await(it, fingerprint) }
+
+        try {
+            // The first request may have finished between the lookup and the claim
+            val response: T = completed.get(storeKey)?.let { replay(it.fingerprint, fingerprint, it.response) }
+                ?: action().also { completed.put(storeKey, Outcome(fingerprint, it)) }
+            mine.outcome.complete(response)
+            return response
+        } catch (e: Throwable) {
+            mine.outcome.completeExceptionally(e)
+            throw e
+        } finally {
+            running.remove(storeKey, mine)
+        }
+    }
+
+    private fun <T : Any> await(first: Running, fingerprint: String): T {
+        val response = try {
+            first.outcome.get(inFlightWait.toMillis(), TimeUnit.MILLISECONDS)
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        } catch (e: TimeoutException) {
+            throw BusinessRuleException("A request with this $HEADER is still being processed", "IDEMPOTENCY_KEY_IN_PROGRESS")
+        }
+        return replay(first.fingerprint, fingerprint, response)
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun <T : Any> replay(storedFingerprint: String, fingerprint: String, response: Any): T {
+        if (storedFingerprint != fingerprint) {
+            throw BusinessRuleException("$HEADER was already used for a different request", "IDEMPOTENCY_KEY_REUSED")
+        }
+        return response as T
+    }
+
+    companion object {
+        const val HEADER = "Idempotency-Key"
+
+        const val MAX_KEY_LENGTH = 255
+    }
+}
@@ -0,0 +1,81 @@
+package com.eventr.util
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLongArray
+import kotlin.math.ceil
+import kotlin.math.ln
+import kotlin.math.roundToInt
+
+/**
+ * Thread-safe Bloom filter over strings.
+ *
+ * [mightContain] never returns false for a value that was [put]; it returns
+ * true for a value that was not with a probability close to the configured
+ * false positive rate while no more than [expectedInsertions] values have
+ * been added, and rising after that. Values cannot be removed.
+ */
+class BloomFilter(val expectedInsertions: Int, falsePositiveRate: Double) {
+
+    init {
+        require(expectedInsertions > 0) { "expectedInsertions must be positive" }
+        require(falsePositiveRate > 0.0 && falsePositiveRate < 1.0) { "falsePositiveRate must be between 0 and 1" }
+    }
+
+    private val bitCount: Int =
+        ceil(-expectedInsertions * ln(falsePositiveRate) / (LN2 * LN2)).toLong().coerceIn(64L, Int.MAX_VALUE.toLong()).toInt()
+
+    private val hashCount: Int = (bitCount.toDouble() / expectedInsertions * LN2).roundToInt().coerceIn(1, 16)
+
+    private val bits = AtomicLongArray((bitCount + 63) / 64)
+
+    private val insertions = AtomicInteger()
+
+    /** Number of values added so far, counting repeats. */
+    val insertionCount: Int get() = insertions.get()
+
+    fun put(value: String) {
+        forEachIndex(value) { index ->
+            val word = index ushr 6
+            val mask = 1L shl (index and 63)
+            while (true) {
+                val current = bits.get(word)
+                if (current and mask != 0L || bits.compareAndSet(word, current, current or mask)) break
+            }
+        }
+        insertions.incrementAndGet()
+    }
+
+    fun mightContain(value: String): Boolean {
+        var all = true
+        forEachIndex(value) { index ->
+            if (bits.get(index ushr 6) and (1L shl (index and 63)) == 0L) all = false
+        }
+        return all
+    }
+
+    // Double hashing: the i-th index is h1 + i * h2, from two halves of one 64-bit hash
+    private inline fun forEachIndex(value: String, action: (Int) -> Unit) {
+        val hash = hash64(value)
+        val h1 = hash.toInt()
+        val h2 = (hash ushr 32).toInt()
+        for (i in 0 until hashCount) {
+            val combined = h1 + i * h2
+            action((combined and Int.MAX_VALUE) % bitCount)
+        }
+    }
+
+    private companion object {
+        val LN2 = ln(2.0)
+
+        // FNV-1a over the UTF-16 code units, finished with the MurmurHash3 mixer
+        fun hash64(value: String): Long {
+            var h = -0x340d631b7bdddcdbL
+            for (c in value) {
+                h = (h xor c.code.toLong()) * 0x100000001b3L
+            }
+            h = (h xor (h ushr 33)) * -0xae502812aa7333L
+            h = (h xor (h ushr 33)) * -0x3b314601e57a13adL
+            return h xor (h ushr 33)
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.eventr.util
+
+import java.io.Reader
+
+/**
+ * Minimal streaming CSV reader (RFC 4180): comma separated, fields may be
+ * quoted, quotes inside quoted fields are doubled, and quoted fields may span
+ * lines. Records are read one at a time, so memory does not grow with the
+ * size of the input.
+ */
+class CsvReader(private val reader: Reader) {
+
+    private var started = false
+    private var line = 1
+
+    // A character read ahead after a carriage return, or NONE
+    private var pushedBack = NONE
+
+    /** Physical line on which the last record returned started, 1-based. */
+    var recordLine = 0
+        private set
+
+    /**
+     * Reads the next record, or returns null at the end of the input. Blank
+     * lines are skipped.
+     */
+    fun readRecord(): List<String>? {
+        while (true) {
+            val record = readRawRecord() ?: return null
+            if (record.size > 1 || record[0].isNotEmpty()) return record
+        }
+    }
+
+    private fun readRawRecord(): List<String>? {
+        var c = next()
+        if (c == -1) return null
+        recordLine = line
+
+        val fields = ArrayList<String>()
+        val field = StringBuilder()
+        var quoted = false
+        while (true) {
+            when {
+                quoted && c == -1 -> throw IllegalArgumentException("Unterminated quoted field starting on line $recordLine")
+                quoted && c == '"'.code -> {
+                    c = next()
+                    if (c == '"'.code) {
+                        field.append('"')
+                    } else {
+                        quoted = false
+                        continue
+                    }
+                }
+                quoted -> field.append(c.toChar())
+                c == '"'.code && field.isEmpty() -> quoted = true
+                c == ','.code -> {
+                    fields += field.toString()
+                    field.setLength(0)
+                }
+                c == '\r'.code || c == '\n'.code || c == -1 -> {
+                    if (c == '\r'.code) skipLineFeed()
+                    fields += field.toString()
+                    return fields
+                }
+                else -> field.append(c.toChar())
+            }
+            c = next()
+        }
+    }
+
+    private fun next(): Int {
+        val c = if (pushedBack != NONE) pushedBack.also { pushedBack = NONE } else reader.read()
+        if (!started) {
+            started = true
+            if (c == BYTE_ORDER_MARK) return next()
+        }
+        if (c == '\n'.code) line++
+        return c
+    }
+
+    // Treats CRLF and a lone CR as one line break
+    private fun skipLineFeed() {
+        val c = reader.read()
+        if (c != '\n'.code) pushedBack = c
+        line++
+    }
+
+    companion object {
+        private const val BYTE_ORDER_MARK = 0xFEFF
+        private const val NONE = -2
+    }
+}
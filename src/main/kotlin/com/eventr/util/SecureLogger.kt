@@ -61,12 +61,12 @@ class SecureLogger(private val logger: Logger) {
     /**
      * Log email-related events without exposing email addresses.
      * 
-     * @param userId User UUID for identification
+     * @param userId User UUID for identification, null for guest registrations
      * @param emailType Type of email (e.g., "REGISTRATION_CONFIRMATION", "PASSWORD_RESET")
      * @param success Whether the email operation was successful
      * @param details Optional non-sensitive details
      */
-    fun logEmailEvent(userId: UUID, emailType: String, success: Boolean, details: String? = null) {
+    fun logEmailEvent(userId: UUID?, emailType: String, success: Boolean, details: String? = null) {
         logger.info("Email event - User: {}, Type: {}, Success: {}${details?.let { ", Details: {}" } ?: ""}", 
                    userId, emailType, success, details)
     }
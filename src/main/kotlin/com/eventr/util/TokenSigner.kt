@@ -0,0 +1,61 @@
+package com.eventr.util
+
+import java.security.MessageDigest
+import java.util.Base64
+import javax.crypto.Mac
+import javax.crypto.spec.SecretKeySpec
+
+/**
+ * Signs short binary payloads into URL-safe tokens that any node holding the
+ * same secret can verify without shared state.
+ *
+ * A token is the payload followed by a truncated HMAC-SHA256 of it, Base64url
+ * encoded. The signing key is derived from the secret for one [purpose], so a
+ * token issued for one use is never accepted for another.
+ */
+class TokenSigner(secret: String, purpose: String) {
+
+    // Mac instances are not thread-safe; each thread keeps its own
+    private val mac: ThreadLocal<Mac>
+
+    init {
+        require(secret.length >= MIN_SECRET_LENGTH) { "Secret must be at least $MIN_SECRET_LENGTH characters" }
+        val derived = Mac.getInstance(ALGORITHM).run {
+            init(SecretKeySpec(secret.toByteArray(), ALGORITHM))
+            doFinal(purpose.toByteArray())
+        }
+        val key = SecretKeySpec(derived, ALGORITHM)
+        mac = ThreadLocal.withInitial { Mac.getInstance(ALGORITHM).apply { init(key) } }
+    }
+
+    fun sign(payload: ByteArray): String = ENCODER.encodeToString(payload + signature(payload))
+
+    /**
+     * Returns the payload of [token], or null if it is malformed or its
+     * signature does not match.
+     */
+    fun verify(token: String): ByteArray? {
+        val bytes = try {
+            DECODER.decode(token.trim())
+        } catch (e: IllegalArgumentException) {
+            return null
+        }
+        if (bytes.size <= SIGNATURE_LENGTH) return null
+        val payload = bytes.copyOf(bytes.size - SIGNATURE_LENGTH)
+        return payload.takeIf { MessageDigest.isEqual(signature(it), bytes.copyOfRange(payload.size, bytes.size)) }
+    }
+
+    private fun signature(payload: ByteArray): ByteArray = mac.get().doFinal(payload).copyOf(SIGNATURE_LENGTH)
+
+    companion object {
+        const val MIN_SECRET_LENGTH = 32
+
+        private const val ALGORITHM = "HmacSHA256"
+
+        // 128 bits of HMAC-SHA256 keeps tokens small
+        private const val SIGNATURE_LENGTH = 16
+
+        private val ENCODER = Base64.getUrlEncoder().withoutPadding()
+        private val DECODER = Base64.getUrlDecoder()
+    }
+}
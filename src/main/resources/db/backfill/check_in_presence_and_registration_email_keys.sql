@@ -0,0 +1,57 @@
+-- Adds and backfills check_in.presence_key and registration.email_key, together with the unique
+-- constraints behind duplicate check-in and registration detection.
+--
+-- Run once against an existing database that does not have the constraints yet, then run
+-- schema_additions.sql for the remaining tables, columns and indexes; the schema matches what
+-- ddl-auto=validate expects only after both.
+
+-- Check-ins: the session id, or the type for an event-level check-in
+ALTER TABLE check_in ADD COLUMN IF NOT EXISTS presence_key VARCHAR(255);
+
+UPDATE check_in
+SET presence_key = COALESCE(CAST(session_id AS VARCHAR(255)), type)
+WHERE presence_key IS NULL;
+
+-- Repeated check-ins of a registration to the same session or event keep only the earliest
+DELETE FROM check_in
+WHERE id IN (
+    SELECT id FROM (
+        SELECT id, ROW_NUMBER() OVER (PARTITION BY registration_id, presence_key ORDER BY checked_in_at, id) AS copy
+        FROM check_in
+    ) ranked
+    WHERE copy > 1
+);
+
+ALTER TABLE check_in ALTER COLUMN presence_key SET NOT NULL;
+
+ALTER TABLE check_in ADD CONSTRAINT uk_check_in_presence UNIQUE (registration_id, presence_key);
+
+-- Registrations: the trimmed, lower-cased email while the registration is live
+ALTER TABLE registration ADD COLUMN IF NOT EXISTS email_key VARCHAR(255);
+
+UPDATE registration
+SET email_key = NULLIF(LOWER(TRIM(user_email)), '')
+WHERE status IS NULL OR status <> 'CANCELLED';
+
+-- Of several live registrations of one email on an instance, the furthest along is kept
+-- and the others are cancelled
+UPDATE registration
+SET status = 'CANCELLED', email_key = NULL
+WHERE id IN (
+    SELECT id FROM (
+        SELECT id, ROW_NUMBER() OVER (
+            PARTITION BY event_instance_id, email_key
+            ORDER BY CASE status
+                WHEN 'CHECKED_IN' THEN 0
+                WHEN 'REGISTERED' THEN 1
+                WHEN 'NO_SHOW' THEN 2
+                ELSE 3
+            END, id
+        ) AS copy
+        FROM registration
+        WHERE email_key IS NOT NULL
+    ) ranked
+    WHERE copy > 1
+);
+
+ALTER TABLE registration ADD CONSTRAINT uk_registration_instance_email UNIQUE (event_instance_id, email_key);
@@ -0,0 +1,94 @@
+-- Adds the tables, columns and indexes introduced alongside the presence and email keys, and
+-- fills them in from the existing rows:
+--   * version columns on event, event_instance and session, and event/event_instance.updated_at
+--   * per-status registration counters on event_instance
+--   * the registration_capacity seat counters
+--   * the email_outbox table
+--   * users.email_key, the normalized email registration imports look users up by
+--   * the waiting_room and waiting_room_admission tables shared by every node
+--   * the indexes behind registration listing, instance lookup, check-in sync and outbox polling
+--
+-- Run once against an existing database after check_in_presence_and_registration_email_keys.sql,
+-- so counters are taken from the registrations left after duplicates are cancelled. Together the
+-- two scripts bring the schema to what ddl-auto=validate expects. The full-text index on event is
+-- not included: the application creates it on startup when PostgreSQL search is in use.
+
+-- Optimistic-lock versions, which also back HTTP ETags, and modification times
+ALTER TABLE event ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE event ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP(6);
+ALTER TABLE event_instance ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE event_instance ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP(6);
+ALTER TABLE session ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+-- Registrations by status on each instance
+ALTER TABLE event_instance ADD COLUMN IF NOT EXISTS registered_count INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE event_instance ADD COLUMN IF NOT EXISTS waitlisted_count INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE event_instance ADD COLUMN IF NOT EXISTS checked_in_count INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE event_instance ADD COLUMN IF NOT EXISTS no_show_count INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE event_instance ADD COLUMN IF NOT EXISTS cancelled_count INTEGER DEFAULT 0 NOT NULL;
+
+UPDATE event_instance
+SET registered_count = (SELECT COUNT(*) FROM registration r WHERE r.event_instance_id = event_instance.id AND r.status = 'REGISTERED'),
+    waitlisted_count = (SELECT COUNT(*) FROM registration r WHERE r.event_instance_id = event_instance.id AND r.status = 'WAITLISTED'),
+    checked_in_count = (SELECT COUNT(*) FROM registration r WHERE r.event_instance_id = event_instance.id AND r.status = 'CHECKED_IN'),
+    no_show_count = (SELECT COUNT(*) FROM registration r WHERE r.event_instance_id = event_instance.id AND r.status = 'NO_SHOW'),
+    cancelled_count = (SELECT COUNT(*) FROM registration r WHERE r.event_instance_id = event_instance.id AND r.status = 'CANCELLED');
+
+-- Seat counters, one per instance, starting from the registrations that hold a seat
+CREATE TABLE IF NOT EXISTS registration_capacity (
+    event_instance_id UUID NOT NULL PRIMARY KEY,
+    reserved_seats INTEGER NOT NULL
+);
+
+INSERT INTO registration_capacity (event_instance_id, reserved_seats)
+SELECT i.id, (
+    SELECT COUNT(*) FROM registration r
+    WHERE r.event_instance_id = i.id AND r.status IN ('REGISTERED', 'CHECKED_IN', 'NO_SHOW')
+)
+FROM event_instance i
+WHERE NOT EXISTS (SELECT 1 FROM registration_capacity c WHERE c.event_instance_id = i.id);
+
+-- Users by normalized email
+ALTER TABLE users ADD COLUMN IF NOT EXISTS email_key VARCHAR(255);
+
+UPDATE users
+SET email_key = NULLIF(LOWER(TRIM(email)), '');
+
+-- Registration emails waiting to be sent
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id UUID NOT NULL PRIMARY KEY,
+    type VARCHAR(255) NOT NULL,
+    registration_id UUID NOT NULL,
+    reason VARCHAR(1000),
+    status VARCHAR(255) NOT NULL,
+    attempts INTEGER NOT NULL,
+    next_attempt_at TIMESTAMP(6) NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP(6),
+    sent_at TIMESTAMP(6)
+);
+
+-- Waiting rooms and the tickets used to register through them
+CREATE TABLE IF NOT EXISTS waiting_room (
+    event_instance_id UUID NOT NULL PRIMARY KEY,
+    opened_at BIGINT NOT NULL,
+    admissions_per_second DOUBLE PRECISION NOT NULL,
+    issued BIGINT NOT NULL,
+    admitted_base DOUBLE PRECISION NOT NULL,
+    admitted_at BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS waiting_room_admission (
+    id UUID NOT NULL PRIMARY KEY,
+    event_instance_id UUID NOT NULL,
+    opened_at BIGINT NOT NULL,
+    sequence BIGINT NOT NULL,
+    claimed_at BIGINT NOT NULL,
+    CONSTRAINT uk_waiting_room_admission UNIQUE (event_instance_id, opened_at, sequence)
+);
+
+CREATE INDEX IF NOT EXISTS idx_email_outbox_due ON email_outbox (status, next_attempt_at);
+CREATE INDEX IF NOT EXISTS idx_registration_instance_id ON registration (event_instance_id, id);
+CREATE INDEX IF NOT EXISTS idx_event_instance_event ON event_instance (event_id);
+CREATE INDEX IF NOT EXISTS idx_check_in_updated_at ON check_in (updated_at);
+CREATE INDEX IF NOT EXISTS idx_users_email_key ON users (email_key);
@@ -0,0 +1,119 @@
+package com.eventr.controller
+
+import com.eventr.model.EventStatus
+import com.eventr.model.EventType
+import com.eventr.modules.event.api.EventModuleApi
+import com.eventr.modules.event.api.dto.EventInstanceResponse
+import com.eventr.modules.event.api.dto.EventResponse
+import com.eventr.repository.RegistrationRepository
+import com.eventr.service.BulkRegistrationService
+import com.eventr.shared.pagination.CursorPage
+import org.junit.jupiter.api.Test
+import org.mockito.Mockito.*
+import org.mockito.kotlin.any
+import org.mockito.kotlin.anyOrNull
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest
+import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.http.HttpHeaders
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers.*
+import java.util.UUID
+
+@WebMvcTest(EventController::class)
+@AutoConfigureMockMvc(addFilters = false)
+class EventControllerTest {
+
+    @Autowired
+    private lateinit var mockMvc: MockMvc
+
+    @MockBean
+    private lateinit var eventModule: EventModuleApi
+
+    @MockBean
+    private lateinit var registrationRepository: RegistrationRepository
+
+    @MockBean
+    private lateinit var bulkRegistrationService: BulkRegistrationService
+
+    private val eventId = UUID.randomUUID()
+    private val instanceId = UUID.randomUUID()
+
+    @Test
+    fun shouldAnswerNotModifiedForUnchangedEvent() {
+        `when`(eventModule.getEvent(eventId)).thenReturn(eventResponse(version = 2))
+        val etag = mockMvc.perform(get("/api/events/$eventId"))
+            .andExpect(status().isOk)
+            .andExpect(jsonPath("$.name").value("Conference"))
+            .andReturn().response.getHeader(HttpHeaders.ETAG)!!
+
+        mockMvc.perform(get("/api/events/$eventId").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified)
+            .andExpect(content().string(""))
+    }
+
+    @Test
+    fun shouldChangeETagWhenEventOrInstanceVersionChanges() {
+        `when`(eventModule.getEvent(eventId)).thenReturn(eventResponse(version = 2))
+        val etag = mockMvc.perform(get("/api/events/$eventId"))
+            .andReturn().response.getHeader(HttpHeaders.ETAG)!!
+
+        `when`(eventModule.getEvent(eventId)).thenReturn(eventResponse(version = 2, instanceVersion = 1))
+        mockMvc.perform(get("/api/events/$eventId").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk)
+
+        `when`(eventModule.getEvent(eventId)).thenReturn(eventResponse(version = 3))
+        mockMvc.perform(get("/api/events/$eventId").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk)
+    }
+
+    @Test
+    fun shouldAnswerNotModifiedForUnchangedEventPage() {
+        `when`(eventModule.scrollEvents(any(), anyOrNull()))
+            .thenReturn(CursorPage(listOf(eventResponse(version = 1)), "next"))
+        val etag = mockMvc.perform(get("/api/events"))
+            .andExpect(status().isOk)
+            .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, "next"))
+            .andReturn().response.getHeader(HttpHeaders.ETAG)!!
+
+        mockMvc.perform(get("/api/events").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified)
+    }
+
+    private fun eventResponse(version: Long, instanceVersion: Long = 0) = EventResponse(
+        id = eventId,
+        name = "Conference",
+        description = null,
+        status = EventStatus.PUBLISHED,
+        eventType = EventType.IN_PERSON,
+        category = null,
+        bannerImageUrl = null,
+        thumbnailImageUrl = null,
+        tags = emptyList(),
+        capacity = null,
+        waitlistEnabled = false,
+        venueName = null,
+        address = null,
+        city = null,
+        state = null,
+        zipCode = null,
+        country = null,
+        virtualUrl = null,
+        dialInNumber = null,
+        accessCode = null,
+        requiresApproval = false,
+        maxRegistrations = null,
+        organizerName = null,
+        organizerEmail = null,
+        organizerPhone = null,
+        organizerWebsite = null,
+        startDateTime = null,
+        endDateTime = null,
+        timezone = "UTC",
+        agenda = null,
+        instances = listOf(EventInstanceResponse(instanceId, null, null, "Main Hall", null, version = instanceVersion)),
+        version = version
+    )
+}
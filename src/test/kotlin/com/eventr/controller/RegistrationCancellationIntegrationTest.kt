@@ -0,0 +1,111 @@
+package com.eventr.controller
+
+import com.eventr.model.Registration
+import com.eventr.model.RegistrationStatus
+import com.eventr.repository.RegistrationRepository
+import com.eventr.service.EmailNotificationService
+import com.eventr.service.EventInstanceFixture
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Qualifier
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.context.TestConfiguration
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Primary
+import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+import java.lang.reflect.InvocationTargetException
+import java.lang.reflect.Proxy
+import java.time.Duration
+
+/**
+ * Cancels registrations through the HTTP layer, where open-in-view keeps one
+ * persistence context for the whole request.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+@DisplayName("Registration cancellation over HTTP")
+class RegistrationCancellationIntegrationTest {
+
+    @Autowired
+    private lateinit var mockMvc: MockMvc
+
+    @Autowired
+    private lateinit var registrationRepository: RegistrationRepository
+
+    @Autowired
+    private lateinit var jdbcTemplate: JdbcTemplate
+
+    @Autowired
+    private lateinit var fixture: EventInstanceFixture
+
+    @MockBean
+    private lateinit var emailNotificationService: EmailNotificationService
+
+    @AfterEach
+    fun tearDown() {
+        afterFindById = {}
+        fixture.cleanUp()
+    }
+
+    @Test
+    @DisplayName("Should cancel a registration checked in after the request loaded it, keeping the check-in")
+    fun shouldCancelRegistrationWhoseStatusMoved() {
+        // Arrange
+        val registration = registrationRepository.save(Registration(
+            eventInstance = fixture.instance("Meetup"), userEmail = "ada@example.com", status = RegistrationStatus.REGISTERED
+        ))
+        val id = registration.id!!
+        // A door check-in commits right after the cancel request has loaded the registration
+        afterFindById = {
+            afterFindById = {}
+            jdbcTemplate.update("UPDATE registration SET status = 'CHECKED_IN', checked_in = TRUE WHERE id = ?", id)
+        }
+
+        // Act
+        assertTimeoutPreemptively(Duration.ofSeconds(10)) {
+            mockMvc.perform(put("/api/registrations/$id/cancel"))
+                .andExpect(status().isOk)
+                .andExpect(jsonPath("$.status").value("CANCELLED"))
+        }
+
+        // Assert
+        val (status, checkedIn) = jdbcTemplate.queryForMap("SELECT status, checked_in FROM registration WHERE id = ?", id)
+            .let { it["STATUS"] to it["CHECKED_IN"] }
+        assertEquals("CANCELLED", status)
+        assertEquals(true, checkedIn, "no stale columns written back")
+    }
+
+    // Runs a hook after every findById, to interleave a concurrent write with a request
+    @TestConfiguration
+    class InterleavingConfig {
+        @Bean
+        @Primary
+        fun interleavingRegistrationRepository(
+            @Qualifier("registrationRepository") repository: RegistrationRepository
+        ): RegistrationRepository = Proxy.newProxyInstance(
+            RegistrationRepository::class.java.classLoader, arrayOf(RegistrationRepository::class.java)
+        ) { _, method, args ->
+            try {
+                method.invoke(repository, *(args ?: emptyArray()))
+            } catch (e: InvocationTargetException) {
+                throw e.targetException
+            }.also { if (method.name == "findById") afterFindById() }
+        } as RegistrationRepository
+    }
+
+    companion object {
+        @Volatile
+        private var afterFindById: () -> Unit = {}
+    }
+}
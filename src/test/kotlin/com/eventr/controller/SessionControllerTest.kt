@@ -0,0 +1,109 @@
+package com.eventr.controller
+
+import com.eventr.service.SessionDto
+import com.eventr.service.SessionService
+import com.eventr.service.SessionVersionDto
+import org.junit.jupiter.api.Test
+import org.mockito.Mockito.*
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest
+import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.http.HttpHeaders
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers.*
+import java.util.UUID
+
+@WebMvcTest(SessionController::class)
+@AutoConfigureMockMvc(addFilters = false)
+class SessionControllerTest {
+
+    @Autowired
+    private lateinit var mockMvc: MockMvc
+
+    @MockBean
+    private lateinit var sessionService: SessionService
+
+    private val sessionId = UUID.randomUUID()
+    private val eventId = UUID.randomUUID()
+
+    @Test
+    fun shouldReturnSessionWithETag() {
+        `when`(sessionService.getSessionVersion(sessionId)).thenReturn(SessionVersionDto(sessionId, 3, 10))
+        `when`(sessionService.getSessionById(sessionId)).thenReturn(sessionDto())
+
+        mockMvc.perform(get("/api/sessions/$sessionId"))
+            .andExpect(status().isOk)
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andExpect(jsonPath("$.title").value("Opening Keynote"))
+    }
+
+    @Test
+    fun shouldAnswerNotModifiedWithoutLoadingTheSession() {
+        `when`(sessionService.getSessionVersion(sessionId)).thenReturn(SessionVersionDto(sessionId, 3, 10))
+        `when`(sessionService.getSessionById(sessionId)).thenReturn(sessionDto())
+        val etag = mockMvc.perform(get("/api/sessions/$sessionId"))
+            .andReturn().response.getHeader(HttpHeaders.ETAG)!!
+        clearInvocations(sessionService)
+
+        mockMvc.perform(get("/api/sessions/$sessionId").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified)
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+
+        verify(sessionService, never()).getSessionById(sessionId)
+    }
+
+    @Test
+    fun shouldChangeETagWhenAttendeeCountChanges() {
+        `when`(sessionService.getSessionVersion(sessionId)).thenReturn(SessionVersionDto(sessionId, 3, 10))
+        `when`(sessionService.getSessionById(sessionId)).thenReturn(sessionDto())
+        val etag = mockMvc.perform(get("/api/sessions/$sessionId"))
+            .andReturn().response.getHeader(HttpHeaders.ETAG)!!
+
+        `when`(sessionService.getSessionVersion(sessionId)).thenReturn(SessionVersionDto(sessionId, 3, 11))
+
+        mockMvc.perform(get("/api/sessions/$sessionId").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk)
+    }
+
+    @Test
+    fun shouldAnswerNotModifiedForUnchangedEventSessions() {
+        `when`(sessionService.getSessionVersionsByEvent(eventId)).thenReturn(listOf(SessionVersionDto(sessionId, 1, 0)))
+        `when`(sessionService.getSessionsByEvent(eventId)).thenReturn(listOf(sessionDto()))
+        val etag = mockMvc.perform(get("/api/sessions/event/$eventId"))
+            .andReturn().response.getHeader(HttpHeaders.ETAG)!!
+        clearInvocations(sessionService)
+
+        mockMvc.perform(get("/api/sessions/event/$eventId").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified)
+
+        verify(sessionService, never()).getSessionsByEvent(eventId)
+    }
+
+    @Test
+    fun shouldReturnNotFoundForUnknownSession() {
+        mockMvc.perform(get("/api/sessions/$sessionId"))
+            .andExpect(status().isNotFound)
+    }
+
+    private fun sessionDto() = SessionDto(
+        id = sessionId,
+        eventId = eventId,
+        title = "Opening Keynote",
+        description = null,
+        startDateTime = "2030-01-01T09:00:00",
+        endDateTime = "2030-01-01T10:00:00",
+        location = null,
+        speakerName = null,
+        speakerBio = null,
+        capacity = 100,
+        attendeeCount = 10,
+        sessionType = "KEYNOTE",
+        isActive = true,
+        requirements = emptyList(),
+        materials = emptyList(),
+        createdAt = "2029-12-01T00:00:00",
+        updatedAt = "2029-12-01T00:00:00"
+    )
+}
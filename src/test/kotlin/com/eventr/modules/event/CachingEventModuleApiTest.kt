@@ -0,0 +1,160 @@
+package com.eventr.modules.event
+
+import com.eventr.model.EventStatus
+import com.eventr.model.EventType
+import com.eventr.model.RegistrationStatus
+import com.eventr.modules.event.api.dto.EventFacetsResponse
+import com.eventr.modules.event.api.dto.EventFilterCriteria
+import com.eventr.modules.event.api.dto.EventResponse
+import com.eventr.modules.event.events.EventUpdated
+import com.eventr.modules.event.internal.CachingEventModuleApi
+import com.eventr.modules.event.internal.EventModuleApiImpl
+import com.eventr.modules.registration.events.RegistrationStatusChanged
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.*
+import java.time.Duration
+import java.util.UUID
+
+@DisplayName("CachingEventModuleApi Tests")
+class CachingEventModuleApiTest {
+
+    private val delegate: EventModuleApiImpl = mock()
+
+    private lateinit var cachingModule: CachingEventModuleApi
+
+    private val eventId = UUID.randomUUID()
+    private val otherEventId = UUID.randomUUID()
+
+    @BeforeEach
+    fun setUp() {
+        cachingModule = CachingEventModuleApi(delegate, 100, Duration.ofMinutes(5))
+        whenever(delegate.getEvent(eventId)).thenReturn(response(eventId))
+        whenever(delegate.getEvent(otherEventId)).thenReturn(response(otherEventId))
+        whenever(delegate.findEvents(any())).thenReturn(listOf(response(eventId)))
+    }
+
+    @Test
+    @DisplayName("Should serve repeated reads from the cache")
+    fun shouldServeRepeatedReadsFromCache() {
+        // Act
+        repeat(3) { cachingModule.getEvent(eventId) }
+        repeat(3) { cachingModule.findEvents(EventFilterCriteria(city = "Austin")) }
+
+        // Assert
+        verify(delegate, times(1)).getEvent(eventId)
+        verify(delegate, times(1)).findEvents(EventFilterCriteria(city = "Austin"))
+    }
+
+    @Test
+    @DisplayName("Should evict only the changed event but every cached list")
+    fun shouldInvalidateOnDomainEvent() {
+        // Arrange
+        cachingModule.getEvent(eventId)
+        cachingModule.getEvent(otherEventId)
+        cachingModule.findEvents(EventFilterCriteria())
+
+        // Act
+        cachingModule.onEventChanged(EventUpdated(aggregateId = eventId, eventName = "Renamed", changedFields = listOf("name")))
+        cachingModule.getEvent(eventId)
+        cachingModule.getEvent(otherEventId)
+        cachingModule.findEvents(EventFilterCriteria())
+
+        // Assert
+        verify(delegate, times(2)).getEvent(eventId)
+        verify(delegate, times(1)).getEvent(otherEventId)
+        verify(delegate, times(2)).findEvents(EventFilterCriteria())
+    }
+
+    @Test
+    @DisplayName("Should evict an event once per flush however many registrations changed")
+    fun shouldCoalesceRegistrationEvictions() {
+        // Arrange
+        val instanceId = UUID.randomUUID()
+        whenever(delegate.getEventIdForInstance(instanceId)).thenReturn(eventId)
+        cachingModule.getEvent(eventId)
+
+        // Act
+        repeat(50) {
+            cachingModule.onRegistrationsChanged(
+                RegistrationStatusChanged(instanceId, null, RegistrationStatus.REGISTERED, listOf(UUID.randomUUID()))
+            )
+        }
+        cachingModule.getEvent(eventId)
+        cachingModule.flushRegistrationChanges()
+        cachingModule.getEvent(eventId)
+        cachingModule.flushRegistrationChanges()
+        cachingModule.getEvent(eventId)
+
+        // Assert
+        verify(delegate, times(1)).getEventIdForInstance(instanceId)
+        verify(delegate, times(2)).getEvent(eventId)
+    }
+
+    @Test
+    @DisplayName("Should cache facets independently of sort and paging until the next event change")
+    fun shouldCacheFacetsUntilEventChange() {
+        // Arrange
+        whenever(delegate.getFacets(any())).thenReturn(EventFacetsResponse(0, emptyList(), emptyList(), emptyList(), emptyList()))
+
+        // Act
+        cachingModule.getFacets(EventFilterCriteria(city = "Austin", page = 0))
+        cachingModule.getFacets(EventFilterCriteria(city = "Austin", page = 3, sortBy = "name"))
+        cachingModule.onEventChanged(EventUpdated(aggregateId = eventId, eventName = "Renamed", changedFields = listOf("city")))
+        cachingModule.getFacets(EventFilterCriteria(city = "Austin"))
+
+        // Assert
+        verify(delegate, times(2)).getFacets(any())
+    }
+
+    @Test
+    @DisplayName("Should not cache unknown events")
+    fun shouldNotCacheMissingEvents() {
+        // Arrange
+        val unknownId = UUID.randomUUID()
+
+        // Act
+        cachingModule.getEvent(unknownId)
+        whenever(delegate.getEvent(unknownId)).thenReturn(response(unknownId))
+        val result = cachingModule.getEvent(unknownId)
+
+        // Assert
+        assertEquals(unknownId, result?.id)
+    }
+
+    private fun response(id: UUID) = EventResponse(
+        id = id,
+        name = "Event $id",
+        description = null,
+        status = EventStatus.PUBLISHED,
+        eventType = EventType.IN_PERSON,
+        category = null,
+        bannerImageUrl = null,
+        thumbnailImageUrl = null,
+        tags = emptyList(),
+        capacity = null,
+        waitlistEnabled = false,
+        venueName = null,
+        address = null,
+        city = null,
+        state = null,
+        zipCode = null,
+        country = null,
+        virtualUrl = null,
+        dialInNumber = null,
+        accessCode = null,
+        requiresApproval = false,
+        maxRegistrations = null,
+        organizerName = null,
+        organizerEmail = null,
+        organizerPhone = null,
+        organizerWebsite = null,
+        startDateTime = null,
+        endDateTime = null,
+        timezone = "UTC",
+        agenda = null,
+        instances = emptyList()
+    )
+}
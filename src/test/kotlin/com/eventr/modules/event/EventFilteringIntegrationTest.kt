@@ -0,0 +1,327 @@
+package com.eventr.modules.event
+
+import com.eventr.model.*
+import com.eventr.modules.event.api.EventModuleApi
+import com.eventr.modules.event.api.dto.EventFilterCriteria
+import com.eventr.modules.event.api.dto.FacetCount
+import com.eventr.modules.event.api.dto.EventSummaryResponse
+import com.eventr.modules.event.internal.EventModuleApiImpl
+import com.eventr.modules.event.internal.catalog.PublishedEventCatalog
+import com.eventr.modules.event.internal.search.EventSearchIndex
+import com.eventr.modules.event.internal.search.EventSuggestIndex
+import com.eventr.modules.event.internal.search.InMemoryEventSearchIndex
+import com.eventr.modules.event.internal.search.SearchHit
+import com.eventr.repository.EventInstanceRepository
+import com.eventr.repository.EventRepository
+import com.eventr.shared.event.EventPublisher
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.mock
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager
+import org.springframework.data.jpa.domain.Specification
+import org.springframework.test.context.ActiveProfiles
+import java.time.LocalDateTime
+import java.util.UUID
+
+/**
+ * Runs EventModuleApi.findEvents/scrollEvents/getFacets against a real (H2) database to
+ * verify that criteria and keyset positions are translated into SQL correctly,
+ * and that the in-memory catalog answers published browsing identically.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@DisplayName("Event filtering (database-backed)")
+class EventFilteringIntegrationTest {
+
+    @Autowired
+    private lateinit var entityManager: TestEntityManager
+
+    @Autowired
+    private lateinit var eventRepository: EventRepository
+
+    @Autowired
+    private lateinit var eventInstanceRepository: EventInstanceRepository
+
+    private lateinit var eventModule: EventModuleApi
+
+    private val searchIndex = InMemoryEventSearchIndex()
+
+    private val baseTime = LocalDateTime.of(2030, 1, 1, 9, 0)
+
+    @BeforeEach
+    fun setUp() {
+        eventModule = EventModuleApiImpl(eventRepository, eventInstanceRepository, mock<EventPublisher>(), searchIndex,
+            PublishedEventCatalog(), EventSuggestIndex())
+
+        persistEvent("Kotlin Conference", "Talks about 100% Kotlin", "Austin", EventCategory.TECHNOLOGY, EventType.IN_PERSON, 1)
+        persistEvent("Business Summit", "Networking for founders", "Denver", EventCategory.BUSINESS, EventType.HYBRID, 2)
+        persistEvent("Tech Meetup", "Monthly meetup", "austin", EventCategory.TECHNOLOGY, EventType.VIRTUAL, 3)
+        persistEvent("Draft Tech Day", "Not yet visible", "Austin", EventCategory.TECHNOLOGY, EventType.IN_PERSON, 4,
+            status = EventStatus.DRAFT)
+        entityManager.flush()
+        entityManager.clear()
+        searchIndex.rebuild { eventRepository.findAll() }
+    }
+
+    @Test
+    @DisplayName("Should only return published events by default")
+    fun shouldOnlyReturnPublishedEvents() {
+        val names = eventModule.findEvents(EventFilterCriteria()).map { it.name }
+
+        assertEquals(listOf("Kotlin Conference", "Business Summit", "Tech Meetup"), names)
+    }
+
+    @Test
+    @DisplayName("Should combine search, city, category and type predicates")
+    fun shouldCombinePredicates() {
+        val results = eventModule.findEvents(EventFilterCriteria(
+            search = "TECH",
+            city = "AUSTIN",
+            category = EventCategory.TECHNOLOGY,
+            eventType = EventType.VIRTUAL
+        ))
+
+        assertEquals(listOf("Tech Meetup"), results.map { it.name })
+    }
+
+    @Test
+    @DisplayName("Should search description text and ignore punctuation-only queries")
+    fun shouldSearchDescriptionLiterally() {
+        assertEquals(listOf("Kotlin Conference"),
+            eventModule.findEvents(EventFilterCriteria(search = "100%")).map { it.name })
+        assertTrue(eventModule.findEvents(EventFilterCriteria(search = "_%")).isEmpty())
+    }
+
+    @Test
+    @DisplayName("Should match stemmed words and prefixes, ranking name matches first")
+    fun shouldRankFullTextMatches() {
+        val workshop = persistEvent("Android Workshop", "Build apps with Kotlin", "Boston",
+            EventCategory.TECHNOLOGY, EventType.IN_PERSON, 0)
+        searchIndex.upsert(workshop)
+
+        assertEquals(listOf("Tech Meetup"),
+            eventModule.findEvents(EventFilterCriteria(search = "meetups")).map { it.name })
+        assertEquals(listOf("Kotlin Conference"),
+            eventModule.findEvents(EventFilterCriteria(search = "conf")).map { it.name })
+        assertEquals(listOf("Kotlin Conference", "Android Workshop"),
+            eventModule.findEvents(EventFilterCriteria(search = "kotlin", sortBy = "relevance")).map { it.name })
+        assertEquals(listOf("Android Workshop", "Kotlin Conference"),
+            eventModule.findEvents(EventFilterCriteria(search = "kotlin")).map { it.name })
+    }
+
+    @Test
+    @DisplayName("Should find published matches ranked below a thousand filtered-out ones")
+    fun shouldFilterBeforeLimitingSearchHits() {
+        // Drafts matching on their name outrank the published event that mentions Kotlin in its description
+        repeat(1000) {
+            persistEvent("Kotlin Sprint $it", "Closed group", "Austin", EventCategory.TECHNOLOGY, EventType.IN_PERSON, 10,
+                status = EventStatus.DRAFT)
+        }
+        persistEvent("Language Day", "One kotlin track", "Denver", EventCategory.EDUCATION, EventType.IN_PERSON, 0)
+        entityManager.flush()
+        entityManager.clear()
+        searchIndex.rebuild { eventRepository.findAll() }
+        val catalog = PublishedEventCatalog().apply { rebuild(eventRepository.findTaggedByStatus(EventStatus.PUBLISHED)) }
+        val catalogModule = EventModuleApiImpl(eventRepository, eventInstanceRepository, mock<EventPublisher>(), searchIndex, catalog,
+            EventSuggestIndex())
+
+        listOf(eventModule, catalogModule).forEach { module ->
+            assertEquals(listOf("Language Day", "Kotlin Conference"),
+                module.findEvents(EventFilterCriteria(search = "kotlin")).map { it.name })
+            assertEquals(listOf("Kotlin Conference", "Language Day"),
+                module.findEventSummaries(EventFilterCriteria(search = "kotlin", sortBy = "relevance")).map { it.name })
+            assertEquals(listOf("Language Day"),
+                module.findEvents(EventFilterCriteria(search = "kotlin", sortBy = "relevance", page = 1, size = 1)).map { it.name })
+            assertEquals(2, module.getFacets(EventFilterCriteria(search = "kotlin")).total)
+        }
+        assertEquals(1002, eventModule.getFacets(EventFilterCriteria(search = "kotlin", publishedOnly = false)).total)
+    }
+
+    @Test
+    @DisplayName("Should filter, rank and page in the database when the index ranks in SQL")
+    fun shouldRankInDatabaseWhenIndexSupportsIt() {
+        persistEvent("Kotlin Sprint", "Closed group", "Austin", EventCategory.TECHNOLOGY, EventType.IN_PERSON, 10,
+            status = EventStatus.DRAFT)
+        persistEvent("Android Workshop", "Build apps with Kotlin", "Boston", EventCategory.TECHNOLOGY, EventType.IN_PERSON, 0)
+        entityManager.flush()
+        searchIndex.rebuild { eventRepository.findAll() }
+        // Ranks by name, descending, standing in for ts_rank
+        val sqlRanking = object : EventSearchIndex by searchIndex {
+            override fun search(query: String, limit: Int): List<SearchHit> = fail("hits are not fetched when SQL ranks")
+            override fun ranking(query: String): Specification<Event> = searchIndex.matching(query).and(Specification { root, criteriaQuery, cb ->
+                criteriaQuery?.orderBy(cb.desc(root.get<String>("name")), cb.asc(root.get<UUID>("id")))
+                null
+            })
+        }
+        val module = EventModuleApiImpl(eventRepository, eventInstanceRepository, mock<EventPublisher>(), sqlRanking,
+            PublishedEventCatalog(), EventSuggestIndex())
+
+        assertEquals(listOf("Kotlin Conference", "Android Workshop"),
+            module.findEventSummaries(EventFilterCriteria(search = "kotlin", sortBy = "relevance")).map { it.name })
+        assertEquals(listOf("Android Workshop"),
+            module.findEvents(EventFilterCriteria(search = "kotlin", sortBy = "relevance", page = 1, size = 1)).map { it.name })
+    }
+
+    @Test
+    @DisplayName("Should page and sort in the database")
+    fun shouldPageAndSort() {
+        val firstPage = eventModule.findEvents(EventFilterCriteria(publishedOnly = false, sortBy = "name", page = 0, size = 2))
+        val secondPage = eventModule.findEvents(EventFilterCriteria(publishedOnly = false, sortBy = "name", page = 1, size = 2))
+
+        assertEquals(listOf("Business Summit", "Draft Tech Day"), firstPage.map { it.name })
+        assertEquals(listOf("Kotlin Conference", "Tech Meetup"), secondPage.map { it.name })
+    }
+
+    @Test
+    @DisplayName("Should walk every event exactly once with keyset cursors, undated events last")
+    fun shouldWalkAllEventsWithKeysetCursors() {
+        entityManager.persist(Event().apply { name = "Undated Draft"; status = EventStatus.DRAFT })
+        entityManager.flush()
+
+        val ascending = scrollAll(EventFilterCriteria(publishedOnly = false, size = 2))
+        val descending = scrollAll(EventFilterCriteria(publishedOnly = false, sortDirection = "desc", size = 1))
+
+        assertEquals(listOf("Kotlin Conference", "Business Summit", "Tech Meetup", "Draft Tech Day", "Undated Draft"), ascending)
+        assertEquals(listOf("Draft Tech Day", "Tech Meetup", "Business Summit", "Kotlin Conference", "Undated Draft"), descending)
+    }
+
+    @Test
+    @DisplayName("Should apply filters together with the keyset position")
+    fun shouldApplyFiltersWithKeyset() {
+        val names = scrollAll(EventFilterCriteria(city = "austin", size = 1))
+
+        assertEquals(listOf("Kotlin Conference", "Tech Meetup"), names)
+    }
+
+    @Test
+    @DisplayName("Should match any requested tag, case-insensitively")
+    fun shouldFilterByTags() {
+        persistEvent("AI Hack Night", "Build a bot", "Austin", EventCategory.TECHNOLOGY, EventType.HYBRID, 5,
+            tags = listOf("AI", "hackathon"))
+        persistEvent("Data Summit", "Pipelines", "Denver", EventCategory.TECHNOLOGY, EventType.HYBRID, 6,
+            tags = listOf("data"))
+        entityManager.flush()
+
+        val names = eventModule.findEvents(EventFilterCriteria(tags = listOf("ai", "DATA"))).map { it.name }
+
+        assertEquals(listOf("AI Hack Night", "Data Summit"), names)
+    }
+
+    @Test
+    @DisplayName("Should answer published browsing from the catalog exactly as from the database")
+    fun shouldServeSameResultsFromCatalog() {
+        persistEvent("AI Hack Night", "Build a bot", "Austin", EventCategory.TECHNOLOGY, EventType.HYBRID, 5,
+            tags = listOf("ai", "hackathon"))
+        persistEvent("ML Summit", "Models in production", "Boston", EventCategory.TECHNOLOGY, EventType.HYBRID, 6,
+            tags = listOf("ai"))
+        entityManager.flush()
+        entityManager.clear()
+        searchIndex.rebuild { eventRepository.findAll() }
+        val catalog = PublishedEventCatalog().apply { rebuild(eventRepository.findTaggedByStatus(EventStatus.PUBLISHED)) }
+        val catalogModule = EventModuleApiImpl(eventRepository, eventInstanceRepository, mock<EventPublisher>(), searchIndex, catalog,
+            EventSuggestIndex())
+
+        listOf(
+            EventFilterCriteria(),
+            EventFilterCriteria(category = EventCategory.TECHNOLOGY, eventType = EventType.HYBRID, tags = listOf("ai")),
+            EventFilterCriteria(city = "AUSTIN", sortBy = "name", sortDirection = "desc"),
+            EventFilterCriteria(search = "summit", sortBy = "relevance"),
+            EventFilterCriteria(sortBy = "category", page = 1, size = 2)
+        ).forEach { criteria ->
+            assertEquals(eventModule.findEvents(criteria).map { it.id }, catalogModule.findEvents(criteria).map { it.id }, "$criteria")
+            assertEquals(eventModule.findEventSummaries(criteria), catalogModule.findEventSummaries(criteria), "$criteria")
+            assertEquals(eventModule.getFacets(criteria), catalogModule.getFacets(criteria), "$criteria")
+        }
+        assertEquals(scrollAll(EventFilterCriteria(size = 2)), scrollAll(EventFilterCriteria(size = 2), catalogModule))
+        assertEquals(
+            scrollAll(EventFilterCriteria(sortDirection = "desc", size = 1)),
+            scrollAll(EventFilterCriteria(sortDirection = "desc", size = 1), catalogModule)
+        )
+        assertEquals(listOf("AI Hack Night", "ML Summit"), catalogModule.findEvents(
+            EventFilterCriteria(category = EventCategory.TECHNOLOGY, eventType = EventType.HYBRID, tags = listOf("ai"))
+        ).map { it.name })
+    }
+
+    @Test
+    @DisplayName("Should return the same summaries as full events, with a bounded description excerpt")
+    fun shouldProjectSummaries() {
+        persistEvent("Long Read", "x".repeat(1000), "Austin", EventCategory.EDUCATION, EventType.IN_PERSON, 5)
+        entityManager.flush()
+
+        val criteria = EventFilterCriteria(publishedOnly = false, sortBy = "name", size = 10)
+        val summaries = eventModule.findEventSummaries(criteria)
+        val scrolled = eventModule.scrollEventSummaries(EventFilterCriteria(publishedOnly = false, size = 10), null).items
+
+        assertEquals(eventModule.findEvents(criteria).map { it.id }, summaries.map { it.id })
+        assertEquals(EventSummaryResponse.EXCERPT_LENGTH, summaries.first { it.name == "Long Read" }.descriptionExcerpt?.length)
+        assertEquals("Monthly meetup", summaries.first { it.name == "Tech Meetup" }.descriptionExcerpt)
+        assertEquals(
+            listOf("Kotlin Conference", "Business Summit", "Tech Meetup", "Draft Tech Day", "Long Read"),
+            scrolled.map { it.name }
+        )
+    }
+
+    @Test
+    @DisplayName("Should count each facet with every filter except its own")
+    fun shouldCountFacetsDrillSideways() {
+        persistEvent("Kotlin Workshop", "Hands-on", "Austin", EventCategory.TECHNOLOGY, EventType.IN_PERSON, 5,
+            tags = listOf("kotlin", "workshop"))
+        persistEvent("Kotlin Night", "Evening talks", "Denver", EventCategory.TECHNOLOGY, EventType.VIRTUAL, 6,
+            tags = listOf("kotlin"))
+        entityManager.flush()
+
+        val facets = eventModule.getFacets(EventFilterCriteria(city = "AUSTIN", category = EventCategory.TECHNOLOGY))
+
+        assertEquals(3, facets.total)
+        assertEquals(listOf(FacetCount("TECHNOLOGY", 3)), facets.categories)
+        assertEquals(listOf(FacetCount("IN_PERSON", 2), FacetCount("VIRTUAL", 1)), facets.eventTypes)
+        assertEquals(listOf(FacetCount("Austin", 3), FacetCount("Denver", 1)), facets.cities)
+        assertEquals(listOf(FacetCount("kotlin", 1), FacetCount("workshop", 1)), facets.tags)
+    }
+
+    @Test
+    @DisplayName("Should return empty facets when the search matches nothing")
+    fun shouldReturnEmptyFacetsForUnmatchedSearch() {
+        val facets = eventModule.getFacets(EventFilterCriteria(search = "nonexistent"))
+
+        assertEquals(0, facets.total)
+        assertTrue(facets.categories.isEmpty() && facets.cities.isEmpty() && facets.tags.isEmpty())
+    }
+
+    private fun scrollAll(criteria: EventFilterCriteria, module: EventModuleApi = eventModule): List<String> {
+        val names = mutableListOf<String>()
+        var cursor: String? = null
+        do {
+            val page = module.scrollEvents(criteria, cursor)
+            names += page.items.map { it.name }
+            cursor = page.nextCursor
+        } while (cursor != null)
+        return names
+    }
+
+    private fun persistEvent(
+        name: String,
+        description: String,
+        city: String,
+        category: EventCategory,
+        eventType: EventType,
+        dayOffset: Long,
+        status: EventStatus = EventStatus.PUBLISHED,
+        tags: List<String> = emptyList()
+    ): Event {
+        return entityManager.persist(Event().apply {
+            this.name = name
+            this.description = description
+            this.city = city
+            this.category = category
+            this.eventType = eventType
+            this.status = status
+            this.startDateTime = baseTime.plusDays(dayOffset)
+            this.tags = tags.toMutableList()
+        })
+    }
+}
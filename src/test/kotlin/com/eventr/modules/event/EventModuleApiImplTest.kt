@@ -5,6 +5,9 @@ import com.eventr.modules.event.api.EventModuleApi
 import com.eventr.modules.event.api.EventNotFoundException
 import com.eventr.modules.event.api.dto.*
 import com.eventr.modules.event.internal.EventModuleApiImpl
+import com.eventr.modules.event.internal.catalog.PublishedEventCatalog
+import com.eventr.modules.event.internal.search.EventSuggestIndex
+import com.eventr.modules.event.internal.search.EventSearchIndex
 import com.eventr.repository.EventInstanceRepository
 import com.eventr.repository.EventRepository
 import com.eventr.shared.event.EventPublisher
@@ -20,7 +23,10 @@ import org.mockito.Captor
 import org.mockito.Mock
 import org.mockito.junit.jupiter.MockitoExtension
 import org.mockito.kotlin.*
+import org.springframework.data.domain.PageImpl
+import org.springframework.data.domain.Pageable
 import org.springframework.data.domain.Sort
+import org.springframework.data.jpa.domain.Specification
 import java.time.LocalDateTime
 import java.util.*
 
@@ -46,6 +52,9 @@ class EventModuleApiImplTest {
     @Mock
     private lateinit var eventPublisher: EventPublisher
 
+    @Mock
+    private lateinit var eventSearchIndex: EventSearchIndex
+
     @Captor
     private lateinit var eventCaptor: ArgumentCaptor<Event>
 
@@ -63,7 +72,10 @@ class EventModuleApiImplTest {
         eventModule = EventModuleApiImpl(
             eventRepository,
             eventInstanceRepository,
-            eventPublisher
+            eventPublisher,
+            eventSearchIndex,
+            PublishedEventCatalog(),
+            EventSuggestIndex()
         )
     }
 
@@ -217,7 +229,7 @@ class EventModuleApiImplTest {
         fun shouldReturnEventWhenFound() {
             // Arrange
             val event = createEvent(testEventId, EventStatus.PUBLISHED)
-            whenever(eventRepository.findById(testEventId)).thenReturn(Optional.of(event))
+            whenever(eventRepository.findDetailedById(testEventId)).thenReturn(Optional.of(event))
 
             // Act
             val response = eventModule.getEvent(testEventId)
@@ -232,7 +244,7 @@ class EventModuleApiImplTest {
         @DisplayName("Should return null when event not found")
         fun shouldReturnNullWhenEventNotFound() {
             // Arrange
-            whenever(eventRepository.findById(testEventId)).thenReturn(Optional.empty())
+            whenever(eventRepository.findDetailedById(testEventId)).thenReturn(Optional.empty())
 
             // Act
             val response = eventModule.getEvent(testEventId)
@@ -245,7 +257,7 @@ class EventModuleApiImplTest {
         @DisplayName("Should throw EventNotFoundException from getEventOrThrow")
         fun shouldThrowEventNotFoundExceptionFromGetEventOrThrow() {
             // Arrange
-            whenever(eventRepository.findById(testEventId)).thenReturn(Optional.empty())
+            whenever(eventRepository.findDetailedById(testEventId)).thenReturn(Optional.empty())
 
             // Act & Assert
             assertThrows<EventNotFoundException> {
@@ -430,8 +442,8 @@ class EventModuleApiImplTest {
     inner class FindEventsTests {
 
         @Test
-        @DisplayName("Should return only published events when publishedOnly is true")
-        fun shouldReturnOnlyPublishedEventsWhenPublishedOnlyIsTrue() {
+        @DisplayName("Should map the page returned by the specification query")
+        fun shouldMapThePageReturnedByTheSpecificationQuery() {
             // Arrange
             val publishedEvents = listOf(
                 createEvent(UUID.randomUUID(), EventStatus.PUBLISHED),
@@ -439,8 +451,8 @@ class EventModuleApiImplTest {
             )
             val criteria = EventFilterCriteria(publishedOnly = true)
 
-            whenever(eventRepository.findByStatus(eq(EventStatus.PUBLISHED), any<Sort>()))
-                .thenReturn(publishedEvents)
+            whenever(eventRepository.findAll(any<Specification<Event>>(), any<Pageable>()))
+                .thenReturn(PageImpl(publishedEvents))
 
             // Act
             val response = eventModule.findEvents(criteria)
@@ -451,24 +463,24 @@ class EventModuleApiImplTest {
         }
 
         @Test
-        @DisplayName("Should filter by search text")
-        fun shouldFilterBySearchText() {
+        @DisplayName("Should request the page with requested sort and a capped size")
+        fun shouldRequestThePageWithRequestedSortAndCappedSize() {
             // Arrange
-            val events = listOf(
-                createEvent(UUID.randomUUID(), EventStatus.PUBLISHED).apply { name = "Tech Conference" },
-                createEvent(UUID.randomUUID(), EventStatus.PUBLISHED).apply { name = "Business Summit" }
-            )
-            val criteria = EventFilterCriteria(search = "tech", publishedOnly = true)
+            val criteria = EventFilterCriteria(sortBy = "name", sortDirection = "desc", page = 3, size = 10_000)
+            val pageableCaptor = argumentCaptor<Pageable>()
 
-            whenever(eventRepository.findByStatus(eq(EventStatus.PUBLISHED), any<Sort>()))
-                .thenReturn(events)
+            whenever(eventRepository.findAll(any<Specification<Event>>(), pageableCaptor.capture()))
+                .thenReturn(PageImpl(emptyList()))
 
             // Act
-            val response = eventModule.findEvents(criteria)
+            eventModule.findEvents(criteria)
 
             // Assert
-            assertEquals(1, response.size)
-            assertEquals("Tech Conference", response[0].name)
+            val pageable = pageableCaptor.firstValue
+            assertEquals(3, pageable.pageNumber)
+            assertEquals(EventFilterCriteria.MAX_PAGE_SIZE, pageable.pageSize)
+            assertEquals(Sort.Direction.DESC, pageable.sort.getOrderFor("name")?.direction)
+            assertNotNull(pageable.sort.getOrderFor("id"))
         }
     }
 
@@ -0,0 +1,144 @@
+package com.eventr.modules.event
+
+import com.eventr.model.Event
+import com.eventr.model.EventInstance
+import com.eventr.model.EventStatus
+import com.eventr.modules.event.api.EventModuleApi
+import com.eventr.modules.event.api.dto.EventFilterCriteria
+import com.eventr.modules.event.internal.EventModuleApiImpl
+import com.eventr.modules.event.internal.catalog.PublishedEventCatalog
+import com.eventr.modules.event.internal.search.EventSuggestIndex
+import com.eventr.modules.event.internal.search.InMemoryEventSearchIndex
+import com.eventr.repository.EventInstanceRepository
+import com.eventr.repository.EventRepository
+import com.eventr.shared.event.EventPublisher
+import org.hibernate.SessionFactory
+import org.hibernate.stat.Statistics
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.mock
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager
+import org.springframework.test.context.ActiveProfiles
+import java.time.LocalDateTime
+
+/**
+ * Guards against N+1 loading when events are mapped to responses:
+ * the number of SQL statements must not grow with the number of events.
+ */
+@DataJpaTest(properties = ["spring.jpa.properties.hibernate.generate_statistics=true"])
+@ActiveProfiles("test")
+@DisplayName("Event read query counts")
+class EventQueryCountTest {
+
+    @Autowired
+    private lateinit var entityManager: TestEntityManager
+
+    @Autowired
+    private lateinit var eventRepository: EventRepository
+
+    @Autowired
+    private lateinit var eventInstanceRepository: EventInstanceRepository
+
+    private lateinit var eventModule: EventModuleApi
+
+    private lateinit var statistics: Statistics
+
+    @BeforeEach
+    fun setUp() {
+        eventModule = EventModuleApiImpl(eventRepository, eventInstanceRepository, mock<EventPublisher>(),
+            InMemoryEventSearchIndex(), PublishedEventCatalog(), EventSuggestIndex())
+        statistics = entityManager.entityManager.entityManagerFactory
+            .unwrap(SessionFactory::class.java).statistics
+    }
+
+    @Test
+    @DisplayName("Should load a page of events with tags and instances in a constant number of queries")
+    fun shouldLoadEventPageInConstantQueries() {
+        // Arrange
+        persistEvents(100)
+
+        // Act
+        val queries = countQueries {
+            val events = eventModule.findEvents(EventFilterCriteria(size = 100))
+            assertEquals(100, events.size)
+            assertTrue(events.all { it.tags.size == 2 && it.instances.size == 2 })
+        }
+
+        // Assert: events, batched tags, batched instances (+ page count)
+        assertTrue(queries <= 4, "expected at most 4 statements but was $queries")
+    }
+
+    @Test
+    @DisplayName("Should load keyset pages in a constant number of queries")
+    fun shouldScrollEventsInConstantQueries() {
+        // Arrange
+        persistEvents(50)
+
+        // Act
+        val queries = countQueries {
+            assertEquals(50, eventModule.scrollEvents(EventFilterCriteria(size = 50), null).items.size)
+        }
+
+        // Assert
+        assertTrue(queries <= 3, "expected at most 3 statements but was $queries")
+    }
+
+    @Test
+    @DisplayName("Should load a page of event summaries in a single query")
+    fun shouldLoadSummariesInOneQuery() {
+        // Arrange
+        persistEvents(100)
+
+        // Act
+        val queries = countQueries {
+            assertEquals(100, eventModule.findEventSummaries(EventFilterCriteria(size = 100)).size)
+        }
+
+        // Assert
+        assertEquals(1, queries)
+    }
+
+    @Test
+    @DisplayName("Should load event details in a constant number of queries")
+    fun shouldLoadEventDetailsInConstantQueries() {
+        // Arrange
+        val eventId = persistEvents(1).single().id!!
+
+        // Act
+        val queries = countQueries {
+            val event = eventModule.getEvent(eventId)
+            assertEquals(2, event?.instances?.size)
+        }
+
+        // Assert
+        assertTrue(queries <= 2, "expected at most 2 statements but was $queries")
+    }
+
+    private fun countQueries(block: () -> Unit): Long {
+        entityManager.flush()
+        entityManager.clear()
+        statistics.clear()
+        block()
+        return statistics.prepareStatementCount
+    }
+
+    private fun persistEvents(count: Int): List<Event> {
+        val start = LocalDateTime.of(2030, 1, 1, 9, 0)
+        return (1..count).map { i ->
+            val event = entityManager.persist(Event().apply {
+                name = "Event $i"
+                status = EventStatus.PUBLISHED
+                startDateTime = start.plusHours(i.toLong())
+                tags = mutableListOf("tag-a", "tag-b")
+            })
+            repeat(2) { n ->
+                event.instances!!.add(entityManager.persist(EventInstance(event = event, location = "Room $n")))
+            }
+            event
+        }
+    }
+}
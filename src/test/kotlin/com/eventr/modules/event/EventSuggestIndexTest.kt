@@ -0,0 +1,85 @@
+package com.eventr.modules.event
+
+import com.eventr.model.Event
+import com.eventr.model.EventStatus
+import com.eventr.modules.event.api.dto.SuggestionType
+import com.eventr.modules.event.internal.search.EventSuggestIndex
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import java.util.UUID
+
+@DisplayName("EventSuggestIndex Tests")
+class EventSuggestIndexTest {
+
+    private lateinit var index: EventSuggestIndex
+
+    private val kotlinConf = event("Kotlin Conference", "Convention Center", "Austin")
+    private val jazz = event("Jazz Nights", "Blue Note", "New Orleans")
+    private val comedy = event("Comedy Night", "Convention Center", "austin")
+
+    @BeforeEach
+    fun setUp() {
+        index = EventSuggestIndex()
+        index.rebuild(listOf(kotlinConf, jazz, comedy, event("Secret Draft", null, null, EventStatus.DRAFT)))
+    }
+
+    @Test
+    @DisplayName("Should match the start of any word, phrase starts first")
+    fun shouldMatchWordPrefixes() {
+        val texts = index.suggest("con", 10).map { it.text }
+
+        assertEquals(listOf("Convention Center", "Kotlin Conference"), texts)
+        assertEquals(listOf("Kotlin Conference"), index.suggest("kotlin  CON", 10).map { it.text })
+    }
+
+    @Test
+    @DisplayName("Should share venues and cities between events and count them")
+    fun shouldShareVenuesAndCities() {
+        val suggestions = index.suggest("au", 10)
+
+        assertEquals(1, suggestions.size)
+        assertEquals(SuggestionType.CITY, suggestions[0].type)
+        assertEquals("Austin", suggestions[0].text)
+        assertEquals(2, suggestions[0].eventCount)
+        assertNull(suggestions[0].eventId)
+    }
+
+    @Test
+    @DisplayName("Should link event suggestions and skip unpublished events")
+    fun shouldLinkEventsAndSkipDrafts() {
+        assertEquals(listOf(jazz.id), index.suggest("jazz", 10).map { it.eventId })
+        assertTrue(index.suggest("secret", 10).isEmpty())
+    }
+
+    @Test
+    @DisplayName("Should follow renames, cancellations and removals")
+    fun shouldFollowUpdates() {
+        comedy.venueName = "Laugh Factory"
+        index.upsert(comedy)
+        jazz.status = EventStatus.CANCELLED
+        index.upsert(jazz)
+        index.remove(kotlinConf.id!!)
+
+        assertEquals(listOf("Laugh Factory"), index.suggest("la", 10).map { it.text })
+        assertTrue(index.suggest("convention", 10).isEmpty())
+        assertTrue(index.suggest("jazz", 10).isEmpty())
+        assertEquals(1, index.suggest("austin", 10).single().eventCount)
+    }
+
+    @Test
+    @DisplayName("Should ignore blank queries and honour the limit")
+    fun shouldHonourLimit() {
+        assertTrue(index.suggest("  ", 10).isEmpty())
+        assertEquals(1, index.suggest("n", 1).size)
+    }
+
+    private fun event(name: String, venue: String?, city: String?, status: EventStatus = EventStatus.PUBLISHED) =
+        Event(id = UUID.randomUUID()).apply {
+            this.name = name
+            this.venueName = venue
+            this.city = city
+            this.status = status
+        }
+}
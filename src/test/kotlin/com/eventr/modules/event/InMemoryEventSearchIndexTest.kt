@@ -0,0 +1,115 @@
+package com.eventr.modules.event
+
+import com.eventr.model.Event
+import com.eventr.modules.event.internal.search.InMemoryEventSearchIndex
+import com.eventr.modules.event.internal.search.SearchTextAnalyzer
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import java.util.UUID
+
+@DisplayName("InMemoryEventSearchIndex Tests")
+class InMemoryEventSearchIndexTest {
+
+    private lateinit var index: InMemoryEventSearchIndex
+
+    private val jazz = event("Jazz Nights", "Live music every Friday", "New Orleans")
+    private val summit = event("Business Summit", "Keynotes and networking sessions", "Chicago")
+    private val running = event("City Running Club", "Weekly runs through downtown", "Chicago")
+
+    @BeforeEach
+    fun setUp() {
+        index = InMemoryEventSearchIndex()
+        index.rebuild { listOf(jazz, summit, running) }
+    }
+
+    @Nested
+    @DisplayName("Search Tests")
+    inner class SearchTests {
+
+        @Test
+        @DisplayName("Should match inflected forms through stemming")
+        fun shouldMatchInflectedForms() {
+            assertEquals(listOf(jazz.id), ids("night"))
+            assertEquals(listOf(running.id), ids("run"))
+            assertEquals(listOf(summit.id), ids("session"))
+        }
+
+        @Test
+        @DisplayName("Should match partially typed words as prefixes")
+        fun shouldMatchPrefixes() {
+            assertEquals(listOf(summit.id), ids("busin"))
+            assertEquals(listOf(jazz.id), ids("orl"))
+        }
+
+        @Test
+        @DisplayName("Should require every query word to match")
+        fun shouldRequireAllWords() {
+            assertEquals(listOf(summit.id), ids("chicago keynote"))
+            assertTrue(ids("chicago jazz").isEmpty())
+        }
+
+        @Test
+        @DisplayName("Should rank name matches above description matches")
+        fun shouldRankNameMatchesFirst() {
+            val music = event("Music Festival", "Three days of outdoor stages", "Austin")
+            index.upsert(music)
+
+            assertEquals(listOf(music.id, jazz.id), ids("music"))
+        }
+
+        @Test
+        @DisplayName("Should return nothing for queries without searchable words")
+        fun shouldIgnoreStopWordsAndPunctuation() {
+            assertTrue(ids("the").isEmpty())
+            assertTrue(ids("%_").isEmpty())
+        }
+    }
+
+    @Nested
+    @DisplayName("Maintenance Tests")
+    inner class MaintenanceTests {
+
+        @Test
+        @DisplayName("Should replace the previous document on upsert")
+        fun shouldReplaceDocumentOnUpsert() {
+            jazz.name = "Blues Nights"
+            index.upsert(jazz)
+
+            assertTrue(ids("jazz").isEmpty())
+            assertEquals(listOf(jazz.id), ids("blues"))
+            assertEquals(3, index.size)
+        }
+
+        @Test
+        @DisplayName("Should forget removed events, including their prefixes")
+        fun shouldForgetRemovedEvents() {
+            index.remove(summit.id!!)
+
+            assertTrue(ids("summit").isEmpty())
+            assertTrue(ids("keyn").isEmpty())
+            assertEquals(listOf(running.id), ids("chicago"))
+        }
+    }
+
+    @Test
+    @DisplayName("Should stem regular plurals and -ing/-ed endings only")
+    fun shouldStemRegularEndings() {
+        assertEquals("conference", SearchTextAnalyzer.stem("conferences"))
+        assertEquals("run", SearchTextAnalyzer.stem("running"))
+        assertEquals("meet", SearchTextAnalyzer.stem("meetings"))
+        assertEquals("party", SearchTextAnalyzer.stem("parties"))
+        assertEquals("bus", SearchTextAnalyzer.stem("bus"))
+        assertEquals("red", SearchTextAnalyzer.stem("red"))
+    }
+
+    private fun ids(query: String) = index.search(query, 10).map { it.eventId }
+
+    private fun event(name: String, description: String, city: String) = Event(id = UUID.randomUUID()).apply {
+        this.name = name
+        this.description = description
+        this.city = city
+    }
+}
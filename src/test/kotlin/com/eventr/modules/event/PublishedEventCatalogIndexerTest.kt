@@ -0,0 +1,116 @@
+package com.eventr.modules.event
+
+import com.eventr.model.Event
+import com.eventr.model.EventStatus
+import com.eventr.modules.event.internal.catalog.PublishedEventCatalog
+import com.eventr.modules.event.internal.catalog.PublishedEventCatalogIndexer
+import com.eventr.modules.event.internal.search.EventSuggestIndex
+import com.eventr.repository.EventRepository
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager
+import org.springframework.test.context.ActiveProfiles
+import java.time.LocalDateTime
+
+/**
+ * Verifies that the periodic resync brings the catalog and suggestions up to date
+ * with changes written to the database without a domain event reaching this node,
+ * as happens when another node makes them.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@DisplayName("Published event catalog resync")
+class PublishedEventCatalogIndexerTest {
+
+    @Autowired
+    private lateinit var entityManager: TestEntityManager
+
+    @Autowired
+    private lateinit var eventRepository: EventRepository
+
+    private val catalog = PublishedEventCatalog()
+    private val suggestIndex = EventSuggestIndex()
+    private lateinit var indexer: PublishedEventCatalogIndexer
+
+    @BeforeEach
+    fun setUp() {
+        indexer = PublishedEventCatalogIndexer(catalog, suggestIndex, eventRepository)
+    }
+
+    @Test
+    @DisplayName("Should build the catalog when resync runs before the startup rebuild")
+    fun shouldBuildCatalogOnFirstResync() {
+        // Arrange
+        val published = persistEvent("Kotlin Conference", EventStatus.PUBLISHED)
+        persistEvent("Draft Day", EventStatus.DRAFT)
+        entityManager.flush()
+
+        // Act
+        indexer.resync()
+
+        // Assert
+        assertTrue(catalog.isReady)
+        assertEquals(setOf(published.id), catalog.ids())
+    }
+
+    @Test
+    @DisplayName("Should pick up events published, edited and cancelled elsewhere")
+    fun shouldPickUpChangesMadeElsewhere() {
+        // Arrange
+        val cancelled = persistEvent("Kotlin Conference", EventStatus.PUBLISHED)
+        val renamed = persistEvent("Business Summit", EventStatus.PUBLISHED)
+        val draft = persistEvent("Design Day", EventStatus.DRAFT)
+        entityManager.flush()
+        indexer.rebuildOnStartup()
+
+        cancelled.status = EventStatus.CANCELLED
+        renamed.name = "Founders Summit"
+        entityManager.flush()
+        // A bulk status change leaves updated_at untouched, so only the id diff finds it
+        entityManager.entityManager.createNativeQuery(
+            "UPDATE event SET status = 'PUBLISHED', updated_at = :stale WHERE id = :id")
+            .setParameter("stale", LocalDateTime.of(2020, 1, 1, 0, 0))
+            .setParameter("id", draft.id)
+            .executeUpdate()
+        entityManager.clear()
+
+        // Act
+        indexer.resync()
+
+        // Assert
+        assertEquals(setOf(renamed.id, draft.id), catalog.ids())
+        assertTrue(suggestIndex.suggest("kotlin", 10).isEmpty())
+        assertEquals(listOf("Founders Summit"), suggestIndex.suggest("found", 10).map { it.text })
+        assertEquals(listOf(draft.id), suggestIndex.suggest("design", 10).map { it.eventId })
+    }
+
+    @Test
+    @DisplayName("Should drop events deleted elsewhere")
+    fun shouldDropEventsDeletedElsewhere() {
+        // Arrange
+        val deleted = persistEvent("Kotlin Conference", EventStatus.PUBLISHED)
+        entityManager.flush()
+        indexer.rebuildOnStartup()
+        eventRepository.delete(deleted)
+        entityManager.flush()
+
+        // Act
+        indexer.resync()
+
+        // Assert
+        assertEquals(0, catalog.size)
+        assertTrue(suggestIndex.suggest("kotlin", 10).isEmpty())
+    }
+
+    private fun persistEvent(name: String, status: EventStatus): Event {
+        return entityManager.persist(Event().apply {
+            this.name = name
+            this.status = status
+            this.startDateTime = LocalDateTime.of(2030, 1, 1, 9, 0)
+        })
+    }
+}
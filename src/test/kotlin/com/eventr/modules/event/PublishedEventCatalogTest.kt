@@ -0,0 +1,161 @@
+package com.eventr.modules.event
+
+import com.eventr.model.Event
+import com.eventr.model.EventCategory
+import com.eventr.model.EventStatus
+import com.eventr.model.EventType
+import com.eventr.modules.event.api.dto.EventFilterCriteria
+import com.eventr.modules.event.api.dto.FacetCount
+import com.eventr.modules.event.internal.catalog.PublishedEventCatalog
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import java.time.LocalDateTime
+import java.util.UUID
+
+@DisplayName("PublishedEventCatalog Tests")
+class PublishedEventCatalogTest {
+
+    private lateinit var catalog: PublishedEventCatalog
+
+    private val baseTime = LocalDateTime.of(2030, 1, 1, 9, 0)
+
+    private val aiNight = event("AI Night", EventCategory.TECHNOLOGY, EventType.HYBRID, "Austin", listOf("ai", "ml"), 1)
+    private val aiSummit = event("AI Summit", EventCategory.BUSINESS, EventType.HYBRID, "Denver", listOf("AI"), 2)
+    private val devMeetup = event("Dev Meetup", EventCategory.TECHNOLOGY, EventType.IN_PERSON, "austin", listOf("kotlin"), 3)
+    private val draft = event("Draft", EventCategory.TECHNOLOGY, EventType.HYBRID, "Austin", listOf("ai"), 4, EventStatus.DRAFT)
+
+    @BeforeEach
+    fun setUp() {
+        catalog = PublishedEventCatalog()
+        catalog.rebuild(listOf(aiNight, aiSummit, devMeetup, draft))
+    }
+
+    @Nested
+    @DisplayName("Filter Tests")
+    inner class FilterTests {
+
+        @Test
+        @DisplayName("Should only hold published events and be ready after the first rebuild")
+        fun shouldHoldPublishedEvents() {
+            assertTrue(catalog.isReady)
+            assertFalse(PublishedEventCatalog().isReady)
+            assertEquals(3, catalog.size)
+        }
+
+        @Test
+        @DisplayName("Should intersect category, type and tag bitmaps")
+        fun shouldIntersectDimensions() {
+            val criteria = EventFilterCriteria(category = EventCategory.TECHNOLOGY, eventType = EventType.HYBRID, tags = listOf("AI"))
+
+            assertEquals(listOf(aiNight.id), ids(criteria))
+        }
+
+        @Test
+        @DisplayName("Should match any of several tags and cities case-insensitively")
+        fun shouldUnionTagsAndIgnoreCase() {
+            assertEquals(listOf(aiNight.id, aiSummit.id, devMeetup.id), ids(EventFilterCriteria(tags = listOf("ai", "KOTLIN"))))
+            assertEquals(listOf(aiNight.id, devMeetup.id), ids(EventFilterCriteria(city = " AUSTIN ")))
+            assertTrue(ids(EventFilterCriteria(tags = listOf("unknown"))).isEmpty())
+        }
+
+        @Test
+        @DisplayName("Should restrict matches to search hits and order them by rank")
+        fun shouldOrderSearchHitsByRank() {
+            val hits = listOf(devMeetup.id!!, aiNight.id!!, draft.id!!)
+
+            assertEquals(listOf(devMeetup.id, aiNight.id), catalog.page(EventFilterCriteria(sortBy = "relevance"), hits, 0, 10))
+        }
+    }
+
+    @Nested
+    @DisplayName("Ordering Tests")
+    inner class OrderingTests {
+
+        @Test
+        @DisplayName("Should page in the requested sort order")
+        fun shouldPageInSortOrder() {
+            val criteria = EventFilterCriteria(sortBy = "name", sortDirection = "desc")
+
+            assertEquals(listOf(devMeetup.id, aiSummit.id), catalog.page(criteria, null, 0, 2))
+            assertEquals(listOf(aiNight.id), catalog.page(criteria, null, 2, 2))
+        }
+
+        @Test
+        @DisplayName("Should continue strictly after the keyset position, undated events last")
+        fun shouldScrollAfterPosition() {
+            val undated = event("Undated", EventCategory.OTHER, EventType.VIRTUAL, null, emptyList(), null)
+            catalog.upsert(undated)
+
+            val first = catalog.scroll(EventFilterCriteria(), null, null, null, false, 2)
+            val rest = catalog.scroll(EventFilterCriteria(), null, first.last().startDateTime, first.last().id, false, 10)
+
+            assertEquals(listOf(aiNight.id, aiSummit.id), first.map { it.id })
+            assertEquals(listOf(devMeetup.id, undated.id), rest.map { it.id })
+        }
+    }
+
+    @Nested
+    @DisplayName("Maintenance Tests")
+    inner class MaintenanceTests {
+
+        @Test
+        @DisplayName("Should move an updated event between bitmaps")
+        fun shouldReindexUpdatedEvent() {
+            aiNight.category = EventCategory.EDUCATION
+            aiNight.tags = mutableListOf("kotlin")
+            catalog.upsert(aiNight)
+
+            assertEquals(listOf(devMeetup.id), ids(EventFilterCriteria(category = EventCategory.TECHNOLOGY)))
+            assertEquals(listOf(aiNight.id, devMeetup.id), ids(EventFilterCriteria(tags = listOf("kotlin"))))
+            assertEquals(listOf(aiSummit.id), ids(EventFilterCriteria(tags = listOf("ai"))))
+        }
+
+        @Test
+        @DisplayName("Should drop events that are unpublished or removed and reuse their slots")
+        fun shouldDropUnpublishedEvents() {
+            aiSummit.status = EventStatus.CANCELLED
+            catalog.upsert(aiSummit)
+            catalog.remove(devMeetup.id!!)
+            val replacement = event("Replacement", EventCategory.TECHNOLOGY, EventType.HYBRID, "Boston", listOf("ai"), 5)
+            catalog.upsert(replacement)
+
+            assertEquals(2, catalog.size)
+            assertEquals(listOf(aiNight.id, replacement.id), ids(EventFilterCriteria(tags = listOf("ai"))))
+        }
+    }
+
+    @Test
+    @DisplayName("Should count each facet with every filter except its own")
+    fun shouldCountFacets() {
+        val facets = catalog.facets(EventFilterCriteria(eventType = EventType.HYBRID, tags = listOf("ai")), null)
+
+        assertEquals(2, facets.total)
+        assertEquals(listOf(FacetCount("BUSINESS", 1), FacetCount("TECHNOLOGY", 1)), facets.categories)
+        assertEquals(listOf(FacetCount("HYBRID", 2)), facets.eventTypes)
+        assertEquals(listOf(FacetCount("Austin", 1), FacetCount("Denver", 1)), facets.cities)
+        assertEquals(listOf(FacetCount("AI", 2), FacetCount("ml", 1)), facets.tags)
+    }
+
+    private fun ids(criteria: EventFilterCriteria): List<UUID> = catalog.page(criteria, null, 0, 100)
+
+    private fun event(
+        name: String,
+        category: EventCategory,
+        type: EventType,
+        city: String?,
+        tags: List<String>,
+        dayOffset: Long?,
+        status: EventStatus = EventStatus.PUBLISHED
+    ) = Event(id = UUID.randomUUID()).apply {
+        this.name = name
+        this.category = category
+        this.eventType = type
+        this.city = city
+        this.tags = tags.toMutableList()
+        this.startDateTime = dayOffset?.let { baseTime.plusDays(it) }
+        this.status = status
+    }
+}
@@ -0,0 +1,106 @@
+package com.eventr.repository
+
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.core.io.ClassPathResource
+import org.springframework.jdbc.datasource.init.ScriptUtils
+import java.sql.Connection
+import java.sql.DriverManager
+import java.sql.SQLException
+import java.util.UUID
+
+/**
+ * Runs the presence and email key backfill against tables shaped as they
+ * were before the keys existed.
+ */
+@DisplayName("Presence and email key backfill script")
+class KeyBackfillScriptTest {
+
+    private lateinit var connection: Connection
+
+    private val instance = UUID.randomUUID()
+    private val session = UUID.randomUUID()
+
+    @BeforeEach
+    fun setUp() {
+        connection = DriverManager.getConnection("jdbc:h2:mem:${UUID.randomUUID()};MODE=PostgreSQL")
+        execute("CREATE TABLE registration (id UUID PRIMARY KEY, event_instance_id UUID, user_email VARCHAR(255), status VARCHAR(255))")
+        execute("""
+            CREATE TABLE check_in (id UUID PRIMARY KEY, registration_id UUID NOT NULL, session_id UUID,
+                type VARCHAR(255), checked_in_at TIMESTAMP)
+        """)
+    }
+
+    @AfterEach
+    fun tearDown() {
+        connection.close()
+    }
+
+    @Test
+    @DisplayName("Should derive presence keys and keep the earliest of repeated check-ins")
+    fun shouldBackfillPresenceKeys() {
+        // Arrange
+        val registration = registration("ada@example.com", "CHECKED_IN")
+        val first = checkIn(registration, null, "2030-01-01 09:00:00")
+        checkIn(registration, null, "2030-01-01 09:05:00")
+        val inSession = checkIn(registration, session, "2030-01-01 10:00:00")
+
+        // Act
+        runScript()
+
+        // Assert
+        assertEquals(
+            listOf(first to "EVENT", inSession to session.toString()),
+            rows("SELECT id, presence_key FROM check_in ORDER BY checked_in_at").map { it[0] as UUID to it[1] }
+        )
+        assertThrows(SQLException::class.java) { checkIn(registration, session, "2030-01-01 11:00:00") }
+    }
+
+    @Test
+    @DisplayName("Should derive email keys and cancel all but the furthest along of live duplicates")
+    fun shouldBackfillEmailKeys() {
+        // Arrange
+        val waitlisted = registration("Ada@Example.com ", "WAITLISTED")
+        val checkedIn = registration("ada@example.com", "CHECKED_IN")
+        val cancelled = registration("ada@example.com", "CANCELLED")
+        val other = registration("grace@example.com", "REGISTERED")
+
+        // Act
+        runScript()
+
+        // Assert
+        val byId = rows("SELECT id, status, email_key FROM registration").associate { it[0] to (it[1] to it[2]) }
+        assertEquals("CHECKED_IN" to "ada@example.com", byId[checkedIn])
+        assertEquals("CANCELLED" to null, byId[waitlisted])
+        assertEquals("CANCELLED" to null, byId[cancelled])
+        assertEquals("REGISTERED" to "grace@example.com", byId[other])
+        assertThrows(SQLException::class.java) {
+            execute("INSERT INTO registration (id, event_instance_id, email_key) VALUES ('${UUID.randomUUID()}', '$instance', 'grace@example.com')")
+        }
+    }
+
+    private fun runScript() =
+        ScriptUtils.executeSqlScript(connection, ClassPathResource("db/backfill/check_in_presence_and_registration_email_keys.sql"))
+
+    private fun registration(email: String, status: String): UUID = UUID.randomUUID().also {
+        execute("INSERT INTO registration VALUES ('$it', '$instance', '$email', '$status')")
+    }
+
+    private fun checkIn(registration: UUID, session: UUID?, at: String): UUID = UUID.randomUUID().also {
+        val type = if (session == null) "EVENT" else "SESSION"
+        execute("INSERT INTO check_in VALUES ('$it', '$registration', ${session?.let { s -> "'$s'" }}, '$type', '$at')")
+    }
+
+    private fun execute(sql: String) {
+        connection.createStatement().use { it.execute(sql) }
+    }
+
+    private fun rows(sql: String): List<List<Any?>> = connection.createStatement().use { statement ->
+        statement.executeQuery(sql).use { result ->
+            generateSequence { if (result.next()) (1..result.metaData.columnCount).map { result.getObject(it) } else null }.toList()
+        }
+    }
+}
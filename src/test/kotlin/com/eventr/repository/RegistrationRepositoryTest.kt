@@ -0,0 +1,75 @@
+package com.eventr.repository
+
+import com.eventr.model.*
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager
+import org.springframework.data.domain.PageRequest
+import org.springframework.test.context.ActiveProfiles
+
+@DataJpaTest
+@ActiveProfiles("test")
+@DisplayName("RegistrationRepository event-scoped listing")
+class RegistrationRepositoryTest {
+
+    @Autowired
+    private lateinit var entityManager: TestEntityManager
+
+    @Autowired
+    private lateinit var registrationRepository: RegistrationRepository
+
+    private lateinit var event: Event
+    private lateinit var instance: EventInstance
+
+    @BeforeEach
+    fun setUp() {
+        event = entityManager.persist(Event().apply { name = "Listed Event" })
+        instance = entityManager.persist(EventInstance(event = event))
+        val otherEvent = entityManager.persist(Event().apply { name = "Other Event" })
+        val otherInstance = entityManager.persist(EventInstance(event = otherEvent))
+
+        (1..5).forEach { i ->
+            entityManager.persist(Registration(
+                eventInstance = instance,
+                userEmail = "user$i@example.com",
+                userName = "User $i",
+                status = RegistrationStatus.REGISTERED,
+                formData = """{"seat":$i}"""
+            ))
+        }
+        entityManager.persist(Registration(eventInstance = otherInstance, userEmail = "other@example.com"))
+        entityManager.flush()
+        entityManager.clear()
+    }
+
+    @Test
+    @DisplayName("Should project only the event's registrations into DTOs")
+    fun shouldProjectEventRegistrations() {
+        // Act
+        val page = registrationRepository.findFirstPageByEventId(event.id!!, PageRequest.of(0, 10))
+
+        // Assert
+        assertEquals(5, page.size)
+        assertTrue(page.all { it.eventInstanceId == instance.id })
+        assertEquals((1..5).map { "user$it@example.com" }.toSet(), page.map { it.userEmail }.toSet())
+        assertTrue(page.all { it.status == RegistrationStatus.REGISTERED && it.formData != null })
+    }
+
+    @Test
+    @DisplayName("Should continue strictly after the keyset position in id order")
+    fun shouldContinueAfterKeysetPosition() {
+        // Arrange
+        val all = registrationRepository.findFirstPageByEventId(event.id!!, PageRequest.of(0, 10))
+
+        // Act
+        val firstTwo = registrationRepository.findFirstPageByEventId(event.id!!, PageRequest.of(0, 2))
+        val rest = registrationRepository.findPageByEventIdAfter(event.id!!, firstTwo.last().id!!, PageRequest.of(0, 10))
+
+        // Assert
+        assertEquals(all.map { it.id }, (firstTwo + rest).map { it.id })
+    }
+}
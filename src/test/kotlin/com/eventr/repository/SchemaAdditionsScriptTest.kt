@@ -0,0 +1,108 @@
+package com.eventr.repository
+
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.core.io.ClassPathResource
+import org.springframework.jdbc.datasource.init.ScriptUtils
+import java.sql.Connection
+import java.sql.DriverManager
+import java.util.UUID
+
+/**
+ * Runs the schema additions against tables shaped as they were before the
+ * versions, counters, seat counters, outbox, user email keys and waiting
+ * rooms existed.
+ */
+@DisplayName("Schema additions script")
+class SchemaAdditionsScriptTest {
+
+    private lateinit var connection: Connection
+
+    private val event = UUID.randomUUID()
+    private val instance = UUID.randomUUID()
+
+    @BeforeEach
+    fun setUp() {
+        connection = DriverManager.getConnection("jdbc:h2:mem:${UUID.randomUUID()};MODE=PostgreSQL")
+        execute("CREATE TABLE event (id UUID PRIMARY KEY, name VARCHAR(255))")
+        execute("CREATE TABLE event_instance (id UUID PRIMARY KEY, event_id UUID)")
+        execute("CREATE TABLE session (id UUID PRIMARY KEY, event_id UUID NOT NULL, updated_at TIMESTAMP)")
+        execute("CREATE TABLE registration (id UUID PRIMARY KEY, event_instance_id UUID, status VARCHAR(255))")
+        execute("CREATE TABLE check_in (id UUID PRIMARY KEY, registration_id UUID NOT NULL, updated_at TIMESTAMP)")
+        execute("CREATE TABLE users (id UUID PRIMARY KEY, email VARCHAR(255) NOT NULL UNIQUE)")
+        execute("INSERT INTO users VALUES ('${UUID.randomUUID()}', ' Ada@Example.com')")
+        execute("INSERT INTO event VALUES ('$event', 'Gala')")
+        execute("INSERT INTO event_instance VALUES ('$instance', '$event')")
+        execute("INSERT INTO session VALUES ('${UUID.randomUUID()}', '$event', NULL)")
+    }
+
+    @AfterEach
+    fun tearDown() {
+        connection.close()
+    }
+
+    @Test
+    @DisplayName("Should start versions at zero and count existing registrations")
+    fun shouldBackfillFromExistingRows() {
+        // Arrange
+        listOf("REGISTERED", "REGISTERED", "CHECKED_IN", "NO_SHOW", "WAITLISTED", "CANCELLED").forEach { registration(it) }
+
+        // Act
+        runScript()
+
+        // Assert
+        assertEquals(listOf(0L), rows("SELECT version FROM event").map { it[0] })
+        assertEquals(listOf(0L), rows("SELECT version FROM session").map { it[0] })
+        assertEquals(
+            listOf(0L, 2, 1, 1, 1, 1),
+            rows("""
+                SELECT version, registered_count, waitlisted_count, checked_in_count, no_show_count, cancelled_count
+                FROM event_instance
+            """).single().map { (it as Number).toLong() }
+        )
+        assertEquals(listOf(listOf<Any?>(instance, 4)), rows("SELECT event_instance_id, reserved_seats FROM registration_capacity"))
+        assertEquals(listOf("ada@example.com"), rows("SELECT email_key FROM users").map { it[0] })
+        assertEquals(0, rows("SELECT COUNT(*) FROM email_outbox").single().single().let { (it as Number).toInt() })
+        assertEquals(0, rows("SELECT COUNT(*) FROM waiting_room").single().single().let { (it as Number).toInt() })
+        assertEquals(0, rows("SELECT COUNT(*) FROM waiting_room_admission").single().single().let { (it as Number).toInt() })
+        assertTrue(rows("SELECT index_name FROM information_schema.indexes").map { it[0] }.containsAll(listOf(
+            "IDX_EMAIL_OUTBOX_DUE", "IDX_REGISTRATION_INSTANCE_ID", "IDX_EVENT_INSTANCE_EVENT", "IDX_CHECK_IN_UPDATED_AT",
+            "IDX_USERS_EMAIL_KEY"
+        )))
+    }
+
+    @Test
+    @DisplayName("Should leave existing seat counters alone when run again")
+    fun shouldBeRepeatable() {
+        // Arrange
+        registration("REGISTERED")
+        runScript()
+        execute("UPDATE registration_capacity SET reserved_seats = 5")
+
+        // Act
+        runScript()
+
+        // Assert
+        assertEquals(listOf(listOf<Any?>(instance, 5)), rows("SELECT event_instance_id, reserved_seats FROM registration_capacity"))
+    }
+
+    private fun runScript() =
+        ScriptUtils.executeSqlScript(connection, ClassPathResource("db/backfill/schema_additions.sql"))
+
+    private fun registration(status: String) {
+        execute("INSERT INTO registration VALUES ('${UUID.randomUUID()}', '$instance', '$status')")
+    }
+
+    private fun execute(sql: String) {
+        connection.createStatement().use { it.execute(sql) }
+    }
+
+    private fun rows(sql: String): List<List<Any?>> = connection.createStatement().use { statement ->
+        statement.executeQuery(sql).use { result ->
+            generateSequence { if (result.next()) (1..result.metaData.columnCount).map { result.getObject(it) } else null }.toList()
+        }
+    }
+}
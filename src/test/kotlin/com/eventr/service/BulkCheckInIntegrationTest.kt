@@ -0,0 +1,232 @@
+package com.eventr.service
+
+import com.eventr.controller.RegistrationController
+import com.eventr.dto.CheckInCreateDto
+import com.eventr.dto.QRCheckInDto
+import com.eventr.model.CheckIn
+import com.eventr.model.Registration
+import com.eventr.model.Session
+import com.eventr.repository.CheckInRepository
+import com.eventr.repository.RegistrationRepository
+import com.eventr.service.interfaces.CheckInServiceInterface
+import jakarta.persistence.EntityManagerFactory
+import org.hibernate.SessionFactory
+import org.hibernate.stat.Statistics
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.test.context.ActiveProfiles
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Checks in a large cohort, and a crowd of simultaneous door scans, against
+ * the real database.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Bulk check-in against the database")
+class BulkCheckInIntegrationTest {
+
+    @Autowired
+    private lateinit var checkInService: CheckInServiceInterface
+
+    @Autowired
+    private lateinit var ingestionService: CheckInIngestionService
+
+    @Autowired
+    private lateinit var qrCodeService: QRCodeService
+
+    @Autowired
+    private lateinit var importService: RegistrationImportService
+
+    @Autowired
+    private lateinit var registrationRepository: RegistrationRepository
+
+    @Autowired
+    private lateinit var registrationController: RegistrationController
+
+    @Autowired
+    private lateinit var checkInRepository: CheckInRepository
+
+    @Autowired
+    private lateinit var entityManagerFactory: EntityManagerFactory
+
+    @Autowired
+    private lateinit var jdbcTemplate: JdbcTemplate
+
+    @Autowired
+    private lateinit var fixture: EventInstanceFixture
+
+    @MockBean
+    private lateinit var emailNotificationService: EmailNotificationService
+
+    @AfterEach
+    fun tearDown() {
+        fixture.cleanUp()
+    }
+
+    @Test
+    @DisplayName("Should check in a 2,000 person cohort with a handful of statements")
+    fun shouldBatchLargeCohort() {
+        // Arrange
+        val instance = fixture.instance("Training Cohort")
+        val csv = "email\n" + (1..COHORT).joinToString("\n") { "trainee$it@example.com" }
+        importService.import(instance.id!!, csv.byteInputStream(), RegistrationImportFormat.CSV, sendConfirmations = false)
+        val ids = registrationRepository.findByEventInstance(instance).map { it.id!! }
+        val statistics = entityManagerFactory.unwrap(SessionFactory::class.java).statistics
+        statistics.isStatisticsEnabled = true
+        statistics.clear()
+
+        // Act
+        val results = try {
+            checkInService.bulkCheckIn(ids, null)
+        } finally {
+            statistics.isStatisticsEnabled = false
+        }
+        val repeated = checkInService.bulkCheckIn(ids, null)
+
+        // Assert
+        assertEquals(COHORT, results.size)
+        assertTrue(results.all { it.eventName == "Training Cohort" })
+        assertEquals(2, executions(statistics, "r.id IN :ids"), "one registration query per chunk")
+        assertEquals(1, executions(statistics, "FROM CheckIn"), "one query to load the presence index")
+        assertEquals(0, statistics.getEntityStatistics(Registration::class.java.name).fetchCount, "no lazy loads while mapping")
+        assertEquals(COHORT.toLong(), statistics.getEntityStatistics(CheckIn::class.java.name).insertCount)
+        assertTrue(repeated.isEmpty())
+    }
+
+    @Test
+    @DisplayName("Should skip a check-in recorded on another node instead of failing the cohort")
+    fun shouldRetryChunkAfterConcurrentCheckIn() {
+        // Arrange
+        val instance = fixture.instance("Workshop")
+        val csv = "email\n" + (1..3).joinToString("\n") { "learner$it@example.com" }
+        importService.import(instance.id!!, csv.byteInputStream(), RegistrationImportFormat.CSV, sendConfirmations = false)
+        val (first, second, third) = registrationRepository.findByEventInstance(instance)
+        checkInService.bulkCheckIn(listOf(first.id!!), null) // loads the event's presence index
+        // Written past the index, as another node would
+        checkInRepository.save(CheckIn(registration = second, checkedInBy = "door"))
+
+        // Act
+        val results = checkInService.bulkCheckIn(listOf(first, second, third).map { it.id!! }, null)
+
+        // Assert
+        assertEquals(listOf(third.id), results.map { it.registrationId })
+        assertEquals(3, checkInRepository.findByEventIdOrderByCheckedInAtDesc(instance.event!!.id!!).size)
+    }
+
+    @Test
+    @DisplayName("Should record simultaneous door scans once each through the ingestion queue")
+    fun shouldIngestConcurrentScans() {
+        // Arrange
+        val instance = fixture.instance("Keynote")
+        val csv = "email\n" + (1..SCANS).joinToString("\n") { "guest$it@example.com" }
+        importService.import(instance.id!!, csv.byteInputStream(), RegistrationImportFormat.CSV, sendConfirmations = false)
+        val ids = registrationRepository.findByEventInstance(instance).map { it.id!! }
+        val executor = Executors.newFixedThreadPool(32)
+
+        // Act: every attendee is scanned twice at once
+        val outcomes = try {
+            (ids + ids).map { id ->
+                executor.submit(Callable {
+                    runCatching { ingestionService.checkIn(CheckInCreateDto(registrationId = id, checkedInBy = "door")) }
+                })
+            }.map { it.get(30, TimeUnit.SECONDS) }
+        } finally {
+            executor.shutdownNow()
+        }
+
+        // Assert
+        assertEquals(SCANS, outcomes.count { it.isSuccess })
+        assertTrue(outcomes.filter { it.isFailure }.all { it.exceptionOrNull()?.message == "Already checked in" })
+        assertEquals(SCANS, checkInRepository.findByEventIdOrderByCheckedInAtDesc(instance.event!!.id!!).size)
+    }
+
+    @Test
+    @DisplayName("Should check in a QR code with one primary key read and one insert")
+    fun shouldCheckInQRCodeWithOneStatement() {
+        // Arrange
+        val instance = fixture.instance("Gala")
+        importService.import(instance.id!!, "email\nguest@example.com\nplusone@example.com".byteInputStream(),
+            RegistrationImportFormat.CSV, sendConfirmations = false)
+        val (first, second) = registrationRepository.findByEventInstance(instance).map { qrCodeService.issue(it.id!!) }
+        checkInService.checkInWithQR(QRCheckInDto(qrCode = first)) // loads the event's presence index
+        val statistics = entityManagerFactory.unwrap(SessionFactory::class.java).statistics
+        statistics.isStatisticsEnabled = true
+        statistics.clear()
+
+        // Act
+        val result = try {
+            checkInService.checkInWithQR(QRCheckInDto(qrCode = second))
+        } finally {
+            statistics.isStatisticsEnabled = false
+        }
+
+        // Assert
+        assertEquals(0, executions(statistics, "CheckIn"), "no duplicate lookup")
+        assertEquals(1, statistics.getEntityStatistics(Registration::class.java.name).loadCount, "the referenced registration")
+        assertEquals(0, statistics.getEntityStatistics(Session::class.java.name).loadCount)
+        assertEquals(1, statistics.getEntityStatistics(CheckIn::class.java.name).insertCount, "one insert")
+        assertEquals("Gala", result.eventName)
+        assertThrows(IllegalArgumentException::class.java) { checkInService.checkInWithQR(QRCheckInDto(qrCode = second)) }
+        assertEquals(2, checkInRepository.findByEventIdOrderByCheckedInAtDesc(instance.event!!.id!!).size)
+    }
+
+    @Test
+    @DisplayName("Should refuse the QR code of a registration cancelled after the index was loaded")
+    fun shouldRefuseQRCodeOfCancelledRegistration() {
+        // Arrange
+        val instance = fixture.instance("Gala")
+        importService.import(instance.id!!, "email\nguest@example.com\nplusone@example.com".byteInputStream(),
+            RegistrationImportFormat.CSV, sendConfirmations = false)
+        val (guest, plusOne) = registrationRepository.findByEventInstance(instance)
+        checkInService.checkInWithQR(QRCheckInDto(qrCode = qrCodeService.issue(guest.id!!))) // loads the event's presence index
+        val code = qrCodeService.issue(plusOne.id!!)
+
+        // Act
+        registrationController.cancelRegistration(plusOne.id)
+
+        // Assert
+        assertEquals("Registration has been cancelled", assertThrows(IllegalArgumentException::class.java) {
+            checkInService.checkInWithQR(QRCheckInDto(qrCode = code))
+        }.message)
+        assertEquals(1, checkInRepository.findByEventIdOrderByCheckedInAtDesc(instance.event!!.id!!).size)
+    }
+
+    @Test
+    @DisplayName("Should refuse the QR code of a registration cancelled on another node")
+    fun shouldRefuseQRCodeOfRegistrationCancelledElsewhere() {
+        // Arrange
+        val instance = fixture.instance("Gala")
+        importService.import(instance.id!!, "email\nguest@example.com\nplusone@example.com".byteInputStream(),
+            RegistrationImportFormat.CSV, sendConfirmations = false)
+        val (guest, plusOne) = registrationRepository.findByEventInstance(instance)
+        checkInService.checkInWithQR(QRCheckInDto(qrCode = qrCodeService.issue(guest.id!!))) // loads the event's presence index
+        val code = qrCodeService.issue(plusOne.id!!)
+
+        // Act: no domain event reaches this node's presence index
+        jdbcTemplate.update("UPDATE registration SET status = 'CANCELLED', email_key = NULL WHERE id = ?", plusOne.id)
+
+        // Assert
+        assertEquals("Registration has been cancelled", assertThrows(IllegalArgumentException::class.java) {
+            checkInService.checkInWithQR(QRCheckInDto(qrCode = code))
+        }.message)
+        assertEquals(1, checkInRepository.findByEventIdOrderByCheckedInAtDesc(instance.event!!.id!!).size)
+    }
+
+    // Counted per query, since the statistics also see the scheduled jobs running in the background
+    private fun executions(statistics: Statistics, hqlFragment: String): Long =
+        statistics.queries.filter { it.contains(hqlFragment) }.sumOf { statistics.getQueryStatistics(it).executionCount }
+
+    companion object {
+        private const val SCANS = 300
+        private const val COHORT = 2000
+    }
+}
@@ -0,0 +1,193 @@
+package com.eventr.service
+
+import com.eventr.model.EventInstance
+import com.eventr.model.RegistrationStatus
+import com.eventr.modules.registration.events.RegistrationStatusChanged
+import com.eventr.repository.RegistrationCapacityRepository
+import com.eventr.repository.RegistrationRepository
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.context.ApplicationListener
+import org.springframework.context.ConfigurableApplicationContext
+import org.springframework.context.event.ApplicationEventMulticaster
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.event.ApplicationEvents
+import org.springframework.test.context.event.RecordApplicationEvents
+import java.util.UUID
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+@SpringBootTest
+@ActiveProfiles("test")
+@RecordApplicationEvents
+@DisplayName("Bulk registration actions")
+class BulkRegistrationServiceTest {
+
+    @Autowired
+    private lateinit var bulkRegistrationService: BulkRegistrationService
+
+    @Autowired
+    private lateinit var importService: RegistrationImportService
+
+    @Autowired
+    private lateinit var registrationRepository: RegistrationRepository
+
+    @Autowired
+    private lateinit var capacityRepository: RegistrationCapacityRepository
+
+    @Autowired
+    private lateinit var applicationEvents: ApplicationEvents
+
+    @Autowired
+    private lateinit var applicationContext: ConfigurableApplicationContext
+
+    @Autowired
+    private lateinit var fixture: EventInstanceFixture
+
+    @MockBean
+    private lateinit var emailNotificationService: EmailNotificationService
+
+    @AfterEach
+    fun tearDown() {
+        fixture.cleanUp()
+    }
+
+    @Test
+    @DisplayName("Should cancel every live registration of the event and free their seats")
+    fun shouldCancelAndReleaseSeats() {
+        // Arrange
+        val instance = instance(capacity = 3)
+        val ids = register(instance, 5)
+        val alreadyCancelled = ids.last()
+        bulkRegistrationService.apply(eventIdOf(instance), BulkRegistrationAction.CANCEL, listOf(alreadyCancelled))
+        val otherEventRegistration = register(instance(capacity = null), 1).single()
+        applicationEvents.clear()
+
+        // Act
+        val result = bulkRegistrationService.apply(
+            eventIdOf(instance),
+            BulkRegistrationAction.CANCEL,
+            ids + ids.first() + otherEventRegistration + UUID.randomUUID()
+        )
+
+        // Assert
+        assertEquals(4, result.changed)
+        assertEquals(mapOf(RegistrationStatus.REGISTERED to 3, RegistrationStatus.WAITLISTED to 1), result.changedFrom)
+        assertEquals(1, result.unchanged)
+        assertEquals(2, result.notFound)
+        assertEquals(0, capacityRepository.findById(instance.id!!).get().reservedSeats)
+        assertEquals(RegistrationStatus.REGISTERED, registrationRepository.findById(otherEventRegistration).get().status)
+        val events = applicationEvents.stream(RegistrationStatusChanged::class.java).toList()
+        assertEquals(setOf(RegistrationStatus.REGISTERED to 3, RegistrationStatus.WAITLISTED to 1), events.map { it.fromStatus to it.count }.toSet())
+    }
+
+    @Test
+    @DisplayName("Should approve waitlisted registrations only onto free seats, earliest requested first")
+    fun shouldApproveUpToCapacity() {
+        // Arrange
+        val instance = instance(capacity = 2)
+        val ids = register(instance, 4)
+        bulkRegistrationService.apply(eventIdOf(instance), BulkRegistrationAction.CANCEL, listOf(ids[0]))
+        val waitlisted = ids.drop(2)
+
+        // Act
+        val result = bulkRegistrationService.apply(eventIdOf(instance), BulkRegistrationAction.APPROVE, waitlisted.reversed() + ids[1])
+
+        // Assert
+        assertEquals(1, result.changed)
+        assertEquals(2, result.unchanged)
+        assertEquals(RegistrationStatus.REGISTERED, registrationRepository.findById(waitlisted[1]).get().status)
+        assertEquals(RegistrationStatus.WAITLISTED, registrationRepository.findById(waitlisted[0]).get().status)
+        assertEquals(2, capacityRepository.findById(instance.id!!).get().reservedSeats)
+    }
+
+    @Test
+    @DisplayName("Should check in registered attendees only")
+    fun shouldCheckInRegistered() {
+        // Arrange
+        val instance = instance(capacity = 1)
+        val (registered, waitlisted) = register(instance, 2)
+
+        // Act
+        val result = bulkRegistrationService.apply(eventIdOf(instance), BulkRegistrationAction.CHECKIN, listOf(registered, waitlisted))
+
+        // Assert
+        assertEquals(mapOf(RegistrationStatus.REGISTERED to 1), result.changedFrom)
+        val checkedIn = registrationRepository.findById(registered).get()
+        assertEquals(RegistrationStatus.CHECKED_IN, checkedIn.status)
+        assertTrue(checkedIn.checkedIn)
+        assertEquals(RegistrationStatus.WAITLISTED, registrationRepository.findById(waitlisted).get().status)
+    }
+
+    @Test
+    @DisplayName("Should cancel id lists spanning several chunks")
+    fun shouldCancelAcrossChunks() {
+        // Arrange
+        val instance = instance(capacity = null)
+        val ids = register(instance, BulkRegistrationService.CHUNK_SIZE * 2 + 10)
+        applicationEvents.clear()
+
+        // Act
+        val result = bulkRegistrationService.apply(eventIdOf(instance), BulkRegistrationAction.CANCEL, ids)
+
+        // Assert
+        assertEquals(ids.size, result.changed)
+        assertEquals(3, applicationEvents.stream(RegistrationStatusChanged::class.java).count())
+        assertEquals(0L, registrationRepository.countByEventInstanceIdAndStatusIn(instance.id!!, setOf(RegistrationStatus.REGISTERED)))
+        assertEquals(0, capacityRepository.findById(instance.id).get().reservedSeats)
+    }
+
+    @Test
+    @DisplayName("Should name only the registrations it changed when cancels overlap")
+    fun shouldPublishChangedIdsOnly() {
+        // Arrange
+        val instance = instance(capacity = null)
+        val ids = register(instance, 100)
+        val published = ConcurrentLinkedQueue<RegistrationStatusChanged>()
+        val listener = ApplicationListener.forPayload<RegistrationStatusChanged> { published += it }
+        applicationContext.addApplicationListener(listener)
+        val executor = Executors.newFixedThreadPool(8)
+
+        // Act: eight overlapping windows of 40 registrations, cancelled at once
+        try {
+            (0 until 8).map { window ->
+                executor.submit { bulkRegistrationService.apply(eventIdOf(instance), BulkRegistrationAction.CANCEL, ids.drop(window * 10).take(40)) }
+            }.forEach { it.get(30, TimeUnit.SECONDS) }
+        } finally {
+            executor.shutdownNow()
+            applicationContext.getBean(ApplicationEventMulticaster::class.java).removeApplicationListener(listener)
+        }
+
+        // Assert
+        val named = published.filter { it.aggregateId == instance.id }.flatMap { it.registrationIds }
+        assertEquals(ids.toSet(), named.toSet())
+        assertEquals(ids.size, named.size, "each registration named once")
+        assertEquals(ids.size, published.filter { it.aggregateId == instance.id }.sumOf { it.count })
+    }
+
+    @Test
+    @DisplayName("Should reject unknown actions")
+    fun shouldRejectUnknownActions() {
+        assertEquals(BulkRegistrationAction.CHECKIN, BulkRegistrationAction.of(" checkIn "))
+        assertThrows(IllegalArgumentException::class.java) { BulkRegistrationAction.of("delete") }
+    }
+
+    // Registers attendees in order through the import, so seats and the waitlist apply
+    private fun register(instance: EventInstance, count: Int): List<UUID> {
+        val prefix = UUID.randomUUID()
+        val csv = "email\n" + (1..count).joinToString("\n") { "$prefix-$it@example.com" }
+        importService.import(instance.id!!, csv.byteInputStream(), RegistrationImportFormat.CSV, sendConfirmations = false)
+        return (1..count).map { registrationRepository.findByUserEmail("$prefix-$it@example.com").single().id!! }
+    }
+
+    private fun eventIdOf(instance: EventInstance) = instance.event!!.id!!
+
+    private fun instance(capacity: Int?): EventInstance =
+        fixture.instance("Bulk Actions", capacity, waitlist = true)
+}
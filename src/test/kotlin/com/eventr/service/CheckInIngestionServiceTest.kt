@@ -0,0 +1,181 @@
+package com.eventr.service
+
+import com.eventr.dto.CheckInCreateDto
+import com.eventr.dto.CheckInDto
+import com.eventr.exception.RateLimitException
+import com.eventr.service.interfaces.CheckInServiceInterface
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import org.mockito.kotlin.*
+import java.time.Duration
+import java.util.UUID
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+
+@DisplayName("CheckInIngestionService Tests")
+class CheckInIngestionServiceTest {
+
+    private val checkInService = mock<CheckInServiceInterface>()
+
+    private val executor: ExecutorService = Executors.newFixedThreadPool(8)
+
+    @AfterEach
+    fun tearDown() {
+        executor.shutdownNow()
+    }
+
+    @Test
+    @DisplayName("Should write queued scans in batches and answer each with its own outcome")
+    fun shouldBatchScans() {
+        // Arrange
+        val ingestion = ingestion(maxBatch = 3)
+        val scans = (1..5).map { scan() }
+        val unknown = scans[1].registrationId
+        whenever(checkInService.manualCheckInBatch(any())).thenAnswer { invocation ->
+            @Suppress("UNCHECKED_CAST")
+            (invocation.arguments[0] as List<CheckInCreateDto>).map {
+                if (it.registrationId == unknown) Result.failure(IllegalArgumentException("Registration not found"))
+                else Result.success(CheckInDto(registrationId = it.registrationId))
+            }
+        }
+
+        // Act
+        val answers = submit(ingestion, scans)
+        ingestion.flush()
+
+        // Assert
+        verify(checkInService, times(2)).manualCheckInBatch(any())
+        verify(checkInService, never()).manualCheckIn(any())
+        scans.zip(answers).forEach { (scan, answer) ->
+            if (scan.registrationId == unknown) {
+                assertTrue(failure(answer) is IllegalArgumentException)
+            } else {
+                assertEquals(scan.registrationId, answer.get(5, TimeUnit.SECONDS).registrationId)
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should record scans one at a time when their batch fails")
+    fun shouldFallBackToSingleScans() {
+        // Arrange
+        val ingestion = ingestion()
+        val scans = listOf(scan(), scan())
+        whenever(checkInService.manualCheckInBatch(any())).thenThrow(IllegalStateException("constraint violation"))
+        whenever(checkInService.manualCheckIn(scans[0])).thenReturn(CheckInDto(registrationId = scans[0].registrationId))
+        whenever(checkInService.manualCheckIn(scans[1])).thenThrow(IllegalArgumentException("Already checked in"))
+
+        // Act
+        val answers = submit(ingestion, scans)
+        ingestion.flush()
+
+        // Assert
+        assertEquals(scans[0].registrationId, answers[0].get(5, TimeUnit.SECONDS).registrationId)
+        assertEquals("Already checked in", failure(answers[1])?.message)
+    }
+
+    @Test
+    @DisplayName("Should turn scans away while the queue is full")
+    fun shouldRejectWhenFull() {
+        // Arrange
+        val ingestion = ingestion(queueCapacity = 1)
+        submit(ingestion, listOf(scan()))
+
+        // Act & Assert
+        assertThrows<RateLimitException> { ingestion.checkIn(scan()) }
+    }
+
+    @Test
+    @DisplayName("Should withdraw a scan still queued when its acknowledgement times out")
+    fun shouldWithdrawTimedOutScan() {
+        // Arrange
+        val ingestion = ingestion(ackTimeout = Duration.ofMillis(50))
+
+        // Act
+        assertThrows<RateLimitException> { ingestion.checkIn(scan()) }
+        ingestion.flush()
+
+        // Assert
+        assertEquals(0, ingestion.queued)
+        verify(checkInService, never()).manualCheckInBatch(any())
+    }
+
+    @Test
+    @DisplayName("Should answer a scan being written when its acknowledgement times out")
+    fun shouldWaitForScanBeingWritten() {
+        // Arrange
+        val scan = scan()
+        whenever(checkInService.manualCheckInBatch(listOf(scan))).thenAnswer {
+            Thread.sleep(300)
+            listOf(Result.success(CheckInDto(registrationId = scan.registrationId)))
+        }
+        val running = ingestion(ackTimeout = Duration.ofMillis(50)).apply { start() }
+
+        // Act
+        val answer = try {
+            running.checkIn(scan)
+        } finally {
+            running.stop()
+        }
+
+        // Assert
+        assertEquals(scan.registrationId, answer.registrationId)
+    }
+
+    @Test
+    @DisplayName("Should write through the running writer and record directly when disabled")
+    fun shouldRunWriterOrBypass() {
+        // Arrange
+        val scan = scan()
+        whenever(checkInService.manualCheckInBatch(listOf(scan))).thenReturn(listOf(Result.success(CheckInDto(registrationId = scan.registrationId))))
+        whenever(checkInService.manualCheckIn(scan)).thenReturn(CheckInDto(registrationId = scan.registrationId))
+        val running = ingestion().apply { start() }
+
+        // Act
+        val queued = try {
+            running.checkIn(scan)
+        } finally {
+            running.stop()
+        }
+        val direct = ingestion(enabled = false).checkIn(scan)
+
+        // Assert
+        assertEquals(scan.registrationId, queued.registrationId)
+        assertEquals(scan.registrationId, direct.registrationId)
+        verify(checkInService, times(1)).manualCheckInBatch(any())
+        verify(checkInService, times(1)).manualCheckIn(scan)
+    }
+
+    private fun ingestion(
+        enabled: Boolean = true,
+        queueCapacity: Int = 100,
+        maxBatch: Int = 200,
+        ackTimeout: Duration = Duration.ofSeconds(5)
+    ) = CheckInIngestionService(checkInService, enabled, queueCapacity, maxBatch, ackTimeout)
+
+    /**
+     * Submits the scans from other threads, in order, and waits until each is
+     * queued; the writer is not running, so they stay queued until flushed.
+     */
+    private fun submit(ingestion: CheckInIngestionService, scans: List<CheckInCreateDto>): List<Future<CheckInDto>> {
+        return scans.map { scan ->
+            val expected = ingestion.queued + 1
+            executor.submit(Callable { ingestion.checkIn(scan) }).also {
+                val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+                while (ingestion.queued < expected && System.nanoTime() < deadline) Thread.sleep(1)
+            }
+        }
+    }
+
+    private fun failure(answer: Future<CheckInDto>): Throwable? =
+        assertThrows<ExecutionException> { answer.get(5, TimeUnit.SECONDS) }.cause
+
+    private fun scan() = CheckInCreateDto(registrationId = UUID.randomUUID(), checkedInBy = "door-1")
+}
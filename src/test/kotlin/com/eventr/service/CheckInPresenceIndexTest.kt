@@ -0,0 +1,134 @@
+package com.eventr.service
+
+import com.eventr.dto.CheckInCreateDto
+import com.eventr.model.CheckIn
+import com.eventr.model.CheckInType
+import com.eventr.model.EventInstance
+import com.eventr.model.Registration
+import com.eventr.model.RegistrationStatus
+import com.eventr.repository.CheckInRepository
+import com.eventr.repository.RegistrationRepository
+import com.eventr.service.interfaces.CheckInServiceInterface
+import jakarta.persistence.EntityManagerFactory
+import org.hibernate.SessionFactory
+import org.hibernate.stat.Statistics
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.test.context.ActiveProfiles
+import java.time.LocalDateTime
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Check-in presence index")
+class CheckInPresenceIndexTest {
+
+    @Autowired
+    private lateinit var presenceIndex: CheckInPresenceIndex
+
+    @Autowired
+    private lateinit var checkInService: CheckInServiceInterface
+
+    @Autowired
+    private lateinit var registrationRepository: RegistrationRepository
+
+    @Autowired
+    private lateinit var checkInRepository: CheckInRepository
+
+    @Autowired
+    private lateinit var entityManagerFactory: EntityManagerFactory
+
+    @Autowired
+    private lateinit var fixture: EventInstanceFixture
+
+    @MockBean
+    private lateinit var emailNotificationService: EmailNotificationService
+
+    @AfterEach
+    fun tearDown() {
+        fixture.cleanUp()
+    }
+
+    @Test
+    @DisplayName("Should reject a repeat scan from memory once the event is loaded")
+    fun shouldRejectRepeatScanFromMemory() {
+        // Arrange
+        val registration = registration(instance(startsAt = null))
+        checkInService.manualCheckIn(CheckInCreateDto(registrationId = registration.id!!))
+
+        // Act
+        val queries = countingQueries {
+            val error = assertThrows(IllegalArgumentException::class.java) {
+                checkInService.manualCheckIn(CheckInCreateDto(registrationId = registration.id))
+            }
+            assertEquals("Already checked in", error.message)
+        }
+
+        // Assert
+        assertEquals(1, queries, "only the registration is loaded")
+        assertEquals(1, checkInRepository.findByRegistrationIdOrderByCheckedInAtDesc(registration.id).size)
+    }
+
+    @Test
+    @DisplayName("Should fall back on the unique constraint for check-ins the index has not seen")
+    fun shouldEnforceUniqueConstraint() {
+        // Arrange
+        val registration = registration(instance(startsAt = null))
+        assertFalse(presenceIndex.isCheckedIn(registration, null, CheckInType.EVENT)) // loaded before the next insert
+        checkInRepository.save(CheckIn(registration = registration)) // as if made on another node
+
+        // Act
+        val error = assertThrows(IllegalArgumentException::class.java) {
+            checkInService.manualCheckIn(CheckInCreateDto(registrationId = registration.id!!))
+        }
+        val violation = assertThrows(DataIntegrityViolationException::class.java) {
+            checkInRepository.save(CheckIn(registration = registration))
+        }
+
+        // Assert
+        assertEquals("Already checked in", error.message)
+        assertTrue(presenceIndex.isDuplicate(violation))
+    }
+
+    @Test
+    @DisplayName("Should load events about to start ahead of the first scan")
+    fun shouldWarmUpcomingEvents() {
+        // Arrange
+        val registration = registration(instance(startsAt = LocalDateTime.now().plusMinutes(30)))
+        checkInRepository.save(CheckIn(registration = registration))
+
+        // Act
+        presenceIndex.warmUpcoming()
+        var checkedIn = false
+        val queries = countingQueries { checkedIn = presenceIndex.isCheckedIn(registration, null, CheckInType.EVENT) }
+
+        // Assert
+        assertTrue(checkedIn)
+        assertEquals(0, queries)
+    }
+
+    private fun countingQueries(action: () -> Unit): Long {
+        val statistics: Statistics = entityManagerFactory.unwrap(SessionFactory::class.java).statistics
+        statistics.isStatisticsEnabled = true
+        statistics.clear()
+        try {
+            action()
+        } finally {
+            statistics.isStatisticsEnabled = false
+        }
+        // Only check-in and registration queries; scheduled jobs run their own in the background
+        return statistics.queries.filter { it.contains("CheckIn") || it.contains("Registration") }
+            .sumOf { statistics.getQueryStatistics(it).executionCount }
+    }
+
+    private fun registration(instance: EventInstance): Registration =
+        registrationRepository.save(Registration(eventInstance = instance, userEmail = "ada@example.com", status = RegistrationStatus.REGISTERED))
+
+    private fun instance(startsAt: LocalDateTime?): EventInstance =
+        fixture.instance("Opening Night") { startDateTime = startsAt }
+}
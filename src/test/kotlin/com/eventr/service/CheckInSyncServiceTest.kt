@@ -0,0 +1,265 @@
+package com.eventr.service
+
+import com.eventr.dto.CheckInSyncRequestDto
+import com.eventr.dto.CheckInSyncResponseDto
+import com.eventr.dto.CheckInSyncStatus
+import com.eventr.dto.OfflineCheckInDto
+import com.eventr.model.CheckIn
+import com.eventr.model.CheckInMethod
+import com.eventr.model.CheckInType
+import com.eventr.model.EventInstance
+import com.eventr.model.Registration
+import com.eventr.model.RegistrationStatus
+import com.eventr.repository.CheckInRepository
+import com.eventr.repository.EventRepository
+import com.eventr.repository.RegistrationRepository
+import com.eventr.repository.SessionRepository
+import jakarta.persistence.EntityManagerFactory
+import org.hibernate.SessionFactory
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.transaction.PlatformTransactionManager
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.LocalDateTime
+import java.time.ZoneOffset
+import java.util.UUID
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Offline check-in sync")
+class CheckInSyncServiceTest {
+
+    private class MutableClock(var now: Instant) : Clock() {
+        override fun getZone() = ZoneOffset.UTC
+        override fun withZone(zone: java.time.ZoneId?) = this
+        override fun instant() = now
+    }
+
+    @Autowired
+    private lateinit var checkInRepository: CheckInRepository
+
+    @Autowired
+    private lateinit var registrationRepository: RegistrationRepository
+
+    @Autowired
+    private lateinit var sessionRepository: SessionRepository
+
+    @Autowired
+    private lateinit var eventRepository: EventRepository
+
+    @Autowired
+    private lateinit var importService: RegistrationImportService
+
+    @Autowired
+    private lateinit var presenceIndex: CheckInPresenceIndex
+
+    @Autowired
+    private lateinit var transactionManager: PlatformTransactionManager
+
+    @Autowired
+    private lateinit var entityManagerFactory: EntityManagerFactory
+
+    @Autowired
+    private lateinit var fixture: EventInstanceFixture
+
+    @MockBean
+    private lateinit var emailNotificationService: EmailNotificationService
+
+    private val clock = MutableClock(Instant.parse("2030-01-01T09:00:00Z"))
+
+    private lateinit var syncService: CheckInSyncService
+
+    private lateinit var instance: EventInstance
+
+    private val doorsOpen = LocalDateTime.of(2030, 1, 1, 10, 0)
+
+    @BeforeEach
+    fun setUp() {
+        syncService = CheckInSyncService(
+            checkInRepository, registrationRepository, sessionRepository, eventRepository, presenceIndex,
+            transactionManager, 5000, Duration.ZERO, clock
+        )
+        instance = fixture.instance("Conference")
+    }
+
+    @AfterEach
+    fun tearDown() {
+        fixture.cleanUp()
+    }
+
+    @Test
+    @DisplayName("Should keep the earliest scan of an attendee whichever device syncs first")
+    fun shouldKeepEarliestScan() {
+        // Arrange
+        val registration = registration()
+        val late = scan(registration, doorsOpen.plusMinutes(5))
+        val early = scan(registration, doorsOpen)
+        val first = sync("door-b", null, late)
+
+        // Act
+        val second = sync("door-a", null, early)
+        val retry = sync("door-b", first.watermark, late)
+
+        // Assert
+        val checkIns = checkInRepository.findByRegistrationIdOrderByCheckedInAtDesc(registration.id!!)
+        assertEquals(1, checkIns.size)
+        assertEquals("door-a", checkIns[0].deviceId)
+        assertEquals(doorsOpen, checkIns[0].checkedInAt)
+        assertEquals(CheckInSyncStatus.ACCEPTED, second.results.single().status)
+        assertEquals(first.results.single().checkInId, second.results.single().checkInId, "replaced in place")
+        assertEquals(CheckInSyncStatus.SUPERSEDED, retry.results.single().status)
+        assertEquals(checkIns[0].id, retry.results.single().checkInId)
+        assertEquals("door-a", retry.changes.single().deviceId)
+    }
+
+    @Test
+    @DisplayName("Should replace every detail of a door check-in superseded by an earlier offline scan")
+    fun shouldResetDoorCheckInDetails() {
+        // Arrange
+        val registration = registration()
+        checkInRepository.save(CheckIn(
+            registration = registration,
+            method = CheckInMethod.MANUAL,
+            checkedInAt = doorsOpen.plusMinutes(10),
+            checkedInBy = "door staff",
+            deviceId = "kiosk-1",
+            deviceName = "Main entrance kiosk",
+            ipAddress = "10.0.0.7",
+            userAgent = "Kiosk/1.0",
+            location = "Hall A",
+            verificationCode = "1234",
+            notes = "Walked up without a code",
+            metadata = "{\"badge\":\"printed\"}"
+        ))
+
+        // Act
+        val response = sync("door-a", null, scan(registration, doorsOpen))
+
+        // Assert
+        val checkIn = checkInRepository.findByRegistrationIdOrderByCheckedInAtDesc(registration.id!!).single()
+        assertEquals(CheckInSyncStatus.ACCEPTED, response.results.single().status)
+        assertEquals(doorsOpen, checkIn.checkedInAt)
+        assertEquals(CheckInMethod.QR_CODE, checkIn.method)
+        assertEquals("door-a", checkIn.deviceId)
+        assertNull(checkIn.checkedInBy)
+        assertNull(checkIn.deviceName)
+        assertNull(checkIn.ipAddress)
+        assertNull(checkIn.userAgent)
+        assertNull(checkIn.location)
+        assertNull(checkIn.verificationCode)
+        assertNull(checkIn.notes)
+        assertNull(checkIn.metadata)
+    }
+
+    @Test
+    @DisplayName("Should send each device only what other devices changed since its watermark")
+    fun shouldSendChangesSinceWatermark() {
+        // Arrange
+        val (first, second, own) = (1..3).map { registration() }
+        sync("door-a", null, scan(first, doorsOpen))
+        tick()
+        val initial = sync("door-b", null)
+        tick()
+        sync("door-a", initial.watermark, scan(second, doorsOpen.plusMinutes(1)))
+        tick()
+
+        // Act
+        val delta = sync("door-b", initial.watermark, scan(own, doorsOpen.plusMinutes(2)))
+        tick()
+        val idle = sync("door-b", delta.watermark)
+
+        // Assert
+        assertEquals(listOf(first.id), initial.changes.map { it.registrationId })
+        assertEquals(listOf(second.id), delta.changes.map { it.registrationId }, "neither older nor its own check-ins")
+        assertTrue(idle.changes.isEmpty())
+        assertTrue(delta.watermark.isAfter(initial.watermark))
+    }
+
+    @Test
+    @DisplayName("Should reconcile thousands of scans from two devices in chunks")
+    fun shouldReconcileLargeUploads() {
+        // Arrange
+        val csv = "email\n" + (1..ATTENDEES).joinToString("\n") { "attendee$it@example.com" }
+        importService.import(instance.id!!, csv.byteInputStream(), RegistrationImportFormat.CSV, sendConfirmations = false)
+        val registrations = registrationRepository.findByEventInstance(instance)
+        // Door A scanned even attendees first, door B odd ones
+        val fromA = registrations.mapIndexed { i, r -> scan(r, doorsOpen.plusSeconds(if (i % 2 == 0) 0L else 30L)) }
+        val fromB = registrations.mapIndexed { i, r -> scan(r, doorsOpen.plusSeconds(if (i % 2 == 0) 30L else 0L)) }
+        sync("door-a", null, *fromA.toTypedArray())
+        val statistics = entityManagerFactory.unwrap(SessionFactory::class.java).statistics
+        statistics.isStatisticsEnabled = true
+        statistics.clear()
+
+        // Act
+        val response = try {
+            sync("door-b", null, *fromB.toTypedArray())
+        } finally {
+            statistics.isStatisticsEnabled = false
+        }
+
+        // Assert
+        val byRegistration = checkInRepository.findByEventIdOrderByCheckedInAtDesc(instance.event!!.id!!)
+            .associateBy { it.registration!!.id }
+        assertEquals(ATTENDEES, byRegistration.size)
+        registrations.forEachIndexed { i, r -> assertEquals(if (i % 2 == 0) "door-a" else "door-b", byRegistration[r.id]?.deviceId) }
+        assertEquals(ATTENDEES / 2, response.results.count { it.status == CheckInSyncStatus.ACCEPTED })
+        assertEquals(ATTENDEES / 2, response.results.count { it.status == CheckInSyncStatus.SUPERSEDED })
+        val queries = statistics.queries.filter { it.contains("r.id IN :ids") }
+            .sumOf { statistics.getQueryStatistics(it).executionCount }
+        assertEquals(2L, queries, "one registration query per chunk")
+    }
+
+    @Test
+    @DisplayName("Should reject scans for other events and accept a repeated upload once")
+    fun shouldRejectForeignScansAndAcceptRepeats() {
+        // Arrange
+        val registration = registration()
+        val scan = scan(registration, doorsOpen)
+        val stranger = OfflineCheckInDto(id = UUID.randomUUID(), registrationId = UUID.randomUUID(),
+            type = CheckInType.EVENT, method = CheckInMethod.QR_CODE, checkedInAt = doorsOpen)
+
+        // Act
+        val first = sync("door-a", null, scan, stranger)
+        val repeat = sync("door-a", first.watermark, scan)
+
+        // Assert
+        assertEquals(listOf(CheckInSyncStatus.ACCEPTED, CheckInSyncStatus.REJECTED), first.results.map { it.status })
+        assertEquals("Registration not found for this event", first.results[1].message)
+        assertEquals(CheckInSyncStatus.ACCEPTED, repeat.results.single().status)
+        assertEquals(first.results[0].checkInId, repeat.results.single().checkInId)
+        assertEquals(1, checkInRepository.findByRegistrationIdOrderByCheckedInAtDesc(registration.id!!).size)
+    }
+
+    // Check-ins changed at the watermark itself are sent again, so each step happens a minute later
+    private fun tick() {
+        clock.now = clock.now.plusSeconds(60)
+    }
+
+    private fun sync(deviceId: String, since: LocalDateTime?, vararg checkIns: OfflineCheckInDto): CheckInSyncResponseDto =
+        syncService.sync(CheckInSyncRequestDto(deviceId, instance.event!!.id!!, since, checkIns.toList()))
+
+    private fun scan(registration: Registration, at: LocalDateTime) = OfflineCheckInDto(
+        id = UUID.randomUUID(),
+        registrationId = registration.id!!,
+        type = CheckInType.EVENT,
+        method = CheckInMethod.QR_CODE,
+        checkedInAt = at
+    )
+
+    private fun registration(): Registration = registrationRepository.save(
+        Registration(eventInstance = instance, userEmail = "${UUID.randomUUID()}@example.com", status = RegistrationStatus.REGISTERED)
+    )
+
+    companion object {
+        private const val ATTENDEES = 1500
+    }
+}
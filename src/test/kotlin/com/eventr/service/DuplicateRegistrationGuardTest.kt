@@ -0,0 +1,127 @@
+package com.eventr.service
+
+import com.eventr.controller.RegistrationController
+import com.eventr.dto.RegistrationCreateDto
+import com.eventr.exception.BusinessRuleException
+import com.eventr.model.EventInstance
+import com.eventr.model.Registration
+import com.eventr.model.RegistrationStatus
+import com.eventr.repository.RegistrationCapacityRepository
+import com.eventr.repository.RegistrationRepository
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.test.context.ActiveProfiles
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Duplicate registration prevention")
+class DuplicateRegistrationGuardTest {
+
+    @Autowired
+    private lateinit var duplicateRegistrationGuard: DuplicateRegistrationGuard
+
+    @Autowired
+    private lateinit var registrationController: RegistrationController
+
+    @Autowired
+    private lateinit var importService: RegistrationImportService
+
+    @Autowired
+    private lateinit var registrationRepository: RegistrationRepository
+
+    @Autowired
+    private lateinit var capacityRepository: RegistrationCapacityRepository
+
+    @Autowired
+    private lateinit var fixture: EventInstanceFixture
+
+    @MockBean
+    private lateinit var emailNotificationService: EmailNotificationService
+
+    @AfterEach
+    fun tearDown() {
+        fixture.cleanUp()
+    }
+
+    @Test
+    @DisplayName("Should reject a second registration for the same email however it is written")
+    fun shouldRejectDuplicateEmail() {
+        // Arrange
+        val instance = instance(capacity = 10)
+        register(instance, "ada@example.com")
+
+        // Act
+        val error = assertThrows(BusinessRuleException::class.java) { register(instance, "  ADA@Example.com ") }
+
+        // Assert
+        assertEquals("ALREADY_REGISTERED", error.ruleCode)
+        assertEquals(1, capacityRepository.findById(instance.id!!).get().reservedSeats)
+        assertEquals(1, registrationRepository.findByEventInstance(instance).size)
+    }
+
+    @Test
+    @DisplayName("Should allow registering again after cancelling, and on other instances")
+    fun shouldAllowAfterCancellation() {
+        // Arrange
+        val instance = instance(capacity = 10)
+        val first = register(instance, "ada@example.com")
+        registrationController.cancelRegistration(first)
+
+        // Act
+        register(instance, "ada@example.com")
+        register(instance(capacity = 10), "ada@example.com")
+
+        // Assert
+        assertEquals(
+            listOf(RegistrationStatus.CANCELLED, RegistrationStatus.REGISTERED),
+            registrationRepository.findByEventInstance(instance).sortedBy { it.id != first }.map { it.status }
+        )
+    }
+
+    @Test
+    @DisplayName("Should enforce uniqueness in the database when the filter is bypassed")
+    fun shouldEnforceUniqueConstraint() {
+        // Arrange
+        val instance = instance(capacity = null)
+        registrationRepository.save(Registration(eventInstance = instance, userEmail = "ada@example.com", status = RegistrationStatus.REGISTERED))
+
+        // Act
+        val error = assertThrows(DataIntegrityViolationException::class.java) {
+            registrationRepository.save(Registration(eventInstance = instance, userEmail = "Ada@example.com", status = RegistrationStatus.WAITLISTED))
+        }
+
+        // Assert
+        assertTrue(duplicateRegistrationGuard.isDuplicate(error))
+        assertFalse(duplicateRegistrationGuard.isRegistered(instance.id!!, "grace@example.com"))
+    }
+
+    @Test
+    @DisplayName("Should skip already registered emails in an import")
+    fun shouldSkipRegisteredEmailsOnImport() {
+        // Arrange
+        val instance = instance(capacity = null)
+        register(instance, "ada@example.com")
+
+        // Act
+        val result = importService.import(
+            instance.id!!, "email\nADA@example.com\ngrace@example.com".byteInputStream(), RegistrationImportFormat.CSV, false
+        )
+
+        // Assert
+        assertEquals(1, result.registered)
+        assertEquals(listOf("Already registered for this event"), result.errors.map { it.message })
+        assertTrue(duplicateRegistrationGuard.isRegistered(instance.id, "grace@example.com"))
+    }
+
+    private fun register(instance: EventInstance, email: String) =
+        registrationController.createRegistration(RegistrationCreateDto(eventInstanceId = instance.id, userEmail = email, userName = "Ada")).id!!
+
+    private fun instance(capacity: Int?): EventInstance =
+        fixture.instance("No Duplicates", capacity)
+}
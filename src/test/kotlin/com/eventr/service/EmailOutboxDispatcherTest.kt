@@ -0,0 +1,195 @@
+package com.eventr.service
+
+import com.eventr.controller.RegistrationController
+import com.eventr.dto.RegistrationCreateDto
+import com.eventr.model.Event
+import com.eventr.model.EventInstance
+import com.eventr.model.EventStatus
+import com.eventr.model.OutboxEmailType
+import com.eventr.model.OutboxStatus
+import com.eventr.repository.EmailOutboxRepository
+import com.eventr.repository.EventInstanceRepository
+import com.eventr.repository.EventRepository
+import com.eventr.repository.RegistrationCapacityRepository
+import com.eventr.repository.RegistrationRepository
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doNothing
+import org.mockito.kotlin.doThrow
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.never
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.whenever
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.mail.MailSendException
+import org.springframework.test.context.ActiveProfiles
+import java.time.Duration
+import java.time.LocalDateTime
+import java.util.UUID
+
+@SpringBootTest(properties = ["app.email-outbox.poll-interval=PT1H", "app.email-outbox.max-attempts=3"])
+@ActiveProfiles("test")
+@DisplayName("Email outbox dispatch")
+class EmailOutboxDispatcherTest {
+
+    @Autowired
+    private lateinit var registrationController: RegistrationController
+
+    @Autowired
+    private lateinit var dispatcher: EmailOutboxDispatcher
+
+    @Autowired
+    private lateinit var emailOutboxRepository: EmailOutboxRepository
+
+    @Autowired
+    private lateinit var eventRepository: EventRepository
+
+    @Autowired
+    private lateinit var eventInstanceRepository: EventInstanceRepository
+
+    @Autowired
+    private lateinit var registrationRepository: RegistrationRepository
+
+    @Autowired
+    private lateinit var capacityRepository: RegistrationCapacityRepository
+
+    @MockBean
+    private lateinit var emailNotificationService: EmailNotificationService
+
+    private lateinit var instance: EventInstance
+
+    @BeforeEach
+    fun setUp() {
+        val event = eventRepository.save(Event().apply {
+            name = "Outbox Meetup"
+            status = EventStatus.PUBLISHED
+        })
+        instance = eventInstanceRepository.save(EventInstance(event = event))
+    }
+
+    @AfterEach
+    fun tearDown() {
+        emailOutboxRepository.deleteAll()
+        registrationRepository.deleteAll(registrationRepository.findByEventInstance(instance))
+        capacityRepository.deleteById(instance.id!!)
+        eventInstanceRepository.delete(instance)
+        eventRepository.deleteById(instance.event!!.id!!)
+    }
+
+    @Test
+    @DisplayName("Should queue the confirmation with the registration and send it once")
+    fun shouldSendQueuedConfirmationOnce() {
+        // Arrange
+        val registrationId = register()
+        val queued = emailOutboxRepository.findAll().single()
+
+        // Act
+        val firstRun = dispatcher.dispatch()
+        val secondRun = dispatcher.dispatch()
+
+        // Assert
+        verify(emailNotificationService, never()).sendCancellationNotification(any(), any())
+        assertEquals(OutboxEmailType.REGISTRATION_CONFIRMATION, queued.type)
+        assertEquals(registrationId, queued.registrationId)
+        assertEquals(1, firstRun)
+        assertEquals(0, secondRun)
+        verify(emailNotificationService, times(1)).sendRegistrationConfirmation(any())
+        val sent = emailOutboxRepository.findById(queued.id!!).get()
+        assertEquals(OutboxStatus.SENT, sent.status)
+        assertEquals(1, sent.attempts)
+        assertNotNull(sent.sentAt)
+    }
+
+    @Test
+    @DisplayName("Should back off after a failed send and deliver on a later attempt")
+    fun shouldRetryWithBackoff() {
+        // Arrange
+        register()
+        doThrow(MailSendException("SMTP unavailable")).whenever(emailNotificationService).sendRegistrationConfirmation(any())
+
+        // Act
+        val before = LocalDateTime.now()
+        dispatcher.dispatch()
+        val failed = emailOutboxRepository.findAll().single()
+        val immediateRetry = dispatcher.dispatch()
+
+        makeDue(failed.id!!)
+        doNothing().whenever(emailNotificationService).sendRegistrationConfirmation(any())
+        val laterRetry = dispatcher.dispatch()
+
+        // Assert
+        assertEquals(OutboxStatus.PENDING, failed.status)
+        assertEquals(1, failed.attempts)
+        assertEquals("SMTP unavailable", failed.lastError)
+        assertFalse(failed.nextAttemptAt.isBefore(before.plusSeconds(29)))
+        assertEquals(0, immediateRetry)
+        assertEquals(1, laterRetry)
+        assertEquals(OutboxStatus.SENT, emailOutboxRepository.findById(failed.id).get().status)
+    }
+
+    @Test
+    @DisplayName("Should give up after the maximum number of attempts")
+    fun shouldGiveUpAfterMaxAttempts() {
+        // Arrange
+        register()
+        doThrow(MailSendException("mailbox unavailable")).whenever(emailNotificationService).sendRegistrationConfirmation(any())
+        val messageId = emailOutboxRepository.findAll().single().id!!
+
+        // Act
+        repeat(5) {
+            makeDue(messageId)
+            dispatcher.dispatch()
+        }
+
+        // Assert
+        val message = emailOutboxRepository.findById(messageId).get()
+        assertEquals(OutboxStatus.FAILED, message.status)
+        assertEquals(3, message.attempts)
+        verify(emailNotificationService, times(3)).sendRegistrationConfirmation(any())
+    }
+
+    @Test
+    @DisplayName("Should queue cancellation notices with their reason")
+    fun shouldQueueCancellation() {
+        // Arrange
+        val registrationId = register()
+
+        // Act
+        registrationController.cancelRegistration(registrationId, "Schedule conflict")
+        dispatcher.dispatch()
+
+        // Assert
+        val cancellation = emailOutboxRepository.findAll().single { it.type == OutboxEmailType.REGISTRATION_CANCELLATION }
+        assertEquals("Schedule conflict", cancellation.reason)
+        assertEquals(OutboxStatus.SENT, cancellation.status)
+        verify(emailNotificationService).sendCancellationNotification(any(), eq("Schedule conflict"))
+    }
+
+    @Test
+    @DisplayName("Should double the retry delay per attempt up to an hour")
+    fun shouldDoubleRetryDelay() {
+        assertEquals(Duration.ofSeconds(30), dispatcher.retryDelay(1))
+        assertEquals(Duration.ofSeconds(120), dispatcher.retryDelay(3))
+        assertEquals(Duration.ofHours(1), dispatcher.retryDelay(12))
+    }
+
+    private fun register(): UUID =
+        registrationController.createRegistration(RegistrationCreateDto(
+            eventInstanceId = instance.id,
+            userEmail = "guest-${UUID.randomUUID()}@example.com",
+            userName = "Guest"
+        )).id!!
+
+    private fun makeDue(messageId: UUID) {
+        val message = emailOutboxRepository.findById(messageId).get()
+        message.nextAttemptAt = LocalDateTime.now().minusSeconds(1)
+        emailOutboxRepository.save(message)
+    }
+}
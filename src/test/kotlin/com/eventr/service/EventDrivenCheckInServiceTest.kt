@@ -11,6 +11,11 @@ import org.junit.jupiter.api.assertThrows
 import org.mockito.Mock
 import org.mockito.MockitoAnnotations
 import org.mockito.kotlin.*
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.SimpleTransactionStatus
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
 import java.time.LocalDateTime
 import java.util.*
 import org.junit.jupiter.api.Assertions.*
@@ -29,8 +34,13 @@ class EventDrivenCheckInServiceTest {
     @Mock
     private lateinit var eventRepository: EventRepository
 
+    @Mock
+    private lateinit var eventInstanceRepository: EventInstanceRepository
+
     private lateinit var checkInService: CheckInServiceInterface
 
+    private lateinit var qrCodeService: QRCodeService
+
     private val testRegistrationId = UUID.randomUUID()
     private val testSessionId = UUID.randomUUID()
     private val testEventId = UUID.randomUUID()
@@ -39,11 +49,18 @@ class EventDrivenCheckInServiceTest {
     @BeforeEach
     fun setUp() {
         MockitoAnnotations.openMocks(this)
+        qrCodeService = QRCodeService(
+            registrationRepository, sessionRepository, "test-secret-key-for-testing-purposes-should-be-32-chars-minimum",
+            Duration.ofHours(12), Duration.ofDays(30), Clock.systemUTC()
+        )
         checkInService = EventDrivenCheckInService(
             checkInRepository,
             registrationRepository,
             sessionRepository,
-            eventRepository
+            eventRepository,
+            CheckInPresenceIndex(checkInRepository, registrationRepository, eventInstanceRepository, eventRepository, 100, Duration.ofHours(1), Duration.ofHours(1)),
+            qrCodeService,
+            mock<PlatformTransactionManager> { on { getTransaction(any()) } doReturn SimpleTransactionStatus() }
         )
     }
 
@@ -60,13 +77,13 @@ class EventDrivenCheckInServiceTest {
             checkedInBy = "staff@example.com"
         )
 
-        whenever(registrationRepository.findById(testRegistrationId))
-            .thenReturn(Optional.of(registration))
+        whenever(registrationRepository.findAllForCheckIn(listOf(testRegistrationId)))
+            .thenReturn(listOf(registration))
         whenever(sessionRepository.findById(testSessionId))
             .thenReturn(Optional.of(session))
-        whenever(checkInRepository.findByRegistrationIdAndSessionId(testRegistrationId, testSessionId))
-            .thenReturn(null) // No existing check-in
-        whenever(checkInRepository.save(any<CheckIn>())).thenAnswer { invocation ->
+        whenever(checkInRepository.findCheckInKeysByEventId(testEventId))
+            .thenReturn(emptyList()) // No existing check-in
+        whenever(checkInRepository.saveAndFlush(any<CheckIn>())).thenAnswer { invocation ->
             val checkIn = invocation.arguments[0] as CheckIn
             checkIn.copy(id = testCheckInId)
         }
@@ -82,10 +99,11 @@ class EventDrivenCheckInServiceTest {
         assertEquals(CheckInType.SESSION, result.type)
         assertEquals(CheckInMethod.MANUAL, result.method)
 
-        verify(registrationRepository).findById(testRegistrationId)
+        verify(registrationRepository).findAllForCheckIn(listOf(testRegistrationId))
         verify(sessionRepository).findById(testSessionId)
-        verify(checkInRepository).findByRegistrationIdAndSessionId(testRegistrationId, testSessionId)
-        verify(checkInRepository).save(any<CheckIn>())
+        verify(checkInRepository).findCheckInKeysByEventId(testEventId)
+        verify(checkInRepository, never()).findByRegistrationIdAndSessionId(any(), any())
+        verify(checkInRepository).saveAndFlush(any<CheckIn>())
     }
 
     @Test
@@ -93,42 +111,110 @@ class EventDrivenCheckInServiceTest {
         // Arrange
         val createDto = CheckInCreateDto(registrationId = testRegistrationId)
 
-        whenever(registrationRepository.findById(testRegistrationId))
-            .thenReturn(Optional.empty())
+        whenever(registrationRepository.findAllForCheckIn(listOf(testRegistrationId)))
+            .thenReturn(emptyList())
 
         // Act & Assert
         assertThrows<IllegalArgumentException> {
             checkInService.manualCheckIn(createDto)
         }
 
-        verify(registrationRepository).findById(testRegistrationId) // Only one call since exception is thrown early
-        verify(checkInRepository, never()).save(any<CheckIn>())
+        verify(registrationRepository).findAllForCheckIn(listOf(testRegistrationId)) // Only one call since exception is thrown early
+        verify(checkInRepository, never()).saveAndFlush(any<CheckIn>())
     }
 
     @Test
     fun `manualCheckIn should throw exception for duplicate check-in`() {
         // Arrange
         val registration = createTestRegistration()
-        val existingCheckIn = createTestCheckIn()
         val createDto = CheckInCreateDto(
             registrationId = testRegistrationId,
             sessionId = testSessionId,
             type = CheckInType.SESSION
         )
 
-        whenever(registrationRepository.findById(testRegistrationId))
-            .thenReturn(Optional.of(registration))
-        whenever(checkInRepository.findByRegistrationIdAndSessionId(testRegistrationId, testSessionId))
-            .thenReturn(existingCheckIn)
+        whenever(registrationRepository.findAllForCheckIn(listOf(testRegistrationId)))
+            .thenReturn(listOf(registration))
+        whenever(checkInRepository.findCheckInKeysByEventId(testEventId))
+            .thenReturn(listOf(arrayOf(testRegistrationId, testSessionId, CheckInType.SESSION)))
 
         // Act & Assert
         assertThrows<IllegalArgumentException> {
             checkInService.manualCheckIn(createDto)
         }
 
-        verify(registrationRepository).findById(testRegistrationId) // Only one call since exception is thrown early
-        verify(checkInRepository).findByRegistrationIdAndSessionId(testRegistrationId, testSessionId)
-        verify(checkInRepository, never()).save(any<CheckIn>())
+        verify(registrationRepository).findAllForCheckIn(listOf(testRegistrationId)) // Only one call since exception is thrown early
+        verify(checkInRepository).findCheckInKeysByEventId(testEventId)
+        verify(checkInRepository, never()).saveAndFlush(any<CheckIn>())
+    }
+
+    @Test
+    fun `checkInWithQR should insert a check-in from the registration reference alone`() {
+        // Arrange
+        val code = qrCodeService.encode(QRData(testRegistrationId, testEventId, testSessionId, Instant.now().plusSeconds(60)))
+        whenever(registrationRepository.getReferenceById(testRegistrationId)).thenReturn(Registration(id = testRegistrationId))
+        whenever(sessionRepository.getReferenceById(testSessionId)).thenReturn(Session(id = testSessionId))
+        whenever(checkInRepository.saveAndFlush(any<CheckIn>())).thenAnswer { invocation ->
+            (invocation.arguments[0] as CheckIn).copy(id = testCheckInId)
+        }
+
+        // Act
+        val result = checkInService.checkInWithQR(QRCheckInDto(qrCode = code, deviceId = "door-1"))
+
+        // Assert
+        assertEquals(testCheckInId, result.id)
+        assertEquals(testRegistrationId, result.registrationId)
+        assertEquals(testSessionId, result.sessionId)
+        assertEquals(CheckInMethod.QR_CODE, result.method)
+        assertEquals(code, result.qrCodeUsed)
+        verify(checkInRepository).findCheckInKeysByEventId(testEventId)
+        verify(registrationRepository, never()).findAllForCheckIn(any())
+        verify(sessionRepository, never()).findById(any())
+    }
+
+    @Test
+    fun `checkInWithQR should refuse codes of cancelled registrations`() {
+        // Arrange
+        val code = qrCodeService.encode(QRData(testRegistrationId, testEventId, null, Instant.now().plusSeconds(60)))
+        whenever(registrationRepository.findIdsByEventIdAndStatus(testEventId, RegistrationStatus.CANCELLED))
+            .thenReturn(listOf(testRegistrationId))
+
+        // Act & Assert
+        assertEquals("Registration has been cancelled", assertThrows<IllegalArgumentException> {
+            checkInService.checkInWithQR(QRCheckInDto(qrCode = code))
+        }.message)
+        verify(checkInRepository, never()).saveAndFlush(any<CheckIn>())
+    }
+
+    @Test
+    fun `checkInWithQR should refuse codes of registrations cancelled on another node`() {
+        // Arrange
+        val code = qrCodeService.encode(QRData(testRegistrationId, testEventId, null, Instant.now().plusSeconds(60)))
+        whenever(registrationRepository.getReferenceById(testRegistrationId))
+            .thenReturn(Registration(id = testRegistrationId, status = RegistrationStatus.CANCELLED))
+
+        // Act & Assert
+        assertEquals("Registration has been cancelled", assertThrows<IllegalArgumentException> {
+            checkInService.checkInWithQR(QRCheckInDto(qrCode = code))
+        }.message)
+        verify(checkInRepository, never()).saveAndFlush(any<CheckIn>())
+    }
+
+    @Test
+    fun `checkInWithQR should reject forged codes and repeat scans`() {
+        // Arrange
+        val code = qrCodeService.encode(QRData(testRegistrationId, testEventId, null, Instant.now().plusSeconds(60)))
+        whenever(checkInRepository.findCheckInKeysByEventId(testEventId))
+            .thenReturn(listOf(arrayOf(testRegistrationId, null, CheckInType.EVENT)))
+
+        // Act & Assert
+        assertEquals("Invalid QR code", assertThrows<IllegalArgumentException> {
+            checkInService.checkInWithQR(QRCheckInDto(qrCode = code.reversed()))
+        }.message)
+        assertEquals("Already checked in", assertThrows<IllegalArgumentException> {
+            checkInService.checkInWithQR(QRCheckInDto(qrCode = code))
+        }.message)
+        verify(checkInRepository, never()).saveAndFlush(any<CheckIn>())
     }
 
     @Test
@@ -141,15 +227,13 @@ class EventDrivenCheckInServiceTest {
             userEmail = "user2@example.com"
         )
 
-        whenever(registrationRepository.findById(registrationIds[0]))
-            .thenReturn(Optional.of(registration1))
-        whenever(registrationRepository.findById(registrationIds[1]))
-            .thenReturn(Optional.of(registration2))
-        whenever(checkInRepository.findByRegistrationIdAndType(any(), any()))
-            .thenReturn(null) // No existing check-ins
-        whenever(checkInRepository.save(any<CheckIn>())).thenAnswer { invocation ->
-            val checkIn = invocation.arguments[0] as CheckIn
-            checkIn.copy(id = UUID.randomUUID())
+        whenever(registrationRepository.findAllForCheckIn(registrationIds))
+            .thenReturn(listOf(registration1, registration2))
+        whenever(checkInRepository.findCheckInKeysByEventId(testEventId))
+            .thenReturn(emptyList()) // No existing check-ins
+        whenever(checkInRepository.saveAll(any<List<CheckIn>>())).thenAnswer { invocation ->
+            @Suppress("UNCHECKED_CAST")
+            (invocation.arguments[0] as List<CheckIn>).map { it.copy(id = UUID.randomUUID()) }
         }
 
         // Act
@@ -157,38 +241,76 @@ class EventDrivenCheckInServiceTest {
 
         // Assert
         assertEquals(2, results.size)
-        verify(registrationRepository, times(2)).findById(any()) // 2 registrations
-        verify(checkInRepository, times(2)).save(any<CheckIn>())
+        assertEquals(listOf("user@example.com", "user2@example.com"), results.map { it.userEmail })
+        verify(registrationRepository).findAllForCheckIn(registrationIds) // one query for all registrations
+        verify(registrationRepository, never()).findById(any())
+        verify(checkInRepository).saveAll(any<List<CheckIn>>())
+        verify(checkInRepository, never()).save(any<CheckIn>())
     }
 
     @Test
-    fun `bulkCheckIn should skip duplicate check-ins and continue processing`() {
+    fun `bulkCheckIn should skip duplicate check-ins and unknown registrations`() {
         // Arrange
-        val registrationIds = listOf(testRegistrationId, UUID.randomUUID())
+        val registrationIds = listOf(testRegistrationId, UUID.randomUUID(), UUID.randomUUID())
         val registration1 = createTestRegistration()
         val registration2 = createTestRegistration().copy(id = registrationIds[1])
-        val existingCheckIn = createTestCheckIn()
-
-        whenever(registrationRepository.findById(registrationIds[0]))
-            .thenReturn(Optional.of(registration1))
-        whenever(registrationRepository.findById(registrationIds[1]))
-            .thenReturn(Optional.of(registration2))
-        whenever(checkInRepository.findByRegistrationIdAndType(registrationIds[0], CheckInType.EVENT))
-            .thenReturn(existingCheckIn) // First one has duplicate
-        whenever(checkInRepository.findByRegistrationIdAndType(registrationIds[1], CheckInType.EVENT))
-            .thenReturn(null) // Second one is new
-        whenever(checkInRepository.save(any<CheckIn>())).thenAnswer { invocation ->
-            val checkIn = invocation.arguments[0] as CheckIn
-            checkIn.copy(id = UUID.randomUUID())
+        val session = createTestSession()
+
+        whenever(sessionRepository.findById(testSessionId)).thenReturn(Optional.of(session))
+        whenever(registrationRepository.findAllForCheckIn(registrationIds))
+            .thenReturn(listOf(registration1, registration2)) // Third one does not exist
+        whenever(checkInRepository.findCheckInKeysByEventId(testEventId))
+            .thenReturn(listOf(arrayOf(registrationIds[0], testSessionId, CheckInType.SESSION))) // First one has duplicate
+        whenever(checkInRepository.saveAll(any<List<CheckIn>>())).thenAnswer { invocation ->
+            @Suppress("UNCHECKED_CAST")
+            (invocation.arguments[0] as List<CheckIn>).map { it.copy(id = UUID.randomUUID()) }
         }
 
         // Act
-        val results = checkInService.bulkCheckIn(registrationIds, null)
+        val results = checkInService.bulkCheckIn(registrationIds + registrationIds[1], testSessionId)
 
         // Assert
         assertEquals(1, results.size) // Only one successful check-in
-        verify(registrationRepository, times(2)).findById(any()) // 2 registrations attempted
-        verify(checkInRepository, times(1)).save(any<CheckIn>()) // Only one save
+        assertEquals(registrationIds[1], results.single().registrationId)
+        assertEquals(testSessionId, results.single().sessionId)
+        assertEquals(CheckInType.SESSION, results.single().type)
+        verify(sessionRepository, times(1)).findById(testSessionId) // session resolved once
+        verify(checkInRepository, times(1)).findCheckInKeysByEventId(testEventId) // index loaded once
+    }
+
+    @Test
+    fun `manualCheckInBatch should record each scan once and report the rest`() {
+        // Arrange
+        val otherId = UUID.randomUUID()
+        val unknownId = UUID.randomUUID()
+        val registration2 = createTestRegistration().copy(id = otherId)
+        val scans = listOf(
+            CheckInCreateDto(registrationId = testRegistrationId, sessionId = testSessionId, type = CheckInType.SESSION),
+            CheckInCreateDto(registrationId = otherId),
+            CheckInCreateDto(registrationId = unknownId),
+            CheckInCreateDto(registrationId = otherId) // scanned twice
+        )
+
+        whenever(registrationRepository.findAllForCheckIn(listOf(testRegistrationId, otherId, unknownId)))
+            .thenReturn(listOf(createTestRegistration(), registration2))
+        whenever(sessionRepository.findAllById(setOf(testSessionId))).thenReturn(listOf(createTestSession()))
+        whenever(checkInRepository.findCheckInKeysByEventId(testEventId))
+            .thenReturn(listOf(arrayOf(testRegistrationId, UUID.randomUUID(), CheckInType.SESSION))) // another session
+        whenever(checkInRepository.saveAll(any<List<CheckIn>>())).thenAnswer { invocation ->
+            @Suppress("UNCHECKED_CAST")
+            (invocation.arguments[0] as List<CheckIn>).map { it.copy(id = UUID.randomUUID()) }
+        }
+
+        // Act
+        val results = checkInService.manualCheckInBatch(scans)
+
+        // Assert
+        assertEquals(testSessionId, results[0].getOrThrow().sessionId)
+        assertEquals(otherId, results[1].getOrThrow().registrationId)
+        assertTrue(results[2].exceptionOrNull()?.message!!.startsWith("Registration not found"))
+        assertEquals("Already checked in", results[3].exceptionOrNull()?.message)
+        verify(checkInRepository, times(1)).saveAll(argThat<List<CheckIn>> { size == 2 })
+        verify(registrationRepository, never()).findById(any())
     }
 
     @Test
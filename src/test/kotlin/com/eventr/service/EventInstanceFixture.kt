@@ -0,0 +1,56 @@
+package com.eventr.service
+
+import com.eventr.model.Event
+import com.eventr.model.EventInstance
+import com.eventr.model.EventStatus
+import com.eventr.repository.CheckInRepository
+import com.eventr.repository.EventInstanceRepository
+import com.eventr.repository.EventRepository
+import com.eventr.repository.RegistrationCapacityRepository
+import com.eventr.repository.RegistrationRepository
+import org.springframework.stereotype.Component
+
+/**
+ * Published events with one instance each, for tests against the database.
+ * [cleanUp] deletes everything created since the last call, together with
+ * the instances' registrations, check-ins and capacity counters.
+ */
+@Component
+class EventInstanceFixture(
+    private val eventRepository: EventRepository,
+    private val eventInstanceRepository: EventInstanceRepository,
+    private val registrationRepository: RegistrationRepository,
+    private val capacityRepository: RegistrationCapacityRepository,
+    private val checkInRepository: CheckInRepository
+) {
+
+    private val instances = mutableListOf<EventInstance>()
+
+    fun instance(
+        name: String,
+        capacity: Int? = null,
+        waitlist: Boolean = false,
+        configure: Event.() -> Unit = {}
+    ): EventInstance {
+        val event = eventRepository.save(Event().apply {
+            this.name = name
+            status = EventStatus.PUBLISHED
+            this.capacity = capacity
+            waitlistEnabled = waitlist
+            configure()
+        })
+        return eventInstanceRepository.save(EventInstance(event = event)).also { instances += it }
+    }
+
+    fun cleanUp() {
+        instances.forEach { instance ->
+            val eventId = instance.event!!.id!!
+            checkInRepository.deleteAll(checkInRepository.findByEventIdOrderByCheckedInAtDesc(eventId))
+            registrationRepository.deleteAll(registrationRepository.findByEventInstance(instance))
+            capacityRepository.findById(instance.id!!).ifPresent { capacityRepository.delete(it) }
+            eventInstanceRepository.delete(instance)
+            eventRepository.deleteById(eventId)
+        }
+        instances.clear()
+    }
+}
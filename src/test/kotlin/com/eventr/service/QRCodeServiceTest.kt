@@ -0,0 +1,105 @@
+package com.eventr.service
+
+import com.eventr.model.Event
+import com.eventr.model.EventInstance
+import com.eventr.model.Registration
+import com.eventr.model.Session
+import com.eventr.repository.RegistrationRepository
+import com.eventr.repository.SessionRepository
+import com.google.zxing.BinaryBitmap
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource
+import com.google.zxing.common.HybridBinarizer
+import com.google.zxing.qrcode.QRCodeReader
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.whenever
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.LocalDateTime
+import java.time.ZoneId
+import java.time.ZoneOffset
+import java.util.Base64
+import java.util.Optional
+import java.util.UUID
+import javax.imageio.ImageIO
+
+@DisplayName("QRCodeService Tests")
+class QRCodeServiceTest {
+
+    private val registrationRepository = mock<RegistrationRepository>()
+    private val sessionRepository = mock<SessionRepository>()
+
+    private val now = Instant.parse("2030-01-01T09:00:00Z")
+
+    private val data = QRData(UUID.randomUUID(), UUID.randomUUID(), null, now.plusSeconds(3600))
+
+    @Test
+    @DisplayName("Should round-trip event and session codes")
+    fun shouldRoundTrip() {
+        val service = service()
+        val sessionData = data.copy(sessionId = UUID.randomUUID())
+
+        assertEquals(data, service.verify(service.encode(data)))
+        assertEquals(sessionData, service.verify(service.encode(sessionData)))
+        assertTrue(service.encode(sessionData).length < 100)
+    }
+
+    @Test
+    @DisplayName("Should reject altered, foreign, malformed and expired codes")
+    fun shouldRejectBadCodes() {
+        val service = service()
+        val code = service.encode(data)
+        val altered = Base64.getUrlDecoder().decode(code).also { it[5] = (it[5] + 1).toByte() }
+
+        listOf(
+            Base64.getUrlEncoder().withoutPadding().encodeToString(altered),
+            service(secret = "another-secret-that-is-at-least-32-chars").encode(data),
+            "not a code",
+            code.dropLast(2)
+        ).forEach { assertEquals("Invalid QR code", assertThrows<IllegalArgumentException> { service.verify(it) }.message) }
+
+        val later = service(clock = Clock.fixed(now.plusSeconds(3600), ZoneOffset.UTC))
+        assertEquals("QR code has expired", assertThrows<IllegalArgumentException> { later.verify(code) }.message)
+    }
+
+    @Test
+    @DisplayName("Should issue codes valid until after the event and render them scannable")
+    fun shouldIssueAndRender() {
+        // Arrange
+        val end = LocalDateTime.of(2030, 1, 1, 18, 0)
+        val event = Event(id = UUID.randomUUID(), endDateTime = end)
+        val registration = Registration(id = data.registrationId, eventInstance = EventInstance(id = UUID.randomUUID(), event = event))
+        val session = Session(id = UUID.randomUUID(), event = event)
+        whenever(registrationRepository.findAllForCheckIn(listOf(registration.id!!))).thenReturn(listOf(registration))
+        whenever(sessionRepository.findById(session.id!!)).thenReturn(Optional.of(session))
+        val service = service()
+
+        // Act
+        val code = service.issue(registration.id, session.id)
+        val image = ImageIO.read(service.render(code, 300).inputStream())
+        val scanned = QRCodeReader().decode(BinaryBitmap(HybridBinarizer(BufferedImageLuminanceSource(image)))).text
+
+        // Assert
+        assertEquals(code, scanned)
+        assertEquals(
+            QRData(registration.id, event.id!!, session.id, end.atZone(ZoneId.systemDefault()).toInstant().plus(Duration.ofHours(12))),
+            service.verify(scanned)
+        )
+        assertThrows<IllegalArgumentException> { service.issue(registration.id, UUID.randomUUID()) }
+    }
+
+    @Test
+    @DisplayName("Should refuse to start with a short key")
+    fun shouldRequireKey() {
+        assertThrows<IllegalStateException> { service(secret = "short") }
+    }
+
+    private fun service(
+        secret: String = "test-secret-key-for-testing-purposes-should-be-32-chars-minimum",
+        clock: Clock = Clock.fixed(now, ZoneOffset.UTC)
+    ) = QRCodeService(registrationRepository, sessionRepository, secret, Duration.ofHours(12), Duration.ofDays(30), clock)
+}
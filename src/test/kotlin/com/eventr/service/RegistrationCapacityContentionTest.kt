@@ -0,0 +1,229 @@
+package com.eventr.service
+
+import com.eventr.controller.RegistrationController
+import com.eventr.dto.RegistrationCreateDto
+import com.eventr.exception.BusinessRuleException
+import com.eventr.model.EventInstance
+import com.eventr.model.OutboxEmailType
+import com.eventr.model.RegistrationStatus
+import com.eventr.repository.EmailOutboxRepository
+import com.eventr.repository.RegistrationCapacityRepository
+import com.eventr.repository.RegistrationRepository
+import jakarta.persistence.EntityManagerFactory
+import org.hibernate.SessionFactory
+import org.hibernate.stat.Statistics
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.test.context.ActiveProfiles
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Fires many simultaneous registrations at one event instance through the
+ * real controller, services and database, and checks that no more seats are
+ * handed out than the event has.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Registration capacity under contention")
+class RegistrationCapacityContentionTest {
+
+    @Autowired
+    private lateinit var registrationController: RegistrationController
+
+    @Autowired
+    private lateinit var registrationCapacityService: RegistrationCapacityService
+
+    @Autowired
+    private lateinit var registrationRepository: RegistrationRepository
+
+    @Autowired
+    private lateinit var capacityRepository: RegistrationCapacityRepository
+
+    @Autowired
+    private lateinit var emailOutboxRepository: EmailOutboxRepository
+
+    @Autowired
+    private lateinit var entityManagerFactory: EntityManagerFactory
+
+    @Autowired
+    private lateinit var fixture: EventInstanceFixture
+
+    @MockBean
+    private lateinit var emailNotificationService: EmailNotificationService
+
+    @AfterEach
+    fun tearDown() {
+        fixture.cleanUp()
+    }
+
+    @Test
+    @DisplayName("Should register exactly up to capacity and reject the rest")
+    fun shouldNeverOversell() {
+        // Arrange
+        val instance = instanceWithCapacity(capacity = 50, waitlist = false)
+
+        // Act
+        val outcomes = registerConcurrently(instance, attempts = 1000)
+
+        // Assert
+        assertEquals(50, outcomes.count { it == RegistrationStatus.REGISTERED })
+        assertEquals(950, outcomes.count { it == null })
+        assertEquals(50, registeredCount(instance))
+        assertEquals(50, capacityRepository.findById(instance.id!!).get().reservedSeats)
+    }
+
+    @Test
+    @DisplayName("Should waitlist registrations beyond capacity and reopen seats on cancellation")
+    fun shouldWaitlistAndReleaseSeats() {
+        // Arrange
+        val instance = instanceWithCapacity(capacity = 25, waitlist = true)
+
+        // Act
+        val outcomes = registerConcurrently(instance, attempts = 300)
+        registrationRepository.findByEventInstance(instance)
+            .filter { it.status == RegistrationStatus.REGISTERED }
+            .take(5)
+            .forEach { registrationController.cancelRegistration(it.id!!) }
+
+        // Assert
+        assertEquals(25, outcomes.count { it == RegistrationStatus.REGISTERED })
+        assertEquals(275, outcomes.count { it == RegistrationStatus.WAITLISTED })
+        assertEquals(20, registeredCount(instance))
+        assertEquals(20, capacityRepository.findById(instance.id!!).get().reservedSeats)
+        assertTrue(registrationCapacityService.tryReserve(instance, seats = 5))
+        assertFalse(registrationCapacityService.tryReserve(instance))
+    }
+
+    @Test
+    @DisplayName("Should cancel a registration once however many requests cancel it at once")
+    fun shouldCancelOnce() {
+        // Arrange
+        val instance = instanceWithCapacity(capacity = 2, waitlist = false)
+        registerConcurrently(instance, attempts = 2)
+        val (cancelled, kept) = registrationRepository.findByEventInstance(instance)
+
+        // Act
+        concurrently(20) { registrationController.cancelRegistration(cancelled.id!!).status }
+        val outcomes = registerConcurrently(instance, attempts = 10, first = 3)
+
+        // Assert
+        assertEquals(1, outcomes.count { it == RegistrationStatus.REGISTERED }, "only the cancelled seat reopened")
+        assertEquals(RegistrationStatus.REGISTERED, registrationRepository.findById(kept.id!!).get().status)
+        assertEquals(2, registeredCount(instance))
+        assertEquals(2, capacityRepository.findById(instance.id!!).get().reservedSeats)
+        assertEquals(1, emailOutboxRepository.findAll().count {
+            it.registrationId == cancelled.id && it.type == OutboxEmailType.REGISTRATION_CANCELLATION
+        })
+    }
+
+    @Test
+    @DisplayName("Should hand back seats reserved for registrations that were never inserted")
+    fun shouldReconcileLeakedSeats() {
+        // Arrange
+        val leaky = instanceWithCapacity(capacity = 10, waitlist = false)
+        val short = instanceWithCapacity(capacity = 10, waitlist = false)
+        registerConcurrently(leaky, attempts = 2)
+        registerConcurrently(short, attempts = 2, first = 3)
+        registrationCapacityService.tryReserve(leaky, seats = 3) // as if the process died before the inserts
+        registrationCapacityService.release(short.id!!, seats = 2)
+
+        // Act
+        registrationCapacityService.reconcile()
+        val afterFirst = reservedSeats(leaky)
+        registrationCapacityService.reconcile()
+
+        // Assert
+        assertEquals(5, afterFirst, "excess is only released once it has outlasted a run")
+        assertEquals(2, reservedSeats(leaky))
+        assertEquals(2, reservedSeats(short), "a counter behind its registrations is raised at once")
+    }
+
+    @Test
+    @DisplayName("Should reserve what is left of a partly booked instance and refuse a full one without retrying")
+    fun shouldReserveUpToWhatIsLeft() {
+        // Arrange
+        val instance = instanceWithCapacity(capacity = 10, waitlist = false)
+        registrationCapacityService.tryReserve(instance, seats = 7)
+        val statistics = entityManagerFactory.unwrap(SessionFactory::class.java).statistics
+
+        // Act
+        val partial = registrationCapacityService.reserveUpTo(instance, seats = 8)
+        statistics.isStatisticsEnabled = true
+        statistics.clear()
+        val refused = try {
+            registrationCapacityService.reserveUpTo(instance, seats = 5)
+        } finally {
+            statistics.isStatisticsEnabled = false
+        }
+
+        // Assert
+        assertEquals(3, partial)
+        assertEquals(0, refused)
+        assertEquals(10, reservedSeats(instance))
+        assertEquals(2, executions(statistics, "SELECT c.reservedSeats"), "one refusal and its retry, not one per halving")
+        assertTrue(statistics.queries.none { it.contains("INSERT INTO RegistrationCapacity") }, "the existing counter is not created again")
+    }
+
+    private fun executions(statistics: Statistics, hqlFragment: String): Long =
+        statistics.queries.filter { it.contains(hqlFragment) }.sumOf { statistics.getQueryStatistics(it).executionCount }
+
+    private fun reservedSeats(instance: EventInstance): Int =
+        capacityRepository.findById(instance.id!!).get().reservedSeats
+
+    /**
+     * Releases all registrations at once from a thread pool; returns the
+     * resulting status of each attempt, or null where it was rejected as full.
+     */
+    private fun registerConcurrently(instance: EventInstance, attempts: Int, first: Int = 1): List<RegistrationStatus?> =
+        concurrently(attempts) { n ->
+            val i = first + n
+            try {
+                registrationController.createRegistration(RegistrationCreateDto(
+                    eventInstanceId = instance.id,
+                    userEmail = "attendee$i@example.com",
+                    userName = "Attendee $i"
+                )).status
+            } catch (e: BusinessRuleException) {
+                null
+            }
+        }
+
+    /**
+     * Runs [action] [times] times, all released at once from a thread pool,
+     * and returns the results in order.
+     */
+    private fun <T> concurrently(times: Int, action: (Int) -> T): List<T> {
+        val executor = Executors.newFixedThreadPool(THREADS)
+        val start = CountDownLatch(1)
+        try {
+            val futures = (0 until times).map { n ->
+                executor.submit(Callable {
+                    start.await()
+                    action(n)
+                })
+            }
+            start.countDown()
+            return futures.map { it.get(60, TimeUnit.SECONDS) }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    private fun instanceWithCapacity(capacity: Int, waitlist: Boolean): EventInstance =
+        fixture.instance("Flash Sale", capacity, waitlist = waitlist)
+
+    private fun registeredCount(instance: EventInstance): Long =
+        registrationRepository.countByEventInstanceIdAndStatusIn(instance.id!!, setOf(RegistrationStatus.REGISTERED))
+
+    companion object {
+        private const val THREADS = 32
+    }
+}
@@ -0,0 +1,121 @@
+package com.eventr.service
+
+import com.eventr.controller.RegistrationController
+import com.eventr.dto.RegistrationCreateDto
+import com.eventr.model.EventInstance
+import com.eventr.model.Registration
+import com.eventr.model.RegistrationStatus
+import com.eventr.modules.event.api.EventModuleApi
+import com.eventr.repository.EventInstanceRepository
+import com.eventr.repository.RegistrationRepository
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Registration counters")
+class RegistrationCountServiceTest {
+
+    @Autowired
+    private lateinit var registrationCountService: RegistrationCountService
+
+    @Autowired
+    private lateinit var registrationController: RegistrationController
+
+    @Autowired
+    private lateinit var bulkRegistrationService: BulkRegistrationService
+
+    @Autowired
+    private lateinit var importService: RegistrationImportService
+
+    @Autowired
+    private lateinit var eventModule: EventModuleApi
+
+    @Autowired
+    private lateinit var eventInstanceRepository: EventInstanceRepository
+
+    @Autowired
+    private lateinit var registrationRepository: RegistrationRepository
+
+    @Autowired
+    private lateinit var transactionManager: PlatformTransactionManager
+
+    @Autowired
+    private lateinit var fixture: EventInstanceFixture
+
+    @MockBean
+    private lateinit var emailNotificationService: EmailNotificationService
+
+    @AfterEach
+    fun tearDown() {
+        fixture.cleanUp()
+    }
+
+    @Test
+    @DisplayName("Should follow registrations, cancellations, imports and bulk actions")
+    fun shouldFollowRegistrationChanges() {
+        // Arrange
+        val instance = instance(capacity = 3)
+
+        // Act
+        val first = register(instance, "first@example.com")
+        register(instance, "second@example.com")
+        importService.import(instance.id!!, "email\nthird@example.com\nfourth@example.com".byteInputStream(), RegistrationImportFormat.CSV, false)
+        registrationController.cancelRegistration(first)
+        registrationController.cancelRegistration(first)
+        bulkRegistrationService.apply(instance.event!!.id!!, BulkRegistrationAction.CHECKIN, listOf(registrationRepository.findByUserEmail("second@example.com").single().id!!))
+
+        // Assert
+        assertEquals(
+            mapOf(
+                RegistrationStatus.REGISTERED to 1,
+                RegistrationStatus.WAITLISTED to 1,
+                RegistrationStatus.CHECKED_IN to 1,
+                RegistrationStatus.NO_SHOW to 0,
+                RegistrationStatus.CANCELLED to 1
+            ),
+            counts(instance)
+        )
+        val response = eventModule.getEventInstance(instance.id)!!
+        assertEquals(2, response.registrationCount)
+        assertEquals(1, response.waitlistCount)
+        assertEquals(0, registrationCountService.reconcile())
+    }
+
+    @Test
+    @DisplayName("Should correct counters that drifted from the registrations")
+    fun shouldReconcileDrift() {
+        // Arrange
+        val instance = instance(capacity = null)
+        register(instance, "counted@example.com")
+        registrationRepository.save(Registration(eventInstance = instance, userEmail = "uncounted@example.com", status = RegistrationStatus.WAITLISTED))
+        TransactionTemplate(transactionManager).executeWithoutResult {
+            eventInstanceRepository.adjustRegistrationCounts(instance.id!!, 40, 0, 0, 0, 0)
+        }
+
+        // Act
+        val corrected = registrationCountService.reconcile()
+
+        // Assert
+        assertTrue(corrected >= 1)
+        assertEquals(1, counts(instance)[RegistrationStatus.REGISTERED])
+        assertEquals(1, counts(instance)[RegistrationStatus.WAITLISTED])
+        assertEquals(0, registrationCountService.reconcile())
+    }
+
+    private fun register(instance: EventInstance, email: String) =
+        registrationController.createRegistration(RegistrationCreateDto(eventInstanceId = instance.id, userEmail = email, userName = email)).id!!
+
+    private fun counts(instance: EventInstance) = eventInstanceRepository.findById(instance.id!!).get().registrationCounts()
+
+    private fun instance(capacity: Int?): EventInstance =
+        fixture.instance("Counted", capacity, waitlist = true)
+}
@@ -0,0 +1,200 @@
+package com.eventr.service
+
+import com.eventr.model.Event
+import com.eventr.model.EventInstance
+import com.eventr.model.Registration
+import com.eventr.model.RegistrationStatus
+import com.eventr.model.User
+import com.eventr.repository.EmailOutboxRepository
+import com.eventr.repository.RegistrationCapacityRepository
+import com.eventr.repository.RegistrationRepository
+import com.eventr.repository.UserRepository
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.test.context.ActiveProfiles
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Registration import")
+class RegistrationImportServiceTest {
+
+    @Autowired
+    private lateinit var importService: RegistrationImportService
+
+    @Autowired
+    private lateinit var registrationRepository: RegistrationRepository
+
+    @Autowired
+    private lateinit var capacityRepository: RegistrationCapacityRepository
+
+    @Autowired
+    private lateinit var emailOutboxRepository: EmailOutboxRepository
+
+    @Autowired
+    private lateinit var userRepository: UserRepository
+
+    @Autowired
+    private lateinit var fixture: EventInstanceFixture
+
+    @MockBean
+    private lateinit var emailNotificationService: EmailNotificationService
+
+    private val instances = mutableListOf<EventInstance>()
+    private val users = mutableListOf<User>()
+
+    @AfterEach
+    fun tearDown() {
+        emailOutboxRepository.deleteAll()
+        fixture.cleanUp()
+        userRepository.deleteAll(users)
+    }
+
+    @Test
+    @DisplayName("Should import valid CSV rows and report the rest by line")
+    fun shouldImportCsvAndReportErrors() {
+        // Arrange
+        val instance = instance()
+        importCsv(instance, "email,name\nexisting@example.com,Existing\n")
+        val csv = """
+            |Email,Name,Department
+            |ada@example.com,"Lovelace, Ada",Engineering
+            |grace@example.com,Grace Hopper,"Navy
+            |Research"
+            |
+            |not-an-email,Nobody,Sales
+            |ADA@example.com,Ada Again,Engineering
+            |existing@example.com,Existing Again,
+            |,No Email,
+        """.trimMargin()
+
+        // Act
+        val result = importCsv(instance, csv)
+
+        // Assert
+        assertEquals(6, result.totalRows)
+        assertEquals(2, result.registered)
+        assertEquals(4, result.failed)
+        assertEquals(
+            listOf(6 to "Invalid email address", 7 to "Duplicate email in file", 8 to "Already registered for this event", 9 to "Email is required"),
+            result.errors.map { it.row to it.message }
+        )
+        val ada = registrationRepository.findByUserEmail("ada@example.com").single()
+        assertEquals("Lovelace, Ada", ada.userName)
+        assertEquals(RegistrationStatus.REGISTERED, ada.status)
+        assertTrue(registrationRepository.findByUserEmail("grace@example.com").single().formData!!.contains("Navy\\nResearch"))
+        assertEquals(3, emailOutboxRepository.count())
+    }
+
+    @Test
+    @DisplayName("Should stop registering at capacity and waitlist or reject the overflow")
+    fun shouldRespectCapacity() {
+        // Arrange
+        val closed = instance(capacity = 3, waitlist = false)
+        val waitlisted = instance(capacity = 3, waitlist = true)
+        val csv = "email\n" + (1..5).joinToString("\n") { "attendee$it@example.com" }
+
+        // Act
+        val closedResult = importCsv(closed, csv)
+        val waitlistResult = importCsv(waitlisted, csv)
+
+        // Assert
+        assertEquals(3, closedResult.registered)
+        assertEquals(listOf("Event is full", "Event is full"), closedResult.errors.map { it.message })
+        assertEquals(3, capacityRepository.findById(closed.id!!).get().reservedSeats)
+        assertEquals(3, waitlistResult.registered)
+        assertEquals(2, waitlistResult.waitlisted)
+        assertEquals(0, waitlistResult.failed)
+    }
+
+    @Test
+    @DisplayName("Should reject only the rows a failed chunk could not save")
+    fun shouldRetryFailedChunkRowByRow() {
+        // Arrange
+        val instance = instance(capacity = 10)
+        importCsv(instance, "email\nfirst@example.com") // loads the duplicate filter
+        // Registered past the duplicate filter, as another node would
+        registrationRepository.save(Registration(
+            eventInstance = instance, userEmail = "taken@example.com", status = RegistrationStatus.REGISTERED
+        ))
+        val csv = "email\nnew1@example.com\ntaken@example.com\nnew2@example.com"
+
+        // Act
+        val result = importCsv(instance, csv)
+
+        // Assert
+        assertEquals(2, result.registered)
+        assertEquals(listOf(3 to "Already registered for this event"), result.errors.map { it.row to it.message })
+        assertEquals(1, registrationRepository.findByUserEmail("new2@example.com").size)
+        assertEquals(3, capacityRepository.findById(instance.id!!).get().reservedSeats, "seats of the failed chunk handed back")
+    }
+
+    @Test
+    @DisplayName("Should read JSON lines and link registrations to existing users")
+    fun shouldImportJsonLinesAndLinkUsers() {
+        // Arrange
+        val instance = instance()
+        users += userRepository.save(User().apply {
+            email = "Linus@Example.com"
+            firstName = "Linus"
+            lastName = "Torvalds"
+            passwordHash = "hash"
+        })
+        val jsonl = """
+            {"email": "linus@example.com"}
+            {"email": "margaret@example.com", "name": "Margaret Hamilton", "formData": {"team": "Apollo"}}
+            {"email": 
+            ["not", "an", "object"]
+        """.trimIndent()
+
+        // Act
+        val result = importService.import(instance.id!!, jsonl.byteInputStream(), RegistrationImportFormat.JSONL, sendConfirmations = false)
+
+        // Assert
+        assertEquals(2, result.registered)
+        assertEquals(listOf(3 to "Invalid JSON", 4 to "Line is not a JSON object"), result.errors.map { it.row to it.message })
+        val linus = registrationRepository.findByUserEmail("Linus@Example.com").single()
+        assertEquals(users.single().id, linus.user?.id)
+        assertEquals("Linus Torvalds", linus.userName)
+        assertEquals("{\"team\":\"Apollo\"}", registrationRepository.findByUserEmail("margaret@example.com").single().formData)
+        assertEquals(0, emailOutboxRepository.count())
+    }
+
+    @Test
+    @DisplayName("Should import files spanning many chunks")
+    fun shouldImportManyChunks() {
+        // Arrange
+        val instance = instance()
+        val rows = RegistrationImportService.CHUNK_SIZE * 4 + 7
+        val csv = buildString {
+            append("email,name\n")
+            (1..rows).forEach { append("person$it@example.com,Person $it\r\n") }
+        }
+
+        // Act
+        val result = importService.import(instance.id!!, csv.byteInputStream(), RegistrationImportFormat.CSV, sendConfirmations = false)
+
+        // Assert
+        assertEquals(rows, result.totalRows)
+        assertEquals(rows, result.registered)
+        assertEquals(rows.toLong(), registrationRepository.countByEventInstanceIdAndStatusIn(instance.id, setOf(RegistrationStatus.REGISTERED)))
+    }
+
+    @Test
+    @DisplayName("Should pick the format from the parameter or the file extension")
+    fun shouldResolveFormat() {
+        assertEquals(RegistrationImportFormat.JSONL, RegistrationImportFormat.of(null, "attendees.ndjson"))
+        assertEquals(RegistrationImportFormat.CSV, RegistrationImportFormat.of("csv", "attendees.txt"))
+        assertThrows(IllegalArgumentException::class.java) { RegistrationImportFormat.of(null, "attendees.xlsx") }
+    }
+
+    private fun importCsv(instance: EventInstance, csv: String) =
+        importService.import(instance.id!!, csv.byteInputStream(), RegistrationImportFormat.CSV)
+
+    private fun instance(capacity: Int? = null, waitlist: Boolean = false): EventInstance =
+        fixture.instance("Department Onboarding", capacity, waitlist = waitlist)
+}
@@ -4,6 +4,7 @@ import com.eventr.model.*
 import com.eventr.repository.SessionRepository
 import com.eventr.repository.EventRepository
 import com.eventr.repository.SessionRegistrationRepository
+import com.eventr.shared.event.EventPublisher
 import org.junit.jupiter.api.Assertions.*
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
@@ -27,11 +28,14 @@ class SessionServiceTest {
     @Mock
     private lateinit var sessionRegistrationRepository: SessionRegistrationRepository
     
+    @Mock
+    private lateinit var eventPublisher: EventPublisher
+    
     private lateinit var sessionService: SessionService
 
     @BeforeEach
     fun setUp() {
-        sessionService = SessionService(sessionRepository, eventRepository, sessionRegistrationRepository)
+        sessionService = SessionService(sessionRepository, eventRepository, sessionRegistrationRepository, eventPublisher)
     }
 
     companion object {
@@ -0,0 +1,232 @@
+package com.eventr.service
+
+import com.eventr.controller.RegistrationController
+import com.eventr.dto.RegistrationCreateDto
+import com.eventr.model.Event
+import com.eventr.model.EventInstance
+import com.eventr.model.EventStatus
+import com.eventr.model.Registration
+import com.eventr.model.RegistrationStatus
+import com.eventr.model.Session
+import com.eventr.model.SessionRegistration
+import com.eventr.model.SessionRegistrationStatus
+import com.eventr.repository.EventInstanceRepository
+import com.eventr.repository.EventRepository
+import com.eventr.repository.RegistrationCapacityRepository
+import com.eventr.repository.RegistrationRepository
+import com.eventr.repository.SessionRegistrationRepository
+import com.eventr.repository.SessionRepository
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.mock.mockito.MockBean
+import org.springframework.test.context.ActiveProfiles
+import java.time.LocalDateTime
+import java.util.UUID
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Session waitlist promotion")
+class SessionWaitlistServiceTest {
+
+    @Autowired
+    private lateinit var sessionWaitlistService: SessionWaitlistService
+
+    @Autowired
+    private lateinit var sessionService: SessionService
+
+    @Autowired
+    private lateinit var registrationController: RegistrationController
+
+    @Autowired
+    private lateinit var eventRepository: EventRepository
+
+    @Autowired
+    private lateinit var eventInstanceRepository: EventInstanceRepository
+
+    @Autowired
+    private lateinit var registrationRepository: RegistrationRepository
+
+    @Autowired
+    private lateinit var capacityRepository: RegistrationCapacityRepository
+
+    @Autowired
+    private lateinit var sessionRepository: SessionRepository
+
+    @Autowired
+    private lateinit var sessionRegistrationRepository: SessionRegistrationRepository
+
+    @MockBean
+    private lateinit var emailNotificationService: EmailNotificationService
+
+    private lateinit var instance: EventInstance
+
+    private val sessions = mutableListOf<Session>()
+
+    @AfterEach
+    fun tearDown() {
+        sessions.forEach { session ->
+            sessionRegistrationRepository.deleteAll(sessionRegistrationRepository.findBySessionIdOrderByRegisteredAtAsc(session.id!!))
+            sessionRepository.deleteById(session.id)
+        }
+        registrationRepository.deleteAll(registrationRepository.findByEventInstance(instance))
+        capacityRepository.findById(instance.id!!).ifPresent { capacityRepository.delete(it) }
+        eventInstanceRepository.delete(instance)
+        eventRepository.deleteById(instance.event!!.id!!)
+    }
+
+    @Test
+    @DisplayName("Should promote the head of the waitlist when a seat is cancelled and renumber the rest")
+    fun shouldPromoteOnCancellation() {
+        // Arrange
+        val session = session(capacity = 2)
+        val (first, _) = List(2) { attend(session, SessionRegistrationStatus.REGISTERED) }
+        val waitlist = List(3) { attend(session, SessionRegistrationStatus.WAITLIST, position = 5 + it) }
+
+        // Act
+        sessionService.cancelSessionRegistration(first)
+
+        // Assert
+        assertEquals(SessionRegistrationStatus.REGISTERED, status(waitlist[0]))
+        assertNull(sessionRegistrationRepository.findById(waitlist[0]).get().waitlistPosition)
+        assertEquals(listOf(1, 2), waitlist.drop(1).map { sessionRegistrationRepository.findById(it).get().waitlistPosition })
+    }
+
+    @Test
+    @DisplayName("Should fill raised capacity from the waitlist in order")
+    fun shouldPromoteOnCapacityIncrease() {
+        // Arrange
+        val session = session(capacity = 1)
+        attend(session, SessionRegistrationStatus.REGISTERED)
+        val waitlist = List(4) { attend(session, SessionRegistrationStatus.WAITLIST) }
+
+        // Act
+        sessionService.updateSession(session.id!!, UpdateSessionDto(
+            title = null, description = null, startDateTime = null, endDateTime = null, location = null,
+            speakerName = null, speakerBio = null, capacity = 3, sessionType = null, isActive = null,
+            requirements = null, materials = null
+        ))
+
+        // Assert
+        assertEquals(
+            listOf(SessionRegistrationStatus.REGISTERED, SessionRegistrationStatus.REGISTERED, SessionRegistrationStatus.WAITLIST, SessionRegistrationStatus.WAITLIST),
+            waitlist.map { status(it) }
+        )
+        assertEquals(listOf(1, 2), waitlist.drop(2).map { sessionRegistrationRepository.findById(it).get().waitlistPosition })
+    }
+
+    @Test
+    @DisplayName("Should release session seats when the event registration is cancelled")
+    fun shouldFollowRegistrationCancellation() {
+        // Arrange
+        val session = session(capacity = 1)
+        val registrationId = registrationController.createRegistration(RegistrationCreateDto(
+            eventInstanceId = instance.id, userEmail = "leaving@example.com", userName = "Leaving"
+        )).id!!
+        val seat = attend(session, SessionRegistrationStatus.REGISTERED, registrationRepository.findById(registrationId).get())
+        val waiting = attend(session, SessionRegistrationStatus.WAITLIST)
+
+        // Act
+        registrationController.cancelRegistration(registrationId)
+
+        // Assert
+        assertEquals(SessionRegistrationStatus.CANCELLED, status(seat))
+        assertEquals(SessionRegistrationStatus.REGISTERED, status(waiting))
+    }
+
+    @Test
+    @DisplayName("Should never promote past capacity under a burst of cancellations")
+    fun shouldHandleCancellationBursts() {
+        // Arrange
+        val session = session(capacity = 20)
+        val seats = List(20) { attend(session, SessionRegistrationStatus.REGISTERED) }
+        List(30) { attend(session, SessionRegistrationStatus.WAITLIST) }
+        val executor = Executors.newFixedThreadPool(8)
+
+        // Act
+        try {
+            seats.take(15).map { id -> executor.submit { sessionService.cancelSessionRegistration(id) } }
+                .forEach { it.get(30, TimeUnit.SECONDS) }
+        } finally {
+            executor.shutdownNow()
+        }
+
+        // Assert
+        assertEquals(20L, sessionRegistrationRepository.countBySessionIdAndStatus(session.id!!, SessionRegistrationStatus.REGISTERED))
+        val positions = sessionRegistrationRepository.findWaitlistBySessionIdOrderByPosition(session.id).map { it.waitlistPosition }
+        assertEquals((1..15).toList(), positions)
+    }
+
+    @Test
+    @DisplayName("Should renumber a full session's waitlist only when its positions have gaps")
+    fun shouldRenumberOnlyGappedWaitlist() {
+        // Arrange: positions deliberately out of joining order, so a renumbering would show
+        val session = session(capacity = 1)
+        attend(session, SessionRegistrationStatus.REGISTERED)
+        val waitlist = listOf(2, 1).map { attend(session, SessionRegistrationStatus.WAITLIST, position = it) }
+
+        // Act
+        val untouched = sessionWaitlistService.promote(session.id!!)
+        val numbered = positions(waitlist)
+        sessionRegistrationRepository.save(sessionRegistrationRepository.findById(waitlist[1]).get().copy(waitlistPosition = 3))
+        sessionWaitlistService.promote(session.id)
+
+        // Assert
+        assertEquals(0, untouched)
+        assertEquals(listOf(2, 1), numbered, "a gapless waitlist is left alone")
+        assertEquals(listOf(1, 2), positions(waitlist))
+    }
+
+    @Test
+    @DisplayName("Should catch up waitlists with free seats in the periodic sweep")
+    fun shouldSweepMissedPromotions() {
+        // Arrange
+        val session = session(capacity = 2)
+        val waiting = attend(session, SessionRegistrationStatus.WAITLIST)
+
+        // Act
+        sessionWaitlistService.promoteAll()
+
+        // Assert
+        assertEquals(SessionRegistrationStatus.REGISTERED, status(waiting))
+        assertEquals(0, sessionWaitlistService.promote(session.id!!))
+    }
+
+    private fun session(capacity: Int): Session {
+        val event = eventRepository.save(Event().apply {
+            name = "Sessions"
+            status = EventStatus.PUBLISHED
+        })
+        instance = eventInstanceRepository.save(EventInstance(event = event))
+        return sessionRepository.save(Session(event = event, title = "Workshop", capacity = capacity)).also { sessions += it }
+    }
+
+    private var joined = LocalDateTime.of(2030, 1, 1, 9, 0)
+
+    private fun attend(
+        session: Session,
+        status: SessionRegistrationStatus,
+        registration: Registration = registrationRepository.save(Registration(
+            eventInstance = instance, userEmail = "${UUID.randomUUID()}@example.com", status = RegistrationStatus.REGISTERED
+        )),
+        position: Int? = null
+    ): UUID {
+        joined = joined.plusMinutes(1)
+        return sessionRegistrationRepository.save(SessionRegistration(
+            session = session,
+            registration = registration,
+            status = status,
+            waitlistPosition = position,
+            waitlistRegisteredAt = joined.takeIf { status == SessionRegistrationStatus.WAITLIST }
+        )).id!!
+    }
+
+    private fun positions(ids: List<UUID>) = ids.map { sessionRegistrationRepository.findById(it).get().waitlistPosition }
+
+    private fun status(sessionRegistrationId: UUID) = sessionRegistrationRepository.findById(sessionRegistrationId).get().status
+}
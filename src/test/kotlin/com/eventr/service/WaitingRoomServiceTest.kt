@@ -0,0 +1,288 @@
+package com.eventr.service
+
+import com.eventr.exception.BusinessRuleException
+import com.eventr.exception.EntityNotFoundException
+import com.eventr.exception.RateLimitException
+import com.eventr.repository.WaitingRoomAdmissionRepository
+import com.eventr.repository.WaitingRoomRepository
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Nested
+import org.junit.jupiter.api.Test
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.annotation.Propagation
+import org.springframework.transaction.annotation.Transactional
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+import java.util.UUID
+
+/**
+ * Runs against the database the rooms are shared through; a second service
+ * instance stands in for another node.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("WaitingRoomService Tests")
+class WaitingRoomServiceTest {
+
+    @Autowired
+    private lateinit var roomRepository: WaitingRoomRepository
+
+    @Autowired
+    private lateinit var admissionRepository: WaitingRoomAdmissionRepository
+
+    @Autowired
+    private lateinit var transactionManager: PlatformTransactionManager
+
+    private class MutableClock(var now: Instant) : Clock() {
+        override fun getZone() = ZoneOffset.UTC
+        override fun withZone(zone: java.time.ZoneId?) = this
+        override fun instant() = now
+    }
+
+    private val clock = MutableClock(Instant.parse("2030-01-01T00:00:00Z"))
+    private val instanceId = UUID.randomUUID()
+    private lateinit var service: WaitingRoomService
+    private lateinit var otherNode: WaitingRoomService
+
+    @BeforeEach
+    fun setUp() {
+        service = node()
+        otherNode = node()
+    }
+
+    @AfterEach
+    fun tearDown() {
+        admissionRepository.deleteAll()
+        roomRepository.deleteAll()
+    }
+
+    private fun node() = WaitingRoomService(
+        roomRepository, admissionRepository, transactionManager, SECRET, 2.0, Duration.ofMinutes(10), 1, Duration.ZERO, clock
+    )
+
+    @Nested
+    @DisplayName("Queue Tests")
+    inner class QueueTests {
+
+        @Test
+        @DisplayName("Should admit tickets in arrival order at the room's rate")
+        fun shouldAdmitInOrderAtRate() {
+            // Arrange
+            service.open(instanceId)
+            val tickets = (1..5).map { service.join(instanceId) }
+
+            // Act
+            clock.now = clock.now.plusSeconds(1)
+            val polled = tickets.map { service.poll(it.token) }
+
+            // Assert
+            assertEquals(listOf(1L, 2L, 3L, 4L, 5L), tickets.map { it.position })
+            assertEquals(listOf(true, true, false, false, false), polled.map { it.admitted })
+            assertEquals(listOf(0L, 0L, 1L, 2L, 3L), polled.map { it.position })
+            assertEquals(2, polled.last().estimatedWaitSeconds)
+            // Admitted half a second in, at two per second
+            assertEquals(clock.now.minusMillis(500).plus(Duration.ofMinutes(10)), polled.first().admissionExpiresAt)
+        }
+
+        @Test
+        @DisplayName("Should not bank admissions while the queue is empty")
+        fun shouldNotBankIdleTime() {
+            // Arrange
+            service.open(instanceId)
+            clock.now = clock.now.plusSeconds(60)
+
+            // Act
+            val first = service.join(instanceId)
+            val second = service.join(instanceId)
+
+            // Assert
+            assertEquals(listOf(1L, 2L), listOf(first.position, second.position))
+            assertEquals(2, service.status(instanceId).waiting)
+        }
+
+        @Test
+        @DisplayName("Should refuse tickets when no room is open and forget them when it closes")
+        fun shouldRequireOpenRoom() {
+            assertThrows(BusinessRuleException::class.java) { service.join(instanceId) }
+
+            service.open(instanceId)
+            val ticket = service.join(instanceId)
+            service.close(instanceId)
+
+            assertFalse(service.isOpen(instanceId))
+            assertThrows(EntityNotFoundException::class.java) { service.poll(ticket.token) }
+        }
+    }
+
+    @Nested
+    @DisplayName("Admission Tests")
+    inner class AdmissionTests {
+
+        @Test
+        @DisplayName("Should let registrations through freely while no room is open")
+        fun shouldPassThroughWithoutRoom() {
+            assertEquals("ok", service.admit(instanceId, null) { "ok" })
+        }
+
+        @Test
+        @DisplayName("Should hold back tickets that are missing or not yet admitted")
+        fun shouldRejectUnadmittedTickets() {
+            // Arrange
+            service.open(instanceId)
+            service.join(instanceId)
+            val second = service.join(instanceId)
+
+            // Act
+            val missing = assertThrows(RateLimitException::class.java) { service.admit(instanceId, null) { "ok" } }
+            val early = assertThrows(RateLimitException::class.java) { service.admit(instanceId, second.token) { "ok" } }
+
+            // Assert
+            assertEquals(2, missing.retryAfterSeconds)
+            assertEquals(1, early.retryAfterSeconds)
+        }
+
+        @Test
+        @DisplayName("Should use up a ticket only when the registration succeeds")
+        fun shouldConsumeTicketOnSuccess() {
+            // Arrange
+            service.open(instanceId)
+            val ticket = service.join(instanceId)
+            clock.now = clock.now.plusSeconds(1)
+
+            // Act
+            assertThrows(IllegalStateException::class.java) { service.admit(instanceId, ticket.token) { error("insert failed") } }
+            val result = service.admit(instanceId, ticket.token) { "ok" }
+
+            // Assert
+            assertEquals("ok", result)
+            assertThrows(RateLimitException::class.java) { service.admit(instanceId, ticket.token) { "again" } }
+        }
+
+        @Test
+        @DisplayName("Should expire admissions that are not used within the window")
+        fun shouldExpireUnusedAdmissions() {
+            // Arrange
+            service.open(instanceId)
+            val ticket = service.join(instanceId)
+            clock.now = clock.now.plusSeconds(1)
+            service.poll(ticket.token)
+
+            // Act
+            clock.now = clock.now.plus(Duration.ofMinutes(11))
+
+            // Assert
+            assertThrows(EntityNotFoundException::class.java) { service.poll(ticket.token) }
+        }
+
+        @Test
+        @DisplayName("Should turn registrations away while every slot is busy")
+        fun shouldBoundConcurrentRegistrations() {
+            val nested = service.admit(instanceId, null) {
+                assertThrows(RateLimitException::class.java) { service.admit(UUID.randomUUID(), null) { "inner" } }
+                "outer"
+            }
+
+            assertEquals("outer", nested)
+            assertEquals("after", service.admit(instanceId, null) { "after" })
+        }
+    }
+
+    @Nested
+    @DisplayName("Multi-node Tests")
+    inner class MultiNodeTests {
+
+        @Test
+        @DisplayName("Should report a room opened on another node once it has refreshed")
+        fun shouldSeeRoomsOpenedElsewhere() {
+            // Arrange
+            service.open(instanceId)
+            val before = otherNode.status(instanceId)
+
+            // Act
+            otherNode.refresh()
+
+            // Assert
+            assertFalse(before.open)
+            assertTrue(otherNode.status(instanceId).open)
+            assertThrows(RateLimitException::class.java) { otherNode.admit(instanceId, null) { "ok" } }
+        }
+
+        @Test
+        @DisplayName("Should queue visitors joining on different nodes in one order")
+        fun shouldShareOneQueue() {
+            // Arrange
+            service.open(instanceId)
+            otherNode.refresh()
+
+            // Act
+            val first = service.join(instanceId)
+            val second = otherNode.join(instanceId)
+
+            // Assert
+            assertEquals(listOf(1L, 2L), listOf(first.position, second.position))
+            assertEquals(1, otherNode.poll(second.token).estimatedWaitSeconds)
+        }
+
+        @Test
+        @DisplayName("Should honour a ticket on another node and let it through only once")
+        fun shouldUseTicketOnceAcrossNodes() {
+            // Arrange
+            service.open(instanceId)
+            otherNode.refresh()
+            val ticket = service.join(instanceId)
+            clock.now = clock.now.plusSeconds(1)
+
+            // Act
+            val result = otherNode.admit(instanceId, ticket.token) { "ok" }
+
+            // Assert
+            assertEquals("ok", result)
+            assertThrows(RateLimitException::class.java) { service.admit(instanceId, ticket.token) { "again" } }
+        }
+
+        @Test
+        @DisplayName("Should refuse altered tickets")
+        fun shouldRejectForgedTickets() {
+            // Arrange
+            service.open(instanceId)
+            val ticket = service.join(instanceId)
+            clock.now = clock.now.plusSeconds(1)
+            val forged = ticket.token.dropLast(1) + if (ticket.token.last() == 'A') 'B' else 'A'
+
+            // Act & Assert
+            assertThrows(EntityNotFoundException::class.java) { service.poll(forged) }
+            assertThrows(RateLimitException::class.java) { service.admit(instanceId, forged) { "ok" } }
+        }
+
+        @Test
+        @DisplayName("Should stop gating on every node once the room is closed")
+        fun shouldCloseForAllNodes() {
+            // Arrange
+            service.open(instanceId)
+            otherNode.refresh()
+            val ticket = otherNode.join(instanceId)
+
+            // Act
+            service.close(instanceId)
+            otherNode.refresh()
+
+            // Assert
+            assertFalse(otherNode.isOpen(instanceId))
+            assertEquals("ok", otherNode.admit(instanceId, null) { "ok" })
+            assertThrows(EntityNotFoundException::class.java) { otherNode.poll(ticket.token) }
+        }
+    }
+
+    companion object {
+        private const val SECRET = "waiting-room-test-secret-of-at-least-32-chars"
+    }
+}
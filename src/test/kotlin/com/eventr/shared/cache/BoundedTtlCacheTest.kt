@@ -0,0 +1,104 @@
+package com.eventr.shared.cache
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+
+@DisplayName("BoundedTtlCache Tests")
+class BoundedTtlCacheTest {
+
+    private class MutableClock(var now: Instant) : Clock() {
+        override fun getZone() = ZoneOffset.UTC
+        override fun withZone(zone: java.time.ZoneId?) = this
+        override fun instant() = now
+    }
+
+    private val clock = MutableClock(Instant.parse("2030-01-01T00:00:00Z"))
+
+    @Test
+    @DisplayName("Should load once and then serve hits until the entry expires")
+    fun shouldExpireEntriesAfterTtl() {
+        // Arrange
+        val cache = BoundedTtlCache<String, String>("test", 10, Duration.ofSeconds(30), clock)
+        var loads = 0
+
+        // Act
+        repeat(3) { cache.getOrLoad("k") { loads++; "v" } }
+        clock.now = clock.now.plusSeconds(31)
+        cache.getOrLoad("k") { loads++; "v2" }
+
+        // Assert
+        assertEquals(2, loads)
+        assertEquals(2, cache.hitCount)
+        assertEquals(2, cache.missCount)
+        assertEquals("v2", cache.get("k"))
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entry when full")
+    fun shouldEvictLeastRecentlyUsed() {
+        // Arrange
+        val cache = BoundedTtlCache<String, Int>("test", 2, Duration.ofMinutes(1), clock)
+        cache.getOrLoad("a") { 1 }
+        cache.getOrLoad("b") { 2 }
+
+        // Act
+        cache.get("a")
+        cache.getOrLoad("c") { 3 }
+
+        // Assert
+        assertEquals(1, cache.get("a"))
+        assertNull(cache.get("b"))
+        assertEquals(3, cache.get("c"))
+        assertEquals(1, cache.evictionCount)
+    }
+
+    @Test
+    @DisplayName("Should not cache a value loaded across an invalidation")
+    fun shouldNotCacheLoadRacingInvalidation() {
+        // Arrange
+        val cache = BoundedTtlCache<String, String>("test", 10, Duration.ofMinutes(1), clock)
+
+        // Act
+        val returned = cache.getOrLoad("k") {
+            cache.invalidate("k")
+            "stale"
+        }
+
+        // Assert
+        assertEquals("stale", returned)
+        assertNull(cache.get("k"))
+    }
+
+    @Test
+    @DisplayName("Should not cache null results")
+    fun shouldNotCacheNull() {
+        val cache = BoundedTtlCache<String, String>("test", 10, Duration.ofMinutes(1), clock)
+
+        assertNull(cache.getOrLoad("missing") { null })
+        assertEquals(0, cache.size)
+    }
+
+    @Test
+    @DisplayName("Should publish hit and miss counters")
+    fun shouldPublishMetrics() {
+        // Arrange
+        val registry = SimpleMeterRegistry()
+        val cache = BoundedTtlCache<String, String>("events.byId", 10, Duration.ofMinutes(1), clock)
+        cache.bindTo(registry)
+
+        // Act
+        cache.getOrLoad("k") { "v" }
+        cache.get("k")
+
+        // Assert
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "events.byId", "result", "hit").functionCounter().count())
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "events.byId", "result", "miss").functionCounter().count())
+        assertEquals(1.0, registry.get("cache.size").tag("cache", "events.byId").gauge().value())
+    }
+}
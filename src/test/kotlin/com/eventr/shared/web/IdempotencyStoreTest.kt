@@ -0,0 +1,115 @@
+package com.eventr.shared.web
+
+import com.eventr.exception.BusinessRuleException
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+@DisplayName("IdempotencyStore Tests")
+class IdempotencyStoreTest {
+
+    private class MutableClock(var now: Instant) : Clock() {
+        override fun getZone() = ZoneOffset.UTC
+        override fun withZone(zone: java.time.ZoneId?) = this
+        override fun instant() = now
+    }
+
+    private val clock = MutableClock(Instant.parse("2030-01-01T00:00:00Z"))
+
+    private val store = IdempotencyStore(100, Duration.ofHours(1), Duration.ofSeconds(5), clock)
+
+    @Test
+    @DisplayName("Should answer a retry with the first response without running again")
+    fun shouldReplayRetries() {
+        // Arrange
+        var runs = 0
+
+        // Act
+        val first = store.execute("scope", "key-1", listOf("body")) { ++runs }
+        val retry = store.execute("scope", "key-1", listOf("body")) { ++runs }
+
+        // Assert
+        assertEquals(1, first)
+        assertEquals(1, retry)
+        assertEquals(1, runs)
+    }
+
+    @Test
+    @DisplayName("Should run every request without a key, and keep keys apart per scope")
+    fun shouldRunWithoutKey() {
+        var runs = 0
+
+        store.execute("scope", null, listOf("body")) { ++runs }
+        store.execute("scope", null, listOf("body")) { ++runs }
+        store.execute("other", "key-1", listOf("body")) { ++runs }
+        store.execute("scope", "key-1", listOf("body")) { ++runs }
+
+        assertEquals(4, runs)
+    }
+
+    @Test
+    @DisplayName("Should reject a key reused for a different request")
+    fun shouldRejectReusedKey() {
+        store.execute("scope", "key-1", listOf("body")) { 1 }
+
+        val error = assertThrows(BusinessRuleException::class.java) {
+            store.execute("scope", "key-1", listOf("other body")) { 2 }
+        }
+
+        assertEquals("IDEMPOTENCY_KEY_REUSED", error.ruleCode)
+        assertThrows(IllegalArgumentException::class.java) { store.execute("scope", " ", listOf("body")) { 3 } }
+    }
+
+    @Test
+    @DisplayName("Should not remember failures and forget responses after the ttl")
+    fun shouldForgetFailuresAndExpiredResponses() {
+        var runs = 0
+
+        assertThrows(IllegalStateException::class.java) {
+            store.execute<Int>("scope", "key-1", listOf("body")) { runs++; throw IllegalStateException("down") }
+        }
+        store.execute("scope", "key-1", listOf("body")) { ++runs }
+        clock.now = clock.now.plus(Duration.ofHours(2))
+        store.execute("scope", "key-1", listOf("body")) { ++runs }
+
+        assertEquals(3, runs)
+    }
+
+    @Test
+    @DisplayName("Should run concurrent duplicates once and give all of them its response")
+    fun shouldCoalesceConcurrentDuplicates() {
+        // Arrange
+        val runs = AtomicInteger()
+        val release = CountDownLatch(1)
+        val executor = Executors.newFixedThreadPool(8)
+
+        // Act
+        val responses = try {
+            val futures = (1..8).map {
+                executor.submit<Int> {
+                    store.execute("scope", "key-1", listOf("body")) {
+                        release.await(5, TimeUnit.SECONDS)
+                        runs.incrementAndGet()
+                    }
+                }
+            }
+            Thread.sleep(100)
+            release.countDown()
+            futures.map { it.get(10, TimeUnit.SECONDS) }
+        } finally {
+            executor.shutdownNow()
+        }
+
+        // Assert
+        assertEquals(1, runs.get())
+        assertEquals(List(8) { 1 }, responses)
+    }
+}
@@ -0,0 +1,39 @@
+package com.eventr.util
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.DisplayName
+import org.junit.jupiter.api.Test
+
+@DisplayName("BloomFilter Tests")
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("Should contain everything put into it")
+    fun shouldHaveNoFalseNegatives() {
+        val filter = BloomFilter(1000, 0.01)
+        val values = (1..1000).map { "attendee$it@example.com" }
+
+        values.forEach { filter.put(it) }
+
+        assertTrue(values.all { filter.mightContain(it) })
+        assertEquals(1000, filter.insertionCount)
+    }
+
+    @Test
+    @DisplayName("Should keep false positives near the configured rate")
+    fun shouldBoundFalsePositives() {
+        val filter = BloomFilter(1000, 0.01)
+        (1..1000).forEach { filter.put("attendee$it@example.com") }
+
+        val falsePositives = (1..10_000).count { filter.mightContain("stranger$it@example.com") }
+
+        assertTrue(falsePositives < 300, "false positives: $falsePositives")
+    }
+
+    @Test
+    @DisplayName("Should reject invalid sizing")
+    fun shouldRejectInvalidSizing() {
+        assertThrows(IllegalArgumentException::class.java) { BloomFilter(0, 0.01) }
+        assertThrows(IllegalArgumentException::class.java) { BloomFilter(10, 1.0) }
+    }
+}